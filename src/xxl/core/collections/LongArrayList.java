@@ -0,0 +1,273 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A resizable list of <code>long</code> values which are stored in a
+ * primitive array instead of a list of <code>Long</code> objects. The values
+ * are boxed only when they are accessed by the methods of the
+ * {@link java.util.List List} interface, e.g. {@link #get(int)} returns a
+ * new <code>Long</code> object. The methods {@link #getLong(int)},
+ * {@link #addLong(long)}, {@link #addLong(int, long)} and
+ * {@link #lowerBound(long)} access the values without boxing.
+ * 
+ * <p>The list does not accept <code>null</code> values.</p>
+ *
+ * @see AbstractList
+ */
+public class LongArrayList extends AbstractList<Long> implements RandomAccess {
+
+	/**
+	 * The array storing the values of the list.
+	 */
+	protected long[] values;
+
+	/**
+	 * The number of values stored in the list.
+	 */
+	protected int size = 0;
+
+	/**
+	 * Constructs an empty list with the given initial capacity.
+	 *
+	 * @param capacity the initial capacity of the list.
+	 */
+	public LongArrayList(int capacity) {
+		values = new long[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Constructs an empty list with an initial capacity of ten.
+	 */
+	public LongArrayList() {
+		this(10);
+	}
+
+	/**
+	 * Ensures that the list can store the given number of values without
+	 * resizing its array.
+	 *
+	 * @param capacity the required capacity.
+	 */
+	protected void ensureCapacity(int capacity) {
+		if (capacity > values.length)
+			values = Arrays.copyOf(values, Math.max(capacity, 2*values.length));
+	}
+
+	/**
+	 * Returns the number of values in this list.
+	 *
+	 * @return the number of values in this list.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the value at the given position of this list without boxing it.
+	 *
+	 * @param index the position of the value.
+	 * @return the value at the given position.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public long getLong(int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		return values[index];
+	}
+
+	/**
+	 * Returns the value at the given position of this list.
+	 *
+	 * @param index the position of the value.
+	 * @return the value at the given position.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public Long get(int index) {
+		return getLong(index);
+	}
+
+	/**
+	 * Replaces the value at the given position of this list.
+	 *
+	 * @param index the position of the value.
+	 * @param element the new value.
+	 * @return the value previously stored at the given position.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public Long set(int index, Long element) {
+		long old = getLong(index);
+		values[index] = element;
+		return old;
+	}
+
+	/**
+	 * Appends the given value to this list without boxing it.
+	 *
+	 * @param value the value to append.
+	 */
+	public void addLong(long value) {
+		ensureCapacity(size+1);
+		values[size++] = value;
+		modCount++;
+	}
+
+	/**
+	 * Inserts the given value at the given position of this list. The
+	 * subsequent values are shifted to the right.
+	 *
+	 * @param index the position of the new value.
+	 * @param element the value to insert.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public void add(int index, Long element) {
+		addLong(index, element);
+	}
+
+	/**
+	 * Inserts the given value at the given position of this list without
+	 * boxing it. The subsequent values are shifted to the right.
+	 *
+	 * @param index the position of the new value.
+	 * @param value the value to insert.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public void addLong(int index, long value) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		ensureCapacity(size+1);
+		System.arraycopy(values, index, values, index+1, size-index);
+		values[index] = value;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Inserts all values of the given collection at the given position of
+	 * this list. The subsequent values are shifted to the right.
+	 *
+	 * @param index the position of the first new value.
+	 * @param collection the values to insert.
+	 * @return <code>true</code> if the list has changed.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public boolean addAll(int index, Collection<? extends Long> collection) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		Object[] array = collection.toArray();
+		int number = array.length;
+		ensureCapacity(size+number);
+		System.arraycopy(values, index, values, index+number, size-index);
+		for (Object value : array)
+			values[index++] = (Long)value;
+		size += number;
+		modCount++;
+		return number > 0;
+	}
+
+	/**
+	 * Removes the value at the given position of this list. The subsequent
+	 * values are shifted to the left.
+	 *
+	 * @param index the position of the value.
+	 * @return the removed value.
+	 * @throws IndexOutOfBoundsException if the index is out of range.
+	 */
+	public Long remove(int index) {
+		long old = getLong(index);
+		System.arraycopy(values, index+1, values, index, size-index-1);
+		size--;
+		modCount++;
+		return old;
+	}
+
+	/**
+	 * Removes the values in the given range of positions. This method is
+	 * used by the <code>clear</code> method of this list and of its sub
+	 * lists.
+	 *
+	 * @param fromIndex the position of the first value to remove.
+	 * @param toIndex the position after the last value to remove.
+	 */
+	protected void removeRange(int fromIndex, int toIndex) {
+		System.arraycopy(values, toIndex, values, fromIndex, size-toIndex);
+		size -= toIndex-fromIndex;
+		modCount++;
+	}
+
+	/**
+	 * Removes all values from this list.
+	 */
+	public void clear() {
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns the position of the first value of this list that is not
+	 * smaller than the given value, assuming that the values of the list are
+	 * sorted in ascending order. If all values are smaller, the size of the
+	 * list is returned. The search has no data dependent branches in its
+	 * loop, so the JIT compiler is able to use conditional moves.
+	 *
+	 * @param value the value to search.
+	 * @return the position of the first value not smaller than the given
+	 *         value.
+	 */
+	public int lowerBound(long value) {
+		return lowerBound(values, size, value);
+	}
+
+	/**
+	 * Returns the position of the first of the first <code>size</code>
+	 * values of the given array that is not smaller than the given value,
+	 * assuming that these values are sorted in ascending order. If all
+	 * values are smaller, <code>size</code> is returned.
+	 *
+	 * @param values the sorted values.
+	 * @param size the number of values to search.
+	 * @param value the value to search.
+	 * @return the position of the first value not smaller than the given
+	 *         value.
+	 * @see #lowerBound(long)
+	 */
+	public static int lowerBound(long[] values, int size, long value) {
+		if (size == 0)
+			return 0;
+		int base = 0;
+		for (int length = size; length > 1; ) {
+			int half = length >>> 1;
+			base = values[base+half-1] < value ? base+half : base;
+			length -= half;
+		}
+		return values[base] < value ? base+1 : base;
+	}
+}
@@ -30,6 +30,7 @@ import java.util.NoSuchElementException;
 
 import xxl.core.functions.Function;
 import xxl.core.io.converters.FixedSizeConverter;
+import xxl.core.util.Decorator;
 
 /**
  * The class provides a constained decorator for a container. This class
@@ -73,7 +74,7 @@ import xxl.core.io.converters.FixedSizeConverter;
  * @see Iterator
  * @see NoSuchElementException
  */
-public abstract class ConstrainedDecoratorContainer extends AbstractContainer {
+public abstract class ConstrainedDecoratorContainer extends AbstractContainer implements Decorator<Container> {
 
 	/**
 	 * A factory method to create a new DecoratorContainer. It may
@@ -324,4 +325,13 @@ public abstract class ConstrainedDecoratorContainer extends AbstractContainer {
 	public Object[] batchInsert(Object[] blocks) {
 		return container.batchInsert(blocks);
 	}
+
+	/**
+	 * Returns the container decorated by this container.
+	 *
+	 * @return the decorated container.
+	 */
+	public Container getDecoree() {
+		return container;
+	}
 }
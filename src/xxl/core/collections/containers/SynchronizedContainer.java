@@ -31,6 +31,7 @@ import java.util.NoSuchElementException;
 import xxl.core.cursors.Cursor;
 import xxl.core.functions.Function;
 import xxl.core.io.converters.FixedSizeConverter;
+import xxl.core.util.Decorator;
 
 /**
  * The class provides a synchronized decorator for a container that follows 
@@ -55,7 +56,7 @@ import xxl.core.io.converters.FixedSizeConverter;
  * @see Iterator
  * @see NoSuchElementException
  */
-public class SynchronizedContainer implements Container {
+public class SynchronizedContainer implements Container, Decorator<Container> {
 
 	/**
 	 * A reference to the container to be decorated. This reference is
@@ -491,4 +492,13 @@ public class SynchronizedContainer implements Container {
 	public synchronized Object[] batchInsert(Object[] blocks) {
 		return container.batchInsert(blocks);
 	}
+
+	/**
+	 * Returns the container decorated by this container.
+	 *
+	 * @return the decorated container.
+	 */
+	public Container getDecoree() {
+		return container;
+	}
 }
@@ -31,13 +31,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import xxl.core.collections.containers.AbstractContainer;
 import xxl.core.functions.Function;
 import xxl.core.io.Block;
 import xxl.core.io.FilesystemOperations;
+import xxl.core.io.IOStatistics;
 import xxl.core.io.JavaFilesystemOperations;
 import xxl.core.io.RandomAccessFileInputStream;
 import xxl.core.io.RandomAccessFileOutputStream;
@@ -46,7 +51,10 @@ import xxl.core.io.converters.FixedSizeConverter;
 import xxl.core.io.converters.IntegerConverter;
 import xxl.core.io.converters.LongConverter;
 import xxl.core.io.converters.ShortConverter;
+import xxl.core.util.RankSelectBitMap;
 import xxl.core.util.WrappingRuntimeException;
+import xxl.core.util.metaData.CompositeMetaData;
+import xxl.core.util.metaData.MetaDataManageable;
 
 /**
  * This class provides a container that is able to store blocks in a file.
@@ -79,6 +87,16 @@ import xxl.core.util.WrappingRuntimeException;
  * offsets of removed blocks the new block will be stored in an empty space of
  * the container file, else the container file will be enlarged.
  * <p>
+ * While the container is open, both bitmaps are held in memory as
+ * {@link RankSelectBitMap word-packed bitmaps} and the freeList is derived
+ * from the reservedBitMap, i.e. reserving and removing a block does not
+ * perform any I/O. A removed block is reused by the next reservation that
+ * finds it as the first cleared bit of the reservedBitMap. The bitmap
+ * files, the freeList file, the length of the container file and the meta
+ * file are written lazily when the container is flushed or closed.
+ * Therefore, the files of a container that has not been flushed or closed
+ * do not reflect its current state.
+ * <p>
  * Earlier versions of xxl worked with only three files. Such Containers
  * are automatically migrated to the five files version (at the first
  * use).
@@ -161,8 +179,9 @@ import xxl.core.util.WrappingRuntimeException;
  * @see NoSuchElementException
  * @see RandomAccessFile
  * @see WrappingRuntimeException
+ * @see IOStatistics
  */
-public class BlockFileContainer extends AbstractContainer {
+public class BlockFileContainer extends AbstractContainer implements MetaDataManageable<Object,Object> {
 
 	/**
 	 * The name for the files of this container. The file names of the
@@ -279,6 +298,30 @@ public class BlockFileContainer extends AbstractContainer {
 	 */
 	protected RandomAccessFile freeList;
 
+	/**
+	 * The in-memory copy of the reservedBitMap file. Its length is the
+	 * number of blocks of the container file.
+	 */
+	protected RankSelectBitMap reserved = new RankSelectBitMap();
+
+	/**
+	 * The in-memory copy of the updatedBitMap file. Its length is the
+	 * number of blocks of the container file.
+	 */
+	protected RankSelectBitMap updated = new RankSelectBitMap();
+
+	/**
+	 * The number of the first block that might be free. All blocks in front
+	 * of it are reserved.
+	 */
+	protected long firstFree = 0;
+
+	/**
+	 * A flag that determines whether the in-memory bitmaps have been
+	 * modified since the files of this container have been written.
+	 */
+	protected boolean dirty = false;
+
 	/**
 	 * The size reserved for storing a block in this container. Every
 	 * block stored in the container file takes <tt>blockSize</tt> bytes,
@@ -298,6 +341,14 @@ public class BlockFileContainer extends AbstractContainer {
 	 */
 	protected byte idType=4;
 
+	/**
+	 * The I/O statistics of this container. The reads and writes of
+	 * blocks in the container file are recorded, whereas the I/Os of the
+	 * other files are not. The statistics also serve as the metadata
+	 * management of this container.
+	 */
+	protected IOStatistics statistics;
+
 	/**
 	 * Constructs an empty BlockFileContainer that is able to store blocks
 	 * with a maximum size of <tt>blockSize</tt> bytes. The given
@@ -319,6 +370,7 @@ public class BlockFileContainer extends AbstractContainer {
 		this.blockSize = blockSize;
 		this.fso = fso;
 
+		createMetaDataManagement();
 		openFiles();
 		reset();
 	}
@@ -352,6 +404,7 @@ public class BlockFileContainer extends AbstractContainer {
 		this.prefix = prefix;
 		this.fso = fso;
 		
+		createMetaDataManagement();
 		open();
 	}
 
@@ -435,12 +488,80 @@ public class BlockFileContainer extends AbstractContainer {
 				openFiles();
 				this.blockSize = metaData.readInt();
 				this.size = metaData.readInt();
+				readBitMaps();
 			}
 			catch (IOException ie) {
 				throw new WrappingRuntimeException(ie);
 			}
 	}
 
+	/**
+	 * Reads the reservedBitMap and updatedBitMap files into memory. The
+	 * length of the bitmaps is determined by the length of the container
+	 * file.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected void readBitMaps () throws IOException {
+		long blocks = container.length()/blockSize;
+
+		reserved = new RankSelectBitMap(readFile(reservedBitMap), blocks);
+		updated = new RankSelectBitMap(readFile(updatedBitMap), blocks);
+		firstFree = 0;
+		dirty = false;
+	}
+
+	/**
+	 * Returns the content of the given file.
+	 *
+	 * @param file the file to read.
+	 * @return the content of the file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected static byte [] readFile (RandomAccessFile file) throws IOException {
+		byte [] bytes = new byte [(int)file.length()];
+
+		file.seek(0);
+		file.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Writes the in-memory bitmaps to the reservedBitMap and updatedBitMap
+	 * files, the offsets of the free blocks to the freeList file and
+	 * adjusts the length of the container file, when the bitmaps have been
+	 * modified since the files have been written. The offsets are written
+	 * in descending order, so that a container that pops the offsets from
+	 * the end of the freeList file reuses the first free block at first.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected void writeBitMaps () throws IOException {
+		if (dirty) {
+			long blocks = reserved.length();
+			byte [] bytes = reserved.toByteArray();
+
+			reservedBitMap.seek(0);
+			reservedBitMap.write(bytes);
+			reservedBitMap.setLength(bytes.length);
+			bytes = updated.toByteArray();
+			updatedBitMap.seek(0);
+			updatedBitMap.write(bytes);
+			updatedBitMap.setLength(bytes.length);
+
+			ByteBuffer offsets = ByteBuffer.allocate((int)(blocks-reserved.cardinality())*8);
+			for (long index = reserved.nextClearBit(0), position = offsets.capacity(); index < blocks; index = reserved.nextClearBit(index+1))
+				offsets.putLong((int)(position -= 8), index*blockSize);
+			freeList.seek(0);
+			freeList.write(offsets.array());
+			freeList.setLength(offsets.capacity());
+
+			if (container.length()!=blocks*blockSize)
+				container.setLength(blocks*blockSize);
+			dirty = false;
+		}
+	}
+
 	/**
 	 * Returns a converter for the ids generated by this container. A
 	 * converter transforms an object to its byte representation and vice
@@ -484,8 +605,8 @@ public class BlockFileContainer extends AbstractContainer {
 	/**
 	 * Resets this container and any files associated with it.<br>
 	 * This implementation sets the length of the associated files to
-	 * <tt>0</tt>. Thereafter the size and maximum offset of this
-	 * container are corrected.
+	 * <tt>0</tt>. Thereafter the size of this container is corrected and
+	 * the in-memory bitmaps are cleared.
 	 */
 	public void reset () {
 		open();
@@ -494,6 +615,10 @@ public class BlockFileContainer extends AbstractContainer {
 			reservedBitMap.setLength(0);
 			updatedBitMap.setLength(0);
 			freeList.setLength(0);
+			reserved.clear();
+			updated.clear();
+			firstFree = 0;
+			dirty = false;
 			size = 0;
 		}
 		catch (IOException ie) {
@@ -510,22 +635,38 @@ public class BlockFileContainer extends AbstractContainer {
 		reset();
 	}
 
+	/**
+	 * Flushes the container, i.e. the in-memory bitmaps are written to the
+	 * bitmap files, the offsets of the free blocks are written to the
+	 * freeList file and the values of the fields <tt>blockSize</tt> and
+	 * <tt>size</tt> are written to the meta file.
+	 */
+	public void flush () {
+		if (this.container!=null)
+			try {
+				writeBitMaps();
+				metaData.seek(0);
+				metaData.writeInt(blockSize);
+				metaData.writeInt(size);
+			}
+			catch (IOException ie) {
+				throw new WrappingRuntimeException(ie);
+			}
+	}
+
 	/**
 	 * Closes the Container and releases its associated files. But before
-	 * closing the meta file, the serialized state of this container must
-	 * be appended. Therefore, the values of the fields <tt>size</tt> and
-	 * <tt>blockSize</tt> are append to the meta file. A closed container
-	 *  can be implicitly reopened by a consecutive call to one of its
-	 *  methods.
+	 * closing the files, the container is flushed, i.e. the in-memory
+	 * bitmaps and the serialized state of this container are written to
+	 * the files. A closed container can be implicitly reopened by a
+	 * consecutive call to one of its methods.
 	 */
 	public void close () {
 		if (this.container!=null)
 			try {
+				flush();
 				container.close();
 				container = null;
-				metaData.seek(0);
-				metaData.writeInt(blockSize);
-				metaData.writeInt(size);
 				metaData.close();
 				reservedBitMap.close();
 				updatedBitMap.close();
@@ -539,8 +680,8 @@ public class BlockFileContainer extends AbstractContainer {
 	/**
 	 * Returns <tt>true</tt> if the container contains a block for the identifier
 	 * <tt>id</tt>.<br>
-	 * This implementation checks whether the updatedBitMap files contains
-	 * an entry for the offset specified by <tt>id</tt>.
+	 * This implementation checks whether the in-memory updatedBitMap
+	 * contains an entry for the offset specified by <tt>id</tt>.
 	 *
 	 * @param id identifier of the block.
 	 * @return true if the container has updated a block for the specified
@@ -548,18 +689,9 @@ public class BlockFileContainer extends AbstractContainer {
 	 */
 	public boolean contains (Object id) {
 		open();
-		try {
-			long offset = ((Number)id).longValue();
+		long index = ((Number)id).longValue()/blockSize;
 
-			if (offset+blockSize>container.length())
-				return false;
-
-			updatedBitMap.seek(offset/blockSize/8);
-			return (updatedBitMap.read()&(1<<(offset/blockSize%8)))!=0;
-		}
-		catch (IOException ie) {
-			throw new WrappingRuntimeException(ie);
-		}
+		return index>=0 && index<updated.length() && updated.get(index);
 	}
 
 	/**
@@ -582,8 +714,10 @@ public class BlockFileContainer extends AbstractContainer {
 			if (!contains(id))
 				throw new NoSuchElementException();
 
+			long start = System.nanoTime();
 			container.seek(((Number)id).longValue());
 			container.read(array);
+			statistics.read(1, blockSize, System.nanoTime()-start);
 			return new Block(array, 0, blockSize);
 		}
 		catch (IOException ie) {
@@ -591,6 +725,54 @@ public class BlockFileContainer extends AbstractContainer {
 		}
 	}
 
+	/**
+	 * Returns an iterator that delivers the blocks associated to the
+	 * identifiers of the given iterator. An exception is thrown when a
+	 * desired block is not found via contains. In this implementation the
+	 * parameter unfix has no function because the container is
+	 * unbuffered.<br>
+	 * Other than the implementation of AbstractContainer this implementation
+	 * reads all blocks before it returns. The offsets of the blocks are
+	 * sorted and adjacent blocks are read by a single (scatter) read of the
+	 * container file, so that the file is read sequentially. The blocks are
+	 * delivered in the order of the given identifiers.
+	 *
+	 * @param ids an iterator of identifiers.
+	 * @param unfix signals whether the objects can be removed from the
+	 *        underlying buffer.
+	 * @return an iterator of the blocks associated to the specified
+	 *         identifiers.
+	 * @throws NoSuchElementException if a desired block is not found.
+	 */
+	public Iterator getAll (Iterator ids, boolean unfix) throws NoSuchElementException {
+		open();
+		List list = new ArrayList();
+		while (ids.hasNext())
+			list.add(ids.next());
+
+		long [] numbers = new long [list.size()];
+		for (int i = 0; i<numbers.length; i++) {
+			if (!contains(list.get(i)))
+				throw new NoSuchElementException();
+			numbers[i] = ((Number)list.get(i)).longValue()/blockSize;
+		}
+		return Arrays.asList(
+			new VectoredReader(blockSize) {
+				protected void read (long number, byte [][] arrays) throws IOException {
+					long start = System.nanoTime();
+					if (container.getClass()==RandomAccessFile.class)
+						scatter(container.getChannel(), number*blockSize, arrays);
+					else {
+						container.seek(number*blockSize);
+						for (int i = 0; i<arrays.length; i++)
+							container.readFully(arrays[i]);
+					}
+					statistics.read(arrays.length, (long)arrays.length*blockSize, System.nanoTime()-start);
+				}
+			}.read(numbers)
+		).iterator();
+	}
+
 	/**
 	 * Returns an iterator that delivers all the identifiers of
 	 * the container that are in use.
@@ -604,15 +786,13 @@ public class BlockFileContainer extends AbstractContainer {
 			boolean removeable = false;
 
 			public boolean hasNext () {
-				try {
-					for (removeable = false; !isUsed(nextId = new Long(id.longValue()+blockSize)); id = nextId)
-						if (nextId.longValue()+blockSize>container.length())
-							return false;
-					return true;
-				}
-				catch (IOException ie) {
-					throw new WrappingRuntimeException(ie);
-				}
+				long index = reserved.nextSetBit(id.longValue()/blockSize+1);
+
+				removeable = false;
+				if (index<0)
+					return false;
+				nextId = new Long(index*blockSize);
+				return true;
 			}
 
 			public Object next () throws NoSuchElementException {
@@ -635,25 +815,17 @@ public class BlockFileContainer extends AbstractContainer {
 	/**
 	 * Checks whether the <tt>id</tt> has been returned previously by a
 	 * call to insert or reserve and hasn't been removed so far.
-	 * This implementation checks whether the reservedBitMap files contains
-	 * an entry for the offset specified by <tt>id</tt>.
+	 * This implementation checks whether the in-memory reservedBitMap
+	 * contains an entry for the offset specified by <tt>id</tt>.
 	 *
 	 * @param id the id to be checked.
 	 * @return <tt>true</tt> exactly if the <tt>id</tt> is still in use.
 	 */
 	public boolean isUsed (Object id) {
 		open();
-		try {
-			long offset = ((Number)id).longValue();
+		long index = ((Number)id).longValue()/blockSize;
 
-			if (offset+blockSize>container.length())
-				return false;
-			reservedBitMap.seek(offset/blockSize/8);
-			return (reservedBitMap.read()&(1<<(offset/blockSize%8)))!=0;
-		}
-		catch (IOException ie) {
-			throw new WrappingRuntimeException(ie);
-		}
+		return index>=0 && index<reserved.length() && reserved.get(index);
 	}
 
 	/**
@@ -661,8 +833,10 @@ public class BlockFileContainer extends AbstractContainer {
 	 * thrown when a block with an identifier <tt>id</tt> is not in the
 	 * container. After a call of <tt>remove()</tt> all the iterators (and
 	 * cursors) can be in an invalid state.<br>
-	 * This implementation clears the entry for the block in both fat files
-	 * and adds <tt>id</tt> to the freeList file.
+	 * This implementation clears the entry for the block in both in-memory
+	 * bitmaps. When the block is the last block of the container file, the
+	 * bitmaps are truncated behind the last used block, otherwise the block
+	 * becomes a free block that can be reused by <tt>reserve</tt>.
 	 *
 	 * @param id an identifier of a block.
 	 * @throws NoSuchElementException if a block with an identifier
@@ -670,45 +844,33 @@ public class BlockFileContainer extends AbstractContainer {
 	 */
 	public void remove (Object id) throws NoSuchElementException {
 		open();
-		try {
-			long offset = ((Number)id).longValue();
-			int b;
-
-			if (!isUsed(id))
-				throw new NoSuchElementException();
-			if (--size==0)
-				reset();
-			else {
-				reservedBitMap.seek(offset/blockSize/8);
-				b = reservedBitMap.read();
-				reservedBitMap.seek(reservedBitMap.getFilePointer()-1);
-				reservedBitMap.write(b&~(1<<(offset/blockSize%8)));
-				updatedBitMap.seek(offset/blockSize/8);
-				b = updatedBitMap.read();
-				updatedBitMap.seek(updatedBitMap.getFilePointer()-1);
-				updatedBitMap.write(b&~(1<<(offset/blockSize%8)));
-				if (offset+blockSize==container.length()) {
-					while (!isUsed(new Long(offset -= blockSize)));
-					reservedBitMap.setLength(offset/blockSize/8+1);
-					updatedBitMap.setLength(offset/blockSize/8+1);
-					if (container.length()>offset+blockSize)
-						container.setLength(offset+blockSize);
-				}
-				else {
-					freeList.seek(freeList.length());
-					freeList.writeLong(offset);
-				}
+		long index = ((Number)id).longValue()/blockSize;
+
+		if (!isUsed(id))
+			throw new NoSuchElementException();
+		if (--size==0)
+			reset();
+		else {
+			reserved.clear(index);
+			updated.clear(index);
+			if (index==reserved.length()-1) {
+				long blocks = reserved.previousSetBit(index)+1;
+
+				reserved.setLength(blocks);
+				updated.setLength(blocks);
 			}
-		}
-		catch (IOException ie) {
-			throw new WrappingRuntimeException(ie);
+			firstFree = Math.min(firstFree, index);
+			dirty = true;
 		}
 	}
 
 	/**
 	 * Reserves an id for subsequent use.
-	 * This implementation sets in the reservedBitMap file the
-	 * appropriate bit for the id returned by this method.
+	 * This implementation sets the appropriate bit for the id returned by
+	 * this method in the in-memory reservedBitMap. The first free block of
+	 * the container file is reused, when there are free blocks, otherwise
+	 * the container file is enlarged by one block (that is written when it
+	 * is updated or the container is flushed).
 	 *
 	 * @param getObject A parameterless function providing the object for
 	 * 			that an id should be reserved. Not used by this
@@ -717,44 +879,23 @@ public class BlockFileContainer extends AbstractContainer {
 	*/
 	public Object reserve (Function getObject) {
 		open();
-		try {
-			long offset;
-			int b;
-
-			for (;;) {
-				if (freeList.length()==0) {
-					offset = container.length();
-					container.setLength(offset+blockSize);
-					break;
-				}
-				freeList.seek(freeList.length()-8);
-				offset = freeList.readLong();
-				freeList.setLength(freeList.length()-8);
-				if (offset+blockSize<=container.length())
-					break;
-			}
-			reservedBitMap.seek(offset/blockSize/8);
-			if (reservedBitMap.getFilePointer()==reservedBitMap.length()) {
-				reservedBitMap.write(1);
-				updatedBitMap.seek(updatedBitMap.length());
-				updatedBitMap.write(0);
-			}
-			else {
-				b = reservedBitMap.read();
-				reservedBitMap.seek(reservedBitMap.getFilePointer()-1);
-				reservedBitMap.write(b|(1<<(offset/blockSize%8)));
-			}
-			size++;
-			
-			switch (idType) {
-			case 1: return new Byte((byte) offset);
-			case 2: return new Short((short) offset);
-			case 3: return new Integer((int) offset);
-			default: return new Long(offset);
-			}
+		long index = reserved.cardinality()<reserved.length() ? reserved.nextClearBit(firstFree) : reserved.length();
+		long offset = index*blockSize;
+
+		if (index==reserved.length()) {
+			reserved.setLength(index+1);
+			updated.setLength(index+1);
 		}
-		catch (IOException ie) {
-			throw new WrappingRuntimeException(ie);
+		reserved.set(index);
+		firstFree = index+1;
+		dirty = true;
+		size++;
+
+		switch (idType) {
+		case 1: return new Byte((byte) offset);
+		case 2: return new Short((short) offset);
+		case 3: return new Integer((int) offset);
+		default: return new Long(offset);
 		}
 	}
 
@@ -786,18 +927,16 @@ public class BlockFileContainer extends AbstractContainer {
 		open();
 		try {
 			long offset = ((Number)id).longValue();
-			Block block = (Block)object;
-			int b;
+			long index = offset/blockSize;
+			Block block = ((Block)object).arrayBlock();
 
-			if (offset+blockSize>container.length())
+			if (index<0 || index>=updated.length())
 				throw new NoSuchElementException();
-			updatedBitMap.seek(offset/blockSize/8);
-			b = updatedBitMap.read();
-			if ((b&(1<<(offset/blockSize%8)))==0) {
+			if (!updated.get(index)) {
 				if (!isUsed(id))
 					throw new NoSuchElementException();
-				updatedBitMap.seek(updatedBitMap.getFilePointer()-1);
-				updatedBitMap.write(b|(1<<(offset/blockSize%8)));
+				updated.set(index);
+				dirty = true;
 			}
 			if (block.size>blockSize)
 				throw new IllegalArgumentException("Block too large: defined block size is " + blockSize + ", actual block size is "+block.size + ".");
@@ -807,8 +946,10 @@ public class BlockFileContainer extends AbstractContainer {
 				System.arraycopy(block.array, block.offset, array, 0, block.size);
 				block = new Block(array);
 			}
+			long start = System.nanoTime();
 			container.seek(offset);
 			container.write(block.array, block.offset, blockSize);
+			statistics.write(1, blockSize, System.nanoTime()-start);
 		}
 		catch (IOException ie) {
 			throw new WrappingRuntimeException(ie);
@@ -824,4 +965,37 @@ public class BlockFileContainer extends AbstractContainer {
 		for (int i=0; i<BlockFileContainer.getNumberOfFiles(); i++)
 			fso.deleteFile(prefix+EXTENSIONS[i]);
 	}
+
+	/**
+	 * Creates the metadata management of this container, i.e. its I/O
+	 * statistics. This method is called by the constructors.
+	 *
+	 * @throws IllegalStateException if the metadata management has already
+	 *         been created.
+	 */
+	public void createMetaDataManagement () {
+		if (statistics != null)
+			throw new IllegalStateException("An instance of MetaDataManagement already exists.");
+		statistics = new IOStatistics();
+	}
+
+	/**
+	 * Returns the metadata management of this container, i.e. its I/O
+	 * statistics.
+	 *
+	 * @return the I/O statistics of this container.
+	 */
+	public IOStatistics getMetaDataManagement () {
+		return statistics;
+	}
+
+	/**
+	 * Returns the metadata of this container, i.e. the I/O statistics that
+	 * have been included by the metadata management.
+	 *
+	 * @return the metadata of this container.
+	 */
+	public CompositeMetaData<Object,Object> getMetaData () {
+		return statistics.getMetaData();
+	}
 }
@@ -25,16 +25,31 @@ License along with this library;  If not, see <http://www.gnu.org/licenses/>.
 
 package xxl.core.collections.containers.io;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import xxl.core.collections.containers.ConstrainedDecoratorContainer;
 import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.SynchronizedContainer;
 import xxl.core.functions.AbstractFunction;
 import xxl.core.functions.Constant;
 import xxl.core.functions.Function;
 import xxl.core.io.Buffer;
+import xxl.core.io.IOStatistics;
+import xxl.core.io.ReplacementPolicy;
+import xxl.core.util.Decorator;
 import xxl.core.util.XXLSystem;
+import xxl.core.util.metaData.AbstractMetaDataManagement;
+import xxl.core.util.metaData.CompositeMetaData;
+import xxl.core.util.metaData.MetaDataManageable;
+import xxl.core.util.metaData.MetaDataManagement;
 
 /**
  * This class wraps a container by buffering its elements in a given
@@ -126,7 +141,85 @@ import xxl.core.util.XXLSystem;
  * @see Iterator
  * @see NoSuchElementException
  */
-public class BufferedContainer extends ConstrainedDecoratorContainer {
+public class BufferedContainer extends ConstrainedDecoratorContainer implements MetaDataManageable<Object,Object> {
+
+	/**
+	 * This class provides the metadata management of a buffered container.
+	 * It publishes the statistics of the buffer and the I/O statistics of
+	 * the underlying container, so that a running stack of containers can
+	 * be polled by a single object. Including {@link #BUFFER} includes all
+	 * statistics of the buffer (see {@link Buffer#IDENTIFIERS}) and adds a
+	 * function delivering the buffer's composite metadata. Including
+	 * {@link #CONTAINER} does the same for the first container underneath
+	 * this container (reached by following the decorated containers) that
+	 * manages metadata, e.g. a {@link BlockFileContainer} wrapped into a
+	 * {@link SynchronizedContainer}.
+	 */
+	public class BufferedContainerMetaDataManagement extends AbstractMetaDataManagement<Object,Object> {
+
+		/**
+		 * Identifier of the composite metadata of the buffer.
+		 */
+		public static final String BUFFER = "BUFFER";
+
+		/**
+		 * Identifier of the composite metadata of the underlying container.
+		 */
+		public static final String CONTAINER = "CONTAINER";
+
+		/**
+		 * Constructs a new metadata management for the buffered container.
+		 */
+		public BufferedContainerMetaDataManagement() {
+			super();
+		}
+
+		@Override
+		protected boolean addMetaData(Object metaDataIdentifier) {
+			if (metaDataIdentifier.equals(BUFFER)) {
+				buffer.getMetaDataManagement().includeAll(Buffer.IDENTIFIERS);
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object,CompositeMetaData<Object,Object>>() {
+					@Override
+					public CompositeMetaData<Object,Object> invoke() {
+						return buffer.getMetaData();
+					}
+				});
+				return true;
+			}
+			if (metaDataIdentifier.equals(CONTAINER)) {
+				final MetaDataManageable<Object,Object> underlying = underlyingMetaDataManageable();
+				if (underlying == null)
+					return false;
+				if (underlying.getMetaDataManagement() instanceof IOStatistics)
+					underlying.getMetaDataManagement().includeAll(IOStatistics.IDENTIFIERS);
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object,CompositeMetaData<Object,Object>>() {
+					@Override
+					public CompositeMetaData<Object,Object> invoke() {
+						return underlying.getMetaData();
+					}
+				});
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		protected boolean removeMetaData(Object metaDataIdentifier) {
+			if (metaDataIdentifier.equals(BUFFER)) {
+				buffer.getMetaDataManagement().excludeAll(Buffer.IDENTIFIERS);
+				metaData.remove(metaDataIdentifier);
+				return true;
+			}
+			if (metaDataIdentifier.equals(CONTAINER)) {
+				MetaDataManageable<Object,Object> underlying = underlyingMetaDataManageable();
+				if (underlying.getMetaDataManagement() instanceof IOStatistics)
+					underlying.getMetaDataManagement().excludeAll(IOStatistics.IDENTIFIERS);
+				metaData.remove(metaDataIdentifier);
+				return true;
+			}
+			return false;
+		}
+	}
 
 	/**
 	 * The buffer that is used for buffering the elements of the container.
@@ -147,6 +240,25 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	 */
 	protected boolean cloneObjects;
 
+	/**
+	 * The flusher writing the flushed elements back to the container
+	 * asynchronously or <code>null</code> if the elements are written back
+	 * on the caller's thread.
+	 */
+	protected WriteBackFlusher flusher = null;
+
+	/**
+	 * The maximal number of dirty elements in the buffer. When it is
+	 * exceeded, all dirty elements are handed over to the flusher.
+	 */
+	protected int highWaterMark = Integer.MAX_VALUE;
+
+	/**
+	 * The metadata management of this container that publishes the
+	 * statistics of the buffer and the underlying container.
+	 */
+	protected MetaDataManagement<Object,Object> metaDataManagement;
+
 	/**
 	 * Constructs a new buffered container that uses the specified buffer
 	 * for buffering the elements of the given container. The flag
@@ -173,6 +285,7 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 		this.buffer = buffer;
 		this.writeBack = writeBack;
 		this.cloneObjects = cloneObjects;
+		createMetaDataManagement();
 	}
 
 	/**
@@ -197,6 +310,58 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 		this(container, buffer, writeBack, false);
 	}
 
+	/**
+	 * Constructs a new buffered container that uses the specified buffer
+	 * for buffering the elements of the given container and writes the
+	 * buffered elements back asynchronously. Flushing a buffered element
+	 * only hands it over to a {@link WriteBackFlusher}, that writes the
+	 * elements back to the container in groups sorted by their ids in a
+	 * background thread. When the buffer contains more than
+	 * <tt>highWaterMark</tt> dirty elements, all dirty elements are handed
+	 * over to the flusher. The methods <tt>flush</tt> and <tt>close</tt>
+	 * wait until all elements have been written back.
+	 * <p>
+	 * The given container is accessed by the background thread, therefore
+	 * it is wrapped into a {@link SynchronizedContainer}. The ids of the
+	 * container have to be comparable. A buffer that prefers clean victims,
+	 * e.g. a {@link xxl.core.io.LRUBuffer} with a clean window, keeps the
+	 * remaining writes off the caller's thread.
+	 *
+	 * @param container the container to be buffered.
+	 * @param buffer the buffer used for buffering the specified
+	 *		container.
+	 * @param highWaterMark the maximal number of dirty elements in the
+	 *        buffer.
+	 * @param groupSize the maximal number of elements written back by a
+	 *        single call of <tt>updateAll</tt>.
+	 */
+	public BufferedContainer (Container container, Buffer buffer, int highWaterMark, int groupSize) {
+		this(new SynchronizedContainer(container), buffer, true, false);
+		this.highWaterMark = highWaterMark;
+		this.flusher = new WriteBackFlusher(this.container, groupSize, Math.max(2*highWaterMark, groupSize));
+	}
+
+	/**
+	 * Constructs a new buffered container that uses a new buffer with the
+	 * given displacement strategy and capacity for buffering the elements
+	 * of the given container. The flag <tt>writeBack</tt> determines whether
+	 * the buffered elements should be written back to the container, when
+	 * they are flushed (true) or if they already should be written back
+	 * after each update operation (false).
+	 *
+	 * @param container the container to be buffered.
+	 * @param policy the displacement strategy of the buffer.
+	 * @param capacity the number of elements the buffer can contain.
+	 * @param writeBack Signals that the buffered elements should be
+	 * 	written back to the container, when they are flushed (true) or if 
+	 * 	they already should be written back after each update operation 
+	 * 	(false).
+	 * @see ReplacementPolicy
+	 */
+	public BufferedContainer (Container container, ReplacementPolicy policy, int capacity, boolean writeBack) {
+		this(container, policy.newBuffer(capacity), writeBack);
+	}
+
 	/**
 	 * Constructs a new buffered container that uses the specified buffer
 	 * for buffering the elements of the given container. When flushing a
@@ -221,6 +386,8 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	 */
 	public void clear () {
 		buffer.removeAll(this);
+		if (flusher != null)
+			flusher.clear();
 		super.clear();
 	}
 
@@ -230,11 +397,15 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	 * iterators operating on the container can be in illegal states.
 	 * Close can be called a second time without any impact.<br>
 	 * This implementation flushes all buffered elements and removes them
-	 * out of the buffer. Thereafter the wrapped container is closed.
+	 * out of the buffer. When the elements are written back
+	 * asynchronously, it waits until they have been written. Thereafter the
+	 * wrapped container is closed.
 	 */
 	public void close () {
 		buffer.flushAll(this);
 		buffer.removeAll(this);
+		if (flusher != null)
+			flusher.close();
 		super.close();
 	}
 
@@ -255,12 +426,15 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	/**
 	 * Flushes all modified elements from the buffer into the container.
 	 * After this call the buffer and the container are synchronized.<br>
-	 * This implementation flushes all buffered elements first. Thereafter
-	 * the elements of the wrapped container are flushed (in order to
-	 * support a second buffer etc.).
+	 * This implementation flushes all buffered elements first. When the
+	 * elements are written back asynchronously, it waits until they have
+	 * been written. Thereafter the elements of the wrapped container are
+	 * flushed (in order to support a second buffer etc.).
 	 */
 	public void flush () {
 		buffer.flushAll(this);
+		if (flusher != null)
+			flusher.drain();
 		super.flush();
 	}
 
@@ -275,6 +449,8 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	 */
 	public void flush (Object id) {
 		buffer.flush(this, id);
+		if (flusher != null)
+			flusher.drain();
 		super.flush(id);
 	}
 
@@ -285,7 +461,8 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	 * (<tt>!unfix</tt>), the object has to be kept in the buffer.<br>
 	 * This implementation calls the get method of the buffer with a
 	 * function that returns the desired object of the container, when it
-	 * is invoked.
+	 * is invoked. An element that has not been written back by the flusher
+	 * yet is taken from the flusher.
 	 *
 	 * @param id identifier of the object.
 	 * @param unfix signals whether the object can be removed from the
@@ -297,6 +474,11 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 		Object object = buffer.get(this, id,
 			new AbstractFunction () {
 				public Object invoke (Object id) {
+					if (flusher != null) {
+						Object object = flusher.lookup(id);
+						if (object != null)
+							return object;
+					}
 					return BufferedContainer.super.get(id, unfix);
 				}
 			},
@@ -308,6 +490,58 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 			return object;
 	}
 
+	/**
+	 * Returns an iterator that delivers the objects associated to the
+	 * identifiers of the given iterator. An exception is thrown when a
+	 * desired object is not found. If <tt>unfix</tt>, the objects can be
+	 * removed from the underlying buffer. Otherwise (<tt>!unfix</tt>), the
+	 * objects have to be kept in the buffer.<br>
+	 * Other than the implementation of AbstractContainer this implementation
+	 * gets all objects before it returns. Objects that are buffered (or
+	 * waiting to be written back by the flusher) are taken out of the
+	 * buffer. All other objects are got by a single call of the
+	 * <tt>getAll</tt> method of the wrapped container, so that a file
+	 * based container can read them sequentially, and are inserted into the
+	 * buffer afterwards. The objects are delivered in the order of the given
+	 * identifiers.
+	 *
+	 * @param ids an iterator of identifiers.
+	 * @param unfix signals whether the objects can be removed from the
+	 *        underlying buffer.
+	 * @return an iterator of the objects associated to the specified
+	 *         identifiers.
+	 * @throws NoSuchElementException if a desired object is not found.
+	 */
+	public Iterator getAll (Iterator ids, boolean unfix) throws NoSuchElementException {
+		List<Object> list = new ArrayList<Object>();
+		while (ids.hasNext())
+			list.add(ids.next());
+
+		Object [] objects = new Object [list.size()];
+		Set<Object> missing = new LinkedHashSet<Object>();
+		for (int i = 0; i<objects.length; i++) {
+			Object id = list.get(i);
+			if (!buffer.contains(this, id) && (flusher == null || flusher.lookup(id) == null))
+				missing.add(id);
+		}
+		Map<Object, Object> read = new HashMap<Object, Object>();
+		if (!missing.isEmpty()) {
+			Iterator missingObjects = container.getAll(missing.iterator(), unfix);
+			for (Object id : missing)
+				read.put(id, missingObjects.next());
+		}
+		for (int i = 0; i<objects.length; i++) {
+			Object id = list.get(i);
+			Object object = read.remove(id);
+			objects[i] = object != null ?
+				buffer.get(this, id, new Constant(object), unfix) :
+				get(id, unfix);
+			if (object != null && cloneObjects)
+				objects[i] = XXLSystem.cloneObject(objects[i]);
+		}
+		return Arrays.asList(objects).iterator();
+	}
+
 	/**
 	 * Returns an iterator that delivers the identifiers of all objects of
 	 * the container.
@@ -328,6 +562,8 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 			}
 
 			public void remove () throws IllegalStateException {
+				if (flusher != null)
+					flusher.cancel(id);
 				ids.remove();
 				buffer.remove(BufferedContainer.this, id);
 			}
@@ -387,6 +623,8 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	 */
 	public void remove (Object id) throws NoSuchElementException {
 		buffer.remove(this, id);
+		if (flusher != null)
+			flusher.cancel(id);
 		super.remove(id);
 	}
 
@@ -419,7 +657,10 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	 * method is called with a flush function, that updates the element of
 	 * the wrapped container with the buffered element. Otherwise, the
 	 * element of the wrapped container is updated once after calling the
-	 * buffer's update method.
+	 * buffer's update method. When the elements are written back
+	 * asynchronously, the flush function hands the element over to the
+	 * flusher and all dirty elements are flushed, when the buffer contains
+	 * more than <tt>highWaterMark</tt> dirty elements.
 	 *
 	 * @param id identifier of the element.
 	 * @param object the new object that should be associated to
@@ -438,12 +679,17 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 				null :
 				new AbstractFunction () {
 					public Object invoke (Object id, Object object) {
-						BufferedContainer.super.update(id, object, !buffer.isFixed(BufferedContainer.this, id));
+						if (flusher != null)
+							flusher.enqueue(id, object);
+						else
+							BufferedContainer.super.update(id, object, !buffer.isFixed(BufferedContainer.this, id));
 						return null;
 					}
 				},
 			unfix
 		);
+		if (flusher != null && buffer.dirtySlots() > highWaterMark)
+			buffer.flushAll(this);
 		
 		// no cloning needed here, because the called container is responsible for that.
 		if (!writeBack)
@@ -456,4 +702,53 @@ public class BufferedContainer extends ConstrainedDecoratorContainer {
 	public int fixedElements() {
 		return buffer.fixedSlots();
 	}
+
+	/**
+	 * Returns the first container underneath this container that manages
+	 * metadata. The decorated containers are followed as long as they
+	 * provide access to the container decorated by them.
+	 *
+	 * @return the first container underneath this container that manages
+	 *         metadata or <code>null</code> if there is no such container.
+	 */
+	@SuppressWarnings("unchecked")
+	protected MetaDataManageable<Object,Object> underlyingMetaDataManageable() {
+		Object container = this.container;
+		while (!(container instanceof MetaDataManageable) && container instanceof Decorator)
+			container = ((Decorator<?>)container).getDecoree();
+		return container instanceof MetaDataManageable ? (MetaDataManageable<Object,Object>)container : null;
+	}
+
+	/**
+	 * Creates the metadata management of this container. This method is
+	 * called by the constructor.
+	 *
+	 * @throws IllegalStateException if the metadata management has already
+	 *         been created.
+	 */
+	public void createMetaDataManagement() {
+		if (metaDataManagement != null)
+			throw new IllegalStateException("An instance of MetaDataManagement already exists.");
+		metaDataManagement = new BufferedContainerMetaDataManagement();
+	}
+
+	/**
+	 * Returns the metadata management of this container.
+	 *
+	 * @return the metadata management of this container.
+	 */
+	public MetaDataManagement<Object,Object> getMetaDataManagement() {
+		return metaDataManagement;
+	}
+
+	/**
+	 * Returns the metadata of this container, i.e. the composite metadata of
+	 * the buffer and the underlying container that have been included by
+	 * the metadata management.
+	 *
+	 * @return the metadata of this container.
+	 */
+	public CompositeMetaData<Object,Object> getMetaData() {
+		return metaDataManagement.getMetaData();
+	}
 }
@@ -0,0 +1,355 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.collections.containers.io;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import xxl.core.collections.containers.ConstrainedDecoratorContainer;
+import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.recordManager.BestFitStrategy;
+import xxl.core.collections.containers.recordManager.IdentityTIdManager;
+import xxl.core.collections.containers.recordManager.RecordManager;
+import xxl.core.cursors.mappers.Mapper;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.io.Block;
+import xxl.core.io.CompressionStatistics;
+import xxl.core.io.LZCodec;
+import xxl.core.util.metaData.CompositeMetaData;
+import xxl.core.util.metaData.MetaDataManageable;
+
+/**
+ * This class provides a container that compresses the blocks (pages) it
+ * stores. The container decorates an underlying container that must be
+ * able to store blocks of variable size, e.g. a {@link RecordManager}
+ * packing the compressed pages into the pages of a block container or a
+ * {@link MultiBlockContainer}. Thus a page occupies only the space of its
+ * compressed representation on the external device and fewer I/Os are
+ * needed for reading a set of pages.
+ * <p>
+ * The pages are compressed by the {@link LZCodec}, a fast codec of the
+ * LZ77 family implemented in pure Java, that is considerably faster than
+ * the deflate format used by the {@link xxl.core.io.converters.ZipConverter}
+ * and therefore suited for index pages that are read on the hot path. A
+ * compressed page consists of a header of {@link #HEADER_SIZE} bytes
+ * holding the storage method and the size of the uncompressed page followed
+ * by the compressed bytes. A page that cannot be compressed is stored
+ * uncompressed, so a stored page is at most {@link #HEADER_SIZE} bytes larger
+ * than the page itself. When a record manager is used, its page size has to
+ * be chosen, so that such a page fits into a record (see
+ * {@link RecordManager#getMaxObjectSize()}).
+ * <p>
+ * The container maintains {@link CompressionStatistics compression
+ * statistics}, i.e. the compression ratio and the time needed for
+ * compressing and decompressing a page, that are published as the metadata
+ * of this container.
+ * <p>
+ * Example usage (1).
+ * <pre>
+ *     // pages of 4096 bytes are packed into blocks of 8192 bytes
+ *
+ *     CompressedContainer container = CompressedContainer.packed(
+ *         new BlockFileContainer("index", 8192),
+ *         8192
+ *     );
+ *     container.getMetaDataManagement().includeAll(CompressionStatistics.IDENTIFIERS);
+ *
+ *     Object id = container.insert(new Block(4096));
+ *     Block page = (Block)container.get(id);
+ *     ...
+ *     System.out.println(container.getMetaDataManagement().compressionRatio());
+ *     container.close();
+ * </pre>
+ *
+ * @see ConstrainedDecoratorContainer
+ * @see CompressionStatistics
+ * @see LZCodec
+ * @see RecordManager
+ */
+public class CompressedContainer extends ConstrainedDecoratorContainer implements MetaDataManageable<Object,Object> {
+
+	/**
+	 * The storage method of a page that is stored uncompressed.
+	 */
+	public static final byte STORED = 0;
+
+	/**
+	 * The storage method of a page that is compressed by the
+	 * {@link LZCodec}.
+	 */
+	public static final byte LZ = 1;
+
+	/**
+	 * The size of the header of a stored page, i.e. one byte for the
+	 * storage method and four bytes for the size of the uncompressed page.
+	 */
+	public static final int HEADER_SIZE = 5;
+
+	/**
+	 * The compression statistics of this container that also serve as its
+	 * metadata management.
+	 */
+	protected CompressionStatistics statistics;
+
+	/**
+	 * Constructs a new CompressedContainer that decorates the specified
+	 * container. The underlying container has to store blocks of variable
+	 * size.
+	 *
+	 * @param container the underlying container that is used for storing
+	 *        the compressed pages.
+	 */
+	public CompressedContainer (Container container) {
+		super(container);
+		createMetaDataManagement();
+	}
+
+	/**
+	 * Returns a new CompressedContainer that packs the compressed pages into
+	 * the blocks of the specified container. A {@link RecordManager} using a
+	 * {@link BestFitStrategy} and an {@link IdentityTIdManager} stores the
+	 * compressed pages as records in blocks of the given size, i.e. blocks
+	 * that are larger than the uncompressed pages are filled with several
+	 * compressed pages.
+	 *
+	 * @param container the container storing the blocks of the record
+	 *        manager.
+	 * @param blockSize the size of the blocks of the given container.
+	 * @return a new CompressedContainer packing its pages into the blocks
+	 *         of the given container.
+	 */
+	public static CompressedContainer packed (Container container, int blockSize) {
+		return new CompressedContainer(
+			new RecordManager(
+				container,
+				blockSize,
+				new BestFitStrategy(0.0),
+				new IdentityTIdManager(container.objectIdConverter()),
+				0
+			)
+		);
+	}
+
+	/**
+	 * Compresses the given page. The returned block starts with a header
+	 * holding the storage method and the size of the page.
+	 *
+	 * @param page the page to compress.
+	 * @return a block holding the compressed page.
+	 */
+	protected Block compress (Block page) {
+		long start = System.nanoTime();
+		page = page.arrayBlock();
+		byte [] array = new byte [HEADER_SIZE+LZCodec.maxCompressedLength(page.size)];
+		int length = LZCodec.compress(page.array, page.offset, page.size, array, HEADER_SIZE);
+		Block block;
+
+		if (length < page.size) {
+			block = new Block(array, 0, HEADER_SIZE+length);
+			array[0] = LZ;
+		}
+		else {
+			block = new Block(HEADER_SIZE+page.size);
+			System.arraycopy(page.array, page.offset, block.array, HEADER_SIZE, page.size);
+			block.array[0] = STORED;
+		}
+		block.writeInteger(1, page.size);
+		statistics.compressed(page.size, block.size, System.nanoTime()-start);
+		return block;
+	}
+
+	/**
+	 * Decompresses the given block holding a compressed page.
+	 *
+	 * @param block a block holding a compressed page.
+	 * @return the decompressed page.
+	 * @throws IllegalArgumentException if the block does not hold a valid
+	 *         compressed page.
+	 */
+	protected Block decompress (Block block) throws IllegalArgumentException {
+		long start = System.nanoTime();
+		block = block.arrayBlock();
+		if (block.size < HEADER_SIZE)
+			throw new IllegalArgumentException("The block does not hold a compressed page.");
+		int size = block.readInteger(1);
+		Block page = new Block(size);
+
+		switch (block.get(0)) {
+			case STORED:
+				if (block.size-HEADER_SIZE != size)
+					throw new IllegalArgumentException("The stored page has an invalid size.");
+				System.arraycopy(block.array, block.offset+HEADER_SIZE, page.array, 0, size);
+				break;
+			case LZ:
+				if (LZCodec.decompress(block.array, block.offset+HEADER_SIZE, block.size-HEADER_SIZE, page.array, 0, size) != size)
+					throw new IllegalArgumentException("The compressed page has an invalid size.");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown storage method "+block.get(0)+".");
+		}
+		statistics.decompressed(System.nanoTime()-start);
+		return page;
+	}
+
+	/**
+	 * Returns the page associated to the identifier <tt>id</tt>. This
+	 * implementation gets the compressed page from the underlying container
+	 * and decompresses it. The parameter <tt>unfix</tt> is passed to the
+	 * underlying container.
+	 *
+	 * @param id identifier of the page.
+	 * @param unfix signals a buffered container whether the page can be
+	 *        removed from the underlying buffer.
+	 * @return the page associated to the specified identifier.
+	 * @throws NoSuchElementException if the desired page is not found.
+	 */
+	public Object get (Object id, boolean unfix) throws NoSuchElementException {
+		return decompress((Block)super.get(id, unfix));
+	}
+
+	/**
+	 * Returns an iterator that delivers the pages associated to the given
+	 * identifiers. The compressed pages are read by the <tt>getAll</tt>
+	 * method of the underlying container, so that its vectored reads are
+	 * used, and are decompressed when they are delivered.
+	 *
+	 * @param ids an iterator of identifiers.
+	 * @param unfix signals a buffered container whether the pages can be
+	 *        removed from the underlying buffer.
+	 * @return an iterator of the pages associated to the identifiers.
+	 * @throws NoSuchElementException if one of the pages is not found.
+	 */
+	public Iterator getAll (Iterator ids, boolean unfix) throws NoSuchElementException {
+		return new Mapper(
+			new AbstractFunction () {
+				public Object invoke (Object block) {
+					return decompress((Block)block);
+				}
+			},
+			container.getAll(ids, unfix)
+		);
+	}
+
+	/**
+	 * Inserts a new page into the container and returns its identifier.
+	 * This implementation compresses the page and inserts the compressed
+	 * page into the underlying container. The parameter <tt>unfix</tt> is
+	 * passed to the underlying container.
+	 *
+	 * @param object the new page, i.e. a block.
+	 * @param unfix signals a buffered container whether the page can be
+	 *        removed from the underlying buffer.
+	 * @return the identifier of the page.
+	 */
+	public Object insert (Object object, boolean unfix) {
+		return super.insert(compress((Block)object), unfix);
+	}
+
+	/**
+	 * Inserts the given pages into the underlying container by a single
+	 * call of its <tt>batchInsert</tt> method after compressing them.
+	 *
+	 * @param blocks the pages to insert.
+	 * @return the identifiers of the pages.
+	 */
+	public Object[] batchInsert (Object[] blocks) {
+		Object [] compressed = new Object [blocks.length];
+
+		for (int i = 0; i < blocks.length; i++)
+			compressed[i] = compress((Block)blocks[i]);
+		return super.batchInsert(compressed);
+	}
+
+	/**
+	 * Reserves an id for subsequent use. This implementation wraps the
+	 * function <tt>getObject</tt> by compressing the page delivered by it.
+	 *
+	 * @param getObject a parameterless function providing the page for
+	 *        that an id should be reserved.
+	 * @return the reserved id.
+	 */
+	public Object reserve (final Function getObject) {
+		return super.reserve(
+			new AbstractFunction () {
+				public Object invoke () {
+					return compress((Block)getObject.invoke());
+				}
+			}
+		);
+	}
+
+	/**
+	 * Overwrites the page associated to the identifier <tt>id</tt>. This
+	 * implementation compresses the page and updates the compressed page in
+	 * the underlying container. The parameter <tt>unfix</tt> is passed to
+	 * the underlying container.
+	 *
+	 * @param id identifier of the page.
+	 * @param object the new page, i.e. a block.
+	 * @param unfix signals a buffered container whether the page can be
+	 *        removed from the underlying buffer.
+	 * @throws NoSuchElementException if a page with identifier <tt>id</tt>
+	 *         does not exist in the container.
+	 */
+	public void update (Object id, Object object, boolean unfix) throws NoSuchElementException {
+		super.update(id, compress((Block)object), unfix);
+	}
+
+	/**
+	 * Creates the metadata management of this container, i.e. its
+	 * compression statistics. This method is called by the constructor.
+	 *
+	 * @throws IllegalStateException if the metadata management has already
+	 *         been created.
+	 */
+	public void createMetaDataManagement () {
+		if (statistics != null)
+			throw new IllegalStateException("An instance of MetaDataManagement already exists.");
+		statistics = new CompressionStatistics();
+	}
+
+	/**
+	 * Returns the metadata management of this container, i.e. its
+	 * compression statistics.
+	 *
+	 * @return the compression statistics of this container.
+	 */
+	public CompressionStatistics getMetaDataManagement () {
+		return statistics;
+	}
+
+	/**
+	 * Returns the metadata of this container, i.e. the compression
+	 * statistics that have been included by the metadata management.
+	 *
+	 * @return the metadata of this container.
+	 */
+	public CompositeMetaData<Object,Object> getMetaData () {
+		return statistics.getMetaData();
+	}
+}
@@ -26,6 +26,7 @@ License along with this library;  If not, see <http://www.gnu.org/licenses/>.
 package xxl.core.collections.containers.io;
 
 import java.io.ByteArrayInputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.NoSuchElementException;
@@ -35,6 +36,7 @@ import xxl.core.collections.containers.Container;
 import xxl.core.functions.AbstractFunction;
 import xxl.core.functions.Function;
 import xxl.core.io.Block;
+import xxl.core.io.ByteBufferBlock;
 import xxl.core.io.ByteBufferDataInput;
 import xxl.core.io.UnsafeDataInput;
 import xxl.core.io.converters.Converter;
@@ -185,6 +187,9 @@ public class ConverterContainer extends ConstrainedDecoratorContainer {
 	 * This implementation gets the block associated to the <tt>id</tt>
 	 * from the underlying container and tries to convert the wrapped byte
 	 * array. The parameter <tt>unfix</tt> is passed to the underlying container.
+	 * For the serialization modes <tt>BYTE_BUFFER</tt> and <tt>UNSAFE</tt>
+	 * the converter reads directly from the block (see
+	 * {@link #dataInput(Block)}), so that no bytes are copied.
 	 *
 	 * @param id identifier of the object.
 	 * @param unfix signals a buffered container whether the object can
@@ -196,18 +201,35 @@ public class ConverterContainer extends ConstrainedDecoratorContainer {
 		try {
 			Block block = null;
             block = (Block)super.get(id, unfix);
-            if (serializationMode == Converters.SerializationMode.BYTE_BUFFER)
-                return converter.read(new ByteBufferDataInput(new ByteArrayInputStream(block.array, block.offset, block.size)));
-            else if (serializationMode == Converters.SerializationMode.UNSAFE)
-                return converter.read(new UnsafeDataInput(new ByteArrayInputStream(block.array, block.offset, block.size)));
-            else
-                return converter.read(new DataInputStream(new ByteArrayInputStream(block.array, block.offset, block.size)));
+            return converter.read(dataInput(block));
 		}
 		catch (IOException ie) {
 			throw new WrappingRuntimeException(ie);
 		}
 	}
 
+	/**
+	 * Returns a data input reading the given block according to the
+	 * serialization mode of this container. For the mode
+	 * <tt>BYTE_BUFFER</tt> a {@link ByteBufferDataInput} works on a view of
+	 * the block (see {@link Block#byteBuffer()}), that may be a direct or
+	 * memory-mapped buffer (see {@link ByteBufferBlock}). For the mode
+	 * <tt>UNSAFE</tt> an {@link UnsafeDataInput} works on the byte array of
+	 * the block, a block without byte array is read like in mode
+	 * <tt>BYTE_BUFFER</tt>. Otherwise a <tt>DataInputStream</tt> reads the
+	 * byte array of the block.
+	 *
+	 * @param block the block to read.
+	 * @return a data input reading the given block.
+	 */
+	protected DataInput dataInput (Block block) {
+		if (serializationMode == Converters.SerializationMode.UNSAFE && block.array != null)
+			return new UnsafeDataInput(block.array, block.offset, block.size);
+		if (serializationMode != Converters.SerializationMode.BYTE_ARRAY || block.array == null)
+			return new ByteBufferDataInput(block.byteBuffer());
+		return new DataInputStream(new ByteArrayInputStream(block.array, block.offset, block.size));
+	}
+
 	/**
 	 * Inserts a new object into the container and returns the unique
 	 * identifier that the container has been associated to the object.
@@ -224,9 +246,24 @@ public class ConverterContainer extends ConstrainedDecoratorContainer {
 	 * @return the identifier of the object.
 	 */
 	public Object insert (Object object, boolean unfix) {
+		return super.insert(toBlock(object), unfix);
+	}
+
+	/**
+	 * Converts the given object to the block which is stored in the
+	 * underlying container by {@link #insert(Object, boolean)} and
+	 * {@link #update(Object, Object, boolean)}. The conversion does not
+	 * access the underlying container, so objects can be converted
+	 * concurrently and their blocks be written to the container returned
+	 * by {@link #getDecoree()} afterwards.
+	 *
+	 * @param object the object to convert.
+	 * @return a block wrapping the byte representation of the object.
+	 */
+	public Block toBlock (Object object) {
 		byte [] array = Converters.toByteArray(converter, object, serializationMode, bufferSize);
 
-		return super.insert(new Block(array, 0, array.length), unfix);
+		return new Block(array, 0, array.length);
 	}
 
 	/**
@@ -293,8 +330,6 @@ public class ConverterContainer extends ConstrainedDecoratorContainer {
 	 *         <tt>id</tt> does not exist in the container.
 	 */
 	public void update (Object id, Object object, boolean unfix) throws NoSuchElementException {
-		byte [] array = Converters.toByteArray(converter, object, serializationMode, bufferSize);
-
-		super.update(id, new Block(array, 0, array.length), unfix);
+		super.update(id, toBlock(object), unfix);
 	}
 }
@@ -0,0 +1,833 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.containers.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import xxl.core.functions.Function;
+import xxl.core.io.Block;
+import xxl.core.io.ByteBufferBlock;
+import xxl.core.io.FilesystemOperations;
+import xxl.core.io.JavaFilesystemOperations;
+import xxl.core.util.WrappingRuntimeException;
+
+/**
+ * This class provides a container that stores blocks in a memory-mapped
+ * file. The container uses the same five files and the same file format as
+ * a {@link BlockFileContainer}, so a container written by one of these
+ * classes can be opened by the other one.
+ * <p>
+ * In contrast to a block file container, the container file, the
+ * reservedBitMap file, the updatedBitMap file and the freeList file are not
+ * accessed via seek and read/write operations of a
+ * <tt>RandomAccessFile</tt>. Instead, every file is mapped into memory in
+ * segments of a fixed size by the <tt>FileChannel</tt> of the file. The
+ * segments are mapped on demand, i.e. the mapping grows with the file. Thus
+ * getting a block only copies the bytes of the block out of the mapped
+ * segment and testing or setting a bit of a bitmap is a simple memory
+ * access, no system call is needed.
+ * <p>
+ * Mapping a segment beyond the end of a file enlarges the file, therefore
+ * the logical length of every file is maintained by the container and the
+ * files are truncated to their logical lengths when the container is
+ * closed. A flush only writes the mapped segments back to the files. The files must be provided by the given filesystem operations as
+ * plain <tt>RandomAccessFile</tt>s, because the mapping bypasses any
+ * buffering of the random access files.
+ * <p>
+ * Example usage (1).
+ * <pre>
+ *     // create a new mapped block file container with a block size of 4096 bytes
+ *
+ *     MappedBlockFileContainer container = new MappedBlockFileContainer("MappedBlockFileContainer", 4096);
+ *
+ *     // insert a block
+ *
+ *     Object id = container.insert(new Block(4096));
+ *
+ *     // close the container and reopen it as block file container
+ *
+ *     container.close();
+ *     BlockFileContainer reopened = new BlockFileContainer("MappedBlockFileContainer");
+ *     Block block = (Block)reopened.get(id);
+ * </pre>
+ *
+ * @see BlockFileContainer
+ * @see FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)
+ * @see MappedByteBuffer
+ */
+public class MappedBlockFileContainer extends BlockFileContainer {
+
+	/**
+	 * The default size of the segments the container file is mapped in.
+	 */
+	public static final int CONTAINER_SEGMENT_SIZE = 1<<26;
+
+	/**
+	 * The default size of the segments the bitmaps and the free list are
+	 * mapped in.
+	 */
+	public static final int META_SEGMENT_SIZE = 1<<16;
+
+	/**
+	 * This class provides a file that is mapped into memory in segments of a
+	 * fixed size. The segments are mapped on demand. The logical length of
+	 * the file is maintained separately, because mapping a segment enlarges
+	 * the file to the end of the segment.
+	 */
+	protected static class MappedFile {
+
+		/**
+		 * The random access file that is mapped.
+		 */
+		protected RandomAccessFile file;
+
+		/**
+		 * The channel of the file that is used for mapping it.
+		 */
+		protected FileChannel channel;
+
+		/**
+		 * The size of a single segment in bytes.
+		 */
+		protected int segmentSize;
+
+		/**
+		 * The mapped segments of the file. Segments that are not mapped yet
+		 * are <code>null</code>.
+		 */
+		protected List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+		/**
+		 * The logical length of the file.
+		 */
+		protected long length;
+
+		/**
+		 * Constructs a new mapped file for the given random access file. The
+		 * logical length is the current length of the file.
+		 *
+		 * @param file the file to map.
+		 * @param segmentSize the size of a single segment in bytes.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		protected MappedFile(RandomAccessFile file, int segmentSize) throws IOException {
+			this.file = file;
+			this.channel = file.getChannel();
+			this.segmentSize = segmentSize;
+			this.length = file.length();
+		}
+
+		/**
+		 * Returns the segment with the given index. The segment is mapped
+		 * when it is accessed for the first time.
+		 *
+		 * @param index the index of the segment.
+		 * @return the segment with the given index.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		protected MappedByteBuffer segment(int index) throws IOException {
+			MappedByteBuffer segment;
+
+			while (segments.size() <= index)
+				segments.add(null);
+			if ((segment = segments.get(index)) == null)
+				segments.set(index, segment = channel.map(FileChannel.MapMode.READ_WRITE, (long)index*segmentSize, segmentSize));
+			return segment;
+		}
+
+		/**
+		 * Returns the logical length of the file.
+		 *
+		 * @return the logical length of the file.
+		 */
+		public long length() {
+			return length;
+		}
+
+		/**
+		 * Sets the logical length of the file. When the file is shortened,
+		 * the bytes behind the new end of the file are cleared, so that the
+		 * file contains zero bytes when it grows again (like a random access
+		 * file does).
+		 *
+		 * @param length the new logical length of the file.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void setLength(long length) throws IOException {
+			if (length < this.length)
+				fill(length, this.length-length);
+			this.length = length;
+		}
+
+		/**
+		 * Releases all mapped segments and truncates the file to length
+		 * <tt>0</tt>.
+		 *
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void clear() throws IOException {
+			segments.clear();
+			file.setLength(length = 0);
+		}
+
+		/**
+		 * Sets the given number of bytes beginning at the specified position
+		 * to zero.
+		 *
+		 * @param position the position of the first byte to clear.
+		 * @param count the number of bytes to clear.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		protected void fill(long position, long count) throws IOException {
+			byte[] zeros = new byte[(int)Math.min(count, 4096)];
+
+			while (count > 0) {
+				int n = (int)Math.min(count, zeros.length);
+
+				write(position, zeros, 0, n);
+				position += n;
+				count -= n;
+			}
+		}
+
+		/**
+		 * Returns the byte at the given position.
+		 *
+		 * @param position the position of the byte.
+		 * @return the byte at the given position.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public int get(long position) throws IOException {
+			return segment((int)(position/segmentSize)).get((int)(position%segmentSize))&255;
+		}
+
+		/**
+		 * Sets the byte at the given position.
+		 *
+		 * @param position the position of the byte.
+		 * @param b the new value of the byte.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void put(long position, int b) throws IOException {
+			segment((int)(position/segmentSize)).put((int)(position%segmentSize), (byte)b);
+		}
+
+		/**
+		 * Copies bytes of the file beginning at the given position into the
+		 * specified array.
+		 *
+		 * @param position the position of the first byte to read.
+		 * @param array the array the bytes are copied to.
+		 * @param offset the offset in the array.
+		 * @param count the number of bytes to read.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void read(long position, byte[] array, int offset, int count) throws IOException {
+			while (count > 0) {
+				MappedByteBuffer segment = segment((int)(position/segmentSize));
+				int segmentOffset = (int)(position%segmentSize);
+				int n = Math.min(count, segmentSize-segmentOffset);
+
+				ByteBuffer view = segment.duplicate();
+				view.position(segmentOffset);
+				view.get(array, offset, n);
+				position += n;
+				offset += n;
+				count -= n;
+			}
+		}
+
+		/**
+		 * Returns a read-only view of the given region of the file. The
+		 * region must not span two segments.
+		 *
+		 * @param position the position of the first byte of the region.
+		 * @param count the number of bytes of the region.
+		 * @return a read-only byte buffer containing the region or
+		 *         <code>null</code> if the region spans two segments.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public ByteBuffer view(long position, int count) throws IOException {
+			int segmentOffset = (int)(position%segmentSize);
+
+			if (segmentOffset+count > segmentSize)
+				return null;
+			ByteBuffer view = segment((int)(position/segmentSize)).asReadOnlyBuffer();
+			view.limit(segmentOffset+count).position(segmentOffset);
+			return view.slice();
+		}
+
+		/**
+		 * Copies bytes of the specified array into the file beginning at the
+		 * given position.
+		 *
+		 * @param position the position of the first byte to write.
+		 * @param array the array the bytes are copied from.
+		 * @param offset the offset in the array.
+		 * @param count the number of bytes to write.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void write(long position, byte[] array, int offset, int count) throws IOException {
+			while (count > 0) {
+				MappedByteBuffer segment = segment((int)(position/segmentSize));
+				int segmentOffset = (int)(position%segmentSize);
+				int n = Math.min(count, segmentSize-segmentOffset);
+
+				ByteBuffer view = segment.duplicate();
+				view.position(segmentOffset);
+				view.put(array, offset, n);
+				position += n;
+				offset += n;
+				count -= n;
+			}
+		}
+
+		/**
+		 * Returns the (big endian) <tt>long</tt> value at the given
+		 * position.
+		 *
+		 * @param position the position of the value.
+		 * @return the <tt>long</tt> value at the given position.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public long getLong(long position) throws IOException {
+			long value = 0;
+			for (int i = 0; i < 8; i++)
+				value = (value<<8)|get(position+i);
+			return value;
+		}
+
+		/**
+		 * Sets the (big endian) <tt>long</tt> value at the given position.
+		 *
+		 * @param position the position of the value.
+		 * @param value the new value.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void putLong(long position, long value) throws IOException {
+			for (int i = 7; i >= 0; i--, value >>>= 8)
+				put(position+i, (int)value);
+		}
+
+		/**
+		 * Writes the mapped segments back to the file.
+		 */
+		public void force() {
+			for (MappedByteBuffer segment : segments)
+				if (segment != null)
+					segment.force();
+		}
+
+		/**
+		 * Writes the mapped segments back to the file, releases the segments
+		 * and truncates the file to its logical length. Thereafter the file
+		 * is closed.
+		 *
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void close() throws IOException {
+			force();
+			segments.clear();
+			file.setLength(length);
+			file.close();
+		}
+	}
+
+	/**
+	 * The mapped container file.
+	 */
+	protected MappedFile mappedContainer;
+
+	/**
+	 * The mapped reservedBitMap file.
+	 */
+	protected MappedFile mappedReservedBitMap;
+
+	/**
+	 * The mapped updatedBitMap file.
+	 */
+	protected MappedFile mappedUpdatedBitMap;
+
+	/**
+	 * The mapped freeList file.
+	 */
+	protected MappedFile mappedFreeList;
+
+	/**
+	 * A flag that determines whether <tt>get</tt> returns views of the
+	 * mapped container file instead of copies (see {@link #setViews(boolean)}).
+	 */
+	protected boolean views = false;
+
+	/**
+	 * Constructs an empty MappedBlockFileContainer that is able to store
+	 * blocks with a maximum size of <tt>blockSize</tt> bytes. The given
+	 * <tt>String prefix</tt> specifies the names of the files the are used
+	 * for storing the elements of the container. When using existing files
+	 * to store the container their data will be overwritten.
+	 *
+	 * @param prefix specifies the names of the files the container
+	 *        consists of.
+	 * @param blockSize the size reserved for storing a block in the
+	 *        container file.
+	 * @param fso Provides an object which performs the operations on the
+	 *        filesystem.
+	 */
+	public MappedBlockFileContainer(String prefix, int blockSize, FilesystemOperations fso) {
+		super(prefix, blockSize, fso);
+	}
+
+	/**
+	 * Constructs an empty MappedBlockFileContainer that is able to store
+	 * blocks with a maximum size of <tt>blockSize</tt> bytes. The given
+	 * <tt>String prefix</tt> specifies the names of the files the are used
+	 * for storing the elements of the container. When using existing files
+	 * to store the container their data will be overwritten.
+	 *
+	 * @param prefix specifies the names of the files the container
+	 *        consists of.
+	 * @param blockSize the size reserved for storing a block in the
+	 *        container file.
+	 */
+	public MappedBlockFileContainer(String prefix, int blockSize) {
+		this(prefix, blockSize, JavaFilesystemOperations.DEFAULT_INSTANCE);
+	}
+
+	/**
+	 * Constructs a MappedBlockFileContainer that consists of existing files
+	 * given by the specified file name. The files may have been written by a
+	 * {@link BlockFileContainer}.
+	 *
+	 * @param prefix specifies the names of the files the container
+	 *        consists of.
+	 * @param fso Provides an object which performs the operations on the
+	 *        filesystem.
+	 */
+	public MappedBlockFileContainer(String prefix, FilesystemOperations fso) {
+		super(prefix, fso);
+	}
+
+	/**
+	 * Constructs a MappedBlockFileContainer that consists of existing files
+	 * given by the specified file name. The files may have been written by a
+	 * {@link BlockFileContainer}.
+	 *
+	 * @param prefix specifies the names of the files the container
+	 *        consists of.
+	 */
+	public MappedBlockFileContainer(String prefix) {
+		this(prefix, JavaFilesystemOperations.DEFAULT_INSTANCE);
+	}
+
+	/**
+	 * Opens the five container files using the given Factory and maps the
+	 * container file, both bitmap files and the freeList file.
+	 */
+	protected void openFiles() {
+		super.openFiles();
+		try {
+			mappedContainer = new MappedFile(container, CONTAINER_SEGMENT_SIZE);
+			mappedReservedBitMap = new MappedFile(reservedBitMap, META_SEGMENT_SIZE);
+			mappedUpdatedBitMap = new MappedFile(updatedBitMap, META_SEGMENT_SIZE);
+			mappedFreeList = new MappedFile(freeList, META_SEGMENT_SIZE);
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * This implementation does not read the bitmap files into memory,
+	 * because the mapped bitmap files are accessed directly.
+	 */
+	protected void readBitMaps() {
+	}
+
+	/**
+	 * Resets this container. This implementation releases the mapped
+	 * segments and sets the length of the files to <tt>0</tt>.
+	 */
+	public void reset() {
+		open();
+		try {
+			mappedContainer.clear();
+			mappedReservedBitMap.clear();
+			mappedUpdatedBitMap.clear();
+			mappedFreeList.clear();
+			size = 0;
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * Flushes the container. The mapped segments are written back to the
+	 * files and the state of the container is written to the meta file. The
+	 * segments stay mapped, so the files keep their mapped lengths until
+	 * the container is closed.
+	 */
+	public void flush() {
+		if (this.container != null)
+			try {
+				mappedContainer.force();
+				mappedReservedBitMap.force();
+				mappedUpdatedBitMap.force();
+				mappedFreeList.force();
+				metaData.seek(0);
+				metaData.writeInt(blockSize);
+				metaData.writeInt(size);
+			}
+			catch (IOException ie) {
+				throw new WrappingRuntimeException(ie);
+			}
+	}
+
+	/**
+	 * Closes the Container and releases its associated files. The container
+	 * is flushed, the mapped files are truncated to their logical lengths
+	 * and all files are closed. A closed container can be implicitly
+	 * reopened by a consecutive call to one of its methods.
+	 */
+	public void close() {
+		if (this.container != null)
+			try {
+				flush();
+				mappedContainer.close();
+				container = null;
+				mappedReservedBitMap.close();
+				mappedUpdatedBitMap.close();
+				mappedFreeList.close();
+				mappedContainer = mappedReservedBitMap = mappedUpdatedBitMap = mappedFreeList = null;
+				metaData.close();
+			}
+			catch (IOException ie) {
+				throw new WrappingRuntimeException(ie);
+			}
+	}
+
+	/**
+	 * Returns whether the bit of the given block is set in the given
+	 * bitmap.
+	 *
+	 * @param bitMap the bitmap to test.
+	 * @param offset the offset of the block.
+	 * @return <tt>true</tt> if the bit is set.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected boolean testBit(MappedFile bitMap, long offset) throws IOException {
+		long index = offset/blockSize/8;
+
+		return index < bitMap.length() && (bitMap.get(index)&(1<<(offset/blockSize%8))) != 0;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the container contains a block for the
+	 * identifier <tt>id</tt>.<br>
+	 * This implementation checks whether the mapped updatedBitMap contains
+	 * an entry for the offset specified by <tt>id</tt>.
+	 *
+	 * @param id identifier of the block.
+	 * @return true if the container has updated a block for the specified
+	 *         identifier.
+	 */
+	public boolean contains(Object id) {
+		open();
+		try {
+			long offset = ((Number)id).longValue();
+
+			return offset+blockSize <= mappedContainer.length() && testBit(mappedUpdatedBitMap, offset);
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * Determines whether the blocks returned by <tt>get</tt> are read-only
+	 * views of the mapped container file (see {@link ByteBufferBlock})
+	 * instead of copies. A view is read by a
+	 * {@link ConverterContainer} without copying any byte, but it reflects
+	 * every later modification of the block in this container, i.e. it is
+	 * only valid until the block is updated or removed and must not be
+	 * used after the container has been closed.
+	 *
+	 * @param views <tt>true</tt> if <tt>get</tt> should return views of the
+	 *        mapped container file.
+	 */
+	public void setViews(boolean views) {
+		this.views = views;
+	}
+
+	/**
+	 * Returns the block associated to the identifier <tt>id</tt>. The
+	 * bytes of the block are copied out of the mapped container file,
+	 * unless views are enabled (see {@link #setViews(boolean)}). An
+	 * exception is thrown when the desired block is not found via contains.
+	 *
+	 * @param id identifier of the block.
+	 * @param unfix signals whether the object can be removed from the
+	 *        underlying buffer.
+	 * @return the block associated to the specified identifier.
+	 * @throws NoSuchElementException if the desired block is not found.
+	 */
+	public Object get(Object id, boolean unfix) throws NoSuchElementException {
+		open();
+		try {
+			if (!contains(id))
+				throw new NoSuchElementException();
+			long start = System.nanoTime();
+			if (views) {
+				ByteBuffer view = mappedContainer.view(((Number)id).longValue(), blockSize);
+				if (view != null) {
+					statistics.read(1, blockSize, System.nanoTime()-start);
+					return new ByteBufferBlock(view);
+				}
+			}
+			byte [] array = new byte [blockSize];
+			mappedContainer.read(((Number)id).longValue(), array, 0, blockSize);
+			statistics.read(1, blockSize, System.nanoTime()-start);
+			return new Block(array, 0, blockSize);
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * Returns an iterator that delivers the blocks associated to the
+	 * identifiers of the given iterator. Because the blocks are copied out
+	 * of the mapped container file, there is nothing to gain by coalescing
+	 * adjacent blocks: this implementation simply gets all blocks before it
+	 * returns.
+	 *
+	 * @param ids an iterator of identifiers.
+	 * @param unfix signals whether the objects can be removed from the
+	 *        underlying buffer.
+	 * @return an iterator of the blocks associated to the specified
+	 *         identifiers.
+	 * @throws NoSuchElementException if a desired block is not found.
+	 */
+	public Iterator getAll(Iterator ids, boolean unfix) throws NoSuchElementException {
+		List<Object> blocks = new ArrayList<Object>();
+		while (ids.hasNext())
+			blocks.add(get(ids.next(), unfix));
+		return blocks.iterator();
+	}
+
+	/**
+	 * Returns an iterator that delivers all the identifiers of the container
+	 * that are in use.
+	 *
+	 * @return an iterator of all identifiers used by this container.
+	 */
+	public Iterator ids() {
+		open();
+		return new Iterator() {
+			long id = -blockSize, nextId;
+			boolean removeable = false;
+
+			public boolean hasNext() {
+				for (removeable = false; !isUsed(nextId = id+blockSize); id = nextId)
+					if (nextId+blockSize > mappedContainer.length())
+						return false;
+				return true;
+			}
+
+			public Object next() throws NoSuchElementException {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				removeable = true;
+				return id = nextId;
+			}
+
+			public void remove() throws IllegalStateException {
+				if (!removeable)
+					throw new IllegalStateException();
+				MappedBlockFileContainer.this.remove(id);
+				removeable = false;
+			}
+		};
+	}
+
+	/**
+	 * Checks whether the <tt>id</tt> has been returned previously by a call
+	 * to insert or reserve and hasn't been removed so far. This
+	 * implementation checks whether the mapped reservedBitMap contains an
+	 * entry for the offset specified by <tt>id</tt>.
+	 *
+	 * @param id the id to be checked.
+	 * @return <tt>true</tt> exactly if the <tt>id</tt> is still in use.
+	 */
+	public boolean isUsed(Object id) {
+		open();
+		try {
+			long offset = ((Number)id).longValue();
+
+			return offset+blockSize <= mappedContainer.length() && testBit(mappedReservedBitMap, offset);
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * Removes the block with identifier <tt>id</tt>. An exception is thrown
+	 * when a block with an identifier <tt>id</tt> is not in the container.
+	 * This implementation clears the entry for the block in both mapped
+	 * bitmaps and adds <tt>id</tt> to the mapped freeList.
+	 *
+	 * @param id an identifier of a block.
+	 * @throws NoSuchElementException if a block with an identifier
+	 *         <tt>id</tt> is not in the container.
+	 */
+	public void remove(Object id) throws NoSuchElementException {
+		open();
+		try {
+			long offset = ((Number)id).longValue();
+			long index = offset/blockSize/8;
+			int mask = ~(1<<(offset/blockSize%8));
+
+			if (!isUsed(id))
+				throw new NoSuchElementException();
+			if (--size == 0)
+				reset();
+			else {
+				mappedReservedBitMap.put(index, mappedReservedBitMap.get(index)&mask);
+				mappedUpdatedBitMap.put(index, mappedUpdatedBitMap.get(index)&mask);
+				if (offset+blockSize == mappedContainer.length()) {
+					while (!isUsed(offset -= blockSize));
+					mappedReservedBitMap.setLength(offset/blockSize/8+1);
+					mappedUpdatedBitMap.setLength(offset/blockSize/8+1);
+					mappedContainer.setLength(offset+blockSize);
+				}
+				else {
+					mappedFreeList.setLength(mappedFreeList.length()+8);
+					mappedFreeList.putLong(mappedFreeList.length()-8, offset);
+				}
+			}
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * Reserves an id for subsequent use. This implementation sets the
+	 * appropriate bit for the id returned by this method in the mapped
+	 * reservedBitMap.
+	 *
+	 * @param getObject A parameterless function providing the object for
+	 * 			that an id should be reserved. Not used by this
+	 *			implementation.
+	 * @return the reserved id.
+	 */
+	public Object reserve(Function getObject) {
+		open();
+		try {
+			long offset, index;
+
+			for (;;) {
+				if (mappedFreeList.length() == 0) {
+					offset = mappedContainer.length();
+					mappedContainer.setLength(offset+blockSize);
+					break;
+				}
+				offset = mappedFreeList.getLong(mappedFreeList.length()-8);
+				mappedFreeList.setLength(mappedFreeList.length()-8);
+				if (offset+blockSize <= mappedContainer.length())
+					break;
+			}
+			index = offset/blockSize/8;
+			if (index >= mappedReservedBitMap.length()) {
+				mappedReservedBitMap.setLength(index+1);
+				mappedUpdatedBitMap.setLength(index+1);
+			}
+			mappedReservedBitMap.put(index, mappedReservedBitMap.get(index)|(1<<(offset/blockSize%8)));
+			size++;
+
+			switch (idType) {
+			case 1: return new Byte((byte) offset);
+			case 2: return new Short((short) offset);
+			case 3: return new Integer((int) offset);
+			default: return new Long(offset);
+			}
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * Overwrites an existing (id,*)-element by (id, object). This method
+	 * throws an exception if a block with an identifier <tt>id</tt> does
+	 * not exist in the container (checked via isUsed). The bytes of the
+	 * block are copied into the mapped container file.
+	 *
+	 * @param id identifier of the element.
+	 * @param object the new block that should be associated to
+	 *        <tt>id</tt>.
+	 * @param unfix signals a buffered container whether the block can be
+	 *        removed from the underlying buffer.
+	 * @throws NoSuchElementException if a block with an identifier
+	 *         <tt>id</tt> does not exist in the container.
+	 */
+	public void update(Object id, Object object, boolean unfix) throws NoSuchElementException {
+		open();
+		try {
+			long offset = ((Number)id).longValue();
+			long index = offset/blockSize/8;
+			int bit = 1<<(offset/blockSize%8);
+			Block block = ((Block)object).arrayBlock();
+
+			if (offset+blockSize > mappedContainer.length())
+				throw new NoSuchElementException();
+			if (!testBit(mappedUpdatedBitMap, offset)) {
+				if (!isUsed(id))
+					throw new NoSuchElementException();
+				mappedUpdatedBitMap.put(index, mappedUpdatedBitMap.get(index)|bit);
+			}
+			if (block.size > blockSize)
+				throw new IllegalArgumentException("Block too large: defined block size is " + blockSize + ", actual block size is "+block.size + ".");
+			long start = System.nanoTime();
+			mappedContainer.write(offset, block.array, block.offset, Math.min(blockSize, block.array.length-block.offset));
+			if (blockSize > block.array.length-block.offset)
+				mappedContainer.fill(offset+block.array.length-block.offset, blockSize-(block.array.length-block.offset));
+			statistics.write(1, blockSize, System.nanoTime()-start);
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+}
@@ -28,7 +28,10 @@ package xxl.core.collections.containers.io;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import xxl.core.collections.containers.AbstractContainer;
@@ -37,6 +40,7 @@ import xxl.core.cursors.sources.ArrayCursor;
 import xxl.core.functions.Function;
 import xxl.core.io.Block;
 import xxl.core.io.ByteArrayConversions;
+import xxl.core.io.IOStatistics;
 import xxl.core.io.MultiBlockInputStream;
 import xxl.core.io.ObjectToBlockCursor;
 import xxl.core.io.converters.ByteConverter;
@@ -44,9 +48,13 @@ import xxl.core.io.converters.FixedSizeConverter;
 import xxl.core.io.converters.IntegerConverter;
 import xxl.core.io.converters.LongConverter;
 import xxl.core.io.converters.ShortConverter;
+import xxl.core.io.raw.AsyncRawAccess;
 import xxl.core.io.raw.RawAccess;
+import xxl.core.io.raw.RawAccessUtils;
 import xxl.core.util.BitSet;
 import xxl.core.util.WrappingRuntimeException;
+import xxl.core.util.metaData.CompositeMetaData;
+import xxl.core.util.metaData.MetaDataManageable;
 
 /**
  * This class provides a container that is able to store blocks directly
@@ -59,8 +67,9 @@ import xxl.core.util.WrappingRuntimeException;
  * @see Iterator
  * @see NoSuchElementException
  * @see WrappingRuntimeException
+ * @see IOStatistics
  */
-public class RawAccessContainer extends AbstractContainer{
+public class RawAccessContainer extends AbstractContainer implements MetaDataManageable<Object,Object> {
 
 	/**
 	 * The container file of this container. The container file is used
@@ -106,6 +115,14 @@ public class RawAccessContainer extends AbstractContainer{
 	protected BitSet updatedBitSet;
 	protected BitSet reservedBitSet;
 
+	/**
+	 * The I/O statistics of this container. The reads and writes of
+	 * blocks are recorded, whereas the I/Os of the free list and the
+	 * metadata are not. The statistics also serve as the metadata
+	 * management of this container.
+	 */
+	protected IOStatistics statistics;
+
 /*	getUpdatedBitMap(blockNumber);
 	unsetUpdatedBitMap
 	setUpdatedBitMap(blockNumber);
@@ -169,6 +186,7 @@ public class RawAccessContainer extends AbstractContainer{
 	public RawAccessContainer(RawAccess ra, int maxFreeListBlocks) {
 		this.ra = ra;
 		this.maxFreeListBlocks = maxFreeListBlocks; 
+		createMetaDataManagement();
 		
 		blockSize = ra.getSectorSize();
 		block = new byte[blockSize];
@@ -191,6 +209,7 @@ public class RawAccessContainer extends AbstractContainer{
 	 */
 	public RawAccessContainer(RawAccess ra) {
 		this.ra = ra;
+		createMetaDataManagement();
 		blockSize = ra.getSectorSize();
 		block = new byte[blockSize];
 		freeListEntriesPerBlock = blockSize/8;
@@ -372,10 +391,70 @@ public class RawAccessContainer extends AbstractContainer{
 		
 		long blockNumber = ((Number)id).longValue();
 		
+		long start = System.nanoTime();
 		ra.read(array, blockNumber+maxFreeListBlocks+1);
+		statistics.read(1, blockSize, System.nanoTime()-start);
 		return new Block(array, 0, blockSize);
 	}
 
+	/**
+	 * Returns an iterator that delivers the blocks associated to the
+	 * identifiers of the given iterator. An exception is thrown when a
+	 * desired block is not found via contains. In this implementation the
+	 * parameter unfix has no function because the container is
+	 * unbuffered.<br>
+	 * Other than the implementation of AbstractContainer this implementation
+	 * reads all blocks before it returns. The block numbers are sorted and
+	 * consecutive blocks are read together (see
+	 * {@link RawAccessUtils#readSectors(RawAccess, byte[][], long)}), so
+	 * that the raw access is read sequentially. An {@link AsyncRawAccess}
+	 * gets all blocks in a single batch instead, so that the reads are
+	 * performed concurrently. The blocks are delivered in the order of the
+	 * given identifiers.
+	 *
+	 * @param ids an iterator of identifiers.
+	 * @param unfix signals whether the objects can be removed from the
+	 *        underlying buffer.
+	 * @return an iterator of the blocks associated to the specified
+	 *         identifiers.
+	 * @throws NoSuchElementException if a desired block is not found.
+	 */
+	public Iterator getAll(Iterator ids, boolean unfix) throws NoSuchElementException {
+		List list = new ArrayList();
+		while (ids.hasNext())
+			list.add(ids.next());
+
+		long [] numbers = new long [list.size()];
+		for (int i=0; i<numbers.length; i++) {
+			if (!contains(list.get(i)))
+				throw new NoSuchElementException();
+			numbers[i] = ((Number)list.get(i)).longValue();
+		}
+		if (ra instanceof AsyncRawAccess) {
+			byte [][] arrays = new byte [numbers.length][blockSize];
+			long [] sectors = new long [numbers.length];
+			Block [] blocks = new Block [numbers.length];
+
+			for (int i=0; i<numbers.length; i++)
+				sectors[i] = numbers[i]+maxFreeListBlocks+1;
+			long start = System.nanoTime();
+			((AsyncRawAccess) ra).read(arrays, sectors);
+			statistics.read(numbers.length, (long)numbers.length*blockSize, System.nanoTime()-start);
+			for (int i=0; i<numbers.length; i++)
+				blocks[i] = new Block(arrays[i], 0, blockSize);
+			return Arrays.asList(blocks).iterator();
+		}
+		return Arrays.asList(
+			new VectoredReader(blockSize) {
+				protected void read(long number, byte [][] arrays) {
+					long start = System.nanoTime();
+					RawAccessUtils.readSectors(ra, arrays, number+maxFreeListBlocks+1);
+					statistics.read(arrays.length, (long)arrays.length*blockSize, System.nanoTime()-start);
+				}
+			}.read(numbers)
+		).iterator();
+	}
+
 	/**
 	 * Returns an iterator that delivers all the identifiers of
 	 * the container that are in use.
@@ -526,7 +605,7 @@ public class RawAccessContainer extends AbstractContainer{
 	 */
 	public void update (Object id, Object object, boolean unfix) throws NoSuchElementException {
 		long blockNumber = ((Number)id).longValue();
-		Block block = (Block)object;
+		Block block = ((Block)object).arrayBlock();
 		if (block.size>blockSize)
 			throw new IllegalArgumentException("Block too large");
 		
@@ -546,7 +625,9 @@ public class RawAccessContainer extends AbstractContainer{
 		}
 		else
 			array = block.array;
+		long start = System.nanoTime();
 		ra.write(array, blockNumber+maxFreeListBlocks+1);
+		statistics.write(1, blockSize, System.nanoTime()-start);
 	}
 	
 	/**
@@ -617,4 +698,37 @@ public class RawAccessContainer extends AbstractContainer{
 		ra.write(array, head+maxFreeListBlocks+1);
 		return ids;
 	}
+
+	/**
+	 * Creates the metadata management of this container, i.e. its I/O
+	 * statistics. This method is called by the constructors.
+	 *
+	 * @throws IllegalStateException if the metadata management has already
+	 *         been created.
+	 */
+	public void createMetaDataManagement() {
+		if (statistics != null)
+			throw new IllegalStateException("An instance of MetaDataManagement already exists.");
+		statistics = new IOStatistics();
+	}
+
+	/**
+	 * Returns the metadata management of this container, i.e. its I/O
+	 * statistics.
+	 *
+	 * @return the I/O statistics of this container.
+	 */
+	public IOStatistics getMetaDataManagement() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the metadata of this container, i.e. the I/O statistics that
+	 * have been included by the metadata management.
+	 *
+	 * @return the metadata of this container.
+	 */
+	public CompositeMetaData<Object,Object> getMetaData() {
+		return statistics.getMetaData();
+	}
 }
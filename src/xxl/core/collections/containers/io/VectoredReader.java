@@ -0,0 +1,202 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.containers.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import xxl.core.io.Block;
+import xxl.core.util.WrappingRuntimeException;
+
+/**
+ * This class reads a set of blocks of a file based container with as few
+ * read operations as possible. The blocks are identified by their numbers,
+ * i.e. their position in units of the block size. The numbers are sorted,
+ * duplicates are read only once and consecutive numbers are coalesced into
+ * <i>runs</i>. Every run is read by a single call of
+ * {@link #read(long, byte[][])}, that has to be implemented by a subclass,
+ * e.g. by a scatter read of a {@link FileChannel} (see
+ * {@link #scatter(FileChannel, long, byte[][])}).
+ * <p>
+ * The blocks are returned in the order of the given numbers, so the
+ * <tt>getAll</tt> method of a container can deliver its result in the
+ * caller's order although the file is read sequentially.
+ *
+ * @see BlockFileContainer#getAll(java.util.Iterator, boolean)
+ * @see RawAccessContainer#getAll(java.util.Iterator, boolean)
+ */
+public abstract class VectoredReader {
+
+	/**
+	 * The default maximal number of blocks read by a single run.
+	 */
+	public static final int DEFAULT_MAX_RUN_LENGTH = 64;
+
+	/**
+	 * The size of the blocks in bytes.
+	 */
+	protected int blockSize;
+
+	/**
+	 * The maximal number of blocks read by a single run.
+	 */
+	protected int maxRunLength;
+
+	/**
+	 * The number of runs read so far.
+	 */
+	protected long runs = 0;
+
+	/**
+	 * Constructs a new reader for blocks of the given size.
+	 *
+	 * @param blockSize the size of the blocks in bytes.
+	 * @param maxRunLength the maximal number of blocks read by a single run.
+	 */
+	public VectoredReader(int blockSize, int maxRunLength) {
+		if (maxRunLength < 1)
+			throw new IllegalArgumentException("the maximal run length must be positive");
+		this.blockSize = blockSize;
+		this.maxRunLength = maxRunLength;
+	}
+
+	/**
+	 * Constructs a new reader for blocks of the given size reading at most
+	 * {@link #DEFAULT_MAX_RUN_LENGTH} blocks by a single run.
+	 *
+	 * @param blockSize the size of the blocks in bytes.
+	 */
+	public VectoredReader(int blockSize) {
+		this(blockSize, DEFAULT_MAX_RUN_LENGTH);
+	}
+
+	/**
+	 * Reads the consecutive blocks starting with the block of the given
+	 * number into the given arrays. Every array has the size of a block.
+	 *
+	 * @param number the number of the first block of the run.
+	 * @param arrays the arrays the blocks of the run are read into.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected abstract void read(long number, byte[][] arrays) throws IOException;
+
+	/**
+	 * Reads the blocks with the given numbers. The numbers may occur in any
+	 * order and may contain duplicates.
+	 *
+	 * @param numbers the numbers of the blocks to read.
+	 * @return the blocks in the order of the given numbers. Duplicate numbers
+	 *         result in distinct blocks with the same content.
+	 */
+	public Block[] read(final long[] numbers) {
+		Integer[] order = new Integer[numbers.length];
+		Block[] blocks = new Block[numbers.length];
+
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order,
+			new Comparator<Integer>() {
+				public int compare(Integer i, Integer j) {
+					return numbers[i] < numbers[j] ? -1 : numbers[i] == numbers[j] ? 0 : 1;
+				}
+			}
+		);
+		try {
+			for (int start = 0; start < order.length;) {
+				// collects the distinct numbers of the next run
+				long first = numbers[order[start]];
+				int end = start+1, length = 1;
+
+				while (end < order.length) {
+					long number = numbers[order[end]];
+					if (number != first+length-1) {
+						if (number != first+length || length == maxRunLength)
+							break;
+						length++;
+					}
+					end++;
+				}
+				byte[][] arrays = new byte[length][blockSize];
+				read(first, arrays);
+				runs++;
+				for (int i = start; i < end; i++) {
+					byte[] array = arrays[(int)(numbers[order[i]]-first)];
+					blocks[order[i]] = new Block(
+						i > start && numbers[order[i-1]] == numbers[order[i]] ? array.clone() : array,
+						0,
+						blockSize
+					);
+				}
+				start = end;
+			}
+		}
+		catch (IOException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+		return blocks;
+	}
+
+	/**
+	 * Returns the number of runs read so far.
+	 *
+	 * @return the number of runs read so far.
+	 */
+	public long runs() {
+		return runs;
+	}
+
+	/**
+	 * Reads consecutive bytes of the given channel starting at the given
+	 * position into the given arrays by scatter reads. The position of the
+	 * channel is changed.
+	 *
+	 * @param channel the channel to read from.
+	 * @param position the position of the first byte to read.
+	 * @param arrays the arrays that are filled one after another.
+	 * @throws IOException if an I/O error occurs or the end of the channel is
+	 *         reached before the arrays are filled.
+	 */
+	public static void scatter(FileChannel channel, long position, byte[][] arrays) throws IOException {
+		ByteBuffer[] buffers = new ByteBuffer[arrays.length];
+		long remaining = 0;
+
+		for (int i = 0; i < arrays.length; i++)
+			remaining += (buffers[i] = ByteBuffer.wrap(arrays[i])).remaining();
+		channel.position(position);
+		for (int offset = 0; remaining > 0;) {
+			long read = channel.read(buffers, offset, buffers.length-offset);
+			if (read < 0)
+				throw new EOFException();
+			remaining -= read;
+			while (offset < buffers.length && !buffers[offset].hasRemaining())
+				offset++;
+		}
+	}
+}
@@ -0,0 +1,329 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.containers.io;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import xxl.core.collections.containers.Container;
+import xxl.core.util.WrappingRuntimeException;
+
+/**
+ * This class writes objects back to a container asynchronously. The objects
+ * to write are collected in a queue that is sorted by their ids. A
+ * background thread takes the objects with the smallest ids out of the
+ * queue and writes them to the container in groups by calling
+ * <tt>updateAll</tt>. Because the ids of file based containers are the
+ * offsets of the blocks, the writes of a group are near-sequential.
+ * <p>
+ * An object stays visible by {@link #lookup(Object) lookup} until it has
+ * been written to the container, so that a reader never gets an outdated
+ * object out of the container. When an object with the same id is enqueued
+ * again before it has been written, only the newer object is written. The
+ * number of queued objects is bounded: enqueueing an object blocks while
+ * the queue is full.
+ * <p>
+ * The container is accessed by the background thread, so it has to be
+ * thread-safe, e.g. a {@link xxl.core.collections.containers.SynchronizedContainer}.
+ * Exceptions thrown by the container in the background thread are rethrown
+ * by the next call of <tt>enqueue</tt> or <tt>drain</tt>.
+ *
+ * @see BufferedContainer
+ */
+public class WriteBackFlusher {
+
+	/**
+	 * The container the objects are written to.
+	 */
+	protected Container container;
+
+	/**
+	 * The maximal number of objects written by a single call of
+	 * <tt>updateAll</tt>.
+	 */
+	protected int groupSize;
+
+	/**
+	 * The maximal number of objects in the queue.
+	 */
+	protected int capacity;
+
+	/**
+	 * The queue of the objects to write sorted by their ids.
+	 */
+	protected TreeMap<Object, Object> pending;
+
+	/**
+	 * The objects that are currently written by the background thread.
+	 */
+	protected Map<Object, Object> inFlight = new HashMap<Object, Object>();
+
+	/**
+	 * The background thread or <code>null</code> if it is not running.
+	 */
+	protected Thread thread = null;
+
+	/**
+	 * The exception thrown by the container in the background thread.
+	 */
+	protected RuntimeException error = null;
+
+	/**
+	 * The number of groups written so far.
+	 */
+	protected long groups = 0;
+
+	/**
+	 * The number of objects written so far.
+	 */
+	protected long writes = 0;
+
+	/**
+	 * Constructs a new flusher writing objects to the given container. The
+	 * queue is sorted by the given comparator.
+	 *
+	 * @param container the container the objects are written to.
+	 * @param comparator the comparator used for sorting the ids or
+	 *        <code>null</code> if the ids are sorted by their natural order.
+	 * @param groupSize the maximal number of objects written by a single
+	 *        call of <tt>updateAll</tt>.
+	 * @param capacity the maximal number of objects in the queue.
+	 */
+	public WriteBackFlusher(Container container, Comparator<Object> comparator, int groupSize, int capacity) {
+		this.container = container;
+		this.pending = new TreeMap<Object, Object>(comparator);
+		this.groupSize = groupSize;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Constructs a new flusher writing objects to the given container. The
+	 * ids of the objects have to be comparable, the queue is sorted by their
+	 * natural order.
+	 *
+	 * @param container the container the objects are written to.
+	 * @param groupSize the maximal number of objects written by a single
+	 *        call of <tt>updateAll</tt>.
+	 * @param capacity the maximal number of objects in the queue.
+	 */
+	public WriteBackFlusher(Container container, int groupSize, int capacity) {
+		this(container, null, groupSize, capacity);
+	}
+
+	/**
+	 * Waits until this object is notified.
+	 */
+	protected void await() {
+		try {
+			wait();
+		}
+		catch (InterruptedException ie) {
+			throw new WrappingRuntimeException(ie);
+		}
+	}
+
+	/**
+	 * Throws the exception thrown by the container in the background thread,
+	 * if there is any.
+	 */
+	protected void checkError() {
+		if (error != null) {
+			RuntimeException e = error;
+			error = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Enqueues the given object that is written to the container with the
+	 * given id. This method blocks while the queue is full. The background
+	 * thread is started, if it is not running.
+	 *
+	 * @param id the id of the object.
+	 * @param object the object to write.
+	 */
+	public synchronized void enqueue(Object id, Object object) {
+		checkError();
+		while (pending.size() >= capacity && !pending.containsKey(id))
+			await();
+		pending.put(id, object);
+		if (thread == null) {
+			thread = new Thread("WriteBackFlusher") {
+				public void run() {
+					WriteBackFlusher.this.run();
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Returns the object with the given id, if it has not been written to
+	 * the container yet.
+	 *
+	 * @param id the id of the object.
+	 * @return the object with the given id or <code>null</code> if no such
+	 *         object is waiting to be written.
+	 */
+	public synchronized Object lookup(Object id) {
+		Object object = pending.get(id);
+		return object != null ? object : inFlight.get(id);
+	}
+
+	/**
+	 * Removes the object with the given id out of the queue. If it is
+	 * currently written, this method waits until it has been written.
+	 *
+	 * @param id the id of the object.
+	 */
+	public synchronized void cancel(Object id) {
+		pending.remove(id);
+		while (inFlight.containsKey(id))
+			await();
+		notifyAll();
+	}
+
+	/**
+	 * Removes all objects out of the queue and waits until the objects
+	 * currently written have been written.
+	 */
+	public synchronized void clear() {
+		pending.clear();
+		while (!inFlight.isEmpty())
+			await();
+		notifyAll();
+	}
+
+	/**
+	 * Waits until all enqueued objects have been written to the container.
+	 */
+	public synchronized void drain() {
+		while (!pending.isEmpty() || !inFlight.isEmpty()) {
+			checkError();
+			await();
+		}
+		checkError();
+	}
+
+	/**
+	 * Waits until all enqueued objects have been written to the container
+	 * and stops the background thread. The thread is restarted by the next
+	 * call of <tt>enqueue</tt>.
+	 */
+	public void close() {
+		Thread thread;
+
+		synchronized (this) {
+			drain();
+			thread = this.thread;
+			this.thread = null;
+			notifyAll();
+		}
+		if (thread != null)
+			try {
+				thread.join();
+			}
+			catch (InterruptedException ie) {
+				throw new WrappingRuntimeException(ie);
+			}
+	}
+
+	/**
+	 * Returns the number of objects waiting to be written.
+	 *
+	 * @return the number of objects waiting to be written.
+	 */
+	public synchronized int pending() {
+		return pending.size()+inFlight.size();
+	}
+
+	/**
+	 * Returns the number of groups written so far.
+	 *
+	 * @return the number of groups written so far.
+	 */
+	public synchronized long groups() {
+		return groups;
+	}
+
+	/**
+	 * Returns the number of objects written so far.
+	 *
+	 * @return the number of objects written so far.
+	 */
+	public synchronized long writes() {
+		return writes;
+	}
+
+	/**
+	 * The loop of the background thread. It takes groups of objects with
+	 * the smallest ids out of the queue and writes them to the container
+	 * until the flusher is closed.
+	 */
+	protected void run() {
+		Thread current = Thread.currentThread();
+
+		for (;;) {
+			List<Object> ids = new ArrayList<Object>(groupSize);
+			List<Object> objects = new ArrayList<Object>(groupSize);
+
+			synchronized (this) {
+				while (pending.isEmpty() && thread == current)
+					await();
+				if (pending.isEmpty())
+					return;
+				while (ids.size() < groupSize && !pending.isEmpty()) {
+					Map.Entry<Object, Object> entry = pending.pollFirstEntry();
+					ids.add(entry.getKey());
+					objects.add(entry.getValue());
+					inFlight.put(entry.getKey(), entry.getValue());
+				}
+				notifyAll();
+			}
+			try {
+				container.updateAll(ids.iterator(), objects.iterator(), true);
+			}
+			catch (RuntimeException e) {
+				synchronized (this) {
+					error = e;
+				}
+			}
+			synchronized (this) {
+				for (Object id : ids)
+					inFlight.remove(id);
+				groups++;
+				writes += ids.size();
+				notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,325 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.queues;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import xxl.core.functions.Function;
+
+/**
+ * A binary min-heap whose priorities are primitive <tt>double</tt> values.
+ * The priorities, the elements and an additional <tt>int</tt> tag of every
+ * element are stored in three parallel arrays, so that inserting an element
+ * neither boxes its priority nor creates a wrapper object combining the
+ * element with its priority. The arrays grow when they are full and they are
+ * kept by {@link #clear()}, i.e. a heap can be reused by many queries
+ * without allocating new arrays.
+ * 
+ * <p>The heap is used by the best-first traversals of the index structures,
+ * e.g. for nearest neighbor queries, where the priority is a distance and the
+ * tag is a level of the tree. These traversals pass the priority explicitly
+ * to {@link #insert(double, Object, int)}. When the heap is used through the
+ * {@link Queue} interface, the priority of an enqueued element is computed
+ * by the priority function given to the constructor; a heap created without
+ * a priority function does not support {@link #enqueue(Object)}.</p>
+ *
+ * @param <E> the type of the elements of the heap.
+ * @see Heap
+ */
+public class DoubleKeyHeap<E> implements Queue<E> {
+
+	/**
+	 * The priorities of the elements in heap order.
+	 */
+	protected double[] keys;
+
+	/**
+	 * The elements in heap order.
+	 */
+	protected Object[] elements;
+
+	/**
+	 * The tags of the elements in heap order.
+	 */
+	protected int[] tags;
+
+	/**
+	 * The number of elements in the heap.
+	 */
+	protected int size = 0;
+
+	/**
+	 * The function computing the priority of an element passed to
+	 * {@link #enqueue(Object)}, or <tt>null</tt> if the heap is only used
+	 * with explicit priorities.
+	 */
+	protected Function<? super E, ? extends Number> priority;
+
+	/**
+	 * A flag indicating whether the heap has been closed.
+	 */
+	protected boolean isClosed = false;
+
+	/**
+	 * Creates an empty heap with the given initial capacity and the given
+	 * function computing the priorities of enqueued elements.
+	 *
+	 * @param capacity the initial capacity of the heap.
+	 * @param priority the function computing the priority of an element
+	 *        passed to {@link #enqueue(Object)}.
+	 */
+	public DoubleKeyHeap(int capacity, Function<? super E, ? extends Number> priority) {
+		capacity = Math.max(capacity, 1);
+		keys = new double[capacity];
+		elements = new Object[capacity];
+		tags = new int[capacity];
+		this.priority = priority;
+	}
+
+	/**
+	 * Creates an empty heap with the given initial capacity. Elements have to
+	 * be inserted with an explicit priority.
+	 *
+	 * @param capacity the initial capacity of the heap.
+	 */
+	public DoubleKeyHeap(int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * Creates an empty heap with an initial capacity of 64 elements.
+	 */
+	public DoubleKeyHeap() {
+		this(64);
+	}
+
+	/**
+	 * Returns the number of elements in the heap.
+	 *
+	 * @return the number of elements in the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the heap is empty.
+	 *
+	 * @return <tt>true</tt> if the heap contains no elements.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all elements from the heap. The arrays of the heap are kept.
+	 */
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Opens the heap. The heap needs no resources, so this method does
+	 * nothing.
+	 */
+	public void open() {
+	}
+
+	/**
+	 * Closes the heap and removes its elements. Afterwards the methods of
+	 * the {@link Queue} interface throw an {@link IllegalStateException}.
+	 */
+	public void close() {
+		if (!isClosed) {
+			clear();
+			isClosed = true;
+		}
+	}
+
+	/**
+	 * Inserts an element with the priority computed by the priority function
+	 * of the heap and the tag <tt>0</tt> into the heap.
+	 *
+	 * @param object the element.
+	 * @throws IllegalStateException if the heap is already closed.
+	 * @throws UnsupportedOperationException if the heap has no priority
+	 *         function.
+	 */
+	public void enqueue(E object) throws IllegalStateException {
+		if (isClosed)
+			throw new IllegalStateException();
+		if (priority == null)
+			throw new UnsupportedOperationException("the heap has no priority function");
+		insert(priority.invoke(object).doubleValue(), object, 0);
+	}
+
+	/**
+	 * Returns the element with the smallest priority without removing it.
+	 *
+	 * @return the element with the smallest priority.
+	 * @throws IllegalStateException if the heap is already closed.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	public E peek() throws IllegalStateException, NoSuchElementException {
+		if (isClosed)
+			throw new IllegalStateException();
+		return min();
+	}
+
+	/**
+	 * Removes the element with the smallest priority from the heap.
+	 *
+	 * @return the removed element.
+	 * @throws IllegalStateException if the heap is already closed.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	public E dequeue() throws IllegalStateException, NoSuchElementException {
+		if (isClosed)
+			throw new IllegalStateException();
+		return removeMin();
+	}
+
+	/**
+	 * Inserts an element with the given priority and tag into the heap.
+	 *
+	 * @param key the priority of the element.
+	 * @param element the element.
+	 * @param tag the tag of the element.
+	 */
+	public void insert(double key, E element, int tag) {
+		if (size == keys.length) {
+			int capacity = 2*keys.length;
+			keys = Arrays.copyOf(keys, capacity);
+			elements = Arrays.copyOf(elements, capacity);
+			tags = Arrays.copyOf(tags, capacity);
+		}
+		int index = size++;
+		// sift up
+		while (index > 0) {
+			int parent = (index-1) >>> 1;
+			if (keys[parent] <= key)
+				break;
+			move(parent, index);
+			index = parent;
+		}
+		keys[index] = key;
+		elements[index] = element;
+		tags[index] = tag;
+	}
+
+	/**
+	 * Inserts an element with the given priority and the tag <tt>0</tt>
+	 * into the heap.
+	 *
+	 * @param key the priority of the element.
+	 * @param element the element.
+	 */
+	public void insert(double key, E element) {
+		insert(key, element, 0);
+	}
+
+	/**
+	 * Returns the smallest priority of the heap.
+	 *
+	 * @return the smallest priority.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	public double minKey() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return keys[0];
+	}
+
+	/**
+	 * Returns the element with the smallest priority without removing it.
+	 *
+	 * @return the element with the smallest priority.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public E min() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return (E)elements[0];
+	}
+
+	/**
+	 * Returns the tag of the element with the smallest priority.
+	 *
+	 * @return the tag of the element with the smallest priority.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	public int minTag() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return tags[0];
+	}
+
+	/**
+	 * Removes the element with the smallest priority from the heap.
+	 *
+	 * @return the removed element.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public E removeMin() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		E min = (E)elements[0];
+		int last = --size;
+		double key = keys[last];
+		Object element = elements[last];
+		int tag = tags[last];
+		elements[last] = null;
+		if (last > 0) {
+			int index = 0;
+			// sift down
+			for (int child; (child = 2*index+1) < last; index = child) {
+				if (child+1 < last && keys[child+1] < keys[child])
+					child++;
+				if (key <= keys[child])
+					break;
+				move(child, index);
+			}
+			keys[index] = key;
+			elements[index] = element;
+			tags[index] = tag;
+		}
+		return min;
+	}
+
+	/**
+	 * Moves the element at the position <tt>from</tt> to the position
+	 * <tt>to</tt> of the arrays.
+	 */
+	private void move(int from, int to) {
+		keys[to] = keys[from];
+		elements[to] = elements[from];
+		tags[to] = tags[from];
+	}
+}
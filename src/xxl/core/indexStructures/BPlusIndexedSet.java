@@ -37,6 +37,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicReference;
 
 import xxl.core.cursors.Cursor;
 import xxl.core.indexStructures.BPlusTree.IndexEntry;
@@ -90,9 +91,10 @@ public class BPlusIndexedSet<E> extends IndexedSet<BPlusTree, E> {
   public static final String META_FILE_EXTENSION = ".meta";
 
   /*
-   * The count of items inside the indexed set
+   * The count of items inside the indexed set. It is updated atomically, so the set can be used by
+   * many threads when the underlying tree runs in concurrent mode.
    */
-  private BigInteger mSize = BigInteger.ZERO;
+  private final AtomicReference<BigInteger> mSize = new AtomicReference<>(BigInteger.ZERO);
 
   /**
    * Sets up a new instance of <code>BPlusIndexedSet</code> with an instance of
@@ -123,9 +125,14 @@ public class BPlusIndexedSet<E> extends IndexedSet<BPlusTree, E> {
       }
 
       if (contains(e)) return false;
-      if (!mTree.contains((e instanceof Entry) ? ((Entry) e).asTuple() : e))
+      try {
         mTree.insert((e instanceof Entry) ? ((Entry) e).asTuple() : e);
-      mSize = mSize.add(BigInteger.ONE);
+      } catch (IllegalArgumentException duplicate) {
+        // the tree rejects the key, e.g. because a concurrent add inserted it after the check above
+        return false;
+      }
+      // the size is only counted when the (latched) insert actually added the key
+      addToSize(BigInteger.ONE);
       return true;
     } catch (IllegalArgumentException | SQLException ex) {
       return false;
@@ -179,7 +186,7 @@ public class BPlusIndexedSet<E> extends IndexedSet<BPlusTree, E> {
 
   @Override
   public boolean isEmpty() {
-    return mSize.equals(BigInteger.ZERO);
+    return mSize.get().equals(BigInteger.ZERO);
   }
 
   @Override
@@ -218,8 +225,7 @@ public class BPlusIndexedSet<E> extends IndexedSet<BPlusTree, E> {
 
     Object removedObject = mTree.remove(tupleToRemove);
     if (removedObject != null) {
-      mSize = mSize.subtract(BigInteger.ONE);
-      if (mSize.compareTo(BigInteger.ZERO) == -1)
+      if (addToSize(BigInteger.ONE.negate()).compareTo(BigInteger.ZERO) == -1)
         throw new IndexOutOfBoundsException("Set size is less than zero.");
       return true;
     } else
@@ -539,12 +545,23 @@ public class BPlusIndexedSet<E> extends IndexedSet<BPlusTree, E> {
 
   @Override
   public int size() {
-    return mSize.intValue();
+    return mSize.get().intValue();
   }
 
   @Override
   public BigInteger sizeBigInteger() {
-    return mSize;
+    return mSize.get();
+  }
+
+  /*
+   * Adds the given delta to the count of items and returns the new count
+   */
+  private BigInteger addToSize(BigInteger delta) {
+    while (true) {
+      BigInteger size = mSize.get();
+      BigInteger newSize = size.add(delta);
+      if (mSize.compareAndSet(size, newSize)) return newSize;
+    }
   }
 
   @Override
@@ -25,21 +25,32 @@ License along with this library;  If not, see <http://www.gnu.org/licenses/>.
 
 package xxl.core.indexStructures;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import xxl.core.collections.MapEntry;
 import xxl.core.collections.MappedList;
 import xxl.core.collections.containers.Container;
+import xxl.core.cursors.AbstractCursor;
 import xxl.core.cursors.Cursor;
+import xxl.core.cursors.Cursors;
 import xxl.core.cursors.mappers.Mapper;
 import xxl.core.cursors.sources.EmptyCursor;
 import xxl.core.functions.AbstractFunction;
@@ -47,10 +58,12 @@ import xxl.core.functions.Constant;
 import xxl.core.functions.Function;
 import xxl.core.io.converters.BooleanConverter;
 import xxl.core.io.converters.Converter;
+import xxl.core.io.converters.Converters;
 import xxl.core.io.converters.IntegerConverter;
 import xxl.core.io.converters.MeasuredConverter;
 import xxl.core.predicates.AbstractPredicate;
 import xxl.core.predicates.Predicate;
+import xxl.core.util.WrappingRuntimeException;
 
 /**
  * This class implements a B+Tree. 
@@ -158,6 +171,64 @@ public class BPlusTree extends Tree {
      * Indicates whether a B+Tree can contain Duplicates or not.
      */
     protected boolean  duplicate; 
+    /**
+     * Indicates whether the <tt>BPlusTree</tt> runs in concurrent mode. In
+     * concurrent mode insertions, removals and queries on the leaf level
+     * follow the B-link protocol of Lehman and Yao and can be called by many
+     * threads at the same time.
+     * 
+     * @see #setConcurrent(boolean)
+     */
+    protected volatile boolean concurrent = false;
+    /**
+     * The latch protecting {@link Tree#rootEntry} and
+     * {@link Tree#rootDescriptor} in concurrent mode. It is only held while
+     * the root is read or replaced, never while a node latch is requested.
+     */
+    protected final ReentrantReadWriteLock rootLatch = new ReentrantReadWriteLock();
+    /**
+     * The latches of the nodes used in concurrent mode, mapped by the IDs of
+     * the nodes. A latch is created when its node is accessed the first time
+     * and dropped when the node is removed from its container.
+     */
+    protected final ConcurrentHashMap<Object, ReentrantReadWriteLock> latches = new ConcurrentHashMap<Object, ReentrantReadWriteLock>();
+    /**
+     * Indicates whether the <tt>Nodes</tt> are written in the compressed
+     * format of the {@link NodeConverter}, i.e. with the common prefix of
+     * their keys stored only once.
+     *
+     * @see #setNodeCompression(boolean)
+     */
+    protected boolean compressNodes = false;
+    /**
+     * Indicates whether the <tt>Nodes</tt> are written in the slotted
+     * format of the {@link NodeConverter}, i.e. with every entry in a slot
+     * of fixed size, so that the entries are decoded lazily.
+     *
+     * @see #setSlottedNodes(boolean)
+     */
+    protected boolean slottedNodes = false;
+    /**
+     * The maximal number of leaves a range query reads ahead, or <tt>0</tt>
+     * if the leaves are not read ahead.
+     *
+     * @see #setReadAhead(int, Executor)
+     */
+    protected int readAheadWindow = 0;
+    /**
+     * The <tt>Executor</tt> running the read-ahead of range queries.
+     *
+     * @see #setReadAhead(int, Executor)
+     */
+    protected Executor readAheadExecutor = null;
+    /**
+     * A <tt>Function</tt> computing the separator value of a split leaf from
+     * its last key and the first key of its new right sibling, or
+     * <tt>null</tt> if the last key is used.
+     *
+     * @see #setShortestSeparator(Function)
+     */
+    protected Function shortestSeparator = null;
     /**
      * Creates a new <tt>BPlusTree</tt>. With a default setting of duplicates = false 
      * 
@@ -252,7 +323,8 @@ public class BPlusTree extends Tree {
         Predicate overflows = new AbstractPredicate() {
             public boolean invoke(Object o) {
                 Node node = (Node) o;
-                return node.number() > (node.level() == 0 ? B_LeafNode : B_IndexNode);
+                return node.number() > (node.level() == 0 ? B_LeafNode : B_IndexNode)
+                        && (!compressNodes || nodeConverter.nodeSize(node) > BLOCK_SIZE);
             }
         };
         Predicate underflows = new AbstractPredicate() {
@@ -857,6 +929,8 @@ public class BPlusTree extends Tree {
 	 * @return the removed object or <tt>null</tt> if there was no such object 
 	 */ 
 	public Object remove (Descriptor descriptor, int targetLevel, Predicate test) {
+		if (concurrent && targetLevel == 0)
+			return concurrentRemove(keyRange(descriptor), test);
 		Cursor objects = query(descriptor, targetLevel);
 		Object retValue = null;
 		while (objects.hasNext()) {
@@ -885,6 +959,10 @@ public class BPlusTree extends Tree {
      *            suitable leaf node)
      */
     protected void insert(Object data, Descriptor descriptor, int targetLevel) {
+        if (concurrent && targetLevel == 0) {
+            concurrentInsert(data, ((Separator) descriptor).sepValue());
+            return;
+        }
         if (rootEntry() == null) {
             Comparable key = ((Separator) descriptor).sepValue();
             rootDescriptor = createKeyRange(key, key);
@@ -903,6 +981,175 @@ public class BPlusTree extends Tree {
             }
         }
     }
+    /**
+     * Inserts a batch of data objects into the leaves of the tree. The
+     * objects are sorted by their keys first. Then the tree is traversed
+     * once for every group of objects belonging to the same leaf: the
+     * objects are added to the leaf until it overflows, and the overflow is
+     * repaired by splitting the nodes on the path level by level as
+     * {@link #insert(Object)} does. Afterwards the next leaf is searched
+     * starting with the first object which was not inserted. Compared to a
+     * sequence of single insertions this saves the descents and the
+     * updates of the leaves for all objects but the first of each group.
+     * <p>
+     * If the tree is in concurrent mode the objects are inserted one by one.
+     *
+     * @param data
+     *            an iterator delivering the objects to insert
+     * @exception IllegalArgumentException
+     *            in normal mode if an object having the key of an object
+     *            stored in the tree (or of another object of the batch) is
+     *            inserted. The objects having smaller keys have been
+     *            inserted before.
+     */
+    public void insertAll(Iterator data) {
+        List objects = sortByKey(data);
+        if (concurrent) {
+            for (Object object : objects)
+                insert(object);
+            return;
+        }
+        int i = 0;
+        while (i < objects.size()) {
+            if (rootEntry() == null) {
+                insert(objects.get(i++));
+                continue;
+            }
+            Stack path = new Stack();
+            IndexEntry leafEntry = (IndexEntry) chooseLeaf(
+                    (Descriptor) getDescriptor.invoke(objects.get(i)), 0, path);
+            Node leaf = (Node) down(path, leafEntry);
+            // all objects up to the separator of the leaf belong to it, the
+            // last leaf takes all remaining objects
+            Comparable bound = leaf.nextNeighbor() == null ? null
+                    : leafEntry.separator().sepValue();
+            try {
+                do {
+                    Object object = objects.get(i++);
+                    leaf.grow(object, path);
+                    rootDescriptor.union((Descriptor) getDescriptor.invoke(object));
+                } while (i < objects.size() && !leaf.overflows()
+                        && (bound == null || key(objects.get(i)).compareTo(bound) <= 0));
+            } finally {
+                if (bound == null && leaf.number() > 0)
+                    extendSeparators(path, key(leaf.getLast()));
+                post(path);
+            }
+        }
+    }
+    /**
+     * Raises the separators of the index entries on the given path to the
+     * given key, if they are smaller. This is required after objects have
+     * been appended to the last leaf, and writes the changed index nodes.
+     *
+     * @param path
+     *            the path from the root to the last leaf
+     * @param key
+     *            the largest key stored in the last leaf
+     */
+    protected void extendSeparators(Stack path, Comparable key) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            IndexEntry indexEntry = (IndexEntry) ((MapEntry) path.get(i)).getKey();
+            if (indexEntry.separator().sepValue().compareTo(key) < 0) {
+                indexEntry.separator().updateSepValue(key);
+                MapEntry parent = (MapEntry) path.get(i - 1);
+                ((IndexEntry) parent.getKey()).update((Node) parent.getValue(), false);
+            }
+        }
+        Separator rootSeparator = ((IndexEntry) rootEntry()).separator();
+        if (rootSeparator != null && rootSeparator.sepValue().compareTo(key) < 0)
+            rootSeparator.updateSepValue(key);
+    }
+    /**
+     * Removes a batch of data objects from the tree. The objects are sorted by
+     * their keys first and every object is compared with the stored objects
+     * by its key as {@link #remove(Object)} does. The tree is traversed once
+     * for every group of objects belonging to the same leaf: the objects are
+     * removed from the leaf until it underflows. Then the underflow is
+     * repaired by merging or redistributing the nodes on the path level by
+     * level and the next leaf is searched starting with the first object
+     * which was not processed.
+     * <p>
+     * In duplicate or concurrent mode the objects are removed one by one.
+     *
+     * @param data
+     *            an iterator delivering the objects to remove
+     * @return a list containing the removed objects in ascending order of
+     *         their keys
+     */
+    public List removeAll(Iterator data) {
+        List objects = sortByKey(data);
+        List removed = new ArrayList();
+        if (duplicate || concurrent) {
+            for (Object object : objects) {
+                Object oldData = remove(object);
+                if (oldData != null)
+                    removed.add(oldData);
+            }
+            return removed;
+        }
+        int i = 0;
+        while (i < objects.size() && rootEntry() != null) {
+            Stack path = new Stack();
+            Separator separator = separator(objects.get(i));
+            Node leaf = (Node) down(path, (IndexEntry) rootEntry());
+            while (leaf.level() > 0) {
+                int index = leaf.search(separator);
+                index = (index >= 0) ? index : Math.min(-index - 1, leaf.number() - 1);
+                leaf = (Node) down(path, (IndexEntry) leaf.getEntry(index));
+            }
+            Comparable bound = leaf.nextNeighbor() == null ? null
+                    : ((IndexEntry) indexEntry(path)).separator().sepValue();
+            KeyRange root = (KeyRange) rootDescriptor();
+            boolean minRemoved = false, maxRemoved = false;
+            do {
+                int index = leaf.search(separator(objects.get(i++)));
+                if (index >= 0) {
+                    Object oldData = leaf.remove(index);
+                    removed.add(oldData);
+                    Comparable key = key(oldData);
+                    minRemoved |= key.compareTo(root.minBound()) == 0;
+                    maxRemoved |= key.compareTo(root.maxBound()) == 0;
+                }
+            } while (i < objects.size() && (path.size() == 1 || !leaf.underflows())
+                    && (bound == null || key(objects.get(i)).compareTo(bound) <= 0));
+            IndexEntry leafEntry = (IndexEntry) indexEntry(path);
+            leafEntry.update(leaf, false);
+            if (leaf.number() > 0) {
+                if (minRemoved)
+                    root.updateMinBound(key(leaf.getFirst()));
+                if (maxRemoved && leaf.nextNeighbor() == null)
+                    root.updateMaxBound(key(leaf.getLast()));
+            }
+            treatUnderflow(path);
+            while (!path.isEmpty())
+                up(path);
+            if (leaf.number() == 0 && leafEntry == rootEntry()) {
+                // the last object was removed
+                leafEntry.remove();
+                rootDescriptor = null;
+                rootEntry = null;
+            }
+        }
+        return removed;
+    }
+    /**
+     * Materializes the given objects in a list sorted by their keys. The
+     * order of objects having the same key is preserved.
+     *
+     * @param data
+     *            an iterator delivering the objects
+     * @return the sorted list of the objects
+     */
+    protected List sortByKey(Iterator data) {
+        List objects = Cursors.toList(data);
+        Collections.sort(objects, new Comparator() {
+            public int compare(Object object1, Object object2) {
+                return key(object1).compareTo(key(object2));
+            }
+        });
+        return objects;
+    }
     /**
      * This method computes the path from the root to the leaf node referred by
      * the given <tt>indexEntry</tt>. The path nodes are fixed in the
@@ -1077,13 +1324,19 @@ public class BPlusTree extends Tree {
      * @return a lazy <tt>Cursor</tt> pointing to all response objects
      */
     public Cursor query(Descriptor queryDescriptor, int targetLevel) {
-        KeyRange queryRange;
         if(queryDescriptor == null) return new EmptyCursor();
-        if (!(queryDescriptor instanceof KeyRange)) {
-            Comparable key = ((Separator) queryDescriptor).sepValue();
-            queryRange = createKeyRange(key, key);
-        } else
-            queryRange = (KeyRange) queryDescriptor;
+        KeyRange queryRange = keyRange(queryDescriptor);
+        if (concurrent && targetLevel == 0) {
+            rootLatch.readLock().lock();
+            try {
+                if ((rootEntry == null) || !(rootDescriptor).overlaps(queryRange))
+                    return new EmptyCursor();
+            }
+            finally {
+                rootLatch.readLock().unlock();
+            }
+            return new ConcurrentQueryCursor(queryRange);
+        }
         if ((targetLevel >= height()) || !(rootDescriptor).overlaps(queryRange))
                 return new EmptyCursor();
         return query((IndexEntry) rootEntry, queryRange, targetLevel);
@@ -1093,6 +1346,20 @@ public class BPlusTree extends Tree {
     protected Cursor treequery(Descriptor queryDescriptor) {
     	return super.query(queryDescriptor, 0);
     }
+    /**
+     * Converts the given <tt>Descriptor</tt> into a <tt>KeyRange</tt>. A
+     * <tt>Separator</tt> that is no <tt>KeyRange</tt> is converted into the
+     * point range of its separation value.
+     * 
+     * @param descriptor
+     *            a <tt>Separator</tt> or <tt>KeyRange</tt>
+     * @return the <tt>KeyRange</tt> described by <tt>descriptor</tt>
+     */
+    protected KeyRange keyRange(Descriptor descriptor) {
+        if (descriptor instanceof KeyRange) return (KeyRange) descriptor;
+        Comparable key = ((Separator) descriptor).sepValue();
+        return createKeyRange(key, key);
+    }
     /**
      * This method uses an implementation of an efficient querying algorithm. The
      * result is a lazy <tt>Cursor</tt> pointing to all entries whose keys are
@@ -1144,6 +1411,675 @@ public class BPlusTree extends Tree {
         reorg = false;
         return ret;
     }
+    /**
+     * Switches the concurrent mode of the <tt>BPlusTree</tt> on or off. In
+     * concurrent mode the tree follows the B-link protocol of Lehman and Yao:
+     * every node is protected by a read/write latch and a split node keeps a
+     * link to its new right sibling ({@link Node#nextNeighbor}), so that an
+     * operation that reaches a node after a concurrent split simply moves
+     * right. Readers hold at most one shared latch at a time and never block
+     * each other. Writers latch only the leaf they modify and, when it
+     * splits, its parent while the new <tt>IndexEntry</tt> is posted. Latches
+     * are always requested bottom-up and from left to right, so the protocol
+     * is free of deadlocks.
+     * <p>
+     * The concurrent mode covers {@link #insert(Object)},
+     * {@link #remove(Object)} and all queries on the leaf level. It does not
+     * merge underflowing nodes, i.e. nodes may become sparse (or even empty)
+     * after removals. Separators are upper bounds of their subtrees, except
+     * on the rightmost path: a key greater than all keys of the tree is
+     * inserted into the rightmost leaf without raising the separators above
+     * it, so the last entry of the rightmost node of a level covers all
+     * greater keys. Hence a key belongs to the first node from the left
+     * whose last key is not smaller than the key or, if there is no such
+     * node, to the rightmost node. The underlying <tt>Container</tt> has to be
+     * thread-safe, e.g. a {@link xxl.core.collections.containers.io.BufferedContainer}
+     * using a {@link xxl.core.io.ConcurrentBuffer} on top of a
+     * {@link xxl.core.collections.containers.SynchronizedContainer}.
+     * Duplicates are not supported in concurrent mode.
+     * 
+     * @param concurrent
+     *            <tt>true</tt> to switch the concurrent mode on
+     * @return the <tt>BPlusTree</tt> itself
+     * @throws UnsupportedOperationException
+     *             if the tree is in duplicate mode
+     */
+    public BPlusTree setConcurrent(boolean concurrent) {
+        if (concurrent && duplicate)
+            throw new UnsupportedOperationException("The concurrent mode does not support duplicates.");
+        this.concurrent = concurrent;
+        return this;
+    }
+    /**
+     * Checks whether the <tt>BPlusTree</tt> runs in concurrent mode.
+     * 
+     * @return <tt>true</tt> if the tree runs in concurrent mode
+     * @see #setConcurrent(boolean)
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+    /**
+     * Switches the compressed node format on or off. A compressed
+     * <tt>Node</tt> stores the longest common byte prefix of its serialized
+     * keys (the data objects of a leaf, the separators of an index node) only
+     * once, followed by the remaining suffixes, whenever this is smaller than
+     * the plain format. A <tt>Node</tt> then overflows only if it holds more
+     * than {@link #B_LeafNode} respectively {@link #B_IndexNode} entries
+     * <i>and</i> its compressed form no longer fits into a block, so that
+     * keys sharing long prefixes (e.g. strings or compound keys) yield a
+     * higher fanout. Together with a {@link #setShortestSeparator(Function)
+     * shortest separator} function the tree follows the simple prefix B-tree
+     * of Bayer and Unterauer.
+     * <p>
+     * The format has to be chosen before the tree is initialized, because it
+     * determines the capacity of the nodes, and it is only supported by the
+     * {@link NodeConverter} of this class.
+     *
+     * @param compressNodes
+     *            <tt>true</tt> to write the nodes in the compressed format
+     * @return the <tt>BPlusTree</tt> itself
+     * @throws IllegalStateException
+     *             if the tree has already been initialized
+     * @throws UnsupportedOperationException
+     *             if a subclass uses its own <tt>NodeConverter</tt>
+     */
+    public BPlusTree setNodeCompression(boolean compressNodes) {
+        if (B_LeafNode != 0)
+            throw new IllegalStateException("The node format cannot be changed after the initialization.");
+        if (compressNodes && nodeConverter.getClass() != NodeConverter.class)
+            throw new UnsupportedOperationException("The compressed node format is not supported by "+nodeConverter.getClass().getName());
+        if (compressNodes && slottedNodes)
+            throw new UnsupportedOperationException("The compressed node format cannot be combined with the slotted one.");
+        this.compressNodes = compressNodes;
+        return this;
+    }
+    /**
+     * Checks whether the nodes are written in the compressed format.
+     *
+     * @return <tt>true</tt> if the nodes are compressed
+     * @see #setNodeCompression(boolean)
+     */
+    public boolean isNodeCompression() {
+        return compressNodes;
+    }
+    /**
+     * Switches the slotted node format on or off. A slotted <tt>Node</tt>
+     * stores every entry in a slot of fixed size, i.e. the maximal size of a
+     * data object in a leaf and the maximal sizes of an ID and a key in an
+     * index node. Therefore the capacity of the <tt>Nodes</tt> is the same
+     * as in the plain format. When a slotted <tt>Node</tt> is read, its
+     * slots are only copied into a {@link NodeConverter.SlottedEntryList}
+     * which decodes an entry when it is accessed the first time. The binary
+     * search of a <tt>Node</tt> decodes only the keys it compares (the keys
+     * of an index node without creating its <tt>IndexEntries</tt>), so a
+     * lookup materializes only the entries on its path instead of all
+     * entries of the visited <tt>Nodes</tt>. The list is decoded completely
+     * as soon as the <tt>Node</tt> is modified.
+     * <p>
+     * The format has to be chosen before the tree is initialized, it cannot
+     * be combined with the {@link #setNodeCompression(boolean) compressed
+     * format} and it is only supported by the {@link NodeConverter} of this
+     * class.
+     *
+     * @param slottedNodes
+     *            <tt>true</tt> to write the nodes in the slotted format
+     * @return the <tt>BPlusTree</tt> itself
+     * @throws IllegalStateException
+     *             if the tree has already been initialized
+     * @throws UnsupportedOperationException
+     *             if a subclass uses its own <tt>NodeConverter</tt> or the
+     *             compressed format is used
+     */
+    public BPlusTree setSlottedNodes(boolean slottedNodes) {
+        if (B_LeafNode != 0)
+            throw new IllegalStateException("The node format cannot be changed after the initialization.");
+        if (slottedNodes && nodeConverter.getClass() != NodeConverter.class)
+            throw new UnsupportedOperationException("The slotted node format is not supported by "+nodeConverter.getClass().getName());
+        if (slottedNodes && compressNodes)
+            throw new UnsupportedOperationException("The slotted node format cannot be combined with the compressed one.");
+        this.slottedNodes = slottedNodes;
+        return this;
+    }
+    /**
+     * Checks whether the nodes are written in the slotted format.
+     *
+     * @return <tt>true</tt> if the nodes are slotted
+     * @see #setSlottedNodes(boolean)
+     */
+    public boolean isSlottedNodes() {
+        return slottedNodes;
+    }
+    /**
+     * Switches the asynchronous read-ahead of range queries on or off. A
+     * range query on the leaf level then reads the next leaves following the
+     * links to the right siblings in the background, while the consumer
+     * processes the current leaf, so that the leaves are already buffered
+     * when the cursor reaches them. The read-ahead starts with one leaf and
+     * stops at the leaf containing the maximal bound of the query. The
+     * window adapts to the speed of the consumer: it is doubled (up to the
+     * given maximum) whenever the cursor reaches a leaf which has not been
+     * read ahead yet, and it is decreased by one whenever the read-ahead
+     * has been waiting for the consumer.
+     * <p>
+     * The leaves are read by calling {@link IndexEntry#get(boolean)}, i.e.
+     * the container of the tree has to be buffered and it has to be
+     * thread-safe, e.g. a
+     * {@link xxl.core.collections.containers.io.BufferedContainer}
+     * decorated by a
+     * {@link xxl.core.collections.containers.SynchronizedContainer}, or the
+     * container of the {@link #setConcurrent(boolean) concurrent mode}. In
+     * the concurrent mode the read-ahead holds a shared latch while it reads
+     * a leaf. The read-ahead only reads nodes, it does not fix them in the
+     * buffer.
+     *
+     * @param window
+     *            the maximal number of leaves read ahead, <tt>0</tt> to
+     *            switch the read-ahead off
+     * @param executor
+     *            the <tt>Executor</tt> running the read-ahead
+     * @return the <tt>BPlusTree</tt> itself
+     * @throws IllegalArgumentException
+     *             if the window is negative
+     */
+    public BPlusTree setReadAhead(int window, Executor executor) {
+        if (window < 0)
+            throw new IllegalArgumentException("The read-ahead window has to be positive: "+window);
+        this.readAheadWindow = window;
+        this.readAheadExecutor = executor;
+        return this;
+    }
+    /**
+     * Switches the asynchronous read-ahead of range queries on or off. The
+     * leaves are read by the common <tt>ForkJoinPool</tt>.
+     *
+     * @param window
+     *            the maximal number of leaves read ahead, <tt>0</tt> to
+     *            switch the read-ahead off
+     * @return the <tt>BPlusTree</tt> itself
+     * @see #setReadAhead(int, Executor)
+     */
+    public BPlusTree setReadAhead(int window) {
+        return setReadAhead(window, ForkJoinPool.commonPool());
+    }
+    /**
+     * Returns the maximal number of leaves read ahead by range queries.
+     *
+     * @return the maximal read-ahead window or <tt>0</tt> if the leaves are
+     *         not read ahead
+     * @see #setReadAhead(int, Executor)
+     */
+    public int getReadAhead() {
+        return readAheadWindow;
+    }
+    /**
+     * Sets the <tt>Function</tt> which computes the separator value posted
+     * to the parent when a leaf is split. The function is called with the
+     * last key remaining in the split leaf and the first key of the new
+     * leaf and has to return a value between both, the former inclusive and
+     * the latter exclusive. Returning the shortest such value keeps the
+     * separators of the index nodes short, see
+     * {@link xxl.core.indexStructures.separators.StringSeparator#SHORTEST_SEPARATOR_FUNCTION}.
+     * If no function is set, the last key is used. The function is not used
+     * in duplicate or concurrent mode.
+     *
+     * @param shortestSeparator
+     *            the binary <tt>Function</tt> computing the separator value
+     *            or <tt>null</tt>
+     * @return the <tt>BPlusTree</tt> itself
+     */
+    public BPlusTree setShortestSeparator(Function shortestSeparator) {
+        this.shortestSeparator = shortestSeparator;
+        return this;
+    }
+    /**
+     * Computes the value of the separator of the given split <tt>Node</tt>,
+     * which is an upper bound of its keys and smaller than the keys of the
+     * new <tt>Node</tt> created by the split.
+     *
+     * @param node
+     *            the split <tt>Node</tt>
+     * @param newNode
+     *            the new right sibling of the split <tt>Node</tt>
+     * @return the separator value of the split <tt>Node</tt>
+     * @see #setShortestSeparator(Function)
+     */
+    protected Comparable splitSeparatorValue(Node node, Node newNode) {
+        Comparable last = ((Separator) separator(node.getLast()).clone()).sepValue();
+        if (node.level != 0 || shortestSeparator == null || newNode.number() == 0)
+            return last;
+        return (Comparable) shortestSeparator.invoke(last, separator(newNode.getEntry(0)).sepValue());
+    }
+    /**
+     * Returns the latch of the <tt>Node</tt> referred to by the given
+     * <tt>IndexEntry</tt>. The latch is created if the node was not latched
+     * before.
+     * 
+     * @param indexEntry
+     *            the <tt>IndexEntry</tt> referring to the node
+     * @return the latch of the node
+     */
+    protected ReentrantReadWriteLock latch(Tree.IndexEntry indexEntry) {
+        ReentrantReadWriteLock latch = latches.get(indexEntry.id());
+        if (latch == null) {
+            ReentrantReadWriteLock newLatch = new ReentrantReadWriteLock();
+            latch = latches.putIfAbsent(indexEntry.id(), newLatch);
+            if (latch == null) latch = newLatch;
+        }
+        return latch;
+    }
+    /**
+     * Unfixes the write latched <tt>Node</tt> referred to by the given
+     * <tt>IndexEntry</tt> and releases its latch.
+     * 
+     * @param indexEntry
+     *            the <tt>IndexEntry</tt> referring to the node
+     */
+    protected void release(Tree.IndexEntry indexEntry) {
+        try {
+            indexEntry.unfix();
+        }
+        finally {
+            latch(indexEntry).writeLock().unlock();
+        }
+    }
+    /**
+     * Checks whether an operation on the given key has to follow the link
+     * to the right sibling of the given <tt>Node</tt>. This is the case when
+     * the node has a right sibling and its last key is smaller than the
+     * given key.
+     * 
+     * @param node
+     *            the current node
+     * @param key
+     *            the key of the operation
+     * @return <tt>true</tt> if the operation has to move right
+     */
+    protected boolean moveRight(Node node, Comparable key) {
+        return node.nextNeighbor != null && (node.number() == 0 
+            || separator(node.getLast()).sepValue().compareTo(key) < 0);
+    }
+    /**
+     * Descends from the root to the given level without holding more than
+     * one shared latch at a time. Links to right siblings are followed when
+     * a concurrent split has moved the key to the right. The
+     * <tt>IndexEntries</tt> of the nodes the descent went down from are
+     * pushed onto the given stack.
+     * 
+     * @param key
+     *            the key which is searched
+     * @param level
+     *            the target level
+     * @param path
+     *            a stack to store the <tt>IndexEntries</tt> of the path
+     * @return the <tt>IndexEntry</tt> of a node on the target level which is
+     *         the node containing the key or a left sibling of it
+     */
+    protected IndexEntry concurrentDescend(Comparable key, int level, Stack path) {
+        IndexEntry indexEntry;
+        rootLatch.readLock().lock();
+        try {
+            indexEntry = (IndexEntry) rootEntry;
+        }
+        finally {
+            rootLatch.readLock().unlock();
+        }
+        while (indexEntry.level() > level) {
+            IndexEntry next;
+            ReentrantReadWriteLock.ReadLock latch = latch(indexEntry).readLock();
+            latch.lock();
+            try {
+                Node node = (Node) indexEntry.get(true);
+                if (moveRight(node, key))
+                    next = node.nextNeighbor;
+                else {
+                    int index = node.search(key);
+                    index = (index >= 0) ? index : Math.min(-index - 1, node.number() - 1);
+                    path.push(indexEntry);
+                    next = (IndexEntry) node.getEntry(index);
+                }
+            }
+            finally {
+                latch.unlock();
+            }
+            indexEntry = next;
+        }
+        return indexEntry;
+    }
+    /**
+     * Write latches and fixes the <tt>Node</tt> referred to by the given
+     * <tt>IndexEntry</tt> and moves right until the node responsible for the
+     * given key is reached. The latch of a node is released after the latch
+     * of its right sibling was acquired.
+     * 
+     * @param indexEntry
+     *            the <tt>IndexEntry</tt> of the node to start with
+     * @param key
+     *            the key of the operation
+     * @return a <tt>MapEntry</tt> consisting of the <tt>IndexEntry</tt> and
+     *         the write latched <tt>Node</tt>
+     */
+    protected MapEntry latchRight(IndexEntry indexEntry, Comparable key) {
+        latch(indexEntry).writeLock().lock();
+        Node node;
+        try {
+            node = (Node) indexEntry.get(false);
+            while (moveRight(node, key)) {
+                IndexEntry next = node.nextNeighbor;
+                latch(next).writeLock().lock();
+                release(indexEntry);
+                indexEntry = next;
+                node = (Node) indexEntry.get(false);
+            }
+        }
+        catch (RuntimeException e) {
+            latch(indexEntry).writeLock().unlock();
+            throw e;
+        }
+        return new MapEntry(indexEntry, node);
+    }
+    /**
+     * Write latches and fixes the parent <tt>Node</tt> of the node with the
+     * given ID. The search starts at the node referred to by the given
+     * <tt>IndexEntry</tt> and moves right until an entry referring to the
+     * child is found.
+     * 
+     * @param indexEntry
+     *            the <tt>IndexEntry</tt> of the node to start with
+     * @param childId
+     *            the ID of the child node
+     * @return a <tt>MapEntry</tt> consisting of the <tt>IndexEntry</tt> and
+     *         the write latched parent <tt>Node</tt>
+     * @throws IllegalStateException
+     *             if the child cannot be found on the parent level
+     */
+    protected MapEntry latchParent(IndexEntry indexEntry, Object childId) {
+        latch(indexEntry).writeLock().lock();
+        try {
+            Node node = (Node) indexEntry.get(false);
+            while (indexOf(node, childId) < 0) {
+                IndexEntry next = node.nextNeighbor;
+                if (next == null)
+                    throw new IllegalStateException("The parent of node " + childId + " was not found.");
+                latch(next).writeLock().lock();
+                release(indexEntry);
+                indexEntry = next;
+                node = (Node) indexEntry.get(false);
+            }
+            return new MapEntry(indexEntry, node);
+        }
+        catch (RuntimeException e) {
+            release(indexEntry);
+            throw e;
+        }
+    }
+    /**
+     * Returns the position of the <tt>IndexEntry</tt> with the given ID in
+     * the given index node.
+     * 
+     * @param node
+     *            an index node
+     * @param id
+     *            the ID of the searched <tt>IndexEntry</tt>
+     * @return the position of the entry or <tt>-1</tt> if it is not contained
+     */
+    protected int indexOf(Node node, Object id) {
+        for (int i = 0; i < node.number(); i++)
+            if (((IndexEntry) node.getEntry(i)).id().equals(id)) return i;
+        return -1;
+    }
+    /**
+     * Returns the greater of two keys.
+     * 
+     * @param a
+     *            a key
+     * @param b
+     *            another key
+     * @return the greater key
+     */
+    private static Comparable max(Comparable a, Comparable b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+    /**
+     * Extends the root's key range and separator by the given key.
+     * 
+     * @param key
+     *            an inserted key
+     */
+    protected void extendRoot(Comparable key) {
+        rootLatch.readLock().lock();
+        try {
+            KeyRange range = (KeyRange) rootDescriptor;
+            if (range.minBound().compareTo(key) <= 0 && range.maxBound().compareTo(key) >= 0)
+                return;
+        }
+        finally {
+            rootLatch.readLock().unlock();
+        }
+        rootLatch.writeLock().lock();
+        try {
+            ((KeyRange) rootDescriptor).union(key);
+            Separator sep = ((IndexEntry) rootEntry).separator();
+            if (sep != null && sep.sepValue().compareTo(key) < 0)
+                sep.updateSepValue(key);
+        }
+        finally {
+            rootLatch.writeLock().unlock();
+        }
+    }
+    /**
+     * Inserts a data object in concurrent mode. The leaf is found by
+     * {@link #concurrentDescend(Comparable, int, Stack)} and write latched by
+     * {@link #latchRight(BPlusTree.IndexEntry, Comparable)}. If it overflows
+     * it is split by {@link #concurrentPost(Stack, BPlusTree.IndexEntry, BPlusTree.Node)}.
+     * 
+     * @param data
+     *            the data object to insert
+     * @param key
+     *            the key of the data object
+     * @exception IllegalArgumentException
+     *                if an entry having the same key is already contained
+     */
+    protected void concurrentInsert(Object data, Comparable key) {
+        if (rootEntry() == null) {
+            rootLatch.writeLock().lock();
+            try {
+                if (rootEntry == null) {
+                    rootDescriptor = createKeyRange(key, key);
+                    grow(data);
+                    return;
+                }
+            }
+            finally {
+                rootLatch.writeLock().unlock();
+            }
+        }
+        Stack path = new Stack();
+        MapEntry pathEntry = latchRight(concurrentDescend(key, 0, path), key);
+        IndexEntry indexEntry = (IndexEntry) pathEntry.getKey();
+        Node node = (Node) pathEntry.getValue();
+        try {
+            node.grow(data);
+        }
+        catch (RuntimeException e) {
+            release(indexEntry);
+            throw e;
+        }
+        if (node.overflows())
+            concurrentPost(path, indexEntry, node);
+        else {
+            try {
+                indexEntry.update(node, true);
+            }
+            finally {
+                release(indexEntry);
+            }
+        }
+        extendRoot(key);
+    }
+    /**
+     * Splits the given overflowing, write latched <tt>Nodes</tt> bottom-up
+     * until a node does not overflow anymore. Each split is done by
+     * {@link #concurrentSplit(Stack, BPlusTree.IndexEntry, BPlusTree.Node)},
+     * which returns the latched parent into which the new
+     * <tt>IndexEntry</tt> was posted. The latch of the split node is
+     * released afterwards, so posts to the same parent are applied in the
+     * order of the splits.
+     * 
+     * @param path
+     *            the <tt>IndexEntries</tt> of the path from the root to the
+     *            parent of the overflowing node
+     * @param indexEntry
+     *            the <tt>IndexEntry</tt> of the overflowing node
+     * @param node
+     *            the overflowing node
+     */
+    protected void concurrentPost(Stack path, IndexEntry indexEntry, Node node) {
+        while (true) {
+            MapEntry pathEntry;
+            try {
+                pathEntry = concurrentSplit(path, indexEntry, node);
+            }
+            finally {
+                release(indexEntry);
+            }
+            if (pathEntry == null) return;
+            indexEntry = (IndexEntry) pathEntry.getKey();
+            node = (Node) pathEntry.getValue();
+            if (!node.overflows()) {
+                try {
+                    indexEntry.update(node, true);
+                }
+                finally {
+                    release(indexEntry);
+                }
+                return;
+            }
+        }
+    }
+    /**
+     * Splits the given overflowing, write latched <tt>Node</tt> and posts
+     * the new <tt>IndexEntry</tt> to the parent. The new node is written
+     * before the split node, so a reader following the link to the right
+     * sibling always finds it. The separator of the split node is lowered to
+     * its new last key, but never below the separator of its left neighbor
+     * in the parent. If the root is split, a new root is created by
+     * {@link #concurrentGrow(Comparable, BPlusTree.IndexEntry)}.
+     * 
+     * @param path
+     *            the <tt>IndexEntries</tt> of the path from the root to the
+     *            parent of the overflowing node
+     * @param indexEntry
+     *            the <tt>IndexEntry</tt> of the overflowing node
+     * @param node
+     *            the overflowing node
+     * @return a <tt>MapEntry</tt> consisting of the <tt>IndexEntry</tt> and
+     *         the write latched parent <tt>Node</tt> or <tt>null</tt> if a
+     *         new root was created
+     */
+    protected MapEntry concurrentSplit(Stack path, IndexEntry indexEntry, Node node) {
+        Node newNode = (Node) createNode(node.level());
+        Stack splitPath = new Stack();
+        splitPath.push(new MapEntry(indexEntry, node));
+        Node.SplitInfo splitInfo = (Node.SplitInfo) newNode.split(splitPath);
+        Container container = splitInfo.determineContainer();
+        Object id = container.insert(newNode);
+        IndexEntry newIndexEntry = (IndexEntry) createIndexEntry(node.level() + 1).initialize(container, id, splitInfo);
+        node.nextNeighbor = newIndexEntry;
+        indexEntry.update(node, true);
+        Comparable sepValue = separator(node.getLast()).sepValue();
+
+        IndexEntry parentEntry = path.isEmpty() ? null : (IndexEntry) path.pop();
+        if (parentEntry == null) {
+            rootLatch.writeLock().lock();
+            try {
+                if (rootEntry.id().equals(indexEntry.id())) {
+                    concurrentGrow(sepValue, newIndexEntry);
+                    return null;
+                }
+            }
+            finally {
+                rootLatch.writeLock().unlock();
+            }
+            // the root has grown in the meantime
+            parentEntry = concurrentDescend(sepValue, node.level() + 1, path);
+        }
+        MapEntry pathEntry = latchParent(parentEntry, indexEntry.id());
+        Node parentNode = (Node) pathEntry.getValue();
+        int index = indexOf(parentNode, indexEntry.id());
+        if (index > 0)
+            sepValue = max(sepValue, ((IndexEntry) parentNode.getEntry(index - 1)).separator().sepValue());
+        ((IndexEntry) parentNode.getEntry(index)).initialize(createSeparator(sepValue));
+        newIndexEntry.initialize(createSeparator(max(newIndexEntry.separator().sepValue(), sepValue)));
+        parentNode.entries.add(index + 1, newIndexEntry);
+        return pathEntry;
+    }
+    /**
+     * Creates a new root in concurrent mode after the old root was split.
+     * The caller has to hold the write lock of {@link #rootLatch}.
+     * 
+     * @param sepValue
+     *            the last key of the old root after the split
+     * @param newIndexEntry
+     *            the <tt>IndexEntry</tt> of the new right sibling of the old
+     *            root
+     */
+    protected void concurrentGrow(Comparable sepValue, IndexEntry newIndexEntry) {
+        IndexEntry oldRootEntry = (IndexEntry) rootEntry;
+        Node rootNode = (Node) createNode(oldRootEntry.parentLevel());
+        rootNode.entries.add(((IndexEntry) createIndexEntry(oldRootEntry.parentLevel())).initialize(oldRootEntry.id(), createSeparator(sepValue)));
+        newIndexEntry.initialize(createSeparator(max(newIndexEntry.separator().sepValue(), sepValue)));
+        rootNode.entries.add(newIndexEntry);
+        Container container = oldRootEntry.container();
+        Object id = container.insert(rootNode);
+        Separator rootSeparator = newIndexEntry.separator();
+        if (oldRootEntry.separator() != null && oldRootEntry.separator().compareTo(rootSeparator) > 0)
+            rootSeparator = oldRootEntry.separator();
+        // initialize stores a clone, so extendRoot can extend the separator of
+        // the root entry in place without changing the entries of the root node
+        rootEntry = ((IndexEntry) createIndexEntry(rootNode.level() + 1)).initialize(id, rootSeparator);
+    }
+    /**
+     * Removes the first data object in the given key range which fulfills
+     * the given predicate in concurrent mode. The leaves are write latched
+     * from left to right. Underflowing leaves are not merged.
+     * 
+     * @param range
+     *            the key range of the data object
+     * @param test
+     *            a predicate the object to remove has to fulfill
+     * @return the removed object or <tt>null</tt> if there was no such
+     *         object
+     */
+    protected Object concurrentRemove(KeyRange range, Predicate test) {
+        if (rootEntry() == null) return null;
+        Comparable min = range.minBound(), max = range.maxBound();
+        MapEntry pathEntry = latchRight(concurrentDescend(min, 0, new Stack()), min);
+        IndexEntry indexEntry = (IndexEntry) pathEntry.getKey();
+        Node node = (Node) pathEntry.getValue();
+        try {
+            while (true) {
+                for (int i = 0; i < node.number(); i++) {
+                    Comparable key = separator(node.getEntry(i)).sepValue();
+                    if (key.compareTo(max) > 0) return null;
+                    if (key.compareTo(min) >= 0 && test.invoke(node.getEntry(i))) {
+                        Object object = node.remove(i);
+                        indexEntry.update(node, true);
+                        return object;
+                    }
+                }
+                IndexEntry next = node.nextNeighbor;
+                if (next == null) return null;
+                latch(next).writeLock().lock();
+                release(indexEntry);
+                indexEntry = next;
+                node = (Node) indexEntry.get(false);
+            }
+        }
+        finally {
+            release(indexEntry);
+        }
+    }
     /**
      * This class describes the index entries of the <tt>BPlusTree</tt> (i.e.
      * the entries of the non-leaf nodes). Each <tt>IndexEntry</tt> refers to
@@ -1229,6 +2165,14 @@ public class BPlusTree extends Tree {
         public String toString() {
             return "(" + separator+ ", ->" + id +")"; 
         }
+        /**
+         * Removes the node referred to by this <tt>IndexEntry</tt> from the
+         * container and drops the latch of the node.
+         */
+        public void remove() {
+            super.remove();
+            latches.remove(id());
+        }
     }
     /**
      * This class is used to represent leaf- and non-leaf nodes of a
@@ -1280,6 +2224,8 @@ public class BPlusTree extends Tree {
             super();
             initialize(level, new AbstractFunction() {
                 public Object invoke() {
+                    if (compressNodes && level == 0)
+                        return nodeConverter.new SizedEntryList(BPlusTree.this.B_LeafNode + 1);
                     return new ArrayList(level == 0 ? (BPlusTree.this.B_LeafNode + 1) : (BPlusTree.this.B_IndexNode + 1));
                 }
             });
@@ -1461,11 +2407,7 @@ public class BPlusTree extends Tree {
          */
         protected int binarySearch(Comparable key) {
             if (entries.size() == 0) return -1;
-            List sepValues = new MappedList(entries, new AbstractFunction() {
-                public Object invoke(Object entry) {
-                    return separator(entry).sepValue();
-                }
-            });
+            List sepValues = sepValues();
             int minIndex = Collections.binarySearch(sepValues, key);
             return (duplicate) ?  leftMostSearch(sepValues, minIndex, key ): minIndex ;
         }   
@@ -1488,11 +2430,7 @@ public class BPlusTree extends Tree {
          * @return
          */
         protected int rightMostSearch(Comparable key){
-			List sepValues = new MappedList(entries, new AbstractFunction() {
-				public Object invoke(Object entry) {
-					return separator(entry).sepValue();
-				}
-			});
+			List sepValues = sepValues();
 			int index = Collections.binarySearch(sepValues, key);
 			Comparable duplicateKey = key;
 			if (index <0 ) { // take a key of the sepvalue
@@ -1506,7 +2444,24 @@ public class BPlusTree extends Tree {
 			return index;
         }
         /**
-         * Searches the given key in this <tt>Node</tt>. The default
+         * Returns the separation values of the entries of this <tt>Node</tt>
+         * in the order of the entries. If the entries have not been decoded
+         * yet (see {@link BPlusTree#setSlottedNodes(boolean)}), the keys are
+         * decoded directly from their slots.
+         * 
+         * @return a <tt>List</tt> of the separation values of the entries
+         */
+        protected List sepValues() {
+            if (entries instanceof NodeConverter.SlottedEntryList && !((NodeConverter.SlottedEntryList) entries).isDecoded())
+                return ((NodeConverter.SlottedEntryList) entries).keys();
+            return new MappedList(entries, new AbstractFunction() {
+                public Object invoke(Object entry) {
+                    return separator(entry).sepValue();
+                }
+            });
+        }
+        /**
+         * Searches the given key in this <tt>Node</tt>. The default
          * implementation simply calls the method
          * {@link BPlusTree.Node#binarySearch(Comparable)}.
          * 
@@ -1599,8 +2554,8 @@ public class BPlusTree extends Tree {
         protected void post(Tree.Node.SplitInfo splitInfo,
                 Tree.IndexEntry newIndexEntry) {
         	if(!duplicate){
-        		Separator boundary = (Separator)separator(((Node)node(splitInfo.path)).getLast()).clone();
-        		((IndexEntry)indexEntry(splitInfo.path)).separator.updateSepValue( boundary.sepValue);
+        		Comparable boundary = splitSeparatorValue((Node)node(splitInfo.path), (Node)splitInfo.newNode());
+        		((IndexEntry)indexEntry(splitInfo.path)).separator.updateSepValue(boundary);
         	}
             grow(newIndexEntry, splitInfo.path);
             if (duplicate){
@@ -1972,10 +2927,13 @@ public class BPlusTree extends Tree {
             // merge left
             if (leftNode != null) { 
                 int D = leftNode.level() == 0 ? D_LeafNode : D_IndexNode;
+                int B = leftNode.level() == 0 ? B_LeafNode : B_IndexNode;
                 // After the merge operation, both nodes must have at least D entries
                 if (leftNode.number() > D && (this.number()+(leftNode.number()-D)) > D ) {
-                    List newEntries = leftNode.entries.subList(D
-                            + (leftNode.number() - D) / 2, leftNode.number());
+                    // a compressed node may hold more than B entries, but this node
+                    // has to fit into a block without compression
+                    List newEntries = leftNode.entries.subList(Math.max(D
+                            + (leftNode.number() - D) / 2, leftNode.number() - (B - this.number())), leftNode.number());
                     this.entries.addAll(0, newEntries);
                     newEntries.clear(); 
                     mergeInfo.initialize(leftSibling, leftNode, false);
@@ -1986,10 +2944,11 @@ public class BPlusTree extends Tree {
                 }
             } else {// merge right 
                 int D = rightNode.level() == 0 ? D_LeafNode : D_IndexNode;
+                int B = rightNode.level() == 0 ? B_LeafNode : B_IndexNode;
                 if (rightNode.number() > D && (this.number()+(rightNode.number()-D)) > D) {
-                    List newEntries = rightNode.entries.subList(0, (rightNode
+                    List newEntries = rightNode.entries.subList(0, Math.min((rightNode
                             .number()
-                            - D + 1) / 2);
+                            - D + 1) / 2, B - this.number()));
                     this.entries.addAll(this.number(), newEntries);
                     newEntries.clear();
                     mergeInfo.initialize(rightSibling, rightNode, false);
@@ -2512,6 +3471,13 @@ public class BPlusTree extends Tree {
          * counts occurrence of the elements with the same separator key in the cursor 
          */
         protected int counterRightShiftDup;
+        /**
+         * The read-ahead of the leaves, or <tt>null</tt> if the leaves are
+         * not read ahead.
+         * 
+         * @see BPlusTree#setReadAhead(int, Executor)
+         */
+        protected ReadAhead readAhead;
         /**
          * Creates a new <tt>QueryCursor</tt>.
          * 
@@ -2535,6 +3501,18 @@ public class BPlusTree extends Tree {
             lastIndexEntry = null;
             nodeChangeover = 0;
             counterRightShiftDup = 1;
+            readAhead = createReadAhead();
+        }
+        /**
+         * Creates the read-ahead of the leaves if it is switched on and the
+         * target level of the query is the leaf level.
+         * 
+         * @return the read-ahead or <tt>null</tt>
+         */
+        protected ReadAhead createReadAhead() {
+            return readAheadWindow > 0 && targetLevel == 0 ?
+                new ReadAhead(((KeyRange) queryRegion).maxBound(), readAheadWindow, readAheadExecutor) :
+                null;
         }
         /**
          * Checks whether a next element exists. 
@@ -2564,6 +3542,8 @@ public class BPlusTree extends Tree {
                 lastNode = (Node) currentNode;
                 if(currentNode.level() == 0){
                 	leafs++;
+                	if (readAhead != null)
+                		readAhead.advance(lastNode);
                 }
                for (int i = 0; i < currentNode.number(); i++) {
                     lastIndex = index;
@@ -2673,6 +3653,7 @@ public class BPlusTree extends Tree {
             }
             else {
             	rootContainer.remove(rootID);
+            	latches.remove(rootID);
             }
         }      
         /**
@@ -2759,6 +3740,8 @@ public class BPlusTree extends Tree {
                 indexEntry.unfix();
             } catch (NoSuchElementException e) {
             }
+            if (readAhead != null)
+                readAhead.close();
             super.close();
         }
         /**
@@ -2775,6 +3758,8 @@ public class BPlusTree extends Tree {
             nodeChangeover++;
             if(currentNode.level() == 0){
             	leafs++; 
+            	if (readAhead != null)
+            		readAhead.advance(lastNode);
             }
         }
         /**
@@ -2797,6 +3782,306 @@ public class BPlusTree extends Tree {
             lastNode = null;
             lastIndexEntry = null;
             nodeChangeover = 0;
+            if (readAhead != null)
+                readAhead.close();
+            readAhead = createReadAhead();
+        }
+    }
+    /**
+     * The asynchronous read-ahead of the leaves scanned by a
+     * {@link QueryCursor} or a {@link ConcurrentQueryCursor}. The cursor reports every leaf it reaches by
+     * calling {@link #advance(BPlusTree.Node)}, and a task of the
+     * <tt>Executor</tt> reads the following leaves until the window in front
+     * of the cursor is filled. The leaves are counted by their position in
+     * the scan, i.e. the first leaf of the cursor has the position
+     * <tt>0</tt>. The state is guarded by the monitor of the
+     * <tt>ReadAhead</tt>, the leaves themselves are read without holding it.
+     * 
+     * @see BPlusTree#setReadAhead(int, Executor)
+     */
+    protected class ReadAhead implements Runnable {
+        /**
+         * The maximal bound of the query. No leaf behind the leaf containing
+         * it is read.
+         */
+        protected Comparable maxBound;
+        /**
+         * The maximal size of the window.
+         */
+        protected int maxWindow;
+        /**
+         * The <tt>Executor</tt> running the read-ahead.
+         */
+        protected Executor executor;
+        /**
+         * The current number of leaves read ahead of the cursor.
+         */
+        protected int window = 1;
+        /**
+         * The position of the leaf the cursor is processing.
+         */
+        protected int position = -1;
+        /**
+         * The position of the last leaf which has been read.
+         */
+        protected int read = -1;
+        /**
+         * The <tt>IndexEntry</tt> of the next leaf to read, or <tt>null</tt>
+         * if there are no more leaves to read.
+         */
+        protected IndexEntry next = null;
+        /**
+         * Indicates whether a task of the read-ahead is running.
+         */
+        protected boolean running = false;
+        /**
+         * Indicates whether the cursor has been closed.
+         */
+        protected boolean closed = false;
+        /**
+         * Creates a new read-ahead.
+         * 
+         * @param maxBound
+         *            the maximal bound of the query
+         * @param maxWindow
+         *            the maximal number of leaves read ahead
+         * @param executor
+         *            the <tt>Executor</tt> running the read-ahead
+         */
+        public ReadAhead(Comparable maxBound, int maxWindow, Executor executor) {
+            this.maxBound = maxBound;
+            this.maxWindow = maxWindow;
+            this.executor = executor;
+        }
+        /**
+         * Returns the <tt>IndexEntry</tt> of the leaf following the given
+         * leaf in the scan or <tt>null</tt> if the scan ends with the given
+         * leaf.
+         * 
+         * @param leaf
+         *            a leaf of the scan
+         * @return the <tt>IndexEntry</tt> of the next leaf or <tt>null</tt>
+         */
+        protected IndexEntry successor(Node leaf) {
+            Object last = leaf.getLast();
+            if (last == null || separator(last).sepValue().compareTo(maxBound) > 0)
+                return null;
+            return leaf.nextNeighbor;
+        }
+        /**
+         * Reports that the cursor has reached the next leaf of the scan and
+         * starts a task reading the following leaves if necessary. If the
+         * leaf has not been read ahead, the window is doubled and the
+         * read-ahead continues behind the leaf. If the read-ahead has been
+         * waiting for the cursor, the window is decreased.
+         * 
+         * @param leaf
+         *            the leaf reached by the cursor
+         */
+        public synchronized void advance(Node leaf) {
+            position++;
+            if (read < position) {
+                if (position > 0)
+                    window = Math.min(2 * window, maxWindow);
+                read = position;
+                next = successor(leaf);
+            }
+            else if (!running && read - position + 1 >= window)
+                window = Math.max(1, window - 1);
+            if (!running && !closed && next != null && read < position + window) {
+                running = true;
+                executor.execute(this);
+            }
+        }
+        /**
+         * Reads the leaves in front of the cursor until the window is
+         * filled. Exceptions only stop the read-ahead, because the cursor
+         * reads the leaves itself when it reaches them.
+         */
+        public void run() {
+            while (true) {
+                IndexEntry entry;
+                synchronized (this) {
+                    if (closed || next == null || read >= position + window) {
+                        running = false;
+                        return;
+                    }
+                    entry = next;
+                }
+                IndexEntry successor;
+                ReentrantReadWriteLock.ReadLock latch = concurrent ? latch(entry).readLock() : null;
+                try {
+                    if (latch != null)
+                        latch.lock();
+                    try {
+                        successor = successor((Node) entry.get(true));
+                    }
+                    finally {
+                        if (latch != null)
+                            latch.unlock();
+                    }
+                }
+                catch (RuntimeException e) {
+                    synchronized (this) {
+                        next = null;
+                        running = false;
+                    }
+                    return;
+                }
+                synchronized (this) {
+                    // the cursor may have passed the leaf in the meantime
+                    if (entry == next) {
+                        read++;
+                        next = successor;
+                    }
+                }
+            }
+        }
+        /**
+         * Stops the read-ahead.
+         */
+        public synchronized void close() {
+            closed = true;
+            next = null;
+        }
+        /**
+         * Returns the current number of leaves read ahead of the cursor.
+         * 
+         * @return the current window
+         */
+        public synchronized int window() {
+            return window;
+        }
+    }
+    /**
+     * The cursor returned by queries on the leaf level in concurrent mode.
+     * It descends to the leftmost leaf which may contain the minimal bound
+     * of the query and scans the leaves from left to right following the
+     * links to the right siblings. The qualifying entries of a leaf are
+     * copied while a shared latch of the leaf is held, so the cursor never
+     * holds a latch between two calls. The cursor does not support
+     * <tt>remove</tt> and <tt>update</tt>.
+     */
+    protected class ConcurrentQueryCursor extends AbstractCursor {
+        /**
+         * The key range of the query.
+         */
+        protected KeyRange queryInterval;
+        /**
+         * The <tt>IndexEntry</tt> of the next leaf to scan or <tt>null</tt>
+         * if there is no leaf left.
+         */
+        protected IndexEntry nextLeaf;
+        /**
+         * The qualifying entries of the last scanned leaf.
+         */
+        protected Iterator results;
+        /**
+         * The read-ahead of the leaves, or <tt>null</tt> if the leaves are
+         * not read ahead.
+         * 
+         * @see BPlusTree#setReadAhead(int, Executor)
+         */
+        protected ReadAhead readAhead;
+        /**
+         * Creates a new <tt>ConcurrentQueryCursor</tt>.
+         * 
+         * @param queryInterval
+         *            the key range of the query
+         */
+        public ConcurrentQueryCursor(KeyRange queryInterval) {
+            this.queryInterval = queryInterval;
+            this.readAhead = createReadAhead();
+        }
+        /**
+         * Creates the read-ahead of the leaves if it is switched on.
+         * 
+         * @return the read-ahead or <tt>null</tt>
+         */
+        protected ReadAhead createReadAhead() {
+            return readAheadWindow > 0 ?
+                new ReadAhead(queryInterval.maxBound(), readAheadWindow, readAheadExecutor) :
+                null;
+        }
+        /**
+         * Scans the leaves until a leaf containing qualifying entries was
+         * found or the maximal bound of the query was passed.
+         * 
+         * @return <tt>true</tt> if the cursor has more elements
+         */
+        protected boolean hasNextObject() {
+            if (results == null) {
+                results = Collections.EMPTY_LIST.iterator();
+                nextLeaf = concurrentDescend(queryInterval.minBound(), 0, new Stack());
+            }
+            while (!results.hasNext() && nextLeaf != null)
+                results = scan();
+            return results.hasNext();
+        }
+        /**
+         * Returns the next qualifying entry.
+         * 
+         * @return the next qualifying entry
+         */
+        protected Object nextObject() {
+            return results.next();
+        }
+        /**
+         * Copies the qualifying entries of the leaf referred to by
+         * {@link #nextLeaf} and advances to its right sibling.
+         * 
+         * @return an <tt>Iterator</tt> over the qualifying entries of the
+         *         leaf
+         */
+        protected Iterator scan() {
+            List response = new ArrayList();
+            ReentrantReadWriteLock.ReadLock latch = latch(nextLeaf).readLock();
+            latch.lock();
+            try {
+                Node node = (Node) nextLeaf.get(true);
+                nextLeaf = node.nextNeighbor;
+                if (readAhead != null)
+                    readAhead.advance(node);
+                for (int i = 0; i < node.number(); i++) {
+                    Comparable key = separator(node.getEntry(i)).sepValue();
+                    if (key.compareTo(queryInterval.maxBound()) > 0) {
+                        nextLeaf = null;
+                        break;
+                    }
+                    if (key.compareTo(queryInterval.minBound()) >= 0)
+                        response.add(node.getEntry(i));
+                }
+            }
+            finally {
+                latch.unlock();
+            }
+            return response.iterator();
+        }
+        /**
+         * Resets the cursor.
+         */
+        public void reset() {
+            super.reset();
+            results = null;
+            if (readAhead != null)
+                readAhead.close();
+            readAhead = createReadAhead();
+        }
+        /**
+         * Stops the read-ahead and closes the cursor.
+         */
+        public void close() {
+            if (readAhead != null)
+                readAhead.close();
+            super.close();
+        }
+        /**
+         * Returns <tt>true</tt>, the cursor can be reset.
+         * 
+         * @return <tt>true</tt>
+         */
+        public boolean supportsReset() {
+            return true;
         }
     }
     /**
@@ -2826,16 +4111,18 @@ public class BPlusTree extends Tree {
                 node.nextNeighbor.initialize(readID(dataInput));
             } else
                 node.nextNeighbor = null;
+            if (compressNodes && dataInput.readBoolean()) {
+                readCompressed(dataInput, node, number);
+                return node;
+            }
+            if (slottedNodes) {
+                readSlots(dataInput, node, number);
+                return node;
+            }
             readEntries(dataInput, node, number);
             //init 
-            if (node.level != 0) {
-            	for (int i = 0; i < node.number(); i++) {
-            		Comparable sepValue = (Comparable) keyConverter.read(
-            				dataInput, null);
-            		((IndexEntry) node.getEntry(i))
-            			.initialize(createSeparator(sepValue));
-            	}
-            }
+            if (node.level != 0)
+                readSeparators(dataInput, node);
             return node;
         }
         /**
@@ -2859,14 +4146,27 @@ public class BPlusTree extends Tree {
             //ID
             if (node.nextNeighbor != null)
                     writeID(dataOutput, node.nextNeighbor.id());
+            //Compressed format
+            if (compressNodes) {
+                byte[][] keys = keys(node);
+                int prefix = commonPrefix(keys);
+                boolean compressed = compressedSize(keys, prefix) < plainSize(keys);
+                dataOutput.writeBoolean(compressed);
+                if (compressed) {
+                    writeCompressed(dataOutput, node, keys, prefix);
+                    return;
+                }
+            }
+            //Slotted format
+            if (slottedNodes) {
+                writeSlots(dataOutput, node);
+                return;
+            }
             //Entries
             writeEntries(dataOutput, node);
             //Separators
-           // edit
             if (node.level != 0)
-                    for (int i = 0; i < node.number(); i++)
-                        keyConverter.write(dataOutput, separator(
-                                node.getEntry(i)).sepValue());
+                writeSeparators(dataOutput, node);
         }
         /**
          * Read the entries of the given <tt>Node</tt> from the
@@ -2918,6 +4218,40 @@ public class BPlusTree extends Tree {
                     writeIndexEntry(output, (IndexEntry) entry);
             }
         }
+        /**
+         * Reads the separators of the <tt>IndexEntries</tt> of the given
+         * index <tt>Node</tt> from the <tt>DataInput</tt>. They follow the
+         * entries read by {@link #readEntries(DataInput, BPlusTree.Node, int)}.
+         * 
+         * @param input
+         *            the <tt>DataInput</tt>
+         * @param node
+         *            the index <tt>Node</tt>
+         * @throws IOException
+         */
+        protected void readSeparators(DataInput input, Node node)
+                throws IOException {
+            for (int i = 0; i < node.number(); i++) {
+                Comparable sepValue = (Comparable) keyConverter.read(input, null);
+                ((IndexEntry) node.getEntry(i)).initialize(createSeparator(sepValue));
+            }
+        }
+        /**
+         * Writes the separators of the <tt>IndexEntries</tt> of the given
+         * index <tt>Node</tt> into the <tt>DataOutput</tt>.
+         * 
+         * @param output
+         *            the <tt>DataOutput</tt>
+         * @param node
+         *            the index <tt>Node</tt>
+         * @throws IOException
+         * @see #readSeparators(DataInput, BPlusTree.Node)
+         */
+        protected void writeSeparators(DataOutput output, Node node)
+                throws IOException {
+            for (int i = 0; i < node.number(); i++)
+                keyConverter.write(output, separator(node.getEntry(i)).sepValue());
+        }
         /**
          * Computes the maximal size (in bytes) of an <tt>IndexEntry</tt>. It
          * calls the method getIdSize() of the tree container. If the tree
@@ -2941,7 +4275,265 @@ public class BPlusTree extends Tree {
          */
         protected int headerSize() {
             return 2 * IntegerConverter.SIZE + BooleanConverter.SIZE
-                    + BPlusTree.this.container().getIdSize();
+                    + BPlusTree.this.container().getIdSize()
+                    + (compressNodes ? BooleanConverter.SIZE : 0);
+        }
+        /**
+         * Computes the size (in bytes) of the given <tt>Node</tt> in the
+         * compressed format, i.e. the size of the smaller one of the plain
+         * and the prefix compressed layout including the header. The size of
+         * a leaf is maintained incrementally by its {@link SizedEntryList},
+         * the keys of an index node are serialized, which happens once per
+         * split of one of its children.
+         * 
+         * @param node
+         *            the <tt>Node</tt>
+         * @return the size of the written <tt>Node</tt>
+         * @see BPlusTree#setNodeCompression(boolean)
+         */
+        protected int nodeSize(Node node) {
+            if (node.entries instanceof SizedEntryList)
+                return ((SizedEntryList) node.entries).nodeSize();
+            byte[][] keys = keys(node);
+            int size = headerSize() + Math.min(plainSize(keys), compressedSize(keys, commonPrefix(keys)));
+            if (node.level != 0)
+                size += node.number() * BPlusTree.this.container().getIdSize();
+            return size;
+        }
+        /**
+         * Serializes the keys of the given <tt>Node</tt>, i.e. the data
+         * objects of a leaf or the separator values of an index node.
+         * 
+         * @param node
+         *            the <tt>Node</tt>
+         * @return the serialized keys in the order of the entries
+         */
+        protected byte[][] keys(Node node) {
+            byte[][] keys = new byte[node.number()][];
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = node.level == 0 ?
+                    Converters.toByteArray(dataConverter, node.getEntry(i)) :
+                    Converters.toByteArray(keyConverter, separator(node.getEntry(i)).sepValue());
+            return keys;
+        }
+        /**
+         * Returns the length of the longest common prefix of the given
+         * serialized keys.
+         * 
+         * @param keys
+         *            the serialized keys
+         * @return the length of the common prefix
+         */
+        protected int commonPrefix(byte[][] keys) {
+            if (keys.length == 0)
+                return 0;
+            int prefix = keys[0].length;
+            for (int i = 1; i < keys.length && prefix > 0; i++) {
+                int j = 0;
+                while (j < prefix && j < keys[i].length && keys[i][j] == keys[0][j])
+                    j++;
+                prefix = j;
+            }
+            return prefix;
+        }
+        /**
+         * Returns the size of the given serialized keys in the plain layout.
+         * 
+         * @param keys
+         *            the serialized keys
+         * @return the size of the keys
+         */
+        protected int plainSize(byte[][] keys) {
+            int size = 0;
+            for (byte[] key : keys)
+                size += key.length;
+            return size;
+        }
+        /**
+         * Returns the size of the given serialized keys in the prefix
+         * compressed layout, i.e. the common prefix and every suffix preceded
+         * by its length.
+         * 
+         * @param keys
+         *            the serialized keys
+         * @param prefix
+         *            the length of the common prefix
+         * @return the size of the compressed keys
+         */
+        protected int compressedSize(byte[][] keys, int prefix) {
+            int size = lengthSize(prefix) + prefix;
+            for (byte[] key : keys)
+                size += lengthSize(key.length - prefix) + key.length - prefix;
+            return size;
+        }
+        /**
+         * Writes the entries of the given <tt>Node</tt> in the prefix
+         * compressed layout. The IDs of the entries of an index node are
+         * written first, followed by the common prefix of the keys and their
+         * suffixes.
+         * 
+         * @param output
+         *            the <tt>DataOutput</tt>
+         * @param node
+         *            the <tt>Node</tt>
+         * @param keys
+         *            the serialized keys of the <tt>Node</tt>
+         * @param prefix
+         *            the length of the common prefix of the keys
+         * @throws IOException
+         */
+        protected void writeCompressed(DataOutput output, Node node, byte[][] keys, int prefix)
+                throws IOException {
+            if (node.level != 0)
+                for (int i = 0; i < node.number(); i++)
+                    writeIndexEntry(output, (IndexEntry) node.getEntry(i));
+            writeLength(output, prefix);
+            if (keys.length > 0)
+                output.write(keys[0], 0, prefix);
+            for (byte[] key : keys) {
+                writeLength(output, key.length - prefix);
+                output.write(key, prefix, key.length - prefix);
+            }
+        }
+        /**
+         * Reads the entries of the given <tt>Node</tt> written by
+         * {@link #writeCompressed(DataOutput, BPlusTree.Node, byte[][], int)}.
+         * 
+         * @param input
+         *            the <tt>DataInput</tt>
+         * @param node
+         *            the <tt>Node</tt>
+         * @param number
+         *            the number of the entries which have to be read
+         * @throws IOException
+         */
+        protected void readCompressed(DataInput input, Node node, int number)
+                throws IOException {
+            if (node.level != 0)
+                for (int i = 0; i < number; i++)
+                    node.entries.add(i, readIndexEntry(input, node.level));
+            int prefix = readLength(input);
+            byte[] key = new byte[prefix];
+            input.readFully(key);
+            for (int i = 0; i < number; i++) {
+                int suffix = readLength(input);
+                if (key.length != prefix + suffix) {
+                    byte[] newKey = new byte[prefix + suffix];
+                    System.arraycopy(key, 0, newKey, 0, prefix);
+                    key = newKey;
+                }
+                input.readFully(key, prefix, suffix);
+                DataInputStream keyInput = new DataInputStream(new ByteArrayInputStream(key));
+                if (node.level == 0)
+                    node.entries.add(i, dataConverter.read(keyInput, null));
+                else
+                    ((IndexEntry) node.getEntry(i)).initialize(createSeparator((Comparable) keyConverter.read(keyInput, null)));
+            }
+        }
+        /**
+         * Writes a length in a variable number of bytes, seven bits per byte.
+         */
+        private void writeLength(DataOutput output, int length) throws IOException {
+            while ((length & ~0x7F) != 0) {
+                output.writeByte((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            output.writeByte(length);
+        }
+        /**
+         * Reads a length written by {@link #writeLength(DataOutput, int)}.
+         */
+        private int readLength(DataInput input) throws IOException {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = input.readByte();
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return length;
+        }
+        /**
+         * Returns the number of bytes {@link #writeLength(DataOutput, int)}
+         * needs for the given length.
+         */
+        private int lengthSize(int length) {
+            int size = 1;
+            while ((length >>>= 7) != 0)
+                size++;
+            return size;
+        }
+        /**
+         * Returns the size (in bytes) of a slot of a <tt>Node</tt> on the
+         * given level in the slotted format, i.e. the maximal size of a data
+         * object for a leaf and the maximal size of an ID followed by the
+         * maximal size of a key for an index node.
+         * 
+         * @param level
+         *            the level of the <tt>Node</tt>
+         * @return the size of a slot
+         * @see BPlusTree#setSlottedNodes(boolean)
+         */
+        protected int slotSize(int level) {
+            return level == 0 ? leafEntrySize() : indexEntrySize();
+        }
+        /**
+         * Writes the entries of the given <tt>Node</tt> in the slotted
+         * format. Every entry is padded to the size of its slot, and the key
+         * of an index entry starts behind the padded ID, so that every key
+         * can be decoded without the rest of the <tt>Node</tt>.
+         * 
+         * @param output
+         *            the <tt>DataOutput</tt>
+         * @param node
+         *            the <tt>Node</tt>
+         * @throws IOException
+         */
+        protected void writeSlots(DataOutput output, Node node)
+                throws IOException {
+            int idSize = BPlusTree.this.container().getIdSize();
+            for (int i = 0; i < node.number(); i++) {
+                Object entry = node.getEntry(i);
+                if (node.level == 0)
+                    writePadded(output, Converters.toByteArray(dataConverter, entry), leafEntrySize());
+                else {
+                    writePadded(output, Converters.toByteArray(BPlusTree.this.container().objectIdConverter(), ((IndexEntry) entry).id), idSize);
+                    writePadded(output, Converters.toByteArray(keyConverter, separator(entry).sepValue()), keyConverter.getMaxObjectSize());
+                }
+            }
+        }
+        /**
+         * Writes the given bytes followed by zeros up to the given size.
+         */
+        private void writePadded(DataOutput output, byte[] bytes, int size)
+                throws IOException {
+            if (bytes.length > size)
+                throw new IllegalArgumentException("The serialized entry exceeds the size of its slot ("+bytes.length+" > "+size+").");
+            output.write(bytes);
+            for (int i = bytes.length; i < size; i++)
+                output.writeByte(0);
+        }
+        /**
+         * Reads the slots of the given <tt>Node</tt> written by
+         * {@link #writeSlots(DataOutput, BPlusTree.Node)}. The slots are
+         * only copied, the entries are decoded lazily by the
+         * {@link SlottedEntryList} which becomes the entry list of the
+         * <tt>Node</tt>.
+         * 
+         * @param input
+         *            the <tt>DataInput</tt>
+         * @param node
+         *            the <tt>Node</tt>
+         * @param number
+         *            the number of the entries which have to be read
+         * @throws IOException
+         */
+        protected void readSlots(DataInput input, Node node, int number)
+                throws IOException {
+            byte[] slots = new byte[number * slotSize(node.level)];
+            input.readFully(slots);
+            node.entries = new SlottedEntryList(node, slots, number);
         }
         /**
          * Reads an <tt>IndexEntry</tt> from the given <tt>DataInput</tt>.
@@ -3004,6 +4596,367 @@ public class BPlusTree extends Tree {
                     .objectIdConverter();
             idConverter.write(output, id);
         }
+        /**
+         * The entry list of a <tt>Node</tt> read in the slotted format. An
+         * entry is decoded from its slot when it is accessed the first time
+         * and the decoded entry is kept, so that repeated accesses return the
+         * same object. The keys of an index node are decoded separately by
+         * the view returned by {@link #keys()}, i.e. a search does not create
+         * the <tt>IndexEntries</tt> it only compares. The first modification
+         * decodes all remaining entries into an <tt>ArrayList</tt> to which
+         * all further calls are delegated. The decoding methods are
+         * synchronized, because readers of a shared <tt>Node</tt> in the
+         * concurrent mode decode its entries at the same time.
+         */
+        protected class SlottedEntryList extends AbstractList implements RandomAccess {
+            /**
+             * The <tt>Node</tt> owning the list.
+             */
+            protected Node node;
+            /**
+             * The slots of the entries, or <tt>null</tt> if the list has been
+             * decoded completely.
+             */
+            protected byte[] slots;
+            /**
+             * The size of a slot.
+             */
+            protected int slotSize;
+            /**
+             * The number of entries stored in the slots.
+             */
+            protected int number;
+            /**
+             * The entries decoded so far.
+             */
+            protected Object[] decoded;
+            /**
+             * The keys of an index node decoded so far.
+             */
+            protected Comparable[] keys;
+            /**
+             * The list the calls are delegated to after the list has been
+             * decoded completely.
+             */
+            protected List list = null;
+            /**
+             * The stream reading the slots.
+             */
+            protected SlotInputStream slotStream;
+            /**
+             * The <tt>DataInput</tt> on top of {@link #slotStream}.
+             */
+            protected DataInputStream slotInput;
+            /**
+             * The view of the keys returned by {@link #keys()}.
+             */
+            protected List keyList;
+            /**
+             * Creates a new list of the entries stored in the given slots.
+             * 
+             * @param node
+             *            the <tt>Node</tt> owning the list
+             * @param slots
+             *            the slots written by
+             *            {@link NodeConverter#writeSlots(DataOutput, BPlusTree.Node)}
+             * @param number
+             *            the number of the entries
+             */
+            public SlottedEntryList(Node node, byte[] slots, int number) {
+                this.node = node;
+                this.slots = slots;
+                this.number = number;
+                this.slotSize = slotSize(node.level);
+                this.decoded = new Object[number];
+                this.keys = node.level == 0 ? null : new Comparable[number];
+                this.slotStream = new SlotInputStream(slots);
+                this.slotInput = new DataInputStream(slotStream);
+            }
+            /**
+             * Checks whether the list has been decoded completely because of
+             * a modification.
+             * 
+             * @return <tt>true</tt> if all calls are delegated to an
+             *         <tt>ArrayList</tt>
+             */
+            public boolean isDecoded() {
+                return list != null;
+            }
+            public int size() {
+                return list != null ? list.size() : number;
+            }
+            public synchronized Object get(int index) {
+                if (list != null)
+                    return list.get(index);
+                if (index < 0 || index >= number)
+                    throw new IndexOutOfBoundsException("Index: "+index+", Size: "+number);
+                Object entry = decoded[index];
+                if (entry == null) {
+                    try {
+                        slotStream.seek(index * slotSize);
+                        if (node.level == 0)
+                            entry = dataConverter.read(slotInput, null);
+                        else {
+                            IndexEntry indexEntry = readIndexEntry(slotInput, node.level);
+                            indexEntry.initialize(createSeparator(key(index)));
+                            entry = indexEntry;
+                        }
+                    }
+                    catch (IOException ie) {
+                        throw new WrappingRuntimeException(ie);
+                    }
+                    decoded[index] = entry;
+                }
+                return entry;
+            }
+            /**
+             * Returns the separation value of the entry at the given
+             * position. The key of an index entry is decoded without the
+             * <tt>IndexEntry</tt>. Once the <tt>IndexEntry</tt> has been
+             * decoded its <tt>Separator</tt> is used, because separators are
+             * updated in place.
+             * 
+             * @param index
+             *            the position of the entry
+             * @return the separation value of the entry
+             */
+            protected synchronized Comparable key(int index) {
+                if (node.level == 0)
+                    return BPlusTree.this.key(get(index));
+                if (decoded[index] != null)
+                    return ((IndexEntry) decoded[index]).separator().sepValue();
+                Comparable key = keys[index];
+                if (key == null) {
+                    try {
+                        slotStream.seek(index * slotSize + BPlusTree.this.container().getIdSize());
+                        key = (Comparable) keyConverter.read(slotInput, null);
+                    }
+                    catch (IOException ie) {
+                        throw new WrappingRuntimeException(ie);
+                    }
+                    keys[index] = key;
+                }
+                return key;
+            }
+            /**
+             * Returns a view of the separation values of the entries which
+             * must only be used as long as the list has not been modified.
+             * 
+             * @return a <tt>List</tt> of the separation values
+             */
+            public List keys() {
+                if (keyList == null)
+                    keyList = new KeyList();
+                return keyList;
+            }
+            /**
+             * Decodes all entries into an <tt>ArrayList</tt> to which all
+             * further calls are delegated.
+             */
+            protected void decode() {
+                if (list != null)
+                    return;
+                List entries = new ArrayList(Math.max(number, node.level == 0 ? B_LeafNode + 1 : B_IndexNode + 1));
+                for (int i = 0; i < number; i++)
+                    entries.add(get(i));
+                list = entries;
+                slots = null;
+                decoded = null;
+                keys = null;
+                slotStream = null;
+                slotInput = null;
+                keyList = null;
+            }
+            public Object set(int index, Object entry) {
+                decode();
+                return list.set(index, entry);
+            }
+            public void add(int index, Object entry) {
+                decode();
+                modCount++;
+                list.add(index, entry);
+            }
+            public Object remove(int index) {
+                decode();
+                modCount++;
+                return list.remove(index);
+            }
+            protected void removeRange(int fromIndex, int toIndex) {
+                decode();
+                modCount++;
+                list.subList(fromIndex, toIndex).clear();
+            }
+            /**
+             * The view of the keys returned by {@link SlottedEntryList#keys()}.
+             */
+            protected class KeyList extends AbstractList implements RandomAccess {
+                public int size() {
+                    return number;
+                }
+                public Object get(int index) {
+                    return key(index);
+                }
+            }
+        }
+        /**
+         * The entry list of a leaf in the compressed format. It keeps the
+         * numbers needed by {@link NodeConverter#nodeSize(BPlusTree.Node)},
+         * i.e. the total length of the serialized keys, the total size of
+         * their length fields and the length of a prefix common to all keys,
+         * so that the overflow test of an insertion only serializes the new
+         * key. The numbers are computed when the size is requested the first
+         * time, hence reading a <tt>Node</tt> costs nothing extra. Removals
+         * do not extend the common prefix, so the size is an upper bound of
+         * the size of the written <tt>Node</tt>.
+         */
+        protected class SizedEntryList extends AbstractList implements RandomAccess {
+            /**
+             * The list holding the entries.
+             */
+            protected List list;
+            /**
+             * Indicates whether the numbers below have been computed.
+             */
+            protected boolean sized = false;
+            /**
+             * The total length of the serialized keys.
+             */
+            protected int keyBytes;
+            /**
+             * The total size of the length fields of the serialized keys.
+             */
+            protected int lengthBytes;
+            /**
+             * A serialized key whose first {@link #prefix} bytes are common
+             * to all keys, or <tt>null</tt> if the list is empty.
+             */
+            protected byte[] prefixKey;
+            /**
+             * The length of the common prefix.
+             */
+            protected int prefix;
+            /**
+             * Creates a new empty list.
+             * 
+             * @param capacity
+             *            the initial capacity of the list
+             */
+            public SizedEntryList(int capacity) {
+                this.list = new ArrayList(capacity);
+            }
+            /**
+             * Computes the size (in bytes) of the leaf holding the entries
+             * of this list, see {@link NodeConverter#nodeSize(BPlusTree.Node)}.
+             * 
+             * @return an upper bound of the size of the written leaf
+             */
+            public int nodeSize() {
+                if (!sized) {
+                    keyBytes = lengthBytes = prefix = 0;
+                    prefixKey = null;
+                    for (Object entry : list)
+                        count(entry);
+                    sized = true;
+                }
+                int compressed = lengthSize(prefix) + prefix + lengthBytes + keyBytes - list.size() * prefix;
+                return headerSize() + Math.min(keyBytes, compressed);
+            }
+            /**
+             * Adds the serialized key of the given entry to the numbers.
+             */
+            private void count(Object entry) {
+                byte[] key = Converters.toByteArray(dataConverter, entry);
+                keyBytes += key.length;
+                lengthBytes += lengthSize(key.length);
+                if (prefixKey == null) {
+                    prefixKey = key;
+                    prefix = key.length;
+                } else {
+                    int j = 0;
+                    while (j < prefix && j < key.length && key[j] == prefixKey[j])
+                        j++;
+                    prefix = j;
+                }
+            }
+            /**
+             * Subtracts the serialized key of the given entry from the numbers.
+             */
+            private void uncount(Object entry) {
+                int length = Converters.toByteArray(dataConverter, entry).length;
+                keyBytes -= length;
+                lengthBytes -= lengthSize(length);
+            }
+            public int size() {
+                return list.size();
+            }
+            public Object get(int index) {
+                return list.get(index);
+            }
+            public Object set(int index, Object entry) {
+                Object old = list.set(index, entry);
+                if (sized) {
+                    uncount(old);
+                    count(entry);
+                }
+                return old;
+            }
+            public void add(int index, Object entry) {
+                modCount++;
+                list.add(index, entry);
+                if (sized)
+                    count(entry);
+            }
+            public boolean addAll(int index, Collection entries) {
+                modCount++;
+                if (sized)
+                    for (Object entry : entries)
+                        count(entry);
+                return list.addAll(index, entries);
+            }
+            public Object remove(int index) {
+                modCount++;
+                Object entry = list.remove(index);
+                if (sized)
+                    uncount(entry);
+                if (list.isEmpty())
+                    sized = false;
+                return entry;
+            }
+            protected void removeRange(int fromIndex, int toIndex) {
+                modCount++;
+                List range = list.subList(fromIndex, toIndex);
+                if (sized)
+                    for (Object entry : range)
+                        uncount(entry);
+                range.clear();
+                if (list.isEmpty())
+                    sized = false;
+            }
+        }
+    }
+    /**
+     * A <tt>ByteArrayInputStream</tt> which can be positioned at any byte of
+     * its array. It is used to decode the slots of a <tt>Node</tt>.
+     */
+    protected static class SlotInputStream extends ByteArrayInputStream {
+        /**
+         * Creates a new stream reading the given array.
+         * 
+         * @param bytes
+         *            the array to read
+         */
+        public SlotInputStream(byte[] bytes) {
+            super(bytes);
+        }
+        /**
+         * Sets the position of the next byte to read.
+         * 
+         * @param position
+         *            the position in the array
+         */
+        public void seek(int position) {
+            pos = position;
+        }
     }
   }
    
@@ -52,6 +52,7 @@ import xxl.core.io.converters.ConvertableConverter;
 import xxl.core.io.converters.Converter;
 import xxl.core.io.converters.MeasuredConverter;
 import xxl.core.predicates.AbstractPredicate;
+import xxl.core.spatial.SpaceFillingCurves;
 import xxl.core.spatial.points.DoublePoint;
 import xxl.core.spatial.points.Point;
 import xxl.core.spatial.rectangles.DoublePointRectangle;
@@ -180,6 +181,67 @@ public class HilbertRTree extends BPlusTree {
 				keyConverter, dataConverter, createORSeparator, createKeyRange);
 	}
 
+	/**
+	 * Initializes the <tt>HilbertRTree</tt> with the Hilbert curve values of
+	 * {@link #hilbertCurveValue(int)} as keys. Every dimension is resolved
+	 * with the maximum number of bits that allows the values to be stored as
+	 * <tt>Long</tt> objects. The method is not named <tt>initialize</tt>,
+	 * because it would override
+	 * {@link BPlusTree#initialize(Function, Container, MeasuredConverter, MeasuredConverter, Function, Function)}
+	 * whose first argument computes the key of a data object.
+	 * 
+	 * @param getMBR
+	 *            function which computes the MBR of the dataObject
+	 * @param container
+	 *            container of the tree
+	 * @param keyConverter
+	 *            converter for the <tt>Long</tt> keys of the dataObjects
+	 * @param dataConverter
+	 * @param createORSeparator
+	 *            a factory Function to create (Overlaping)Separators
+	 * @param createKeyRange
+	 *            a factory Function to create (Overlaping)KeyRanges
+	 * @return the initialized <tt>HilbertRTree</tt> itself
+	 */
+	public HilbertRTree initializeWithHilbertCurve(Function getMBR,
+			Container container, MeasuredConverter keyConverter,
+			MeasuredConverter dataConverter, Function createORSeparator,
+			Function createKeyRange) {
+		return initialize(hilbertCurveValue(Math.min(31, 63 / dimension)),
+				getMBR, container, keyConverter, dataConverter,
+				createORSeparator, createKeyRange);
+	}
+
+	/**
+	 * Returns a function which computes the Hilbert curve value of a point of
+	 * the unit cube [0;1)^d, e.g. the middle point of a normalized MBR, as a
+	 * <tt>Long</tt> object. The function can be used as
+	 * <tt>computeSFCurveValue</tt> for any number of dimensions d with
+	 * d*bitsPerDimension &lt;= 63.
+	 * 
+	 * @param bitsPerDimension
+	 *            the resolution of the curve in every dimension
+	 * @return a function computing the Hilbert curve value of a point
+	 * @see SpaceFillingCurves#hilbert(int[], int)
+	 */
+	public static Function hilbertCurveValue(final int bitsPerDimension) {
+		return new AbstractFunction() {
+			public Object invoke(Object point) {
+				double[] coordinates;
+				if (point instanceof DoublePoint)
+					coordinates = (double[]) ((DoublePoint) point).getPoint();
+				else {
+					coordinates = new double[((Point) point).dimensions()];
+					for (int i = 0; i < coordinates.length; i++)
+						coordinates[i] = ((Point) point).getValue(i);
+				}
+				return SpaceFillingCurves.hilbert(SpaceFillingCurves
+						.gridCoordinates(coordinates, bitsPerDimension),
+						bitsPerDimension);
+			}
+		};
+	}
+
 	/**
 	 * Initializes the <tt>HilbertRTree</tt>.
 	 * 
@@ -213,6 +275,24 @@ public class HilbertRTree extends BPlusTree {
 		// Normalize and compute middle Point
 		computeMiddlePoint = new AbstractFunction() {
 			public Object invoke(Object entry) {
+				if (entry instanceof DoublePointRectangle
+						&& universe instanceof DoublePointRectangle) {
+					// same arithmetic as normalize, without cloning the MBR
+					double[] left = (double[]) ((DoublePointRectangle) entry)
+							.getCorner(false).getPoint();
+					double[] right = (double[]) ((DoublePointRectangle) entry)
+							.getCorner(true).getPoint();
+					double[] origin = (double[]) universe.getCorner(false)
+							.getPoint();
+					double[] deltas = ((DoublePointRectangle) universe)
+							.deltas();
+					double[] pointArray = new double[left.length];
+					for (int i = 0; i < pointArray.length; i++)
+						pointArray[i] = (unitInterval((right[i] - origin[i])
+								/ deltas[i]) + unitInterval((left[i] - origin[i])
+								/ deltas[i])) / 2d;
+					return new DoublePoint(pointArray);
+				}
 				Rectangle rectangle = (Rectangle) normalize.invoke(entry);
 				double[] pointArray = new double[rectangle.dimensions()];
 				for (int i = 0; i < pointArray.length; i++) {
@@ -243,6 +323,18 @@ public class HilbertRTree extends BPlusTree {
 		return this;
 	}
 
+	/**
+	 * Clips a normalized coordinate to [0;1) like
+	 * {@link DoublePointRectangle#normalize(Rectangle)}.
+	 * 
+	 * @param value
+	 *            the normalized coordinate
+	 * @return the clipped coordinate
+	 */
+	protected static double unitInterval(double value) {
+		return Math.min(Math.max(0, value), 0.9999999999999999);
+	}
+
 	/**
 	 * This initialization method mainly is used to restore the persistent tree.
 	 * 
@@ -505,6 +597,54 @@ public class HilbertRTree extends BPlusTree {
 		};
 	}
 
+	/**
+	 * Returns a window query whose qualifying subtrees are evaluated in
+	 * parallel by the tasks of a {@link java.util.concurrent.ForkJoinPool}.
+	 * The query tests the MBRs of the entries like
+	 * {@link HilbertRTree#queryOR(Rectangle, int)}, but delivers the
+	 * results in an arbitrary order.
+	 * 
+	 * @param queryRectangle
+	 *            the rectangle of the query
+	 * @param targetLevel
+	 *            the target level of the query
+	 * @return a lazy <tt>Cursor</tt> pointing to all response objects
+	 * @see Tree#setParallelQueries(java.util.concurrent.ForkJoinPool, int)
+	 */
+	public Cursor parallelQueryOR(final Rectangle queryRectangle, int targetLevel) {
+		return new ParallelQuery(queryRectangle, targetLevel) {
+			protected boolean overlapsRoot() {
+				return queryRectangle.overlaps(((ORKeyRange) rootDescriptor())
+						.getIndexEntryMBR());
+			}
+
+			protected boolean covers(Tree.IndexEntry indexEntry) {
+				ORSeparator separator = (ORSeparator) ((IndexEntry) indexEntry)
+						.separator();
+				return separator != null
+						&& queryRectangle.contains(separator.getIndexEntryMBR());
+			}
+
+			protected Iterator entries(Tree.Node node, boolean covered) {
+				return covered ? node.entries() : ((Node) node)
+						.queryOR(queryRectangle);
+			}
+		};
+	}
+
+	/**
+	 * Returns a window query on the leaf level whose qualifying subtrees are
+	 * evaluated in parallel.
+	 * 
+	 * @param queryRectangle
+	 *            the rectangle of the query
+	 * @return a lazy <tt>Cursor</tt> pointing to all response objects
+	 * @see HilbertRTree#parallelQueryOR(Rectangle, int)
+	 */
+	public Cursor parallelQueryOR(Rectangle queryRectangle) {
+		return parallelQueryOR(queryRectangle, 0);
+	}
+
 	/**
 	 * This method is an implementation of an efficient querying algorithm. The
 	 * result is a lazy cursor pointing to all leaf entries whose descriptors
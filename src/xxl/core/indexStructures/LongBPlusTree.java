@@ -0,0 +1,660 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import xxl.core.collections.LongArrayList;
+import xxl.core.collections.containers.Container;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.keyRanges.LongKeyRange;
+import xxl.core.indexStructures.separators.LongSeparator;
+import xxl.core.io.converters.Converters;
+import xxl.core.io.converters.LongConverter;
+import xxl.core.io.converters.MeasuredConverter;
+
+/**
+ * A <tt>BPlusTree</tt> storing <tt>long</tt> values. The data objects of the
+ * tree are instances of <tt>Long</tt> which are their own keys, i.e. the
+ * tree has to be initialized with the identity as key function,
+ * {@link LongSeparator}s and {@link LongKeyRange}s (see
+ * {@link #initialize(Container)}).
+ * <p>
+ * The leaves of the tree store their values in a {@link LongArrayList}
+ * instead of a list of <tt>Long</tt> objects, so a leaf holds a single
+ * primitive array, and values are inserted into it without boxing. The
+ * index nodes store the separator values and the ids of their children in
+ * primitive arrays as well (see {@link IndexEntryList}); an
+ * <tt>IndexEntry</tt> is only created when the algorithms of the
+ * <tt>BPlusTree</tt> access it, e.g. for the child followed by a search. The
+ * nodes are searched by a binary search comparing primitive values, which
+ * avoids the creation of a <tt>Separator</tt> for every comparison and the
+ * calls of <tt>compareTo</tt> through interfaces. The nodes are converted
+ * directly from and to the bytes of a block.
+ * <p>
+ * The format of the nodes is the format of the <tt>BPlusTree</tt> with a
+ * {@link LongConverter} for the data objects. The index nodes are only
+ * stored in primitive arrays if the ids of the container are
+ * <tt>Long</tt> objects, i.e. if its {@link Container#objectIdConverter()}
+ * is a {@link LongConverter}. The compressed node format of
+ * {@link BPlusTree#setNodeCompression(boolean)} is not supported.
+ *
+ * @see BPlusTree
+ * @see LongArrayList
+ */
+public class LongBPlusTree extends BPlusTree {
+
+	/**
+	 * The converter for the keys and the data objects of the tree.
+	 */
+	public static final MeasuredConverter<Long> LONG_CONVERTER = Converters.createMeasuredConverter(LongConverter.DEFAULT_INSTANCE);
+
+	/**
+	 * Creates a new <tt>LongBPlusTree</tt> which does not allow duplicates.
+	 *
+	 * @param blockSize
+	 *            the block size of the underlying storage
+	 * @param minCapacityRatio
+	 *            the minimal capacity ratio of the tree's nodes
+	 */
+	public LongBPlusTree(int blockSize, double minCapacityRatio) {
+		super(blockSize, minCapacityRatio);
+	}
+
+	/**
+	 * Creates a new <tt>LongBPlusTree</tt> which does not allow duplicates.
+	 * The minimal capacity ratio is set to the default value 0.5 (i.e. 50%).
+	 *
+	 * @param blockSize
+	 *            the block size of the underlying storage
+	 */
+	public LongBPlusTree(int blockSize) {
+		super(blockSize);
+	}
+
+	/**
+	 * Creates a new <tt>LongBPlusTree</tt>.
+	 *
+	 * @param blockSize
+	 *            the block size of the underlying storage
+	 * @param minCapacityRatio
+	 *            the minimal capacity ratio of the tree's nodes
+	 * @param allowDuplicate
+	 *            signals whether duplicates are allowed
+	 */
+	public LongBPlusTree(int blockSize, double minCapacityRatio, boolean allowDuplicate) {
+		super(blockSize, minCapacityRatio, allowDuplicate);
+	}
+
+	/**
+	 * Initializes the tree with the identity as key function, the
+	 * {@link #LONG_CONVERTER} for keys and data objects, and the factories of
+	 * {@link LongSeparator} and {@link LongKeyRange}.
+	 *
+	 * @param container
+	 *            the container storing the nodes of the tree
+	 * @return the initialized tree itself
+	 */
+	public LongBPlusTree initialize(Container container) {
+		Function getKey = new AbstractFunction() {
+			public Object invoke(Object object) {
+				return object;
+			}
+		};
+		return (LongBPlusTree)initialize(getKey, container, LONG_CONVERTER, LONG_CONVERTER,
+			LongSeparator.FACTORY_FUNCTION, LongKeyRange.FACTORY_FUNCTION);
+	}
+
+	/**
+	 * Creates a new node on a given level. The entries of a leaf are stored in
+	 * a {@link LongArrayList}, the entries of an index node in an
+	 * {@link IndexEntryList}.
+	 *
+	 * @param level
+	 *            the level of the new node
+	 * @return the new node
+	 */
+	public Tree.Node createNode(int level) {
+		return new Node(level, createEntryList(level));
+	}
+
+	/**
+	 * Returns a factory function for the entry lists of the nodes on the
+	 * given level.
+	 *
+	 * @param level
+	 *            the level of the nodes
+	 * @return a function creating a {@link LongArrayList} for leaves and an
+	 *         {@link IndexEntryList} for index nodes, or an
+	 *         <tt>ArrayList</tt> if the ids of the container are not
+	 *         <tt>Long</tt> objects
+	 */
+	protected Function createEntryList(final int level) {
+		return new AbstractFunction() {
+			public Object invoke() {
+				if (level == 0)
+					return new LongArrayList(B_LeafNode+1);
+				if (container().objectIdConverter() instanceof LongConverter)
+					return new IndexEntryList(level, B_IndexNode+1);
+				return new ArrayList(B_IndexNode+1);
+			}
+		};
+	}
+
+	/**
+	 * Creates the converter of the nodes.
+	 *
+	 * @return a new {@link LongBPlusTree.NodeConverter}
+	 */
+	protected BPlusTree.NodeConverter createNodeConverter() {
+		return new NodeConverter();
+	}
+
+	/**
+	 * A node of the <tt>LongBPlusTree</tt>. The node searches its entries by
+	 * comparing primitive values.
+	 */
+	public class Node extends BPlusTree.Node {
+
+		/**
+		 * Creates a new node on a given level.
+		 *
+		 * @param level
+		 *            the level of the new node
+		 * @param createEntryList
+		 *            a factory function to create the entries list
+		 */
+		public Node(int level, Function createEntryList) {
+			super(level, createEntryList);
+		}
+
+		/**
+		 * Returns the key of the entry at the given position, i.e. the value
+		 * of a leaf or the separator value of an index entry.
+		 *
+		 * @param index
+		 *            the position of the entry
+		 * @return the key of the entry
+		 */
+		protected long sepValue(int index) {
+			if (entries instanceof LongArrayList)
+				return ((LongArrayList)entries).getLong(index);
+			if (entries instanceof IndexEntryList)
+				return ((IndexEntryList)entries).key(index);
+			return ((Long)separator(entries.get(index)).sepValue()).longValue();
+		}
+
+		/**
+		 * Returns the position of the first entry whose key is not smaller
+		 * than the given value, or the number of entries if there is no such
+		 * entry. The loop of the binary search has no data dependent
+		 * branches.
+		 *
+		 * @param value
+		 *            the value to search
+		 * @return the position of the first entry whose key is not smaller
+		 *         than the given value
+		 */
+		protected int lowerBound(long value) {
+			if (entries instanceof LongArrayList)
+				return ((LongArrayList)entries).lowerBound(value);
+			if (entries instanceof IndexEntryList)
+				return ((IndexEntryList)entries).lowerBound(value);
+			int number = number();
+			if (number == 0)
+				return 0;
+			int base = 0;
+			for (int length = number; length > 1; ) {
+				int half = length >>> 1;
+				base = sepValue(base+half-1) < value ? base+half : base;
+				length -= half;
+			}
+			return sepValue(base) < value ? base+1 : base;
+		}
+
+		/**
+		 * Inserts a new entry into this node at the suitable position. A value
+		 * is inserted into a leaf without creating a <tt>Separator</tt> and
+		 * without boxing.
+		 *
+		 * @param entry
+		 *            the new entry which has to be inserted
+		 * @exception IllegalArgumentException
+		 *            in normal mode if the key already exists in the node.
+		 */
+		protected void grow(Object entry) {
+			if (!(entries instanceof LongArrayList)) {
+				super.grow(entry);
+				return;
+			}
+			long value = ((Long)entry).longValue();
+			int index = lowerBound(value);
+			if (!duplicate && index < number() && sepValue(index) == value)
+				throw new IllegalArgumentException(
+						"Insertion failed: An entry having the same key "
+								+ "was found");
+			((LongArrayList)entries).addLong(index, value);
+		}
+
+		/**
+		 * Searches the given key in this node. In duplicate mode the position
+		 * of the left most entry having the key is returned.
+		 *
+		 * @param key
+		 *            the key which is to search in this node
+		 * @return the position of the key if it was found or its insertion
+		 *         position in the list otherwise
+		 */
+		protected int binarySearch(Comparable key) {
+			long value = ((Long)key).longValue();
+			int index = lowerBound(value);
+			return index < number() && sepValue(index) == value ? index : -index-1;
+		}
+
+		/**
+		 * Searches the right most entry having the given key. If there is no
+		 * such entry, the right most entry having the key of the first entry
+		 * with a larger key (or of the last entry) is returned.
+		 *
+		 * @param key
+		 *            the key which is to search in this node
+		 * @return the position of the right most entry as described above
+		 */
+		protected int rightMostSearch(Comparable key) {
+			int number = number();
+			int index = Math.min(lowerBound(((Long)key).longValue()), number-1);
+			if (index < 0)
+				return index;
+			long duplicateKey = sepValue(index);
+			while (index < number-1 && sepValue(index+1) == duplicateKey)
+				index++;
+			return index;
+		}
+	}
+
+	/**
+	 * The entry list of an index node. The separator values and the ids of
+	 * the children are stored in primitive arrays. An <tt>IndexEntry</tt> is
+	 * created when it is accessed by {@link #get(int)} the first time and
+	 * kept, so that repeated accesses return the same object and the
+	 * <tt>BPlusTree</tt> can update its separator in place. The values of
+	 * such an entry are taken from the entry itself.
+	 * <p>
+	 * The array of the separator values is searched by
+	 * {@link #lowerBound(long)}. A separator updated in place leaves an
+	 * outdated value in the array, hence the result of a search is checked
+	 * against the actual values of its neighbors, and the array is refreshed
+	 * if they do not confirm it. Creating the entries and refreshing the
+	 * array are synchronized, because readers of a shared node in the
+	 * concurrent mode search it at the same time.
+	 */
+	protected class IndexEntryList extends AbstractList implements RandomAccess {
+
+		/**
+		 * The level of the node owning the list.
+		 */
+		protected int level;
+
+		/**
+		 * The separator values of the entries.
+		 */
+		protected long[] keys;
+
+		/**
+		 * The ids of the children of the entries which have not been
+		 * created yet.
+		 */
+		protected long[] ids;
+
+		/**
+		 * The entries created so far, <tt>null</tt> for the others.
+		 */
+		protected IndexEntry[] entries;
+
+		/**
+		 * The number of entries stored in the list.
+		 */
+		protected int size = 0;
+
+		/**
+		 * Creates a new empty list.
+		 *
+		 * @param level
+		 *            the level of the node owning the list
+		 * @param capacity
+		 *            the initial capacity of the list
+		 */
+		public IndexEntryList(int level, int capacity) {
+			this.level = level;
+			capacity = Math.max(capacity, 1);
+			keys = new long[capacity];
+			ids = new long[capacity];
+			entries = new IndexEntry[capacity];
+		}
+
+		/**
+		 * Ensures that the list can store the given number of entries without
+		 * resizing its arrays.
+		 *
+		 * @param capacity
+		 *            the required capacity
+		 */
+		protected void ensureCapacity(int capacity) {
+			if (capacity > keys.length) {
+				capacity = Math.max(capacity, 2*keys.length);
+				keys = Arrays.copyOf(keys, capacity);
+				ids = Arrays.copyOf(ids, capacity);
+				entries = Arrays.copyOf(entries, capacity);
+			}
+		}
+
+		/**
+		 * Checks the given position.
+		 */
+		private void checkIndex(int index, int size) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this.size);
+		}
+
+		/**
+		 * Returns the separator value of the entry at the given position
+		 * without creating the entry.
+		 *
+		 * @param index
+		 *            the position of the entry
+		 * @return the separator value of the entry
+		 */
+		public long key(int index) {
+			checkIndex(index, size);
+			IndexEntry entry = entries[index];
+			return entry == null ? keys[index] : ((Long)entry.separator().sepValue()).longValue();
+		}
+
+		/**
+		 * Returns the id of the child of the entry at the given position
+		 * without creating the entry.
+		 *
+		 * @param index
+		 *            the position of the entry
+		 * @return the id of the child of the entry
+		 */
+		public long id(int index) {
+			checkIndex(index, size);
+			IndexEntry entry = entries[index];
+			return entry == null ? ids[index] : ((Long)entry.id()).longValue();
+		}
+
+		/**
+		 * Appends an entry whose separator value is set later by
+		 * {@link #setKey(int, long)}. This method is used to read a node.
+		 *
+		 * @param id
+		 *            the id of the child of the entry
+		 */
+		public void addId(long id) {
+			ensureCapacity(size+1);
+			ids[size] = id;
+			entries[size++] = null;
+			modCount++;
+		}
+
+		/**
+		 * Sets the separator value of an entry appended by
+		 * {@link #addId(long)}.
+		 *
+		 * @param index
+		 *            the position of the entry
+		 * @param key
+		 *            the separator value of the entry
+		 */
+		public void setKey(int index, long key) {
+			checkIndex(index, size);
+			keys[index] = key;
+		}
+
+		/**
+		 * Returns the position of the first entry whose separator value is
+		 * not smaller than the given value, or the size of the list if there
+		 * is no such entry.
+		 *
+		 * @param value
+		 *            the value to search
+		 * @return the position of the first entry whose separator value is
+		 *         not smaller than the given value
+		 */
+		public int lowerBound(long value) {
+			int index = LongArrayList.lowerBound(keys, size, value);
+			if ((index > 0 && key(index-1) >= value) || (index < size && key(index) < value)) {
+				refreshKeys();
+				index = LongArrayList.lowerBound(keys, size, value);
+			}
+			return index;
+		}
+
+		/**
+		 * Copies the separator values of the created entries into the
+		 * array of the separator values.
+		 */
+		protected synchronized void refreshKeys() {
+			for (int i = 0; i < size; i++)
+				keys[i] = key(i);
+		}
+
+		/**
+		 * Stores the given entry at the given position.
+		 */
+		private void store(int index, Object entry) {
+			IndexEntry indexEntry = (IndexEntry)entry;
+			entries[index] = indexEntry;
+			if (indexEntry.separator() != null)
+				keys[index] = ((Long)indexEntry.separator().sepValue()).longValue();
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public synchronized Object get(int index) {
+			checkIndex(index, size);
+			IndexEntry entry = entries[index];
+			if (entry == null) {
+				entry = ((IndexEntry)createIndexEntry(level)).initialize(Long.valueOf(ids[index]), createSeparator(Long.valueOf(keys[index])));
+				entries[index] = entry;
+			}
+			return entry;
+		}
+
+		public Object set(int index, Object entry) {
+			Object old = get(index);
+			store(index, entry);
+			return old;
+		}
+
+		public void add(int index, Object entry) {
+			checkIndex(index, size+1);
+			ensureCapacity(size+1);
+			System.arraycopy(keys, index, keys, index+1, size-index);
+			System.arraycopy(ids, index, ids, index+1, size-index);
+			System.arraycopy(entries, index, entries, index+1, size-index);
+			store(index, entry);
+			size++;
+			modCount++;
+		}
+
+		public boolean addAll(int index, Collection collection) {
+			checkIndex(index, size+1);
+			Object[] array = collection.toArray();
+			int number = array.length;
+			ensureCapacity(size+number);
+			System.arraycopy(keys, index, keys, index+number, size-index);
+			System.arraycopy(ids, index, ids, index+number, size-index);
+			System.arraycopy(entries, index, entries, index+number, size-index);
+			for (Object entry : array)
+				store(index++, entry);
+			size += number;
+			modCount++;
+			return number > 0;
+		}
+
+		public Object remove(int index) {
+			Object old = get(index);
+			removeRange(index, index+1);
+			return old;
+		}
+
+		protected void removeRange(int fromIndex, int toIndex) {
+			System.arraycopy(keys, toIndex, keys, fromIndex, size-toIndex);
+			System.arraycopy(ids, toIndex, ids, fromIndex, size-toIndex);
+			System.arraycopy(entries, toIndex, entries, fromIndex, size-toIndex);
+			int newSize = size-(toIndex-fromIndex);
+			Arrays.fill(entries, newSize, size, null);
+			size = newSize;
+			modCount++;
+		}
+	}
+
+	/**
+	 * The converter of the nodes of the <tt>LongBPlusTree</tt>. The values of
+	 * a leaf are read from and written to a byte array at once, the
+	 * separator values and ids of an index node are read into and written
+	 * from the primitive arrays of its {@link IndexEntryList}.
+	 */
+	public class NodeConverter extends BPlusTree.NodeConverter {
+
+		/**
+		 * Reads the entries of the given node. The values of a leaf are read
+		 * into its {@link LongArrayList} without boxing.
+		 *
+		 * @param input
+		 *            the <tt>DataInput</tt>
+		 * @param node
+		 *            the node
+		 * @param number
+		 *            the number of the entries which have to be read
+		 * @throws IOException
+		 */
+		protected void readEntries(DataInput input, BPlusTree.Node node, int number) throws IOException {
+			if (node.entries instanceof IndexEntryList) {
+				IndexEntryList entries = (IndexEntryList)node.entries;
+				for (int i = 0; i < number; i++)
+					entries.addId(LongConverter.DEFAULT_INSTANCE.readLong(input));
+				return;
+			}
+			if (!(node.entries instanceof LongArrayList)) {
+				super.readEntries(input, node, number);
+				return;
+			}
+			byte[] block = new byte[number*LongConverter.SIZE];
+			input.readFully(block);
+			ByteBuffer buffer = ByteBuffer.wrap(block);
+			LongArrayList values = (LongArrayList)node.entries;
+			for (int i = 0; i < number; i++)
+				values.addLong(buffer.getLong());
+		}
+
+		/**
+		 * Writes the entries of the given node. The values of a leaf are
+		 * written as one byte array.
+		 *
+		 * @param output
+		 *            the <tt>DataOutput</tt>
+		 * @param node
+		 *            the node
+		 * @throws IOException
+		 */
+		protected void writeEntries(DataOutput output, BPlusTree.Node node) throws IOException {
+			if (node.entries instanceof IndexEntryList) {
+				IndexEntryList entries = (IndexEntryList)node.entries;
+				for (int i = 0; i < entries.size(); i++)
+					LongConverter.DEFAULT_INSTANCE.writeLong(output, entries.id(i));
+				return;
+			}
+			if (node.level() > 0) {
+				super.writeEntries(output, node);
+				return;
+			}
+			int number = node.number();
+			ByteBuffer buffer = ByteBuffer.allocate(number*LongConverter.SIZE);
+			if (node.entries instanceof LongArrayList) {
+				LongArrayList values = (LongArrayList)node.entries;
+				for (int i = 0; i < number; i++)
+					buffer.putLong(values.getLong(i));
+			}
+			else
+				for (int i = 0; i < number; i++)
+					buffer.putLong(((Long)node.getEntry(i)).longValue());
+			output.write(buffer.array());
+		}
+
+		/**
+		 * Reads the separator values of the given index node. They are read
+		 * into its {@link IndexEntryList} without creating separators.
+		 *
+		 * @param input
+		 *            the <tt>DataInput</tt>
+		 * @param node
+		 *            the index node
+		 * @throws IOException
+		 */
+		protected void readSeparators(DataInput input, BPlusTree.Node node) throws IOException {
+			if (!(node.entries instanceof IndexEntryList)) {
+				super.readSeparators(input, node);
+				return;
+			}
+			IndexEntryList entries = (IndexEntryList)node.entries;
+			for (int i = 0; i < entries.size(); i++)
+				entries.setKey(i, LongConverter.DEFAULT_INSTANCE.readLong(input));
+		}
+
+		/**
+		 * Writes the separator values of the given index node.
+		 *
+		 * @param output
+		 *            the <tt>DataOutput</tt>
+		 * @param node
+		 *            the index node
+		 * @throws IOException
+		 */
+		protected void writeSeparators(DataOutput output, BPlusTree.Node node) throws IOException {
+			if (!(node.entries instanceof IndexEntryList)) {
+				super.writeSeparators(output, node);
+				return;
+			}
+			IndexEntryList entries = (IndexEntryList)node.entries;
+			for (int i = 0; i < entries.size(); i++)
+				LongConverter.DEFAULT_INSTANCE.writeLong(output, entries.key(i));
+		}
+	}
+}
@@ -39,6 +39,7 @@ import java.util.Stack;
 
 import xxl.core.collections.Lists;
 import xxl.core.collections.MapEntry;
+import xxl.core.collections.queues.DoubleKeyHeap;
 import xxl.core.cursors.AbstractCursor;
 import xxl.core.cursors.Cursor;
 import xxl.core.cursors.Cursors;
@@ -517,6 +518,68 @@ public class MTree extends ORTree {
 		return (Sphere)descriptor(entry);
 	}
 
+	/** Returns a cursor delivering the <tt>k</tt> nearest neighbors of the
+	 * given point with respect to the {@link #pointDistance} in ascending
+	 * order of their distances. The query follows the best-first algorithm
+	 * of the {@link ORTree.NearestNeighborCursor}. The minimal distance of a
+	 * sphere is the distance to its center minus its radius and, for
+	 * <tt>k&nbsp;==&nbsp;1</tt>, the distance to its center plus its radius
+	 * is used for pruning.
+	 * 
+	 * @param point the query point
+	 * @param k the number of neighbors, <tt>Integer.MAX_VALUE</tt> for an
+	 * 		unbounded incremental query
+	 * @param heap the heap storing the entries, which can be reused by
+	 * 		subsequent queries
+	 * @return a cursor delivering the nearest neighbors of the point
+	 */
+	public NearestNeighborCursor nearestNeighborQuery (final Object point, int k, DoubleKeyHeap heap) {
+		return new NearestNeighborCursor(k, heap) {
+			protected double minDistance (Descriptor descriptor) {
+				Sphere sphere = (Sphere)descriptor;
+				return Math.max(0, pointDistance.distance(point, sphere.center()) - sphere.radius());
+			}
+
+			protected double minMaxDistance (Descriptor descriptor) {
+				Sphere sphere = (Sphere)descriptor;
+				return pointDistance.distance(point, sphere.center()) + sphere.radius();
+			}
+
+			protected double distance (Object entry) {
+				return pointDistance.distance(point, entry instanceof LeafEntry ? ((LeafEntry)entry).data : sphere(entry).center());
+			}
+
+			protected Object result (Object entry) {
+				return entry instanceof LeafEntry ? ((LeafEntry)entry).data : entry;
+			}
+		};
+	}
+
+	/** Returns a cursor delivering the <tt>k</tt> nearest neighbors of the
+	 * given point in ascending order of their distances.
+	 * 
+	 * @param point the query point
+	 * @param k the number of neighbors
+	 * @return a cursor delivering the nearest neighbors of the point
+	 * @see #nearestNeighborQuery(Object, int, DoubleKeyHeap)
+	 */
+	public NearestNeighborCursor nearestNeighborQuery (Object point, int k) {
+		return nearestNeighborQuery(point, k, new DoubleKeyHeap());
+	}
+
+	/** Returns a cursor delivering all objects of the tree in ascending
+	 * order of their distances to the given point. The objects are
+	 * computed incrementally, i.e. the cursor only reads the nodes needed
+	 * for the objects actually consumed.
+	 * 
+	 * @param point the query point
+	 * @return a cursor delivering the nearest neighbors of the point
+	 * @see #nearestNeighborQuery(Object, int, DoubleKeyHeap)
+	 */
+	public NearestNeighborCursor nearestNeighborQuery (Object point) {
+		return nearestNeighborQuery(point, Integer.MAX_VALUE);
+	}
+
 	/* (non-Javadoc)
 	 * @see xxl.core.indexStructures.Tree#query(xxl.core.indexStructures.Descriptor, int)
 	 */
@@ -207,6 +207,15 @@ public class MVBT extends MVBTree {
 		return path;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see xxl.core.indexStructures.MVBTree#pathToLiveLeaf(java.lang.Object, xxl.core.indexStructures.MVBTree.Version)
+	 */
+	@Override
+	protected Stack pathToLiveLeaf(Object key, Version version) {
+		return pathToNodeLiveRemove(key, version, 0);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see xxl.core.indexStructures.MVBTree#remove(xxl.core.indexStructures.MVBTree.Version, java.lang.Object)
@@ -553,7 +562,7 @@ public class MVBT extends MVBTree {
 					return false;
 				}
 			};
-			return new Filter(new Sequentializer(this.iterator(), liveEntries.iterator()), test);
+			return new Filter(this.iterator(), test);
 		}
 
 		/*
@@ -597,7 +606,7 @@ public class MVBT extends MVBTree {
 		 */
 		@SuppressWarnings({ "rawtypes", "unchecked" })
 		public Iterator query(final Lifespan lifespan) {
-			return new Filter(	new Sequentializer(iterator(), liveEntries.iterator()),
+			return new Filter(	iterator(),
 								new AbstractPredicate() {
 									public boolean invoke(Object entry) {									 	
 										return ((MVSeparator)separator(entry)).lifespan().overlaps(lifespan);
@@ -643,7 +652,7 @@ public class MVBT extends MVBTree {
 		 */
 		@SuppressWarnings({ "unchecked", "rawtypes", "serial" })
 		public Iterator getCurrentEntries() {
-			return new Filter( new Sequentializer(iterator(), liveEntries.iterator()),
+			return new Filter( iterator(),
 								new AbstractPredicate() {
 									public boolean invoke(Object entry) {
 										return ((MVSeparator)separator(entry)).isAlive();
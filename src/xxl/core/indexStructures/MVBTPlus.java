@@ -44,6 +44,8 @@ import java.util.Set;
 import java.util.Stack;
 
 import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.io.BufferedContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
 import xxl.core.collections.queues.Queue;
 import xxl.core.collections.queues.io.BlockBasedQueue;
 import xxl.core.collections.queues.io.QueueBuffer;
@@ -55,6 +57,7 @@ import xxl.core.functions.Function;
 import xxl.core.functions.Functional.BinaryFunction;
 import xxl.core.functions.Functional.NullaryFunction;
 import xxl.core.functions.Functional.UnaryFunction;
+import xxl.core.io.LRUBuffer;
 import xxl.core.io.converters.Converter;
 import xxl.core.io.converters.IntegerConverter;
 import xxl.core.io.converters.LongConverter;
@@ -685,6 +688,77 @@ public class MVBTPlus extends MVBT {
 		}
 		bulkInsert(data, factoryQueueFunction, memoryCapacity); 
 	}
+
+	/**
+	 * Returns a converter for the {@link Element}s of a bulk load. The data object is
+	 * serialized by the data converter of the tree, followed by the {@link LongVersion}
+	 * and the ordinal of the {@link OperationType}.
+	 * 
+	 * @return a converter for the elements of a bulk load.
+	 */
+	public MeasuredConverter<Element> elementConverter(){
+		return new MeasuredConverter<Element>() {
+			@Override
+			public int getMaxObjectSize() {
+				return dataConverter.getMaxObjectSize() + LongConverter.SIZE + IntegerConverter.SIZE;
+			}
+			@Override
+			public Element read(DataInput dataInput, Element object) throws IOException {
+				Object data = dataConverter.read(dataInput, null);
+				LongVersion version = LongVersion.VERSION_CONVERTER.read(dataInput);
+				return new Element(data, version, OperationType.values()[IntegerConverter.DEFAULT_INSTANCE.readInt(dataInput)]);
+			}
+			@Override
+			public void write(DataOutput dataOutput, Element object) throws IOException {
+				dataConverter.write(dataOutput, object.getElement1());
+				LongVersion.VERSION_CONVERTER.write(dataOutput, object.getElement2());
+				IntegerConverter.DEFAULT_INSTANCE.writeInt(dataOutput, object.getElement3().ordinal());
+			}
+		};
+	}
+
+	/**
+	 * Loads a version-ordered stream of operations with the buffer-tree technique of
+	 * {@link #bulkInsert(Iterator, NullaryFunction, int)}. The operations are pushed down the
+	 * buffers of the index nodes level by level instead of being inserted one by one like in
+	 * {@link MVBTree#sortedReplay(Iterator)}. The tree is not built bottom-up from version-split
+	 * nodes, the nodes are reorganized by the version and key splits of the buffer emptying
+	 * process. The versions of the operations have to be {@link LongVersion}s.
+	 * <p>
+	 * The buffers are {@link QueueBuffer}s whose pages are serialized by
+	 * {@link #elementConverter()} and stored in the given container. An {@link LRUBuffer}
+	 * keeps as many pages in main memory as <tt>bufferSize</tt> entries occupy, the other
+	 * pages are written to the container. The container has to store blocks of the block size
+	 * of the tree, e.g. a
+	 * {@link xxl.core.collections.containers.io.BlockFileContainer BlockFileContainer}. Pages
+	 * are removed from the container when their entries have been pushed down.
+	 * 
+	 * @param data a stream of operations sorted by their version.
+	 * @param bufferStorage the container storing the pages of the buffers.
+	 * @param bufferSize the memory capacity given by the number of entries.
+	 */
+	public void bulkLoad(final Iterator<? extends Triple<?, ? extends Version, OperationType>> data, Container bufferStorage, int bufferSize){
+		final MeasuredConverter<Element> elementConverter = elementConverter();
+		int pages = Math.max(16, (int)((long)bufferSize*elementConverter.getMaxObjectSize()/BLOCK_SIZE));
+		final Container pageContainer = new BufferedContainer(new ConverterContainer(bufferStorage, QueueBuffer.getPageConverter(elementConverter)), new LRUBuffer(pages));
+		bulkInsert(new Iterator<Element>() {
+			public boolean hasNext() {
+				return data.hasNext();
+			}
+			public Element next() {
+				Triple<?, ? extends Version, OperationType> next = data.next();
+				return next instanceof Element ? (Element)next :
+					new Element(next.getElement1(), (LongVersion)next.getElement2(), next.getElement3());
+			}
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}, new NullaryFunction<Queue<Element>>() {
+			public Queue<Element> invoke() {
+				return new QueueBuffer<Element>(pageContainer, elementConverter.getMaxObjectSize(), BLOCK_SIZE);
+			}
+		}, bufferSize);
+	}
 	
 	/**
 	 * Generic bulk insert (update) method.  After executing this method all buffers are emptied.
@@ -1700,6 +1774,16 @@ public class MVBTPlus extends MVBT {
 		throw new UnsupportedOperationException("Please call insert(Element entryToInsert) method!");
 	}
 	
+	/**
+	 * The operations are loaded by {@link #bulkLoad(Iterator, Container, int)}.
+	 * 
+	 * @param data
+	 */
+	@Override
+	public void sortedReplay(Iterator<? extends Triple<?, ? extends Version, OperationType>> data) {
+		throw new UnsupportedOperationException("Please call bulkLoad(Iterator data, Container bufferStorage, int bufferSize) method!");
+	}
+	
 	/**
 	 * this method is used for inserting elements.
 	 * 
@@ -59,6 +59,7 @@ import xxl.core.io.converters.IntegerConverter;
 import xxl.core.io.converters.MeasuredConverter;
 import xxl.core.predicates.AbstractPredicate;
 import xxl.core.predicates.Predicate;
+import xxl.core.util.Triple;
 
 /**
  * This Class is an implementation of MVBT index structure
@@ -509,10 +510,15 @@ public class MVBTree extends BPlusTree {
 		IndexEntry indexEntry = null;
 		Root root = null;
 		Cursor rootsCursor = roots.rangeQuery(version, lastRootSplitVersion);
-		if(rootsCursor.hasNext()){
+		while(rootsCursor.hasNext()){
 			 root = (Root) rootsCursor.next();
-			 indexEntry = root.toIndexEntry();
+			 // lifespans are half-open: a root deleted in the given version is not valid in it
+			 if (root.lifespan().endVersion().compareTo(version) > 0) {
+				 indexEntry = root.toIndexEntry();
+				 break;
+			 }
 		}
+		rootsCursor.close();
 		// old code 
 		//	((Root)roots.exactMatchQuery(version)).toIndexEntry();
 		return indexEntry;
@@ -810,6 +816,105 @@ public class MVBTree extends BPlusTree {
 		return removed;
 	}
 
+	/**
+	 * Replays a version-ordered stream of update operations on the <tt>MVBTree</tt>. Every
+	 * element of the stream is a triple of the data object, the <tt>Version</tt> of the operation
+	 * and its {@link MVBTPlus.OperationType}; the elements of <tt>MVBTPlus</tt> bulk loading
+	 * ({@link MVBTPlus.Element}) can be used directly. Like in <tt>MVBTPlus</tt>, delete and
+	 * update operations refer to the live data object with the same key.
+	 * <p>
+	 * This is not a bulk load: the tree is not built bottom-up, but every operation is applied
+	 * by a regular insertion or removal. The operations of one <tt>Version</tt> are collected
+	 * in main memory and sorted by their keys. As all these operations belong to the same
+	 * <tt>Version</tt>, the reordering does not change any version of the tree, but consecutive
+	 * operations follow the same path and hit the same leaf. The operations of the same key are
+	 * reduced to their net effect, e.g. an insertion followed by a deletion is dropped and a
+	 * deletion followed by an insertion becomes an update. Historical roots are registered in
+	 * the {@link #rootsTree() roots tree} as usual, thus time-travel queries can be executed
+	 * after the replay. For a buffered build use {@link MVBTPlus#bulkLoad(Iterator, Container, int)}.
+	 *
+	 * @param data a stream of operations sorted by their <tt>Version</tt>.
+	 * @throws UnsupportedOperationException if the stream is not sorted by <tt>Version</tt>.
+	 */
+	public void sortedReplay(Iterator<? extends Triple<?, ? extends Version, MVBTPlus.OperationType>> data) {
+		List<Triple<?, ? extends Version, MVBTPlus.OperationType>> buffer = new ArrayList<Triple<?, ? extends Version, MVBTPlus.OperationType>>();
+		Comparator<Triple<?, ? extends Version, MVBTPlus.OperationType>> keyComparator = new Comparator<Triple<?, ? extends Version, MVBTPlus.OperationType>>() {
+			public int compare(Triple<?, ? extends Version, MVBTPlus.OperationType> t1, Triple<?, ? extends Version, MVBTPlus.OperationType> t2) {
+				return ((Comparable)getKey.invoke(t1.getElement1())).compareTo(getKey.invoke(t2.getElement1()));
+			}
+		};
+		while (data.hasNext() || !buffer.isEmpty()) {
+			Triple<?, ? extends Version, MVBTPlus.OperationType> next = data.hasNext() ? data.next() : null;
+			// the buffer is only flushed at the end of a version, so that it holds all operations of a key
+			if (next != null && (buffer.isEmpty() || next.getElement2().compareTo(buffer.get(0).getElement2()) == 0)) {
+				buffer.add(next);
+				continue;
+			}
+			Collections.sort(buffer, keyComparator); // stable: the operations of a key keep their order
+			for (int i = 0, j; i < buffer.size(); i = j) {
+				for (j = i+1; j < buffer.size() && keyComparator.compare(buffer.get(i), buffer.get(j)) == 0; j++);
+				apply(buffer.get(i).getElement3() != MVBTPlus.OperationType.INSERT, buffer.get(j-1));
+			}
+			buffer.clear();
+			if (next != null)
+				buffer.add(next);
+		}
+	}
+
+	/**
+	 * Applies the net effect of the operations of one key in {@link #sortedReplay(Iterator)}.
+	 *
+	 * @param replace <tt>true</tt> if the live data object with the same key has to be removed,
+	 * i.e. the first operation of the key is a deletion or an update.
+	 * @param last the last operation of the key, a triple of the data object, the
+	 * <tt>Version</tt> of the operation and its type.
+	 */
+	protected void apply(boolean replace, Triple<?, ? extends Version, MVBTPlus.OperationType> last) {
+		Version version = last.getElement2();
+		if (replace && rootEntry() != null)
+			removeLive(version, (Comparable)getKey.invoke(last.getElement1()));
+		if (last.getElement3() != MVBTPlus.OperationType.DELETE)
+			insert(version, last.getElement1());
+	}
+
+	/**
+	 * Removes the live data object with the given key from the <tt>MVBTree</tt>. Unlike
+	 * {@link #remove(Version, Object)} the data object does not have to be known, so
+	 * it is removed with a single descent to its leaf.
+	 *
+	 * @param removeVersion the <tt>Version</tt> of this Operation.
+	 * @param key the key of the data object which is to remove.
+	 * @return the removed entry or null if no live data object has the given key.
+	 */
+	protected LeafEntry removeLive(Version removeVersion, Comparable key) {
+		setCurrentVersion(removeVersion);
+		Stack path = pathToLiveLeaf(key, currentVersion());
+		Iterator it = ((MVBTree.Node)node(path)).iterator();
+		LeafEntry removed = null;
+		while (it.hasNext()) {
+			LeafEntry obj = (LeafEntry)it.next();
+			if (obj.getLifespan().isAlive() && key.compareTo(getKey.invoke(obj.data())) == 0) {
+				it.remove();
+				removed = obj;
+				break;
+			}
+		}
+		treatUnderflow(path);
+		return removed;
+	}
+
+	/**
+	 * Returns the path to the leaf holding the live data object with the given key, see
+	 * {@link #removeLive(Version, Comparable)}.
+	 *
+	 * @param key the key of the data object.
+	 * @param version the current <tt>Version</tt>.
+	 * @return the path from the root to the leaf.
+	 */
+	protected Stack pathToLiveLeaf(Object key, Version version) {
+		return pathToNode(key, version, 0);
+	}
+
 	/** Inserts a data object into <tt>MVBTree</tt>. 
 	 * @param insertVersion the <tt>Version</tt> of this Operation.
 	 * @param data the data object which is to store.
@@ -28,6 +28,7 @@ package xxl.core.indexStructures;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -37,6 +38,7 @@ import java.util.Stack;
 
 import xxl.core.collections.MapEntry;
 import xxl.core.collections.containers.Container;
+import xxl.core.collections.queues.DoubleKeyHeap;
 import xxl.core.cursors.AbstractCursor;
 import xxl.core.cursors.Cursor;
 import xxl.core.cursors.filters.Filter;
@@ -280,6 +282,20 @@ public abstract class ORTree extends Tree {
 		public Descriptor descriptor () {
 			return descriptor;
 		}
+
+		/** Overwrites the subnode of the index entry by a new node. Before
+		 * the node is written, {@link ORTree.Node#entriesChanged()} is
+		 * called.
+		 * 
+		 * @param node the new node
+		 * @param unfix signals whether the node can be removed from the
+		 *        underlying buffer
+		 * @see Tree.IndexEntry#update(Tree.Node, boolean)
+		 */
+		public void update (Tree.Node node, boolean unfix) {
+			((Node)node).entriesChanged();
+			super.update(node, unfix);
+		}
 	}
 	
 	/** <tt>Node</tt> is the class used to represent leaf- and non-leaf nodes of <tt>ORTree</tt>.
@@ -354,7 +370,7 @@ public abstract class ORTree extends Tree {
 			Stack path = new Stack();
 			if (height()>0) {
 				IndexEntry indexEntry = (IndexEntry)entry;
-				indexEntry.descriptor = (Descriptor)indexEntry.descriptor.clone();
+				indexEntry.descriptor = (Descriptor)indexEntry.descriptor().clone();
 			}
 			grow(entry, path);
 			return createSplitInfo(path);
@@ -378,6 +394,14 @@ public abstract class ORTree extends Tree {
 			return entries.size();
 		}
 		
+		/** Is called when the node is written to its container, because its
+		 * entries or their descriptors may have been changed. Subclasses
+		 * caching information about the entries have to discard it. The
+		 * default implementation does nothing.
+		 */
+		protected void entriesChanged () {
+		}
+
 		/** Gets an iterator pointing to all entries that are currently stored
 		 * in this node.
 		 * @return an Iterator pointing to all the entries of this node
@@ -398,7 +422,7 @@ public abstract class ORTree extends Tree {
 					getDescriptor :
 					new AbstractFunction() {
 						public Object invoke (Object entry) {
-							return ((IndexEntry)entry).descriptor;
+							return ((IndexEntry)entry).descriptor();
 						}
 					},entries()
 			);
@@ -418,6 +442,23 @@ public abstract class ORTree extends Tree {
 			);
 		}
 		
+		/** Tests which entries of this node overlap <tt>queryDescriptor</tt>.
+		 * The result of the test of an entry is stored at its position in
+		 * the given array.
+		 *
+		 * @param queryDescriptor the descriptor describing the query
+		 * @param result an array storing the results of the tests in the
+		 * 		order of the entries, it has to hold at least
+		 * 		{@link #number()} values
+		 * @return the number of entries overlapping <tt>queryDescriptor</tt>
+		 */
+		public int overlaps (Descriptor queryDescriptor, boolean [] result) {
+			int index = 0, count = 0;
+			for (Iterator entries = entries(); entries.hasNext(); index++)
+				if (result[index] = descriptor(entries.next()).overlaps(queryDescriptor))
+					count++;
+			return count;
+		}
 		
 		/** Chooses the subtree which is followed during an insertion.
 		 * @param descriptor the descriptor of the data object to insert
@@ -441,8 +482,8 @@ public abstract class ORTree extends Tree {
 		  */		
 		protected Tree.IndexEntry chooseSubtree (Descriptor descriptor, Stack path, Function isValidEntry) {
 			IndexEntry indexEntry = chooseSubtree(descriptor, new Filter(entries(), isValidEntry));
-			if (!indexEntry.descriptor.contains(descriptor)) {
-				indexEntry.descriptor.union(descriptor);
+			if (!indexEntry.descriptor().contains(descriptor)) {
+				indexEntry.descriptor().union(descriptor);
 				update(path);
 			}
 			return indexEntry;
@@ -626,6 +667,36 @@ public abstract class ORTree extends Tree {
 	}
 
 	
+	/** Returns a window query whose qualifying subtrees are evaluated in
+	 * parallel by the tasks of a {@link java.util.concurrent.ForkJoinPool}.
+	 * All entries of a subtree whose descriptor is contained in the query
+	 * descriptor are delivered without further tests. The results are
+	 * delivered in an arbitrary order.
+	 * 
+	 * @param queryDescriptor describes the query in terms of a descriptor
+	 * @param targetLevel the tree-level to provide the answer-objects
+	 * @return a lazy cursor pointing to all response objects
+	 * @see Tree#setParallelQueries(java.util.concurrent.ForkJoinPool, int)
+	 */
+	public Cursor parallelQuery (Descriptor queryDescriptor, int targetLevel) {
+		return new ParallelQuery(queryDescriptor, targetLevel) {
+			protected boolean covers (Tree.IndexEntry indexEntry) {
+				return queryDescriptor.contains(((IndexEntry)indexEntry).descriptor());
+			}
+		};
+	}
+
+	/** Returns a window query on the leaf level whose qualifying subtrees
+	 * are evaluated in parallel.
+	 * 
+	 * @param queryDescriptor describes the query in terms of a descriptor
+	 * @return a lazy cursor pointing to all response objects
+	 * @see ORTree#parallelQuery(Descriptor, int)
+	 */
+	public Cursor parallelQuery (Descriptor queryDescriptor) {
+		return parallelQuery(queryDescriptor, 0);
+	}
+
 	public int leafsTouched = 0;
 	
 	/** This method is an implemtation of an efficient querying algorithm. 
@@ -795,6 +866,469 @@ public abstract class ORTree extends Tree {
 		};
 	}
 
+	/** Evaluates several window queries by a single traversal of the tree.
+	 * Each node is read once for all queries whose descriptors overlap its
+	 * descriptor. The result is a list holding a lazy cursor for each
+	 * query, in the order of the given query descriptors.
+	 *
+	 * @param queryDescriptors describe the queries in terms of descriptors
+	 * @param targetLevel the tree-level to provide the answer-objects
+	 * @return a list of cursors pointing to the response objects of the
+	 * 		queries
+	 * @see BatchQuery
+	 */
+	public List<Cursor> batchQuery (Collection<? extends Descriptor> queryDescriptors, int targetLevel) {
+		return new BatchQuery(queryDescriptors, targetLevel).cursors();
+	}
+
+	/** Evaluates several window queries on the leaf level by a single
+	 * traversal of the tree.
+	 *
+	 * @param queryDescriptors describe the queries in terms of descriptors
+	 * @return a list of cursors pointing to the response objects of the
+	 * 		queries
+	 * @see #batchQuery(Collection, int)
+	 */
+	public List<Cursor> batchQuery (Collection<? extends Descriptor> queryDescriptors) {
+		return batchQuery(queryDescriptors, 0);
+	}
+
+	/** A batch of window queries sharing one depth-first traversal of the
+	 * tree. Every index entry on the traversal stack carries the queries
+	 * whose descriptors overlap its descriptor. When a node is read, the
+	 * descriptors of its entries are tested against these queries only,
+	 * using {@link Node#overlaps(Descriptor, boolean[])}, and the
+	 * qualifying entries of the target level are appended to the result
+	 * buffers of the respective queries.
+	 * <p>
+	 * The traversal advances whenever a cursor of the batch needs a result
+	 * that is not buffered yet, so the results of the other queries found
+	 * on the way are buffered until their cursors consume them. The
+	 * results of each query are delivered in the same order as by
+	 * {@link ORTree#query(Descriptor, int)}. Closing a cursor discards its
+	 * buffer and removes the query from the remaining traversal. The
+	 * cursors of a batch must not be used concurrently and do not support
+	 * <tt>update</tt> and <tt>remove</tt>.
+	 */
+	public class BatchQuery {
+
+		/** The descriptors of the queries.
+		 */
+		protected Descriptor [] queryDescriptors;
+
+		/** The tree-level providing the answer-objects.
+		 */
+		protected int targetLevel;
+
+		/** The index entries still to visit, the first one is visited next.
+		 */
+		protected LinkedList<IndexEntry> indexEntries = new LinkedList<IndexEntry>();
+
+		/** The positions of the queries overlapping the index entries still
+		 * to visit, in the order of {@link #indexEntries}.
+		 */
+		protected LinkedList<int []> queries = new LinkedList<int []>();
+
+		/** The buffered results of each query.
+		 */
+		protected LinkedList<Object> [] results;
+
+		/** Flags marking the queries whose cursors have been closed.
+		 */
+		protected boolean [] closed;
+
+		/** Creates a new batch of window queries.
+		 *
+		 * @param queryDescriptors describe the queries in terms of
+		 * 		descriptors
+		 * @param targetLevel the tree-level to provide the answer-objects
+		 */
+		@SuppressWarnings("unchecked")
+		public BatchQuery (Collection<? extends Descriptor> queryDescriptors, int targetLevel) {
+			this.queryDescriptors = queryDescriptors.toArray(new Descriptor[queryDescriptors.size()]);
+			this.targetLevel = targetLevel;
+			results = new LinkedList[this.queryDescriptors.length];
+			for (int i = 0; i < results.length; i++)
+				results[i] = new LinkedList<Object>();
+			closed = new boolean[results.length];
+			if (height()>0) {
+				int [] overlapping = new int[results.length];
+				int count = 0;
+				for (int i = 0; i < results.length; i++)
+					if (this.queryDescriptors[i].overlaps(rootDescriptor()))
+						overlapping[count++] = i;
+				if (count > 0) {
+					indexEntries.add((IndexEntry)rootEntry());
+					queries.add(Arrays.copyOf(overlapping, count));
+				}
+			}
+		}
+
+		/** Reads the next node of the traversal and distributes its
+		 * qualifying entries among the queries.
+		 *
+		 * @return <tt>false</tt> if the traversal is finished
+		 */
+		protected boolean step () {
+			if (indexEntries.isEmpty())
+				return false;
+			IndexEntry indexEntry = indexEntries.removeFirst();
+			int [] active = queries.removeFirst();
+			Node node = (Node)indexEntry.get(true);
+			int number = node.number();
+			boolean [] overlapping = new boolean[number];
+			int [][] matches = new int[number][];
+			int [] counts = new int[number];
+			for (int query : active) {
+				if (closed[query])
+					continue;
+				if (queryDescriptors[query].contains(indexEntry.descriptor()))
+					Arrays.fill(overlapping, 0, number, true);
+				else if (node.overlaps(queryDescriptors[query], overlapping) == 0)
+					continue;
+				for (int i = 0; i < number; i++)
+					if (overlapping[i]) {
+						if (matches[i] == null)
+							matches[i] = new int[active.length];
+						matches[i][counts[i]++] = query;
+					}
+			}
+			LinkedList<IndexEntry> children = new LinkedList<IndexEntry>();
+			LinkedList<int []> childQueries = new LinkedList<int []>();
+			int index = 0;
+			for (Iterator entries = node.entries(); entries.hasNext(); index++) {
+				Object entry = entries.next();
+				if (counts[index] == 0)
+					continue;
+				if (node.level == targetLevel)
+					for (int i = 0; i < counts[index]; i++)
+						results[matches[index][i]].add(entry);
+				else {
+					children.add((IndexEntry)entry);
+					childQueries.add(Arrays.copyOf(matches[index], counts[index]));
+				}
+			}
+			indexEntries.addAll(0, children);
+			queries.addAll(0, childQueries);
+			return true;
+		}
+
+		/** Returns a lazy cursor pointing to the response objects of the
+		 * query at the given position.
+		 *
+		 * @param query the position of the query
+		 * @return a cursor pointing to the response objects of the query
+		 */
+		public Cursor cursor (final int query) {
+			return new AbstractCursor () {
+				public boolean hasNextObject() {
+					while (results[query].isEmpty())
+						if (!step())
+							return false;
+					return true;
+				}
+
+				public Object nextObject() {
+					return results[query].removeFirst();
+				}
+
+				public void close() {
+					if (!isClosed) {
+						closed[query] = true;
+						results[query].clear();
+					}
+					super.close();
+				}
+			};
+		}
+
+		/** Returns a list holding the cursors of all queries in the order of
+		 * the query descriptors.
+		 *
+		 * @return the cursors of the queries
+		 */
+		public List<Cursor> cursors () {
+			List<Cursor> cursors = new ArrayList<Cursor>(queryDescriptors.length);
+			for (int i = 0; i < queryDescriptors.length; i++)
+				cursors.add(cursor(i));
+			return cursors;
+		}
+	}
+
+	/** An incremental nearest neighbor query on an <tt>ORTree</tt> following
+	 * the best-first algorithm of Hjaltason and Samet. The entries are kept in
+	 * a {@link DoubleKeyHeap} ordered by their primitive distances to the query
+	 * object, i.e. the minimal distance (MINDIST) of the descriptor of an index
+	 * entry and the exact distance of a data object. The cursor returns the
+	 * data objects in ascending order of their distances and reads a node only
+	 * when its MINDIST is the smallest distance of the heap.
+	 * <p>
+	 * If the number of required neighbors <tt>k</tt> is bounded, the cursor
+	 * stops after <tt>k</tt> objects and does not insert entries into the heap
+	 * which cannot belong to the result: the pruning distance is the
+	 * <tt>k</tt>-th smallest distance of the data objects inserted so far and,
+	 * for <tt>k&nbsp;==&nbsp;1</tt>, the smallest MINMAXDIST of an index entry.
+	 * The MINMAXDIST assumes that the descriptors are minimal, i.e. that every
+	 * face of the descriptor of an index entry touches an object of its
+	 * subtree; only then every index entry contains an object within its
+	 * MINMAXDIST. The default implementation of
+	 * {@link #minMaxDistance(Descriptor)} therefore provides no bound and
+	 * subclasses only override it for descriptors known to be minimal. For
+	 * <tt>k&nbsp;&gt;&nbsp;1</tt> the MINMAXDIST of nested entries may refer
+	 * to the same object, so it is not used.
+	 * <p>
+	 * Subclasses define the distances by implementing
+	 * {@link #minDistance(Descriptor)} and {@link #distance(Object)}. The
+	 * distances only have to be monotonic, e.g. squared Euclidean distances,
+	 * and {@link #toDistance(double)} converts them into the distances
+	 * returned by {@link #distance()}.
+	 * 
+	 * @see RTree#nearestNeighborQuery(xxl.core.spatial.points.Point, int)
+	 * @see MTree#nearestNeighborQuery(Object, int)
+	 */
+	public abstract class NearestNeighborCursor extends AbstractCursor {
+
+		/** The number of neighbors to return, <tt>Integer.MAX_VALUE</tt> for an
+		 * unbounded query.
+		 */
+		protected int k;
+
+		/** The heap of the entries ordered by their distances. The tag of an
+		 * entry is the level of the node containing it, i.e. <tt>0</tt> for
+		 * data objects.
+		 */
+		protected DoubleKeyHeap heap;
+
+		/** The <tt>k</tt> smallest distances of the data objects inserted into
+		 * the heap, stored with negated priorities, i.e. the largest of them
+		 * is the minimum of the heap. It is <tt>null</tt> for an unbounded
+		 * query.
+		 */
+		protected DoubleKeyHeap bounds;
+
+		/** The distance beyond which entries cannot belong to the result.
+		 */
+		protected double pruningDistance;
+
+		/** The number of objects returned so far.
+		 */
+		protected int returned;
+
+		/** The distance of the object returned last.
+		 */
+		protected double lastDistance = Double.NaN;
+
+		/** Creates a new nearest neighbor query returning at most <tt>k</tt>
+		 * objects. The given heap is cleared and used to store the entries, so
+		 * that a heap can be reused by subsequent queries.
+		 * 
+		 * @param k the number of neighbors, <tt>Integer.MAX_VALUE</tt> for an
+		 * 		unbounded incremental query
+		 * @param heap the heap storing the entries
+		 * @throws IllegalArgumentException if <tt>k</tt> is not positive
+		 */
+		public NearestNeighborCursor (int k, DoubleKeyHeap heap) {
+			if (k <= 0)
+				throw new IllegalArgumentException("The number of neighbors has to be positive: "+k);
+			this.k = k;
+			this.heap = heap;
+		}
+
+		/** Creates a new nearest neighbor query returning at most <tt>k</tt>
+		 * objects.
+		 * 
+		 * @param k the number of neighbors, <tt>Integer.MAX_VALUE</tt> for an
+		 * 		unbounded incremental query
+		 */
+		public NearestNeighborCursor (int k) {
+			this(k, new DoubleKeyHeap());
+		}
+
+		/** Returns the distance between the query object and the given
+		 * descriptor of an index entry, i.e. a lower bound of the distances
+		 * of all objects in the subtree of the entry.
+		 * 
+		 * @param descriptor the descriptor of an index entry
+		 * @return the minimal distance (MINDIST) of the descriptor
+		 */
+		protected abstract double minDistance (Descriptor descriptor);
+
+		/** Returns an upper bound of the distance between the query object and
+		 * its nearest object in the subtree of an index entry with the given
+		 * descriptor. The bound is only valid if the descriptor is minimal with
+		 * respect to the objects of the subtree, otherwise the cursor may prune
+		 * the nearest neighbor. The default implementation returns
+		 * <tt>Double.POSITIVE_INFINITY</tt>, i.e. no bound.
+		 * 
+		 * @param descriptor the descriptor of an index entry
+		 * @return the MINMAXDIST of the descriptor
+		 */
+		protected double minMaxDistance (Descriptor descriptor) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		/** Returns the distance between the query object and the given entry
+		 * of a leaf.
+		 * 
+		 * @param entry an entry of a leaf
+		 * @return the distance of the entry
+		 */
+		protected abstract double distance (Object entry);
+
+		/** Computes the distances between the query object and all entries
+		 * of the given node at once. The distances have to agree with
+		 * {@link #distance(Object)} for the entries of leaves and with
+		 * {@link #minDistance(Descriptor)} for index entries. The default
+		 * implementation returns <tt>null</tt>, i.e. the distances are
+		 * computed entry by entry.
+		 * 
+		 * @param node the node
+		 * @return an array holding the distances of the entries in the order
+		 * 		of the entries of the node, or <tt>null</tt>
+		 */
+		protected double[] distances (Tree.Node node) {
+			return null;
+		}
+
+		/** Converts a distance computed by this cursor into the distance
+		 * returned by {@link #distance()}. The default implementation returns
+		 * the given distance.
+		 * 
+		 * @param distance a distance computed by this cursor
+		 * @return the converted distance
+		 */
+		protected double toDistance (double distance) {
+			return distance;
+		}
+
+		/** Returns the object delivered for the given entry of a leaf. The
+		 * default implementation returns the entry.
+		 * 
+		 * @param entry an entry of a leaf
+		 * @return the result object
+		 */
+		protected Object result (Object entry) {
+			return entry;
+		}
+
+		/** Returns the distance between the query object and the object
+		 * returned last by this cursor.
+		 * 
+		 * @return the distance of the last returned object
+		 */
+		public double distance () {
+			return lastDistance;
+		}
+
+		/** Inserts the root entry of the tree into the heap.
+		 */
+		public void open () {
+			if (isOpened)
+				return;
+			super.open();
+			heap.clear();
+			bounds = k == Integer.MAX_VALUE ? null : new DoubleKeyHeap(Math.min(k, 1024)+1);
+			pruningDistance = Double.POSITIVE_INFINITY;
+			returned = 0;
+			if (height() > 0)
+				heap.insert(minDistance(rootDescriptor()), rootEntry(), height());
+		}
+
+		/** Expands the nodes whose index entries have the smallest distance
+		 * until a data object has the smallest distance of the heap.
+		 * 
+		 * @return <tt>true</tt> if the cursor has more elements
+		 */
+		protected boolean hasNextObject () {
+			if (returned >= k)
+				return false;
+			while (!heap.isEmpty()) {
+				if (heap.minKey() > pruningDistance) {
+					heap.clear();
+					return false;
+				}
+				if (heap.minTag() == 0)
+					return true;
+				Tree.Node node = ((IndexEntry)heap.removeMin()).get(true);
+				double[] distances = distances(node);
+				int index = 0;
+				for (Iterator entries = node.entries(); entries.hasNext(); index++) {
+					Object entry = entries.next();
+					if (node.level == 0) {
+						double distance = distances != null ? distances[index] : distance(entry);
+						if (distance <= pruningDistance) {
+							heap.insert(distance, entry, 0);
+							bound(distance);
+						}
+					}
+					else {
+						Descriptor descriptor = ((IndexEntry)entry).descriptor();
+						double distance = distances != null ? distances[index] : minDistance(descriptor);
+						if (distance <= pruningDistance) {
+							heap.insert(distance, entry, node.level);
+							if (k == 1)
+								pruningDistance = Math.min(pruningDistance, minMaxDistance(descriptor));
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		/** Updates the pruning distance with the distance of a data object
+		 * inserted into the heap.
+		 * 
+		 * @param distance the distance of the data object
+		 */
+		protected void bound (double distance) {
+			if (bounds == null)
+				return;
+			if (bounds.size() < k)
+				bounds.insert(-distance, null);
+			else if (distance < -bounds.minKey()) {
+				bounds.removeMin();
+				bounds.insert(-distance, null);
+			}
+			if (bounds.size() == k)
+				pruningDistance = Math.min(pruningDistance, -bounds.minKey());
+		}
+
+		/** Returns the data object with the smallest distance.
+		 * 
+		 * @return the next nearest neighbor
+		 */
+		protected Object nextObject () {
+			lastDistance = toDistance(heap.minKey());
+			returned++;
+			return result(heap.removeMin());
+		}
+
+		/** Restarts the query.
+		 */
+		public void reset () {
+			super.reset();
+			isOpened = false;
+			open();
+		}
+
+		/** Returns <tt>true</tt>, the cursor can be reset.
+		 * 
+		 * @return <tt>true</tt>
+		 */
+		public boolean supportsReset () {
+			return true;
+		}
+
+		/** Releases the entries stored in the heap.
+		 */
+		public void close () {
+			if (isClosed)
+				return;
+			super.close();
+			heap.clear();
+		}
+	}
+
 	/*********************************************************************/
 	/*                       DEBUG FUNCTIONALITY                         */
 	/*********************************************************************/
@@ -833,10 +1367,10 @@ public abstract class ORTree extends Tree {
 		if (node.level > 0)
 			for (Iterator entries = node.entries(); entries.hasNext();) {
 				IndexEntry next = (IndexEntry)entries.next();
-				descriptorList.add(next.descriptor);
+				descriptorList.add(next.descriptor());
 				if (!checkDescriptors(next, descriptorList))
 					returnValue = false;
-				descriptorList.remove(next.descriptor);
+				descriptorList.remove(next.descriptor());
 			}
 		// leaf: node.level == 0
 		else {
@@ -0,0 +1,380 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.mappers.Mapper;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Constant;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.BPlusTree.IndexEntry;
+import xxl.core.indexStructures.BPlusTree.Node;
+
+/**
+ * This class provides functionality to bulk-load a BPlusTree in parallel.
+ * The tree is created bottom-up, one level at a time. The sorted entries of
+ * a level are read in batches of consecutive nodes. The tasks of a
+ * {@link ForkJoinPool} build the nodes of a batch, link them to their right
+ * neighbors and create their index entries, which form the input of the
+ * next level, until a single root remains. Only the entries of the current
+ * batch are held in memory, the input of the leaf level is streamed.
+ * <p>
+ * The entries of a batch are spread evenly over its nodes, so every node
+ * (including the right flank) is filled up to the given fill factor and
+ * holds at least the minimal number of entries. The blocks of a batch are
+ * reserved from left to right and written in key order from the calling
+ * thread, because the containers of the tree are not required to be
+ * thread-safe. Thereby the nodes of a level are allocated contiguously in a
+ * fresh container. If a node is stored in a {@link ConverterContainer}, the
+ * tasks already serialize it to a block, so that the calling thread only
+ * writes the block to the underlying container. In this case the converters
+ * of the tree have to be thread-safe.
+ * <p>
+ * Use {@link #sort(BPlusTree, Object[])} to sort unsorted data in parallel.
+ */
+public class ParallelBPlusTreeBulkLoading {
+	/**
+	 * The maximal number of nodes built by a single fork-join task.
+	 */
+	public static final int PARTITION_SIZE = 64;
+
+	/**
+	 * The tree which is bulk loaded.
+	 */
+	protected BPlusTree btree;
+	/**
+	 * Determines the container storing a node of the tree.
+	 */
+	protected Function<BPlusTree.Node,Container> determineTreeContainer;
+	/**
+	 * The fork-join pool building and serializing the nodes.
+	 */
+	protected ForkJoinPool pool;
+	/**
+	 * The ratio of the capacity of a node which is filled, a value in
+	 * (0, 1].
+	 */
+	protected double fillFactor;
+	/**
+	 * The number of nodes built at once. There are
+	 * {@link #PARTITION_SIZE} nodes for every thread of the pool.
+	 */
+	protected int batchSize;
+	/**
+	 * The last node of the previous batch. It is written when the first
+	 * node of the next batch, its right neighbor, has been reserved.
+	 */
+	protected Node pendingNode;
+	/**
+	 * The container of the {@link #pendingNode}.
+	 */
+	protected Container pendingContainer;
+	/**
+	 * The id of the {@link #pendingNode}.
+	 */
+	protected Object pendingId;
+
+	/**
+	 * Bulk loads the given <tt>tree</tt> with the given <tt>objects</tt>
+	 * sorted in ascending order. The nodes are filled completely and built
+	 * on the common fork-join pool.
+	 *
+	 * @param tree the tree to load
+	 * @param objects the sorted data objects
+	 */
+	public ParallelBPlusTreeBulkLoading(BPlusTree tree, Object[] objects) {
+		this(tree, Arrays.asList(objects).iterator());
+	}
+	/**
+	 * Bulk loads the given <tt>tree</tt> with the given <tt>objects</tt>
+	 * sorted in ascending order. The nodes are filled completely and built
+	 * on the common fork-join pool.
+	 *
+	 * @param tree the tree to load
+	 * @param objects the sorted data objects
+	 */
+	public ParallelBPlusTreeBulkLoading(BPlusTree tree, Iterator objects) {
+		this(tree, objects, tree.getContainer, ForkJoinPool.commonPool(), 1.0);
+	}
+	/**
+	 * Bulk loads the given <tt>tree</tt> with the given <tt>objects</tt>
+	 * sorted in ascending order.
+	 *
+	 * @param tree the tree to load
+	 * @param objects the sorted data objects
+	 * @param determineContainer determines the container storing a node
+	 * @param pool the fork-join pool building the nodes
+	 * @param fillFactor the ratio of the capacity of a node which is filled,
+	 * 		a value in (0, 1]
+	 * @throws IllegalArgumentException if the fill factor is not in (0, 1]
+	 */
+	public ParallelBPlusTreeBulkLoading(BPlusTree tree, Object[] objects, Function<BPlusTree.Node,Container> determineContainer, ForkJoinPool pool, double fillFactor) {
+		this(tree, Arrays.asList(objects).iterator(), determineContainer, pool, fillFactor);
+	}
+	/**
+	 * Bulk loads the given <tt>tree</tt> with the given <tt>objects</tt>
+	 * sorted in ascending order.
+	 *
+	 * @param tree the tree to load
+	 * @param objects the sorted data objects
+	 * @param determineContainer determines the container storing a node
+	 * @param pool the fork-join pool building the nodes
+	 * @param fillFactor the ratio of the capacity of a node which is filled,
+	 * 		a value in (0, 1]
+	 * @throws IllegalArgumentException if the fill factor is not in (0, 1]
+	 */
+	public ParallelBPlusTreeBulkLoading(BPlusTree tree, Iterator objects, Function<BPlusTree.Node,Container> determineContainer, ForkJoinPool pool, double fillFactor) {
+		if (fillFactor <= 0 || fillFactor > 1)
+			throw new IllegalArgumentException("Illegal fill factor: "+fillFactor);
+		this.btree = tree;
+		this.determineTreeContainer = determineContainer;
+		this.pool = pool;
+		this.fillFactor = fillFactor;
+		this.batchSize = PARTITION_SIZE*pool.getParallelism();
+		if (!objects.hasNext())
+			return;
+
+		final Object[] bounds = new Object[2];
+		List entries = loadLevel(new Mapper(new AbstractFunction() {
+			public Object invoke(Object object) {
+				if (bounds[0] == null)
+					bounds[0] = object;
+				return bounds[1] = object;
+			}
+		}, objects), 0);
+		for (int level = 1; entries.size() > 1; level++)
+			entries = loadLevel(entries.iterator(), level);
+		tree.rootEntry = (IndexEntry)entries.get(0);
+		tree.rootDescriptor = tree.createKeyRange(tree.key(bounds[0]), tree.key(bounds[1]));
+	}
+	/**
+	 * Sorts the given data objects by their keys in parallel.
+	 *
+	 * @param tree the tree determining the keys
+	 * @param objects the data objects
+	 */
+	public static void sort(final BPlusTree tree, Object[] objects) {
+		Arrays.parallelSort(objects, new Comparator<Object>() {
+			public int compare(Object object1, Object object2) {
+				return tree.key(object1).compareTo(tree.key(object2));
+			}
+		});
+	}
+	/**
+	 * Returns the number of entries a node on the given level is filled
+	 * with.
+	 *
+	 * @param level
+	 * @return the number of entries of a filled node
+	 */
+	protected int capacity(int level) {
+		int B = level == 0 ? btree.B_LeafNode : btree.B_IndexNode;
+		return Math.max(level == 0 ? 1 : 2, (int)(fillFactor*B));
+	}
+	/**
+	 * Returns the number of nodes on the given level needed to store the
+	 * given number of entries. Every node holds at least D entries unless
+	 * the level consists of a single node.
+	 *
+	 * @param number the number of entries
+	 * @param level
+	 * @return the number of nodes
+	 */
+	protected int nodeCount(int number, int level) {
+		int D = level == 0 ? btree.D_LeafNode : btree.D_IndexNode;
+		int capacity = capacity(level);
+		int count = (number+capacity-1)/capacity;
+		if (count > 1 && number/count < D)
+			count = Math.max(1, number/D);
+		return count;
+	}
+	/**
+	 * Builds and saves the nodes of a level. The entries are read in
+	 * batches of {@link #batchSize} nodes. A batch is only loaded when at
+	 * least one further batch follows, the remaining entries are loaded
+	 * together, so that the last nodes do not underflow.
+	 *
+	 * @param entries the sorted entries of the level
+	 * @param level
+	 * @return the index entries referring to the new nodes
+	 */
+	protected List loadLevel(Iterator entries, int level) {
+		List indexEntries = new ArrayList();
+		List buffer = new ArrayList();
+		int batch = batchSize*capacity(level);
+		while (true) {
+			while (buffer.size() < 2*batch && entries.hasNext())
+				buffer.add(entries.next());
+			if (!entries.hasNext()) {
+				loadBatch(buffer, level, true, indexEntries);
+				return indexEntries;
+			}
+			List batchEntries = buffer.subList(0, batch);
+			loadBatch(batchEntries, level, false, indexEntries);
+			batchEntries.clear();
+		}
+	}
+	/**
+	 * Builds and saves the nodes of a batch. The last node of a batch which
+	 * is not the last one of its level is kept as {@link #pendingNode}.
+	 *
+	 * @param entries the sorted entries of the batch
+	 * @param level
+	 * @param last <tt>true</tt> if the batch is the last one of its level
+	 * @param indexEntries receives the index entries referring to the new
+	 * 		nodes
+	 */
+	protected void loadBatch(final List entries, final int level, boolean last, List indexEntries) {
+		final int count = nodeCount(entries.size(), level);
+		final int written = last ? count : count-1;
+		final Node[] nodes = new Node[count];
+		final Container[] containers = new Container[count];
+		final Object[] ids = new Object[count];
+		final Object[] blocks = new Object[count];
+		final IndexEntry[] newIndexEntries = new IndexEntry[count];
+
+		// build the nodes of all partitions
+		pool.invoke(new Partition(new AbstractFunction<Integer,Object>() {
+			public Object invoke(Integer index) {
+				Node node = (Node)btree.createNode(level);
+				node.entries.addAll(entries.subList(first(index, entries.size(), count), first(index+1, entries.size(), count)));
+				nodes[index] = node;
+				return null;
+			}
+		}, 0, count));
+		// reserve the blocks from left to right
+		for (int i = 0; i < count; i++) {
+			containers[i] = determineTreeContainer.invoke(nodes[i]);
+			ids[i] = containers[i].reserve(new Constant(nodes[i]));
+		}
+		// complete the last node of the previous batch
+		if (pendingNode != null) {
+			link(pendingNode, level, ids[0]);
+			write(pendingContainer, pendingId, serialize(pendingContainer, pendingNode));
+		}
+		// link the nodes, create their index entries and serialize them
+		pool.invoke(new Partition(new AbstractFunction<Integer,Object>() {
+			public Object invoke(Integer index) {
+				Node node = nodes[index];
+				if (index+1 < count)
+					link(node, level, ids[index+1]);
+				Separator separator = (Separator)btree.separator(node.getLast()).clone();
+				newIndexEntries[index] = (IndexEntry)((IndexEntry)btree.createIndexEntry(level+1)).initialize(separator).initialize(containers[index], ids[index]);
+				if (index < written)
+					blocks[index] = serialize(containers[index], node);
+				return null;
+			}
+		}, 0, count));
+		// write the nodes in key order
+		for (int i = 0; i < written; i++) {
+			write(containers[i], ids[i], blocks[i]);
+			blocks[i] = null;
+		}
+		pendingNode = last ? null : nodes[count-1];
+		pendingContainer = last ? null : containers[count-1];
+		pendingId = last ? null : ids[count-1];
+		indexEntries.addAll(Arrays.asList(newIndexEntries));
+	}
+	/**
+	 * Links the given node to its right neighbor.
+	 *
+	 * @param node the node
+	 * @param level the level of the node
+	 * @param id the id of the right neighbor
+	 */
+	protected void link(Node node, int level, Object id) {
+		node.nextNeighbor = (IndexEntry)btree.createIndexEntry(level+1);
+		node.nextNeighbor.initialize(id);
+	}
+	/**
+	 * Returns the object written for the given node. If the container is a
+	 * {@link ConverterContainer}, the node is serialized to a block.
+	 * Otherwise the node itself is returned.
+	 *
+	 * @param container the container storing the node
+	 * @param node the node
+	 * @return the object to write
+	 */
+	protected Object serialize(Container container, Node node) {
+		return container instanceof ConverterContainer ? ((ConverterContainer)container).toBlock(node) : node;
+	}
+	/**
+	 * Writes an object returned by {@link #serialize(Container, Node)}. A
+	 * block is written to the container underlying the
+	 * {@link ConverterContainer}.
+	 *
+	 * @param container the container storing the node
+	 * @param id the id of the node
+	 * @param object the object to write
+	 */
+	protected void write(Container container, Object id, Object object) {
+		if (container instanceof ConverterContainer)
+			((ConverterContainer)container).getDecoree().update(id, object);
+		else
+			container.update(id, object);
+	}
+	/**
+	 * Returns the position of the first entry of the given node when the
+	 * entries are spread evenly over the nodes.
+	 */
+	private static int first(int node, int number, int count) {
+		return (int)((long)node*number/count);
+	}
+	/**
+	 * A fork-join task applying a function to the indices of a range of
+	 * nodes. Ranges larger than {@link #PARTITION_SIZE} are split in halves.
+	 */
+	protected static class Partition extends RecursiveAction {
+		protected final Function<Integer,Object> function;
+		protected final int from;
+		protected final int to;
+
+		public Partition(Function<Integer,Object> function, int from, int to) {
+			this.function = function;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to-from <= PARTITION_SIZE)
+				for (int i = from; i < to; i++)
+					function.invoke(i);
+			else {
+				int middle = (from+to) >>> 1;
+				invokeAll(new Partition(function, from, middle), new Partition(function, middle, to));
+			}
+		}
+	}
+}
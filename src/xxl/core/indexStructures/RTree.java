@@ -25,6 +25,8 @@ License along with this library;  If not, see <http://www.gnu.org/licenses/>.
 
 package xxl.core.indexStructures;
 
+import java.io.DataInput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -35,6 +37,7 @@ import java.util.Set;
 import java.util.Stack;
 
 import xxl.core.collections.ReversedList;
+import xxl.core.collections.queues.DoubleKeyHeap;
 import xxl.core.collections.queues.Queue;
 import xxl.core.collections.queues.Queues;
 import xxl.core.comparators.ComparableComparator;
@@ -51,7 +54,9 @@ import xxl.core.io.converters.Converter;
 import xxl.core.predicates.AbstractPredicate;
 import xxl.core.predicates.Predicate;
 import xxl.core.spatial.points.DoublePoint;
+import xxl.core.spatial.points.Point;
 import xxl.core.spatial.rectangles.DoublePointRectangle;
+import xxl.core.spatial.rectangles.DoublePointRectangleArray;
 import xxl.core.spatial.rectangles.Rectangle;
 import xxl.core.spatial.rectangles.Rectangles;
 
@@ -132,6 +137,102 @@ public class RTree extends ORTree {
 			}
 		}
 
+		/** The bounding rectangles of the entries of this node stored in
+		 * contiguous arrays, or <tt>null</tt> if they have not been
+		 * determined yet. The rectangles are filled by the
+		 * {@link RTree.NodeConverter} when the node is read or computed on
+		 * demand, and they are discarded whenever the node is written to its
+		 * container.
+		 */
+		protected volatile DoublePointRectangleArray rectangles = null;
+
+		/** Returns the bounding rectangles of the entries of this node stored
+		 * in contiguous arrays. The rectangles are ordered like the entries
+		 * of the node.
+		 * 
+		 * @return the bounding rectangles of the entries or <tt>null</tt> if
+		 * 		the node is empty or the descriptors of its entries are not
+		 * 		{@link DoublePointRectangle DoublePointRectangles}
+		 */
+		public DoublePointRectangleArray rectangles () {
+			DoublePointRectangleArray rectangles = this.rectangles;
+			if (rectangles == null && number() > 0) {
+				int index = 0;
+				for (Iterator entries = entries(); entries.hasNext(); index++) {
+					Descriptor descriptor = descriptor(entries.next());
+					if (!(descriptor instanceof DoublePointRectangle))
+						return null;
+					if (rectangles == null)
+						rectangles = new DoublePointRectangleArray(number(), ((DoublePointRectangle)descriptor).dimensions());
+					rectangles.set(index, (DoublePointRectangle)descriptor);
+				}
+				this.rectangles = rectangles;
+			}
+			return rectangles;
+		}
+
+		/** Discards the bounding rectangles of the entries.
+		 * 
+		 * @see ORTree.Node#entriesChanged()
+		 */
+		protected void entriesChanged () {
+			rectangles = null;
+		}
+
+		/** Returns an iterator pointing to the entries whose bounding
+		 * rectangles overlap the given descriptor. If the descriptor is a
+		 * {@link DoublePointRectangle}, the overlap tests are performed on
+		 * the {@link #rectangles() rectangles} of the node at once.
+		 * 
+		 * @param queryDescriptor the descriptor describing the query
+		 * @return an iterator pointing to the entries whose descriptors
+		 * 		overlap with <tt>queryDescriptor</tt>
+		 */
+		public Iterator query (Descriptor queryDescriptor) {
+			DoublePointRectangleArray rectangles = queryDescriptor instanceof DoublePointRectangle ? rectangles() : null;
+			if (rectangles == null)
+				return super.query(queryDescriptor);
+			final boolean[] overlapping = new boolean[rectangles.number()];
+			rectangles.overlaps((DoublePointRectangle)queryDescriptor, overlapping);
+			final Iterator entries = entries();
+			final int[] position = {-1};
+			return new Filter(
+				new Iterator() {
+					public boolean hasNext () {
+						return entries.hasNext();
+					}
+
+					public Object next () {
+						Object entry = entries.next();
+						position[0]++;
+						return entry;
+					}
+
+					public void remove () {
+						entries.remove();
+					}
+				},
+				new AbstractPredicate() {
+					public boolean invoke (Object object) {
+						return overlapping[position[0]];
+					}
+				}
+			);
+		}
+
+		/** Tests which entries of this node overlap <tt>queryDescriptor</tt>.
+		 * If the descriptor is a {@link DoublePointRectangle}, the tests are
+		 * performed on the {@link #rectangles() rectangles} of the node.
+		 *
+		 * @see ORTree.Node#overlaps(Descriptor, boolean[])
+		 */
+		public int overlaps (Descriptor queryDescriptor, boolean [] result) {
+			DoublePointRectangleArray rectangles = queryDescriptor instanceof DoublePointRectangle ? rectangles() : null;
+			return rectangles == null ?
+				super.overlaps(queryDescriptor, result) :
+				rectangles.overlaps((DoublePointRectangle)queryDescriptor, result);
+		}
+
 		/* (non-Javadoc)
 		 * @see xxl.core.indexStructures.ORTree.Node#chooseSubtree(xxl.core.indexStructures.Descriptor, java.util.Iterator)
 		 */
@@ -368,7 +469,7 @@ public class RTree extends ORTree {
 	 * @return a NodeConverter
 	 */
 	public Converter nodeConverter (Converter objectConverter, final int dimensions) {
-		return nodeConverter(objectConverter, indexEntryConverter(
+		return new NodeConverter(objectConverter, indexEntryConverter(
 			new ConvertableConverter(
 				new AbstractFunction() {
 					public Object invoke () {
@@ -376,9 +477,225 @@ public class RTree extends ORTree {
 					}
 				}
 			)
-		));
+		), dimensions);
+	}
+
+	/** An index entry read by the {@link RTree.NodeConverter}. Its
+	 * descriptor is not created when the node is read, but when it is
+	 * accessed the first time, from the rectangle of the entry in the
+	 * {@link RTree.Node#rectangles() rectangles} of the node. Therefore a
+	 * query which only tests the rectangles of a node creates no descriptor
+	 * of its entries. The rectangles are not modified after they have been
+	 * read, so the entry refers to them even if the node has been changed.
+	 */
+	public class ArrayIndexEntry extends IndexEntry {
+
+		/** The rectangles holding the descriptor of the entry until it is
+		 * created, or <tt>null</tt> if the descriptor has been set.
+		 */
+		protected DoublePointRectangleArray rectangles;
+
+		/** The position of the descriptor in the rectangles.
+		 */
+		protected int index;
+
+		/** Creates a new <tt>ArrayIndexEntry</tt> whose descriptor is the
+		 * rectangle at the given position.
+		 * 
+		 * @param parentLevel the parent level of the new entry
+		 * @param rectangles the rectangles holding the descriptor
+		 * @param index the position of the descriptor in the rectangles
+		 */
+		public ArrayIndexEntry (int parentLevel, DoublePointRectangleArray rectangles, int index) {
+			super(parentLevel);
+			this.rectangles = rectangles;
+			this.index = index;
+		}
+
+		/** Initializes the descriptor of the index entry by the given
+		 * descriptor, which replaces the rectangle of the entry.
+		 * 
+		 * @param descriptor the new descriptor of the index entry
+		 * @return the initialized index entry itself
+		 */
+		public Tree.IndexEntry initialize (Descriptor descriptor) {
+			rectangles = null;
+			return super.initialize(descriptor);
+		}
+
+		/** Gets the descriptor of the index entry. It is created from the
+		 * rectangles when it is accessed the first time.
+		 * 
+		 * @return the descriptor of the index entry
+		 */
+		public Descriptor descriptor () {
+			Descriptor descriptor = this.descriptor;
+			DoublePointRectangleArray rectangles = this.rectangles;
+			if (descriptor == null && rectangles != null)
+				this.descriptor = descriptor = rectangles.get(index);
+			return descriptor;
+		}
+	}
+
+	/** A converter for the nodes of an <tt>RTree</tt> whose descriptors are
+	 * {@link DoublePointRectangle DoublePointRectangles}. The rectangles of
+	 * the index entries are read directly into the
+	 * {@link RTree.Node#rectangles() rectangles} of the node, and their
+	 * descriptors are only created on demand (see {@link ArrayIndexEntry}).
+	 * The format is the one of {@link ORTree.NodeConverter}.
+	 */
+	public class NodeConverter extends ORTree.NodeConverter {
+
+		/** The dimensions of the bounding rectangles.
+		 */
+		protected int dimensions;
+
+		/** Creates a new NodeConverter.
+		 * 
+		 * @param objectConverter a converter to convert the data objects stored in the tree
+		 * @param indexEntryConverter a converter to convert the index entries, used for writing
+		 * @param dimensions the dimensions of the bounding rectangles 
+		 */
+		public NodeConverter (Converter objectConverter, Converter indexEntryConverter, int dimensions) {
+			super(objectConverter, indexEntryConverter);
+			this.dimensions = dimensions;
+		}
+
+		/** Reads a node from the data input.
+		 * 
+		 * @param dataInput the data input stream
+		 * @param object is ignored
+		 * @return the read node
+		 * @throws IOException if an I/O error occurs
+		 */
+		public Object read (DataInput dataInput, Object object) throws IOException {
+			Node node = (Node)createNode(dataInput.readShort());
+			int number = dataInput.readInt();
+			if (node.level==0) {
+				for (int i=0; i<number; i++)
+					node.entries.add(objectConverter.read(dataInput, null));
+				return node;
+			}
+			DoublePointRectangleArray rectangles = new DoublePointRectangleArray(number, dimensions);
+			for (int i=0; i<number; i++) {
+				ArrayIndexEntry indexEntry = new ArrayIndexEntry(node.level, rectangles, i);
+				indexEntry.id = indexEntry.container().objectIdConverter().read(dataInput, null);
+				rectangles.read(dataInput, i);
+				node.entries.add(indexEntry);
+			}
+			node.rectangles = rectangles;
+			return node;
+		}
 	}
 	
+	/** Returns a cursor delivering the <tt>k</tt> nearest neighbors of the
+	 * given point with respect to the Euclidean distance in ascending order
+	 * of their distances. The distance of a data object is the minimal
+	 * distance between the point and its bounding rectangle. The query
+	 * follows the best-first algorithm of the
+	 * {@link ORTree.NearestNeighborCursor} using the squared MINDIST of the
+	 * rectangles and, for <tt>k&nbsp;==&nbsp;1</tt> and minimal rectangles,
+	 * their MINMAXDIST for pruning. The distances are computed on primitive
+	 * coordinates if the rectangles are
+	 * {@link DoublePointRectangle DoublePointRectangles}.
+	 * <p>
+	 * The MINMAXDIST is only a valid bound if the rectangle of every index
+	 * entry is the minimal bounding rectangle of its subtree. Insertions,
+	 * removals and the bulk loaders of this package maintain minimal
+	 * rectangles, but a tree initialized with index entries whose rectangles
+	 * have been enlarged, e.g. to leave room for later insertions, has to be
+	 * queried with <tt>minimalRectangles == false</tt>.
+	 * 
+	 * @param point the query point
+	 * @param k the number of neighbors, <tt>Integer.MAX_VALUE</tt> for an
+	 * 		unbounded incremental query
+	 * @param heap the heap storing the entries, which can be reused by
+	 * 		subsequent queries
+	 * @param minimalRectangles signals whether the rectangles of the index
+	 * 		entries are minimal bounding rectangles, i.e. whether the
+	 * 		MINMAXDIST can be used for pruning
+	 * @return a cursor delivering the nearest neighbors of the point
+	 */
+	public NearestNeighborCursor nearestNeighborQuery (Point point, int k, DoubleKeyHeap heap, final boolean minimalRectangles) {
+		final double[] coordinates = (double[])point.getPoint();
+		final Point queryPoint = point;
+		return new NearestNeighborCursor(k, heap) {
+			double[] buffer = new double[0];
+
+			protected double minDistance (Descriptor descriptor) {
+				if (descriptor instanceof DoublePointRectangle)
+					return ((DoublePointRectangle)descriptor).minDistanceSquared(coordinates);
+				double distance = ((Rectangle)descriptor).minDistance(queryPoint, 2);
+				return distance*distance;
+			}
+
+			protected double minMaxDistance (Descriptor descriptor) {
+				if (minimalRectangles && descriptor instanceof DoublePointRectangle)
+					return ((DoublePointRectangle)descriptor).minMaxDistanceSquared(coordinates);
+				return Double.POSITIVE_INFINITY;
+			}
+
+			protected double distance (Object entry) {
+				return minDistance(descriptor(entry));
+			}
+
+			protected double[] distances (Tree.Node node) {
+				DoublePointRectangleArray rectangles = node instanceof Node ? ((Node)node).rectangles() : null;
+				if (rectangles == null)
+					return null;
+				if (buffer.length < rectangles.number())
+					buffer = new double[rectangles.number()];
+				rectangles.minDistancesSquared(coordinates, buffer);
+				return buffer;
+			}
+
+			protected double toDistance (double distance) {
+				return Math.sqrt(distance);
+			}
+		};
+	}
+
+	/** Returns a cursor delivering the <tt>k</tt> nearest neighbors of the
+	 * given point in ascending order of their distances. The rectangles of
+	 * the index entries are assumed to be minimal bounding rectangles.
+	 * 
+	 * @param point the query point
+	 * @param k the number of neighbors, <tt>Integer.MAX_VALUE</tt> for an
+	 * 		unbounded incremental query
+	 * @param heap the heap storing the entries, which can be reused by
+	 * 		subsequent queries
+	 * @return a cursor delivering the nearest neighbors of the point
+	 * @see #nearestNeighborQuery(Point, int, DoubleKeyHeap, boolean)
+	 */
+	public NearestNeighborCursor nearestNeighborQuery (Point point, int k, DoubleKeyHeap heap) {
+		return nearestNeighborQuery(point, k, heap, true);
+	}
+
+	/** Returns a cursor delivering the <tt>k</tt> nearest neighbors of the
+	 * given point in ascending order of their distances.
+	 * 
+	 * @param point the query point
+	 * @param k the number of neighbors
+	 * @return a cursor delivering the nearest neighbors of the point
+	 * @see #nearestNeighborQuery(Point, int, DoubleKeyHeap)
+	 */
+	public NearestNeighborCursor nearestNeighborQuery (Point point, int k) {
+		return nearestNeighborQuery(point, k, new DoubleKeyHeap());
+	}
+
+	/** Returns a cursor delivering all objects of the tree in ascending
+	 * order of their distances to the given point. The objects are
+	 * computed incrementally, i.e. the cursor only reads the nodes needed
+	 * for the objects actually consumed.
+	 * 
+	 * @param point the query point
+	 * @return a cursor delivering the nearest neighbors of the point
+	 * @see #nearestNeighborQuery(Point, int, DoubleKeyHeap)
+	 */
+	public NearestNeighborCursor nearestNeighborQuery (Point point) {
+		return nearestNeighborQuery(point, Integer.MAX_VALUE);
+	}
+
 	public class AsymmetricTwoDimensionalSkylineQuery extends Query {
 
 		protected DoublePoint queryPoint;
@@ -584,8 +901,8 @@ public class RTree extends ORTree {
 		Node node = (Node)indexEntry.get(true);
 		Descriptor descriptor = computeDescriptor(node.entries);
 
-		if (!descriptor.equals(indexEntry.descriptor))
-			System.out.println("Level "+node.level+": expected: "+descriptor+" actually:"+indexEntry.descriptor);
+		if (!descriptor.equals(indexEntry.descriptor()))
+			System.out.println("Level "+node.level+": expected: "+descriptor+" actually:"+indexEntry.descriptor());
 		if (node.level>0)
 			for (Iterator entries = node.entries(); entries.hasNext();)
 				if (!checkDescriptors((IndexEntry)entries.next()))
@@ -210,7 +210,6 @@ public class RevisedRTree extends RTree{
 	 * @return a lazy cursor pointing to all response objects
 	*/
 	public Cursor query (final Descriptor queryDescriptor, final int targetLevel){
-		// 
 		final Iterator [] iterators = new Iterator[height()+1]; 
 		Arrays.fill(iterators, EmptyCursor.DEFAULT_INSTANCE);
 		if (height()>0 && queryDescriptor.overlaps(rootDescriptor()))
@@ -25,6 +25,7 @@ License along with this library;  If not, see <http://www.gnu.org/licenses/>.
 
 package xxl.core.indexStructures;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -33,6 +34,11 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Stack;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import xxl.core.collections.MapEntry;
 import xxl.core.collections.containers.Container;
@@ -52,6 +58,7 @@ import xxl.core.functions.Function;
 import xxl.core.predicates.AbstractPredicate;
 import xxl.core.predicates.Equal;
 import xxl.core.predicates.Predicate;
+import xxl.core.util.WrappingRuntimeException;
 
 /** The Tree-class is a generic and highly flexible super-class that
 	implements features used by grow- and post-trees. It has the following inner 
@@ -186,6 +193,18 @@ public abstract class Tree {
 	*/
 	protected Descriptor rootDescriptor = null;
 
+	/** The pool evaluating parallel window queries or <tt>null</tt> if
+		they are evaluated by the common pool.
+		@see Tree#setParallelQueries(ForkJoinPool, int)
+	*/
+	protected ForkJoinPool queryPool = null;
+
+	/** The maximum number of results a parallel query buffers for its
+		cursor.
+		@see Tree#setParallelQueries(ForkJoinPool, int)
+	*/
+	protected int queryHandoffCapacity = 1024;
+
 	/** This is the basic method to create a new tree. It is not sufficient to call the constructor. 
 	 * Before the tree is usable, it must be initialized.
 	 * 
@@ -1627,6 +1646,297 @@ public abstract class Tree {
 		);
 	}
 	
+	/** Sets the pool and the handoff capacity of the parallel window
+	 * queries, i.e. of the {@link ParallelQuery} cursors returned by
+	 * {@link ORTree#parallelQuery(Descriptor, int)} and
+	 * {@link HilbertRTree#parallelQueryOR(xxl.core.spatial.rectangles.Rectangle, int)}.
+	 * The methods <tt>query</tt> and <tt>queryOR</tt> as well as the
+	 * methods of the tree using them, e.g. {@link #remove(Object)} and
+	 * {@link #contains(Object)}, always evaluate their queries
+	 * sequentially. A parallel query delivers the results in an arbitrary
+	 * order and does not support <tt>update</tt> and <tt>remove</tt>.
+	 * The nodes are read concurrently, so the container of the tree has to
+	 * be thread-safe, e.g. a
+	 * {@link xxl.core.collections.containers.SynchronizedContainer SynchronizedContainer}
+	 * wrapping a {@link xxl.core.collections.containers.io.BufferedContainer BufferedContainer},
+	 * and the tree must not be modified while a parallel query is open.
+	 * 
+	 * @param pool the pool evaluating the queries or <tt>null</tt> to
+	 * 		evaluate them by the common pool
+	 * @param handoffCapacity the maximum number of results buffered for the
+	 * 		cursor of a query. The tasks of a query wait when the buffer is
+	 * 		full.
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public void setParallelQueries (ForkJoinPool pool, int handoffCapacity) {
+		if (handoffCapacity<=0)
+			throw new IllegalArgumentException("The capacity of the handoff has to be positive.");
+		this.queryPool = pool;
+		this.queryHandoffCapacity = handoffCapacity;
+	}
+
+	/** Returns the pool evaluating parallel window queries.
+	 * 
+	 * @return the pool evaluating parallel window queries or <tt>null</tt>
+	 * 		if they are evaluated by the common pool
+	 * @see Tree#setParallelQueries(ForkJoinPool, int)
+	 */
+	public ForkJoinPool getQueryPool () {
+		return queryPool;
+	}
+
+	/** A window query evaluated by the tasks of a {@link ForkJoinPool}.
+		The subtrees qualifying for the query are split across tasks down
+		to the parents of the nodes on the level above the target level.
+		Such a node and its qualifying subtrees are processed by a single
+		task. The tasks hand their results over to the cursor through a
+		bounded queue, so they are blocked while the consumer is slow. They
+		block through {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)},
+		so the pool may activate spare threads meanwhile. The tasks stop as
+		soon as the cursor is closed, hence a cursor that is not consumed
+		to the end has to be closed.
+		<br>
+		The default implementation uses {@link Node#query(Descriptor)} to
+		determine the qualifying entries of a node. Subclasses can override
+		{@link #overlapsRoot()}, {@link #covers(IndexEntry)} and
+		{@link #entries(Node, boolean)} to adapt the query to a specific
+		kind of tree.
+		@see Tree#setParallelQueries(ForkJoinPool, int)
+	*/
+	public class ParallelQuery extends AbstractCursor {
+
+		/** The descriptor of the query.
+		*/
+		protected Descriptor queryDescriptor;
+
+		/** The level of the entries delivered by the query.
+		*/
+		protected int targetLevel;
+
+		/** The pool executing the tasks of the query.
+		*/
+		protected ForkJoinPool pool;
+
+		/** The queue handing the results over to the cursor.
+		*/
+		protected BlockingQueue handoff;
+
+		/** Marks the end of the results in the {@link #handoff}.
+		*/
+		protected final Object end = new Object();
+
+		/** The next element taken from the {@link #handoff}.
+		*/
+		protected Object next = null;
+
+		/** Is set when the cursor is closed and stops the tasks.
+		*/
+		protected volatile boolean stopped = false;
+
+		/** The exception thrown by a task of the query.
+		*/
+		protected volatile RuntimeException failure = null;
+
+		/** Creates a new parallel query using the pool and the handoff
+			capacity of the tree. If the tree has no pool, the common pool
+			is used.
+			@param queryDescriptor the descriptor of the query
+			@param targetLevel the level of the entries delivered by the query
+		*/
+		public ParallelQuery (Descriptor queryDescriptor, int targetLevel) {
+			this.queryDescriptor = queryDescriptor;
+			this.targetLevel = targetLevel;
+			this.pool = queryPool!=null ? queryPool : ForkJoinPool.commonPool();
+			this.handoff = new ArrayBlockingQueue(queryHandoffCapacity);
+		}
+
+		/** Determines whether the query overlaps the root of the tree.
+			@return <tt>true</tt> if the query descriptor overlaps the
+				descriptor of the tree
+		*/
+		protected boolean overlapsRoot () {
+			return queryDescriptor.overlaps(rootDescriptor());
+		}
+
+		/** Determines whether the query descriptor covers the whole subtree
+			of the given index entry, i.e. whether all entries of the
+			subtree are results. The default implementation returns
+			<tt>false</tt>.
+			@param indexEntry the index entry
+			@return <tt>true</tt> if the subtree needs no further tests
+		*/
+		protected boolean covers (IndexEntry indexEntry) {
+			return false;
+		}
+
+		/** Returns the entries of the node qualifying for the query.
+			@param node the node
+			@param covered <tt>true</tt> if the query covers the whole node
+			@return an iterator over the qualifying entries of the node
+		*/
+		protected Iterator entries (Node node, boolean covered) {
+			return covered ? node.entries() : node.query(queryDescriptor);
+		}
+
+		/** Hands an object over to the cursor. The method blocks while the
+			{@link #handoff} is full and the cursor is open.
+			@param object the object
+			@return <tt>false</tt> if the cursor has been closed
+		*/
+		protected boolean handOver (final Object object) {
+			if (stopped)
+				return false;
+			if (handoff.offer(object))
+				return true;
+			try {
+				ForkJoinPool.managedBlock(
+					new ForkJoinPool.ManagedBlocker() {
+						boolean done = false;
+
+						public boolean isReleasable () {
+							return done || (done = stopped || handoff.offer(object));
+						}
+
+						public boolean block () throws InterruptedException {
+							synchronized (handoff) {
+								while (!isReleasable())
+									handoff.wait();
+							}
+							return true;
+						}
+					}
+				);
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			return !stopped;
+		}
+
+		/** Wakes up the tasks blocked in {@link #handOver(Object)}.
+		*/
+		protected void signalTasks () {
+			synchronized (handoff) {
+				handoff.notifyAll();
+			}
+		}
+
+		/** Evaluates the query on the subtree of the given index entry.
+			Subtrees are processed by new tasks as long as they are higher
+			than the level above the target level.
+			@param indexEntry the index entry
+			@param covered <tt>true</tt> if the query covers the whole subtree
+		*/
+		protected void query (IndexEntry indexEntry, boolean covered) {
+			if (stopped || failure!=null)
+				return;
+			Node node = indexEntry.get(true);
+			Iterator entries = entries(node, covered);
+			if (node.level==targetLevel) {
+				while (entries.hasNext())
+					if (!handOver(entries.next()))
+						return;
+			}
+			else if (node.level>targetLevel+1) {
+				List<QueryTask> tasks = new ArrayList<QueryTask>();
+				while (entries.hasNext()) {
+					IndexEntry child = (IndexEntry)entries.next();
+					tasks.add(new QueryTask(child, covered || covers(child)));
+				}
+				ForkJoinTask.invokeAll(tasks);
+			}
+			else
+				while (entries.hasNext() && !stopped) {
+					IndexEntry child = (IndexEntry)entries.next();
+					query(child, covered || covers(child));
+				}
+		}
+
+		/** Starts the tasks of the query.
+		*/
+		public void open () {
+			if (isOpened)
+				return;
+			super.open();
+			pool.execute(new RecursiveAction() {
+				protected void compute () {
+					try {
+						if (height()>0 && targetLevel<height() && overlapsRoot())
+							query(rootEntry(), covers(rootEntry()));
+					}
+					catch (RuntimeException e) {
+						failure = e;
+					}
+					finally {
+						handOver(end);
+					}
+				}
+			});
+		}
+
+		protected boolean hasNextObject () {
+			if (next==null) {
+				try {
+					next = handoff.take();
+				}
+				catch (InterruptedException ie) {
+					throw new WrappingRuntimeException(ie);
+				}
+				signalTasks();
+			}
+			if (next==end) {
+				if (failure!=null)
+					throw failure;
+				return false;
+			}
+			return true;
+		}
+
+		protected Object nextObject () {
+			Object object = next;
+			next = null;
+			return object;
+		}
+
+		/** Closes the cursor and stops the tasks of the query.
+		*/
+		public void close () {
+			if (isClosed)
+				return;
+			stopped = true;
+			handoff.clear();
+			signalTasks();
+			super.close();
+		}
+
+		/** A task evaluating the query on a subtree.
+		*/
+		protected class QueryTask extends RecursiveAction {
+
+			/** The index entry referring to the subtree.
+			*/
+			protected IndexEntry indexEntry;
+
+			/** <tt>true</tt> if the query covers the whole subtree.
+			*/
+			protected boolean covered;
+
+			/** Creates a new task evaluating the query on a subtree.
+				@param indexEntry the index entry referring to the subtree
+				@param covered <tt>true</tt> if the query covers the whole subtree
+			*/
+			public QueryTask (IndexEntry indexEntry, boolean covered) {
+				this.indexEntry = indexEntry;
+				this.covered = covered;
+			}
+
+			protected void compute () {
+				query(indexEntry, covered);
+			}
+		}
+	}
+
 	/** Query to a given level using a priority queue. The method returns a new Query object.
 	 * <pre><code>
 	  			return new Query(queue,level);
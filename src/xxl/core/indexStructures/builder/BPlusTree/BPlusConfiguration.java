@@ -30,6 +30,7 @@ import java.util.SortedSet;
 
 import xxl.core.collections.containers.Container;
 import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.SynchronizedContainer;
 import xxl.core.collections.containers.io.BlockFileContainer;
 import xxl.core.collections.containers.io.BufferedContainer;
 import xxl.core.indexStructures.BPlusIndexedSet;
@@ -37,6 +38,7 @@ import xxl.core.indexStructures.BPlusTree;
 import xxl.core.indexStructures.builder.IndexBuilder;
 import xxl.core.indexStructures.builder.IndexConfiguration;
 import xxl.core.io.Buffer;
+import xxl.core.io.ConcurrentBuffer;
 import xxl.core.io.LRUBuffer;
 import xxl.core.io.converters.meta.ExtendedResultSetMetaData;
 import xxl.core.io.converters.meta.KeyFunctionFactory;
@@ -234,6 +236,63 @@ public abstract class BPlusConfiguration extends IndexConfiguration {
       return this;
     }
 
+    /**
+     * Enables or disables the concurrent mode of the BPlus tree, see
+     * {@link BPlusTree#setConcurrent(boolean)}. In concurrent mode many threads can add, remove and
+     * query items of the resulting set at the same time without a global lock. By enabling it the
+     * buffer is replaced by a {@link ConcurrentBuffer} with a capacity of
+     * INDEX_REQUIREMENTS_DEFAULT_CONCURRENT_BUFFER_SIZE items and the container below the buffer is
+     * wrapped into a {@link SynchronizedContainer}. If you set another buffer afterwards, ensure
+     * that it is thread-safe.
+     * 
+     * @param concurrent <code>true</code> to enable the concurrent mode
+     * @return The current <code>BPlusTreeConfiguration</code> instance including the effect of this
+     *         method call. With this it is possible to set the configuration in one single line
+     *         like
+     * 
+     *         <code><pre>BPlusTreeConfiguration con = new BPlusTreeConfiguration(..).setA().setB()...</pre></code>
+     * 
+     *         instead of setting each property in a single call like <code><pre>
+     *  BPlusTreeConfiguration con = new BPlusTreeConfiguration(..);
+     *  con.setA();
+     *  con.setB();
+     *  ...
+     *  </pre></code>
+     */
+    public Creator setConcurrent(boolean concurrent) {
+      if (concurrent && !mConcurrent) {
+        mBuffer = new ConcurrentBuffer(INDEX_REQUIREMENTS_DEFAULT_CONCURRENT_BUFFER_SIZE);
+        mConverterContainer = new SynchronizedContainer(mConverterContainer);
+        updateBufferContainer();
+      }
+      mConcurrent = concurrent;
+      return this;
+    }
+
+    /**
+     * Enables or disables the compressed node format of the BPlus tree, see
+     * {@link BPlusTree#setNodeCompression(boolean)}. Each node stores the common prefix of its keys
+     * only once, so that nodes hold more entries if the keys share long prefixes. For compound keys
+     * the separators of the index nodes are additionally shortened to the shortest value
+     * distinguishing two leaves, see {@link BPlusTree#setShortestSeparator(xxl.core.functions.Function)}. The format
+     * is stored with the meta data of the tree and restored when the tree is reloaded.
+     * 
+     * @param nodeCompression <code>true</code> to enable the compressed node format
+     * @return The current <code>BPlusTreeConfiguration</code> instance including the effect of this
+     *         method call.
+     * @throws UnsupportedOperationException if the format is enabled for a {@link PrimitiveType}
+     *         with primitive nodes, whose {@link xxl.core.indexStructures.LongBPlusTree} does not
+     *         support it
+     */
+    public Creator setNodeCompression(boolean nodeCompression) {
+      if (nodeCompression && mManagedType instanceof PrimitiveType
+          && ((PrimitiveType) mManagedType).isPrimitiveNodes())
+        throw new UnsupportedOperationException(
+            "The compressed node format is not supported by primitive nodes");
+      mNodeCompression = nodeCompression;
+      return this;
+    }
+
     /**
      * Set the indices of the column which should be used as the compounded key for indexing. The
      * tuples are compared lexicographically in descending order of their key indices given by
@@ -585,6 +644,22 @@ public abstract class BPlusConfiguration extends IndexConfiguration {
    */
   Container mFileContainer = null;
 
+  /*
+   * Default buffer size in concurrent mode
+   */
+  private static final int INDEX_REQUIREMENTS_DEFAULT_CONCURRENT_BUFFER_SIZE = 1024;
+
+  /*
+   * Flag to indicate if the BPlus tree runs in concurrent mode. By default it does not.
+   */
+  protected boolean mConcurrent = false;
+
+  /*
+   * Flag to indicate if the BPlus tree writes its nodes in the compressed format. By default it
+   * does not.
+   */
+  protected boolean mNodeCompression = false;
+
   /*
    * The data type descriptor which contains type specific functions (e.g. StringConverter for a
    * String type)
@@ -624,6 +699,30 @@ public abstract class BPlusConfiguration extends IndexConfiguration {
       return mFileContainer;
   }
 
+  /**
+   * Returns whether the BPlus tree should run in concurrent mode. <br/>
+   * <br/>
+   * <b>Note</b>: Because this only used by the BPlus tree builder the visibility of this method is
+   * restricted to package wide visibility.
+   * 
+   * @return <code>true</code> if the concurrent mode is enabled
+   */
+  boolean isConcurrent() {
+    return mConcurrent;
+  }
+
+  /**
+   * Returns whether the BPlus tree should write its nodes in the compressed format. <br/>
+   * <br/>
+   * <b>Note</b>: Because this only used by the BPlus tree builder the visibility of this method is
+   * restricted to package wide visibility.
+   * 
+   * @return <code>true</code> if the compressed node format is enabled
+   */
+  boolean isNodeCompression() {
+    return mNodeCompression;
+  }
+
   /**
    * Returns the tuple key function factory which contains ready to use functions according to the
    * meta data and the compound key indices.
@@ -45,6 +45,7 @@ import java.util.Collections;
 import java.util.List;
 
 import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.SynchronizedContainer;
 import xxl.core.collections.containers.io.BlockFileContainer;
 import xxl.core.collections.containers.io.BufferedContainer;
 import xxl.core.collections.containers.io.ConverterContainer;
@@ -52,6 +53,7 @@ import xxl.core.indexStructures.BPlusIndexedSet;
 import xxl.core.indexStructures.BPlusTree;
 import xxl.core.indexStructures.BPlusTree.IndexEntry;
 import xxl.core.indexStructures.BPlusTree.KeyRange;
+import xxl.core.indexStructures.LongBPlusTree;
 import xxl.core.indexStructures.Separator;
 import xxl.core.indexStructures.keyRanges.BooleanKeyRange;
 import xxl.core.indexStructures.keyRanges.ByteKeyRange;
@@ -161,6 +163,10 @@ public class BPlusTreeBuilder<E>
 
   public static final String PROPERTY_BLOCK_SIZE = "Block size";
 
+  public static final String PROPERTY_NODE_COMPRESSION = "Node compression";
+
+  public static final String PROPERTY_PRIMITIVE_NODES = "Primitive nodes";
+
 
   public static final String PROPERTY_COLUMN_OBJECT = "Column";
 
@@ -270,9 +276,16 @@ public class BPlusTreeBuilder<E>
         (String) serializedInstance.getProperty(PROPERTY_TABLE_NAME);
     int blockSize = (int) serializedInstance.getProperty(PROPERTY_BLOCK_SIZE);
 
+    boolean primitiveNodes =
+        serializedInstance.containsProperty(PROPERTY_PRIMITIVE_NODES)
+            && (Boolean) serializedInstance.getProperty(PROPERTY_PRIMITIVE_NODES);
+
     Creator requirements =
-        new Creator(new PrimitiveType(restoreType, tableName));
+        new Creator(new PrimitiveType(restoreType, tableName, primitiveNodes));
     requirements.setBlockSize(blockSize);
+    if (serializedInstance.containsProperty(PROPERTY_NODE_COMPRESSION))
+      requirements.setNodeCompression((Boolean) serializedInstance
+          .getProperty(PROPERTY_NODE_COMPRESSION));
 
     return (BPlusTreeBuilder) requirements.setReloadMode(storeTreeFilePath)
         .getBuilder();
@@ -465,6 +478,9 @@ public class BPlusTreeBuilder<E>
       Creator requirements = new Creator(new TupleType(tupleMetaData));
       requirements.setBlockSize(blockSize);
       requirements.setCompoundKey(keyIndices);
+      if (serializedInstance.containsProperty(PROPERTY_NODE_COMPRESSION))
+        requirements.setNodeCompression((Boolean) serializedInstance
+            .getProperty(PROPERTY_NODE_COMPRESSION));
 
       return (BPlusTreeBuilder) requirements.setReloadMode(storeTreeFilePath)
           .getBuilder();
@@ -504,7 +520,15 @@ public class BPlusTreeBuilder<E>
 
     BPlusConfiguration configuration = (BPlusConfiguration) mIndexConfiguration;
 
-    BPlusTree retval = new BPlusTree(configuration.getBlockSize());
+    BPlusTree retval =
+        (configuration.getManagedType() instanceof PrimitiveType && ((PrimitiveType) configuration
+            .getManagedType()).isPrimitiveNodes())
+            ? new LongBPlusTree(configuration.getBlockSize())
+            : new BPlusTree(configuration.getBlockSize());
+    retval.setConcurrent(configuration.isConcurrent());
+    if (configuration.isNodeCompression())
+      retval.setNodeCompression(true).setShortestSeparator(
+          configuration.getKeyFunctionFactory().getShortestSeparatorFunction());
 
     Container bufferedContainer = null;
     Container fileContainer = null;
@@ -562,6 +586,8 @@ public class BPlusTreeBuilder<E>
     if (configuration.getLocation().equals(Location.LOCATION_FILESYSTEM)) {
       Container converterContainer =
           new ConverterContainer(fileContainer, retval.nodeConverter());
+      if (configuration.isConcurrent())
+        converterContainer = new SynchronizedContainer(converterContainer);
       bufferedContainer =
           new BufferedContainer(converterContainer, configuration.getBuffer());
       configuration.setBufferedContainer((BufferedContainer) bufferedContainer);
@@ -839,6 +865,10 @@ public class BPlusTreeBuilder<E>
     treeInfo.add(new Property(PROPERTY_TABLE_NAME, config.getTableName()));
     treeInfo.add(new Property(PROPERTY_CONTENT_TYPE, config.getContentType()));
     treeInfo.add(new Property(PROPERTY_BLOCK_SIZE, config.getBlockSize()));
+    treeInfo.add(new Property(PROPERTY_NODE_COMPRESSION, config.isNodeCompression()));
+    if (config.getManagedType() instanceof PrimitiveType)
+      treeInfo.add(new Property(PROPERTY_PRIMITIVE_NODES, ((PrimitiveType) config
+          .getManagedType()).isPrimitiveNodes()));
 
     /*
      * Write additional meta data for columns etc. if the the BPlus tree stores tuples
@@ -21,6 +21,7 @@
 package xxl.core.indexStructures.builder.BPlusTree;
 
 import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.LongBPlusTree;
 import xxl.core.io.converters.meta.ExtendedResultSetMetaData;
 import xxl.core.io.converters.meta.KeyFunctionFactory;
 import xxl.core.io.converters.MeasuredPrimitiveConverter;
@@ -69,6 +70,11 @@ public class PrimitiveType extends ManagedType {
    */
   private String mTableName;
 
+  /*
+   * Flag to indicate if the nodes store the values in primitive arrays
+   */
+  private boolean mPrimitiveNodes = false;
+
 /**
 	 * Constructs a new instance of <code>PrimitiveType</code> by the given type and table name.<br/><br/>
 	 * <b>Examples</b>
@@ -97,6 +103,25 @@ public class PrimitiveType extends ManagedType {
     mTableName = tableName;
   }
 
+  /**
+   * Constructs a new instance of <code>PrimitiveType</code> by the given type and table name. If
+   * <code>primitiveNodes</code> is set, the index is a {@link LongBPlusTree} whose nodes store the
+   * values in primitive arrays and are searched without boxing. This is only supported for the
+   * type <code>JavaType.LONG</code>.
+   * 
+   * @param type
+   * @param tableName
+   * @param primitiveNodes Use a tree with primitive nodes
+   */
+  public PrimitiveType(JavaType type, String tableName, boolean primitiveNodes) {
+    this(type, tableName);
+    if (primitiveNodes && type != JavaType.LONG)
+      throw new IllegalArgumentException("Primitive nodes are only supported for the type "
+          + JavaType.LONG + " but " + type + " was given");
+
+    mPrimitiveNodes = primitiveNodes;
+  }
+
   /**
    * <b>Warning:</b>: A call to this method will always throw an
    * <code>IllegalArgumentException</code> because a primitive type has no compounded key.
@@ -142,6 +167,16 @@ public class PrimitiveType extends ManagedType {
         "For primitive types the call of \"getMetaData()\" is not allowed. Because there is no meta data for primitive types.");
   }
 
+  /**
+   * Checks if the index is a {@link LongBPlusTree} whose nodes store the values in primitive
+   * arrays.
+   * 
+   * @return <code>true</code> if the nodes are primitive
+   */
+  public boolean isPrimitiveNodes() {
+    return mPrimitiveNodes;
+  }
+
   @Override
   public String getTableName() {
     return mTableName;
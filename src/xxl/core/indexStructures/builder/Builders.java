@@ -119,6 +119,19 @@ public class Builders {
           tableName));
     }
 
+    /**
+     * Creates a new BPlus Index which handles primitive long types. If <code>primitiveNodes</code>
+     * is set, the nodes of the index store the values in primitive arrays.
+     * 
+     * @param tableName The table name for this index
+     * @param primitiveNodes Use a {@link xxl.core.indexStructures.LongBPlusTree}
+     * @return A ready-to-use BPlus configuration
+     */
+    public static BPlusConfiguration.Creator Long(String tableName, boolean primitiveNodes) {
+      return new BPlusConfiguration.Creator(new PrimitiveType(JavaType.LONG,
+          tableName, primitiveNodes));
+    }
+
     /**
      * Creates a new BPlus Index which handles primitive short types.
      * 
@@ -532,6 +532,71 @@ public abstract class AbstractIterativeRtreeBulkloader<T> implements IterativeBu
 		return new MapEntry<Long, DoublePointRectangle>(nodeId, descriptor);
 	}
 	
+	/**
+	 * Writes several nodes to a contiguous region of a R-tree container. The ids of all nodes are
+	 * reserved at once before the first node is written. Therefore, different threads can write the
+	 * nodes of different partitions concurrently, if the container is thread-safe.
+	 *
+	 * @param nodes list of the entries of each node
+	 * @param level
+	 * @param rtree
+	 * @param treeContainer
+	 * @return index entries of the written nodes in the order of the given nodes
+	 */
+	@SuppressWarnings("unchecked")
+	public List<MapEntry<Long,DoublePointRectangle>> writeNodes(List<List<?>> nodes, int level, RTree rtree, Container treeContainer) {
+		Node[] created = new Node[nodes.size()];
+		Long[] nodeIds = new Long[nodes.size()];
+		synchronized (treeContainer) {
+			for (int i = 0; i < created.length; i++){
+				created[i] = (Node) rtree.createNode(level);
+				nodeIds[i] = (Long) treeContainer.reserve(new Constant<Node>(created[i]));
+			}
+		}
+		List<MapEntry<Long,DoublePointRectangle>> written = new ArrayList<MapEntry<Long,DoublePointRectangle>>(created.length);
+		for (int i = 0; i < created.length; i++){
+			List<?> entries = nodes.get(i);
+			DoublePointRectangle descriptor = null;
+			for (Object o : entries ){
+				DoublePointRectangle rec = (level == 0) ? (DoublePointRectangle)(toRectangle.invoke((T)o)): (DoublePointRectangle)((IndexEntry)o).descriptor();
+				if (descriptor == null)
+					descriptor = new DoublePointRectangle(rec);
+				else
+					descriptor.union(rec);
+			}
+			created[i].initialize(level, entries);
+			treeContainer.update(nodeIds[i], created[i]);// I/O
+			written.add(new MapEntry<Long, DoublePointRectangle>(nodeIds[i], descriptor));
+		}
+		return written;
+	}
+
+	/**
+	 * Returns the entries of a node that stores the given range of level data. On index levels the
+	 * level data consists of map entries, which are converted to index entries.
+	 *
+	 * @param data
+	 * @param from first position of the range
+	 * @param to position after the range
+	 * @param level
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<?> nodeEntries(Object[] data, int from, int to, int level){
+		List<Object> entries = new ArrayList<Object>(to-from);
+		for (int i = from; i < to; i++){
+			if (level > 0){
+				MapEntry<Long, DoublePointRectangle> mapEntry = (MapEntry<Long, DoublePointRectangle>) data[i];
+				IndexEntry indexEntry = (IndexEntry) rtree.createIndexEntry(level);
+				((ORTree.IndexEntry)indexEntry.initialize(mapEntry.getKey())).initialize(mapEntry.getValue());
+				entries.add(indexEntry);
+			}else{
+				entries.add(data[i]);
+			}
+		}
+		return entries;
+	}
+
 	/**
 	 * 
 	 * @param iterator
@@ -0,0 +1,216 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2013 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.rtrees;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import xxl.core.collections.MapEntry;
+import xxl.core.indexStructures.RTree;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+
+/**
+ * This class implements a parallel version of the {@link STRBulkLoader}. The tiling of the data is
+ * the same as the tiling of the sequential loader, i.e. the slabs and nodes contain the same
+ * rectangles (up to the order of rectangles with equal centers). 
+ * 
+ * The first sort of each level is an external sort as in the sequential loader. The resulting
+ * slabs are read in main memory one by one and are sorted and tiled concurrently on a
+ * {@link ForkJoinPool}; only about as many slabs as the parallelism of the pool are kept in memory
+ * at once. The nodes of a slab that is not split any further are written to a contiguous region
+ * of the R-tree container, whereas the nodes of different slabs are written in parallel. 
+ * Therefore, the container of the R-tree has to be thread-safe, e.g. a
+ * {@link xxl.core.collections.containers.SynchronizedContainer}.
+ * 
+ * @param <T>
+ */
+public class ParallelSTRBulkLoader<T> extends STRBulkLoader<T> {
+
+	/**
+	 * pool used for sorting, tiling and writing the slabs
+	 */
+	protected ForkJoinPool pool;
+
+	/**
+	 * Creates a parallel STR loader using the common pool.
+	 * 
+	 * @see STRBulkLoader#STRBulkLoader(RTree, String, int, int, double, double, int[])
+	 */
+	public ParallelSTRBulkLoader(RTree rtree, 
+			String path, 
+			int dimension,
+			int blockSize, 
+			double ratio, 
+			double nodeUtil,
+			int[] sortingFunction) {
+		this(rtree, path, dimension, blockSize, ratio, nodeUtil, sortingFunction, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a parallel STR loader.
+	 * 
+	 * @see STRBulkLoader#STRBulkLoader(RTree, String, int, int, double, double, int[])
+	 * @param pool pool used for sorting, tiling and writing the slabs
+	 */
+	public ParallelSTRBulkLoader(RTree rtree, 
+			String path, 
+			int dimension,
+			int blockSize, 
+			double ratio, 
+			double nodeUtil,
+			int[] sortingFunction, 
+			ForkJoinPool pool) {
+		super(rtree, path, dimension, blockSize, ratio, nodeUtil, sortingFunction);
+		this.pool = pool;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see xxl.core.indexStructures.rtrees.STRBulkLoader#sortSTRData(java.util.Iterator, int, int, int, int)
+	 */
+	@Override
+	public int sortSTRData(Iterator data, int number, int level, int dim, int depth) throws IOException{
+		int numberOfBlocks = number / ((level== 0) ? (B_Leaf) : B_Index); 
+		if (depth <= 1 || numberOfBlocks <= 1){
+			Object[] slab = readSlab(data, Integer.MAX_VALUE);
+			return store(pool.invoke(new SlabTask(slab, 0, slab.length, level, dim, depth)));
+		}
+		int splitsProDim = (int) Math.pow(numberOfBlocks, 1.0 / dimension);
+		Iterator sorter = sort(data, dim, level);
+		LinkedList<ForkJoinTask<List<MapEntry<Long,DoublePointRectangle>>>> slabs = 
+			new LinkedList<ForkJoinTask<List<MapEntry<Long,DoublePointRectangle>>>>();
+		int written = 0;
+		for(int i = 0; i < splitsProDim+1; i++){
+			Object[] slab = readSlab(sorter, number / splitsProDim);
+			if (slab.length > 0)
+				slabs.add(pool.submit(new SlabTask(slab, 0, slab.length, level, sortingFunction[dimension-depth+1], depth-1)));
+			// the level entries are stored in the order of the slabs
+			if (slabs.size() > pool.getParallelism())
+				written += store(slabs.removeFirst().join());
+		}
+		while(!slabs.isEmpty())
+			written += store(slabs.removeFirst().join());
+		return written;
+	}
+
+	/**
+	 * Reads at most <code>number</code> objects of the given iterator into an array.
+	 * 
+	 * @param data
+	 * @param number
+	 * @return
+	 */
+	protected static Object[] readSlab(Iterator data, int number){
+		List<Object> slab = new ArrayList<Object>();
+		while(slab.size() < number && data.hasNext())
+			slab.add(data.next());
+		return slab.toArray();
+	}
+
+	/**
+	 * Stores the index entries of written nodes in the auxiliary storage of the next level.
+	 * 
+	 * @param entries
+	 * @return number of stored entries
+	 * @throws IOException
+	 */
+	protected int store(List<MapEntry<Long,DoublePointRectangle>> entries) throws IOException{
+		for (MapEntry<Long,DoublePointRectangle> entry : entries)
+			storeTempIndexEntry(entry);
+		return entries.size();
+	}
+
+	/**
+	 * Sorts a slab in main memory and tiles it recursively like 
+	 * {@link STRBulkLoader#sortSTRData(Iterator, int, int, int, int)}. The sub-slabs are processed
+	 * in parallel. The task returns the index entries of the written nodes in the order of the
+	 * sequential loader.
+	 */
+	@SuppressWarnings("serial")
+	protected class SlabTask extends RecursiveTask<List<MapEntry<Long,DoublePointRectangle>>> {
+
+		/**
+		 * level data, the task processes the range from <code>from</code> to <code>to</code>
+		 */
+		protected Object[] data;
+
+		protected int from;
+
+		protected int to;
+
+		protected int level;
+
+		/**
+		 * dimension the slab is sorted by
+		 */
+		protected int dim;
+
+		protected int depth;
+
+		public SlabTask(Object[] data, int from, int to, int level, int dim, int depth) {
+			this.data = data;
+			this.from = from;
+			this.to = to;
+			this.level = level;
+			this.dim = dim;
+			this.depth = depth;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected List<MapEntry<Long,DoublePointRectangle>> compute() {
+			Arrays.sort(data, from, to, getDimensionComparator(dim, level));
+			int number = to-from;
+			int nodeSize = (level > 0) ? B_Index: B_Leaf;
+			int numberOfBlocks = number / nodeSize;
+			if (depth <= 1 || numberOfBlocks <= 1){
+				List<List<?>> nodes = new ArrayList<List<?>>();
+				for (int i = from; i < to; i += nodeSize)
+					nodes.add(nodeEntries(data, i, Math.min(i+nodeSize, to), level));
+				return writeNodes(nodes, level, rtree, treeContainer);
+			}
+			int splitsProDim = (int) Math.pow(numberOfBlocks, 1.0 / dimension);
+			int slabSize = number / splitsProDim;
+			List<SlabTask> slabs = new ArrayList<SlabTask>();
+			for(int i = 0; i < splitsProDim+1 && from + i*slabSize < to; i++)
+				slabs.add(new SlabTask(data, from + i*slabSize, Math.min(from + (i+1)*slabSize, to), level, 
+						sortingFunction[dimension-depth+1], depth-1));
+			invokeAll(slabs);
+			List<MapEntry<Long,DoublePointRectangle>> written = new ArrayList<MapEntry<Long,DoublePointRectangle>>();
+			for (SlabTask slab : slabs)
+				written.addAll(slab.join());
+			return written;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2013 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.rtrees;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import xxl.core.collections.MapEntry;
+import xxl.core.indexStructures.RTree;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+
+/**
+ * This class implements a parallel version of the {@link TGSBulkLoader}. The greedy splits are the
+ * same as the splits of the sequential loader (up to the order of rectangles with equal centers),
+ * so both loaders produce trees with the same nodes. 
+ * 
+ * Each level is tiled in main memory on a {@link ForkJoinPool}: the costs of the splits are
+ * computed for all dimensions concurrently and both halves of a split are tiled in parallel. A
+ * part of the level data with at most <code>maxRecordsProNode<sup>2</sup></code> rectangles is
+ * tiled by a single task, which writes its nodes to a contiguous region of the R-tree container.
+ * The nodes of different parts are written in parallel. Therefore, the container of the R-tree
+ * has to be thread-safe, e.g. a {@link xxl.core.collections.containers.SynchronizedContainer}.
+ * 
+ * @param <T>
+ */
+public class ParallelTGSBulkLoader<T> extends TGSBulkLoader<T> {
+
+	/**
+	 * pool used for tiling and writing the level data
+	 */
+	protected ForkJoinPool pool;
+
+	/**
+	 * Creates a parallel TGS loader using the common pool.
+	 * 
+	 * @see TGSBulkLoader#TGSBulkLoader(RTree, String, int, int, double, double, DoublePointRectangle, double[])
+	 */
+	public ParallelTGSBulkLoader(RTree rtree, 
+			String path, 
+			int dimension,
+			int blockSize, 
+			double ratio, 
+			double nodeUtil, DoublePointRectangle universe, 
+			double[] averageQuerySideLength) {
+		this(rtree, path, dimension, blockSize, ratio, nodeUtil, universe, averageQuerySideLength, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a parallel TGS loader.
+	 * 
+	 * @see TGSBulkLoader#TGSBulkLoader(RTree, String, int, int, double, double, DoublePointRectangle, double[])
+	 * @param pool pool used for tiling and writing the level data
+	 */
+	public ParallelTGSBulkLoader(RTree rtree, 
+			String path, 
+			int dimension,
+			int blockSize, 
+			double ratio, 
+			double nodeUtil, DoublePointRectangle universe, 
+			double[] averageQuerySideLength, 
+			ForkJoinPool pool) {
+		super(rtree, path, dimension, blockSize, ratio, nodeUtil, universe, averageQuerySideLength);
+		this.pool = pool;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see xxl.core.indexStructures.rtrees.TGSBulkLoader#tileData(java.util.List, int, int, java.io.DataOutput)
+	 */
+	@Override
+	public int tileData(List dataF, int number, int level, DataOutput out) throws IOException{
+		Object[] data = dataF.toArray();
+		dataF.clear();
+		List<MapEntry<Long,DoublePointRectangle>> written = pool.invoke(new TileTask(data, level));
+		for (MapEntry<Long,DoublePointRectangle> entry : written)
+			mapEntryConverter.write(out, entry);
+		return written.size();
+	}
+
+	/**
+	 * Tiles the given level data in the current thread and adds the entries of the resulting nodes
+	 * to the given list.
+	 * 
+	 * @param data
+	 * @param level
+	 * @param nodes
+	 */
+	protected void tile(Object[] data, int level, List<List<?>> nodes){
+		if (data.length <= maxRecordsProNode){
+			nodes.add(nodeEntries(data, 0, data.length, level));
+			return;
+		}
+		Object[][] halves = split(data, level, false);
+		tile(halves[0], level, nodes);
+		tile(halves[1], level, nodes);
+	}
+
+	/**
+	 * Computes the greedy split of the given level data like
+	 * {@link TGSBulkLoader#tileData(List, int, int, DataOutput)}.
+	 * 
+	 * @param data
+	 * @param level
+	 * @param parallel whether the dimensions are processed concurrently
+	 * @return both halves of the split
+	 */
+	protected Object[][] split(Object[] data, int level, boolean parallel){
+		int number = data.length;
+		int approxTreeHeight = ((int)(Math.ceil( Math.log(number)/ Math.log(maxRecordsProNode))))-1;
+		int M = (int)Math.floor(Math.pow(maxRecordsProNode, approxTreeHeight));
+		List<SplitCosts> dimensions = new ArrayList<SplitCosts>(dimension);
+		for(int i = 0; i < dimension; i++)
+			dimensions.add(new SplitCosts(data, i, M, level));
+		if (parallel)
+			ForkJoinTask.invokeAll(dimensions);
+		else
+			for (SplitCosts costs : dimensions)
+				costs.invoke();
+		SplitCosts min = dimensions.get(0);
+		for (SplitCosts costs : dimensions)
+			if (costs.costs < min.costs)
+				min = costs;
+		return new Object[][] {
+			Arrays.copyOfRange(min.sorted, 0, min.argMin+1),
+			Arrays.copyOfRange(min.sorted, min.argMin+1, number)
+		};
+	}
+
+	/**
+	 * Sorts a copy of the level data by one dimension and computes the split with the minimal
+	 * costs along this dimension.
+	 */
+	@SuppressWarnings("serial")
+	protected class SplitCosts extends RecursiveAction {
+
+		/**
+		 * sorted copy of the level data
+		 */
+		protected Object[] sorted;
+
+		protected int dim;
+
+		/**
+		 * the splits are at multiples of M
+		 */
+		protected int M;
+
+		protected int level;
+
+		/**
+		 * minimal costs of a split along the dimension
+		 */
+		protected double costs = Double.MAX_VALUE;
+
+		/**
+		 * last position of the left half of the split with minimal costs
+		 */
+		protected int argMin = 0;
+
+		public SplitCosts(Object[] data, int dim, int M, int level) {
+			this.sorted = data;
+			this.dim = dim;
+			this.M = M;
+			this.level = level;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected void compute() {
+			sorted = sorted.clone();
+			Arrays.sort(sorted, getDimensionComparator(dim, level));
+			List<Object> data = Arrays.asList(sorted);
+			List<DoublePointRectangle> forwardList = computeCosts(data, true, level);
+			List<DoublePointRectangle> backwardList = computeCosts(data, false, level);
+			int number = sorted.length;
+			int splits = number/M;
+			for(int k = 1; k <= splits; k++){
+				int splitIndex = k*M;
+				if (splitIndex < number){
+					double fcost = costFunction.invoke(forwardList.get(splitIndex-1), backwardList.get(splitIndex));
+					if (fcost < costs){
+						costs = fcost;
+						argMin = splitIndex-1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tiles level data and writes the resulting nodes. Both halves of a split are processed in
+	 * parallel until a part has at most <code>maxRecordsProNode<sup>2</sup></code> rectangles; the
+	 * nodes of such a part are written to a contiguous region. The task returns the index entries of the written nodes in the order of the sequential loader.
+	 */
+	@SuppressWarnings("serial")
+	protected class TileTask extends RecursiveTask<List<MapEntry<Long,DoublePointRectangle>>> {
+
+		protected Object[] data;
+
+		protected int level;
+
+		public TileTask(Object[] data, int level) {
+			this.data = data;
+			this.level = level;
+		}
+
+		@Override
+		protected List<MapEntry<Long,DoublePointRectangle>> compute() {
+			if (data.length <= maxRecordsProNode * maxRecordsProNode){
+				List<List<?>> nodes = new ArrayList<List<?>>();
+				tile(data, level, nodes);
+				return writeNodes(nodes, level, rtree, treeContainer);
+			}
+			Object[][] halves = split(data, level, true);
+			data = null;
+			TileTask left = new TileTask(halves[0], level);
+			TileTask right = new TileTask(halves[1], level);
+			invokeAll(left, right);
+			List<MapEntry<Long,DoublePointRectangle>> written = new ArrayList<MapEntry<Long,DoublePointRectangle>>(left.join());
+			written.addAll(right.join());
+			return written;
+		}
+	}
+}
@@ -51,6 +51,40 @@ public class StringSeparator extends Separator {
         }
       };
 
+  /**
+   * Computes the separator value of a split leaf from its last key and the first key of its new
+   * right sibling, see {@link xxl.core.indexStructures.BPlusTree#setShortestSeparator(Function)
+   * BPlusTree.setShortestSeparator()} and {@link #shortestSeparator(String, String)}.
+   */
+  public static Function<String, String> SHORTEST_SEPARATOR_FUNCTION =
+      new AbstractFunction<String, String>() {
+
+        @Override
+        public String invoke(String lastKey, String firstKey) {
+          return shortestSeparator(lastKey, firstKey);
+        }
+      };
+
+  /**
+   * Returns the shortest string which is not smaller than <code>lastKey</code> and smaller than
+   * <code>firstKey</code>, i.e. the shortest prefix of <code>firstKey</code> distinguishing it
+   * from <code>lastKey</code> or <code>lastKey</code> itself if there is no shorter one (see
+   * "Prefix B-trees", Bayer and Unterauer, ACM TODS 1977).
+   * 
+   * @param lastKey the greater key of the left node
+   * @param firstKey the smallest key of the right node, which has to be greater than
+   *        <code>lastKey</code>
+   * @return the shortest separator value
+   */
+  public static String shortestSeparator(String lastKey, String firstKey) {
+    int common = 0;
+    while (common < lastKey.length() && common < firstKey.length()
+        && lastKey.charAt(common) == firstKey.charAt(common))
+      common++;
+    if (common == lastKey.length() || common + 1 >= firstKey.length()) return lastKey;
+    return firstKey.substring(0, common + 1);
+  }
+
   /**
    * @see xxl.core.indexStructures.Separator#Separator(Comparable)
    */
@@ -23,6 +23,7 @@ package xxl.core.indexStructures.separators;
 import xxl.core.functions.AbstractFunction;
 import xxl.core.functions.Function;
 import xxl.core.indexStructures.Separator;
+import xxl.core.relational.tuples.ColumnComparableArrayTuple;
 import xxl.core.relational.tuples.ColumnComparableTuple;
 import xxl.core.relational.tuples.ComparableTuples;
 
@@ -56,6 +57,37 @@ public class TupleSeparator extends Separator {
         }
       };
 
+  /**
+   * Computes the separator value of a split leaf from its last key and the first key of its new
+   * right sibling, see {@link xxl.core.indexStructures.BPlusTree#setShortestSeparator(Function)
+   * BPlusTree.setShortestSeparator()}. If the keys first differ in a string column, this column is
+   * replaced by its {@link StringSeparator#shortestSeparator(String, String) shortest separator}
+   * and the following string columns are cut to empty strings. Otherwise the last key is returned.
+   */
+  public static Function<ColumnComparableTuple, ColumnComparableTuple> SHORTEST_SEPARATOR_FUNCTION =
+      new AbstractFunction<ColumnComparableTuple, ColumnComparableTuple>() {
+
+        @Override
+        public ColumnComparableTuple invoke(ColumnComparableTuple lastKey,
+            ColumnComparableTuple firstKey) {
+          Comparable[] last = lastKey.toComparableArray();
+          Comparable[] first = firstKey.toComparableArray();
+          for (int i = 0; i < last.length && i < first.length; i++) {
+            if (last[i].compareTo(first[i]) == 0) continue;
+            if (!(last[i] instanceof String)) return lastKey;
+            String separator =
+                StringSeparator.shortestSeparator((String) last[i], (String) first[i]);
+            if (separator.equals(last[i])) return lastKey;
+            Object[] columns = lastKey.toArray();
+            columns[i] = separator;
+            for (int j = i + 1; j < columns.length; j++)
+              if (columns[j] instanceof String) columns[j] = "";
+            return new ColumnComparableArrayTuple(columns);
+          }
+          return lastKey;
+        }
+      };
+
   /**
    * @see xxl.core.indexStructures.Separator#Separator(Comparable)
    */
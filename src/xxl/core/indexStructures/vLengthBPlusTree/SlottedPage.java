@@ -0,0 +1,260 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+package xxl.core.indexStructures.vLengthBPlusTree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import xxl.core.io.converters.Converter;
+import xxl.core.io.converters.ShortConverter;
+import xxl.core.util.WrappingRuntimeException;
+
+/**
+ * The entries of a node stored in the slotted-page format. A slotted page
+ * consists of an offset directory and a heap of variable-length entries. The
+ * directory contains the end offset of every entry in the heap, thus the
+ * entries can be accessed without reading the preceding ones.
+ * <p>
+ * This list keeps the raw heap of the page and decodes an entry only when it is
+ * accessed for the first time. A binary search over the page therefore decodes
+ * a logarithmic number of entries only. Inserting or removing an entry shifts
+ * the directory, the other entries are neither decoded nor encoded. When the
+ * page is written again, the raw bytes of all entries which have not been
+ * accessed are copied; only the accessed (and possibly modified) entries are
+ * encoded.
+ * 
+ * @see VariableLengthBPlusTree.SlottedNodeConverter
+ */
+public class SlottedPage extends AbstractList<Object> implements RandomAccess {
+
+	/**
+	 * The size of a directory entry in bytes.
+	 */
+	public static final int SLOT_SIZE = ShortConverter.SIZE;
+
+	/**
+	 * The raw heap of the page.
+	 */
+	protected byte[] heap;
+
+	/**
+	 * The converter used for decoding and encoding the entries.
+	 */
+	protected Converter converter;
+
+	/**
+	 * The decoded entries. An entry is <code>null</code> as long as it is
+	 * only available in its raw form.
+	 */
+	protected Object[] entries;
+
+	/**
+	 * The start offsets of the raw entries in the heap.
+	 */
+	protected int[] offsets;
+
+	/**
+	 * The lengths of the raw entries in bytes.
+	 */
+	protected int[] lengths;
+
+	/**
+	 * The number of entries.
+	 */
+	protected int size;
+
+	/**
+	 * Creates a slotted page.
+	 * 
+	 * @param heap the raw heap of the page
+	 * @param ends the end offsets of the entries in the heap
+	 * @param number the number of entries
+	 * @param converter the converter used for decoding and encoding the entries
+	 */
+	public SlottedPage(byte[] heap, int[] ends, int number, Converter converter) {
+		this.heap = heap;
+		this.converter = converter;
+		this.size = number;
+		int capacity = Math.max(number, 1)*3/2+1;
+		entries = new Object[capacity];
+		offsets = new int[capacity];
+		lengths = new int[capacity];
+		for (int i = 0, start = 0; i < number; start = ends[i++]) {
+			offsets[i] = start;
+			lengths[i] = ends[i]-start;
+		}
+	}
+
+	/**
+	 * Reads the directory and the heap of a slotted page. The entries are not
+	 * decoded.
+	 * 
+	 * @param input the input the page is read from
+	 * @param number the number of entries of the page
+	 * @param converter the converter used for decoding and encoding the entries
+	 * @return the read page
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static SlottedPage read(DataInput input, int number, Converter converter) throws IOException {
+		int[] ends = new int[number];
+		for (int i = 0; i < number; i++)
+			ends[i] = input.readUnsignedShort();
+		byte[] heap = new byte[number == 0 ? 0 : ends[number-1]];
+		input.readFully(heap);
+		return new SlottedPage(heap, ends, number, converter);
+	}
+
+	/**
+	 * Writes the given entries as a slotted page, i.e. the directory followed
+	 * by the heap. If the entries are a <code>SlottedPage</code>, the raw bytes
+	 * of the entries that have not been decoded are copied.
+	 * 
+	 * @param output the output the page is written to
+	 * @param entries the entries of the page
+	 * @param converter the converter used for encoding the entries
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void write(DataOutput output, List<?> entries, Converter converter) throws IOException {
+		SlottedPage page = entries instanceof SlottedPage ? (SlottedPage)entries : null;
+		ByteArrayOutputStream heap = new ByteArrayOutputStream();
+		DataOutputStream heapOutput = new DataOutputStream(heap);
+		int[] ends = new int[entries.size()];
+		for (int i = 0; i < ends.length; i++) {
+			if (page != null && page.entries[i] == null)
+				heap.write(page.heap, page.offsets[i], page.lengths[i]);
+			else
+				converter.write(heapOutput, entries.get(i));
+			if ((ends[i] = heap.size()) > 0xFFFF)
+				throw new IllegalStateException("The page exceeds the maximal size of a slotted page.");
+		}
+		for (int end : ends)
+			output.writeShort(end);
+		output.write(heap.toByteArray());
+	}
+
+	/**
+	 * Returns the entry at the given position. The entry is decoded if it is
+	 * accessed for the first time.
+	 * 
+	 * @param index the position of the entry
+	 * @return the entry at the given position
+	 */
+	public Object get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		if (entries[index] == null)
+			try {
+				entries[index] = converter.read(new DataInputStream(new ByteArrayInputStream(heap, offsets[index], lengths[index])), null);
+			}
+			catch (IOException e) {
+				throw new WrappingRuntimeException(e);
+			}
+		return entries[index];
+	}
+
+	/**
+	 * Returns the number of entries of the page.
+	 * 
+	 * @return the number of entries of the page
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Replaces the entry at the given position.
+	 * 
+	 * @param index the position of the entry
+	 * @param entry the new entry
+	 * @return the replaced entry
+	 */
+	public Object set(int index, Object entry) {
+		Object old = get(index);
+		entries[index] = entry;
+		return old;
+	}
+
+	/**
+	 * Inserts an entry at the given position. Only the directory is shifted.
+	 * 
+	 * @param index the position of the new entry
+	 * @param entry the new entry
+	 */
+	public void add(int index, Object entry) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		if (entry == null)
+			throw new NullPointerException();
+		if (size == entries.length) {
+			int capacity = size*3/2+1;
+			entries = Arrays.copyOf(entries, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+		System.arraycopy(entries, index, entries, index+1, size-index);
+		System.arraycopy(offsets, index, offsets, index+1, size-index);
+		System.arraycopy(lengths, index, lengths, index+1, size-index);
+		entries[index] = entry;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the entry at the given position. Only the directory is shifted.
+	 * 
+	 * @param index the position of the entry
+	 * @return the removed entry
+	 */
+	public Object remove(int index) {
+		Object old = get(index);
+		removeRange(index, index+1);
+		return old;
+	}
+
+	/**
+	 * Removes the entries in the range [fromIndex, toIndex) without decoding
+	 * them.
+	 * 
+	 * @param fromIndex the position of the first entry to remove
+	 * @param toIndex the position after the last entry to remove
+	 */
+	protected void removeRange(int fromIndex, int toIndex) {
+		System.arraycopy(entries, toIndex, entries, fromIndex, size-toIndex);
+		System.arraycopy(offsets, toIndex, offsets, fromIndex, size-toIndex);
+		System.arraycopy(lengths, toIndex, lengths, fromIndex, size-toIndex);
+		Arrays.fill(entries, size-(toIndex-fromIndex), size, null);
+		size -= toIndex-fromIndex;
+		modCount++;
+	}
+}
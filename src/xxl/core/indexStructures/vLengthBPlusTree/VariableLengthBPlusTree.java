@@ -193,6 +193,12 @@ public class VariableLengthBPlusTree extends Tree {
 	 * Indicates whether a B+Tree can contain Duplicates or not.
 	 */
 	protected boolean duplicate;
+	/**
+	 * Indicates whether the nodes are stored in the slotted-page format.
+	 * 
+	 * @see SlottedNodeConverter
+	 */
+	protected boolean slottedPages;
 	
 	/**
 	 * Creates a new empty B+Tree. Before running B+Tree it should be initialized. Key Duplicates are not allowed. 
@@ -213,10 +219,28 @@ public class VariableLengthBPlusTree extends Tree {
 	 */
 	public VariableLengthBPlusTree(int blockSize, double minAllowedLoad,
 			boolean duplicates) {
+		this(blockSize, minAllowedLoad, duplicates, false);
+	}
+	
+	/**
+	 * Creates a new empty B+Tree. Before running B+Tree it should be initialized. If slotted pages are used, 
+	 * the nodes are stored in the slotted-page format (@see {@link SlottedNodeConverter}). Then a search in a node 
+	 * decodes only the entries visited by the binary search. 
+	 * @see #initialize(IndexEntry, Descriptor, Function, Container, MeasuredConverter, MeasuredConverter, Function, Function, Function, Function, SplitStrategy, UnderflowHandler) 
+	 * @param blockSize
+	 * @param minAllowedLoad
+	 * @param duplicates
+	 * @param slottedPages
+	 */
+	public VariableLengthBPlusTree(int blockSize, double minAllowedLoad,
+			boolean duplicates, boolean slottedPages) {
+		if (slottedPages && blockSize > 0xFFFF)
+			throw new IllegalArgumentException("Slotted pages support blocks of at most 65535 bytes.");
 		this.BLOCK_SIZE = blockSize;
 		this.minAllowedLoadRatio = minAllowedLoad;
 		this.averageLoadRatio = 0.5;
 		this.duplicate = duplicates;
+		this.slottedPages = slottedPages;
 		nodeConverter = createNodeConverter();
 	}
 	
@@ -254,8 +278,7 @@ public class VariableLengthBPlusTree extends Tree {
 		// new code
 		this.containerIdSize = VariableLengthBPlusTree.this.container()
 				.getIdSize();
-		final int maxNodePayLoad = this.BLOCK_SIZE
-				- (2 * IntegerConverter.SIZE + BooleanConverter.SIZE + containerIdSize);
+		final int maxNodePayLoad = this.BLOCK_SIZE - nodeConverter.headerSize();
 		// new code
 		this.averageLoad = (int) ((double) maxNodePayLoad * this.averageLoadRatio);
 		this.minAllowedLoad = (int) ((double) maxNodePayLoad * this.minAllowedLoadRatio);
@@ -342,11 +365,17 @@ public class VariableLengthBPlusTree extends Tree {
 			final Container container, MeasuredConverter keyConverter,
 			MeasuredConverter dataConverter, final Function createSeparator,
 			final Function createKeyRange,
-			final Function<Object, Integer> getActualKeySize,
-			final Function<Object, Integer> getActualEntrySize ) {
+			Function<Object, Integer> getActualKeySize,
+			Function<Object, Integer> getActualEntrySize ) {
+		if (slottedPages) {
+			// every entry occupies a slot of the page directory
+			getActualKeySize = addSlotSize(getActualKeySize);
+			getActualEntrySize = addSlotSize(getActualEntrySize);
+		}
+		final Function<Object, Integer> getActualKeySizeFunction = getActualKeySize;
 		Function<Separator, Integer> getSeparatorSize = new AbstractFunction<Separator, Integer>() {
 			public Integer invoke(Separator sep) {
-				return getActualKeySize.invoke(sep.sepValue());
+				return getActualKeySizeFunction.invoke(sep.sepValue());
 			}
 		};
 		this.splitSt.initialize(getActualEntrySize, getSeparatorSize, getKey,
@@ -368,6 +397,20 @@ public class VariableLengthBPlusTree extends Tree {
 		return this;
 	}
 	
+	/**
+	 * Adds the size of a slot of the page directory to the given size function.
+	 * 
+	 * @param size function which gives the serialized size of a key or an entry
+	 * @return function which gives the size including the slot
+	 */
+	protected Function<Object, Integer> addSlotSize(final Function<Object, Integer> size) {
+		return new AbstractFunction<Object, Integer>() {
+			public Integer invoke(Object o) {
+				return size.invoke(o) + SlottedPage.SLOT_SIZE;
+			}
+		};
+	}
+	
 	/**
 	 * Checks whether the duplicates mode is enabled
 	 * 
@@ -465,7 +508,7 @@ public class VariableLengthBPlusTree extends Tree {
 	 * @return a new <tt>NodeConverter</tt>
 	 */
 	protected NodeConverter createNodeConverter() {
-		return new NodeConverter();
+		return slottedPages ? new SlottedNodeConverter() : new NodeConverter();
 	}
 
 	/**
@@ -2946,6 +2989,17 @@ public class VariableLengthBPlusTree extends Tree {
 	 */
 	public class NodeConverter extends Converter {
 
+		/**
+		 * Gives the number of bytes of a block which are used by the header of
+		 * a <tt>Node</tt>, i.e. its level, the number of entries and the
+		 * reference to the next neighbor.
+		 * 
+		 * @return the size of the header in bytes
+		 */
+		public int headerSize() {
+			return 2 * IntegerConverter.SIZE + BooleanConverter.SIZE + containerIdSize;
+		}
+
 		/**
 		 * Reads a <tt>Node</tt> from the given <tt>DataInput</tt>.
 		 * 
@@ -3165,4 +3219,110 @@ public class VariableLengthBPlusTree extends Tree {
 		}
 
 	}
+
+	/**
+	 * A <tt>NodeConverter</tt> which stores the entries of a <tt>Node</tt> in
+	 * the slotted-page format: the header of the <tt>Node</tt> (including its
+	 * byte load) is followed by an offset directory and a heap of
+	 * variable-length entries. In index nodes an entry consists of the
+	 * separation value followed by the ID of the child.
+	 * <p>
+	 * A read <tt>Node</tt> holds its entries in a {@link SlottedPage}, which
+	 * decodes an entry only when it is accessed. Thus a search in the
+	 * <tt>Node</tt> decodes only the entries visited by the binary search and
+	 * the <tt>Node</tt> is written back without encoding the untouched entries
+	 * again. As all size computations of the tree include the directory, the
+	 * <tt>SplitStrategy</tt> and the <tt>UnderflowHandler</tt> work unchanged.
+	 */
+	public class SlottedNodeConverter extends NodeConverter {
+
+		/**
+		 * Gives the size of the header of a <tt>Node</tt>, which additionally
+		 * contains the byte load of the <tt>Node</tt>.
+		 * 
+		 * @return the size of the header in bytes
+		 */
+		public int headerSize() {
+			return super.headerSize() + IntegerConverter.SIZE;
+		}
+
+		/**
+		 * Reads a <tt>Node</tt> from the given <tt>DataInput</tt>. Only the
+		 * header and the directory are decoded.
+		 * 
+		 * @param dataInput
+		 *            the <tt>DataInput</tt> from which the <tt>Node</tt> has to
+		 *            be read
+		 * @param object
+		 *            is not used
+		 * @return the read <tt>Node</tt>
+		 * @throws IOException
+		 */
+		public Object read(DataInput dataInput, Object object)
+				throws IOException {
+			int level = dataInput.readInt();
+			Node node = (Node) createNode(level);
+			int number = dataInput.readInt();
+			if (dataInput.readBoolean()) {
+				node.nextNeighbor = (IndexEntry) createIndexEntry(level + 1);
+				node.nextNeighbor.initialize(readID(dataInput));
+			} else
+				node.nextNeighbor = null;
+			node.byteLoad = dataInput.readInt();
+			node.entries = SlottedPage.read(dataInput, number, entryConverter(level));
+			return node;
+		}
+
+		/**
+		 * Writes a given <tt>Node</tt> into a given <tt>DataOutput</tt>.
+		 * 
+		 * @param dataOutput
+		 *            the <tt>DataOutput</tt> which the <tt>Node</tt> has to be
+		 *            written to
+		 * @param object
+		 *            the <tt>Node</tt> which has to be written
+		 * @throws IOException
+		 */
+		public void write(DataOutput dataOutput, Object object)
+				throws IOException {
+			Node node = (Node) object;
+			dataOutput.writeInt(node.getLevel());
+			dataOutput.writeInt(node.number());
+			dataOutput.writeBoolean(node.nextNeighbor != null);
+			if (node.nextNeighbor != null)
+				writeID(dataOutput, node.nextNeighbor.id());
+			dataOutput.writeInt(node.byteLoad);
+			SlottedPage.write(dataOutput, node.entries, entryConverter(node.getLevel()));
+		}
+
+		/**
+		 * Gives the <tt>Converter</tt> for the entries of a <tt>Node</tt> on
+		 * the given level. Data objects are converted by the
+		 * <tt>dataConverter</tt>, <tt>IndexEntries</tt> are converted into
+		 * their separation value followed by the ID.
+		 * 
+		 * @param level
+		 *            the level of the <tt>Node</tt>
+		 * @return the <tt>Converter</tt> for the entries
+		 */
+		protected Converter entryConverter(final int level) {
+			if (level == 0)
+				return dataConverter;
+			return new Converter() {
+				public Object read(DataInput input, Object object)
+						throws IOException {
+					Comparable sepValue = (Comparable) keyConverter.read(input, null);
+					IndexEntry indexEntry = readIndexEntry(input, level);
+					indexEntry.initialize(createSeparator(sepValue));
+					return indexEntry;
+				}
+
+				public void write(DataOutput output, Object object)
+						throws IOException {
+					keyConverter.write(output, separator(object).sepValue());
+					writeIndexEntry(output, (IndexEntry) object);
+				}
+			};
+		}
+	}
 }
@@ -0,0 +1,304 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import xxl.core.functions.Function;
+import xxl.core.util.Pair;
+
+/**
+ * This class provides a buffer with the ARC (<i>adaptive replacement
+ * cache</i>) displacement strategy of Megiddo and Modha ("ARC: A
+ * Self-Tuning, Low Overhead Replacement Cache", FAST 2003).
+ *
+ * <p>The resident slots are kept in two LRU lists: <tt>T1</tt> contains the
+ * slots that have been accessed only once since they have been inserted and
+ * <tt>T2</tt> contains the slots that have been accessed at least twice. For
+ * both lists the owners and ids of recently displaced slots are remembered
+ * in the <i>ghost</i> lists <tt>B1</tt> and <tt>B2</tt>. The target size
+ * <tt>p</tt> of <tt>T1</tt> adapts to the workload: a miss on an id
+ * remembered in <tt>B1</tt> increases it and a miss on an id remembered in
+ * <tt>B2</tt> decreases it. A slot is displaced out of <tt>T1</tt> when it
+ * holds more than <tt>p</tt> slots, otherwise out of <tt>T2</tt>. Objects
+ * read only once by a scan stay in <tt>T1</tt> and cannot displace the
+ * frequently accessed slots of <tt>T2</tt>.</p>
+ *
+ * <p>Only requests, i.e. calls of <code>get</code>, count as accesses. An
+ * <code>update</code> inserts a missing slot into <tt>T1</tt>, but it does
+ * not move a resident slot, so that getting and updating an object (and
+ * writing the pages of a scan) is not taken for a re-reference. Fixed slots are never
+ * displaced, i.e. when the least recently used slot of a list is fixed, the
+ * next unfixed slot of the list is chosen.</p>
+ *
+ * @param <O> the type of the objects specifing the owner of a buffer's slot.
+ * @param <I> the type of the identifiers used for identifing the buffer's
+ *        slots.
+ * @param <E> the type of the elements stored by this buffer.
+ * @see LRUBuffer
+ * @see ReplacementPolicy
+ */
+public class ARCBuffer<O, I, E> extends Buffer<O, I, E> {
+
+	/**
+	 * The LRU list of the slots that have been accessed once. The first slot
+	 * of the list is the least recently used one.
+	 */
+	protected LinkedHashSet<Slot> t1 = new LinkedHashSet<Slot>();
+
+	/**
+	 * The LRU list of the slots that have been accessed at least twice. The
+	 * first slot of the list is the least recently used one.
+	 */
+	protected LinkedHashSet<Slot> t2 = new LinkedHashSet<Slot>();
+
+	/**
+	 * The owners and ids of the slots recently displaced out of
+	 * <tt>T1</tt>.
+	 */
+	protected LinkedHashSet<Pair<O, I>> b1 = new LinkedHashSet<Pair<O, I>>();
+
+	/**
+	 * The owners and ids of the slots recently displaced out of
+	 * <tt>T2</tt>.
+	 */
+	protected LinkedHashSet<Pair<O, I>> b2 = new LinkedHashSet<Pair<O, I>>();
+
+	/**
+	 * The adaptive target size of <tt>T1</tt>.
+	 */
+	protected int p = 0;
+
+	/**
+	 * A flag that determines whether the slot currently fixed has been
+	 * remembered in <tt>B2</tt>. It is used when choosing the victim.
+	 */
+	protected boolean missInB2 = false;
+
+	/**
+	 * This class provides a single slot in an ARC buffer. Every slot knows
+	 * the list it is contained in.
+	 */
+	protected class Slot extends Buffer<O, I, E>.Slot {
+
+		/**
+		 * The list containing this slot or <code>null</code> if the slot is
+		 * empty.
+		 */
+		protected LinkedHashSet<Slot> list = null;
+
+		/**
+		 * Constructs a new empty slot with the specified index.
+		 *
+		 * @param index the index of the new slot.
+		 */
+		public Slot(int index) {
+			super(index);
+		}
+
+		/**
+		 * Fixes this slot on behalf of a request.
+		 */
+		public void fix() {
+			fix(true);
+		}
+
+		/**
+		 * Fixes this slot. This implementation also registers the access of
+		 * the slot: a new slot is appended to <tt>T1</tt> or, when it is
+		 * requested and its id is remembered in a ghost list, to
+		 * <tt>T2</tt>. A requested resident slot is moved to the end of
+		 * <tt>T2</tt>. An update of a resident slot leaves it in its list,
+		 * so that getting and updating an object counts as a single access.
+		 *
+		 * @param request <code>true</code> if the slot is fixed by a call of
+		 *        <code>get</code>, <code>false</code> if it is fixed by a
+		 *        call of <code>update</code>.
+		 */
+		protected void fix(boolean request) {
+			super.fix();
+			if (list == null) {
+				Pair<O, I> key = new Pair<O, I>(owner, id);
+				(list = b1.remove(key) | b2.remove(key) && request ? t2 : t1).add(this);
+				trimGhosts();
+			}
+			else if (request) {
+				list.remove(this);
+				(list = t2).add(this);
+			}
+		}
+
+		/**
+		 * Removes the object and any information belonging to it from this
+		 * slot. This implementation also removes the slot out of its list.
+		 */
+		public void remove() {
+			super.remove();
+			if (list != null) {
+				list.remove(this);
+				list = null;
+			}
+		}
+
+		/**
+		 * Displaces this slot. Its owner and id are remembered in the ghost
+		 * list belonging to the list it is contained in.
+		 */
+		public void displace() {
+			if (list != null)
+				(list == t1 ? b1 : b2).add(new Pair<O, I>(owner, id));
+			super.displace();
+			trimGhosts();
+		}
+	}
+
+	/**
+	 * Constructs a new empty ARC buffer with a number of slots specified by
+	 * the given capacity.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 */
+	public ARCBuffer(int capacity, int capacityBytes) {
+		super(capacity, capacityBytes);
+	}
+
+	/**
+	 * Constructs a new empty ARC buffer with a number of slots specified by
+	 * the given capacity.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 */
+	public ARCBuffer(int capacity) {
+		super(capacity);
+	}
+
+	/**
+	 * Creates a new empty slot with the specified index.
+	 *
+	 * @param index the index of the new slot.
+	 * @return a new empty slot with the specified index.
+	 */
+	protected Buffer<O, I, E>.Slot newSlot(int index) {
+		return new Slot(index);
+	}
+
+	/**
+	 * Returns the current target size of <tt>T1</tt>.
+	 *
+	 * @return the target size of the list of slots accessed once.
+	 */
+	public int target() {
+		return p;
+	}
+
+	/**
+	 * Removes the oldest entries of the ghost lists so that
+	 * <tt>|T1|+|B1|</tt> does not exceed the capacity and the size of all
+	 * lists does not exceed twice the capacity.
+	 */
+	protected void trimGhosts() {
+		int c = capacity();
+		for (Iterator<Pair<O, I>> ids = b1.iterator(); t1.size()+b1.size() > c;) {
+			ids.next();
+			ids.remove();
+		}
+		for (Iterator<Pair<O, I>> ids = b2.iterator(); t1.size()+t2.size()+b1.size()+b2.size() > 2*c && ids.hasNext();) {
+			ids.next();
+			ids.remove();
+		}
+	}
+
+	/**
+	 * Fixes the slot with the given id owned by the specified owner and
+	 * returns it. For further detail see contract for
+	 * {@link Buffer#fix(Object, Object, Function, boolean) fix} in Buffer. When the
+	 * slot is requested and not buffered, but its id is remembered in a
+	 * ghost list, this implementation adapts the target size of <tt>T1</tt> before the
+	 * victim is determined.
+	 *
+	 * @param owner the owner of the slot to fix.
+	 * @param id the id of the slot to fix.
+ 	 * @param obtain a function for getting the object, when there is no slot
+ 	 *        the given id owned by the specified owner.
+	 * @param request <code>true</code> if the slot is fixed by a call of
+	 *        <code>get</code>, <code>false</code> if it is fixed by a call of
+	 *        <code>update</code>.
+	 * @return the fixed slot with the given id owned by the specified owner.
+	 * @throws IllegalStateException when the buffer overflows.
+	 */
+	protected Buffer<O, I, E>.Slot fix(O owner, I id, Function<? super I, ? extends E> obtain, boolean request) throws IllegalStateException {
+		if (request && lookUp(owner, id) == null) {
+			Pair<O, I> key = new Pair<O, I>(owner, id);
+			if (b1.contains(key))
+				p = Math.min(capacity(), p + Math.max(b2.size()/b1.size(), 1));
+			else if (b2.contains(key)) {
+				p = Math.max(0, p - Math.max(b1.size()/b2.size(), 1));
+				missInB2 = true;
+			}
+		}
+		try {
+			return super.fix(owner, id, obtain, request);
+		}
+		finally {
+			missInB2 = false;
+		}
+	}
+
+	/**
+	 * Returns the first unfixed slot of the given list.
+	 *
+	 * @param list the list to search.
+	 * @return the first unfixed slot of the list or <code>null</code> if all
+	 *         slots of the list are fixed.
+	 */
+	protected Slot firstUnfixed(LinkedHashSet<Slot> list) {
+		for (Slot slot : list)
+			if (!slot.isFixed())
+				return slot;
+		return null;
+	}
+
+	/**
+	 * Returns the <i>next</i> slot to displace in this buffer. This
+	 * implementation returns the least recently used unfixed slot of
+	 * <tt>T1</tt>, when <tt>T1</tt> exceeds its target size, otherwise the
+	 * least recently used unfixed slot of <tt>T2</tt>. When the chosen list
+	 * contains only fixed slots, the other list is used.
+	 *
+	 * @return the next slot to displace in this buffer.
+	 */
+	protected Buffer<O, I, E>.Slot victim() {
+		Slot slot;
+
+		if (!t1.isEmpty() && (t1.size() > p || (missInB2 && t1.size() == p) || t2.isEmpty()))
+			return (slot = firstUnfixed(t1)) != null ? slot : firstUnfixed(t2);
+		return (slot = firstUnfixed(t2)) != null ? slot : firstUnfixed(t1);
+	}
+}
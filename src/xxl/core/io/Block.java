@@ -31,6 +31,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -284,6 +285,34 @@ public class Block implements Cloneable, SizeAware {
 		return ByteArrayConversions.convLongLE(array, position);
 	}
 
+	/**
+	 * Returns a byte buffer that is a view of this block, i.e. its
+	 * position is 0, its limit and capacity are the size of this block and
+	 * changes of the buffer are visible in this block and vice versa. The
+	 * byte buffer can be read by a {@link ByteBufferDataInput} without
+	 * copying the bytes of this block.
+	 *
+	 * @return a byte buffer that is a view of this block.
+	 * @throws IllegalStateException if this block is already released.
+	 */
+	public ByteBuffer byteBuffer () throws IllegalStateException {
+		if (released)
+			throw new IllegalStateException("Block has already been released.");
+		return ByteBuffer.wrap(array, offset, size).slice();
+	}
+
+	/**
+	 * Returns a block wrapping a byte array with the content of this block.
+	 * Blocks that do not store their bytes in a byte array (see
+	 * {@link ByteBufferBlock}) have to copy them, this implementation
+	 * returns the block itself.
+	 *
+	 * @return a block wrapping a byte array with the content of this block.
+	 */
+	public Block arrayBlock () {
+		return this;
+	}
+
 	/**
 	 * Returns a new output stream that depends on this block. The output
 	 * stream starts writing at index <tt>base</tt> (<i>inclusive</i>) and
@@ -32,8 +32,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import xxl.core.functions.AbstractFunction;
 import xxl.core.functions.Constant;
 import xxl.core.functions.Function;
+import xxl.core.util.metaData.AbstractMetaDataManagement;
+import xxl.core.util.metaData.CompositeMetaData;
+import xxl.core.util.metaData.MetaDataManageable;
+import xxl.core.util.metaData.MetaDataManagement;
 
 /**
  * This class provides a buffer for buffering I/Os in order to increase
@@ -76,7 +81,132 @@ import xxl.core.functions.Function;
  * @see Map
  * @see java.util.Map.Entry
  */
-public abstract class Buffer<O, I, E> {
+public abstract class Buffer<O, I, E> implements MetaDataManageable<Object, Object> {
+
+	/**
+	 * Identifier of the number of requests answered by the buffer.
+	 */
+	public static final String HITS = "HITS";
+
+	/**
+	 * Identifier of the number of requests that had to obtain the
+	 * requested object.
+	 */
+	public static final String MISSES = "MISSES";
+
+	/**
+	 * Identifier of the number of displaced slots.
+	 */
+	public static final String EVICTIONS = "EVICTIONS";
+
+	/**
+	 * Identifier of the number of dirty slots that have been flushed.
+	 */
+	public static final String DIRTY_FLUSHES = "DIRTY_FLUSHES";
+
+	/**
+	 * Identifier of the maximal number of slots that have been fixed at
+	 * the same time.
+	 */
+	public static final String FIXED_SLOTS_HIGH_WATER_MARK = "FIXED_SLOTS_HIGH_WATER_MARK";
+
+	/**
+	 * Identifier of the ratio of the hits to all requests.
+	 */
+	public static final String HIT_RATIO = "HIT_RATIO";
+
+	/**
+	 * All identifiers of the metadata provided by a buffer.
+	 */
+	public static final Object[] IDENTIFIERS = {HITS, MISSES, EVICTIONS, DIRTY_FLUSHES, FIXED_SLOTS_HIGH_WATER_MARK, HIT_RATIO};
+
+	/**
+	 * This class provides the metadata management of a buffer. Including
+	 * one of the identifiers {@link #HITS}, {@link #MISSES},
+	 * {@link #EVICTIONS}, {@link #DIRTY_FLUSHES},
+	 * {@link #FIXED_SLOTS_HIGH_WATER_MARK} or {@link #HIT_RATIO} adds a
+	 * function to the buffer's composite metadata, that delivers the current
+	 * value of the corresponding statistic of the buffer when it is invoked.
+	 */
+	public class BufferMetaDataManagement extends AbstractMetaDataManagement<Object, Object> {
+
+		/**
+		 * Constructs a new metadata management for the buffer.
+		 */
+		public BufferMetaDataManagement() {
+			super();
+		}
+
+		@Override
+		protected boolean addMetaData(Object metaDataIdentifier) {
+			if (metaDataIdentifier.equals(HITS)) {
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object, Long>() {
+					@Override
+					public Long invoke() {
+						return hits();
+					}
+				});
+				return true;
+			}
+			if (metaDataIdentifier.equals(MISSES)) {
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object, Long>() {
+					@Override
+					public Long invoke() {
+						return misses();
+					}
+				});
+				return true;
+			}
+			if (metaDataIdentifier.equals(EVICTIONS)) {
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object, Long>() {
+					@Override
+					public Long invoke() {
+						return evictions();
+					}
+				});
+				return true;
+			}
+			if (metaDataIdentifier.equals(DIRTY_FLUSHES)) {
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object, Long>() {
+					@Override
+					public Long invoke() {
+						return dirtyFlushes();
+					}
+				});
+				return true;
+			}
+			if (metaDataIdentifier.equals(FIXED_SLOTS_HIGH_WATER_MARK)) {
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object, Integer>() {
+					@Override
+					public Integer invoke() {
+						return fixedSlotsHighWaterMark();
+					}
+				});
+				return true;
+			}
+			if (metaDataIdentifier.equals(HIT_RATIO)) {
+				metaData.add(metaDataIdentifier, new AbstractFunction<Object, Double>() {
+					@Override
+					public Double invoke() {
+						return hitRatio();
+					}
+				});
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		protected boolean removeMetaData(Object metaDataIdentifier) {
+			for (Object identifier : IDENTIFIERS)
+				if (metaDataIdentifier.equals(identifier)) {
+					metaData.remove(metaDataIdentifier);
+					return true;
+				}
+			return false;
+		}
+	}
+
 
 	/**
 	 * This class provides a single slot in a buffer.
@@ -205,11 +335,25 @@ public abstract class Buffer<O, I, E> {
 		 * out of the buffer.
 		 */
 		protected void fix() {
-			if (!isFixed())
-				fixedSlots++;
+			if (!isFixed() && ++fixedSlots > fixedSlotsHighWaterMark)
+				fixedSlotsHighWaterMark = fixedSlots;
 			isFixed = true;
 		}
 
+		/**
+		 * Fixes this slot on behalf of a request or an update of its object.
+		 * Displacement strategies that distinguish re-references, like
+		 * {@link ARCBuffer}, only register a request as an access. This
+		 * implementation calls {@link #fix()}.
+		 *
+		 * @param request <code>true</code> if the slot is fixed by a call of
+		 *        <code>get</code>, <code>false</code> if it is fixed by a
+		 *        call of <code>update</code>.
+		 */
+		protected void fix(boolean request) {
+			fix();
+		}
+
 		/**
 		 * Unfixes this slot so that the object contained by it can be removed
 		 * out of the buffer.
@@ -231,6 +375,8 @@ public abstract class Buffer<O, I, E> {
 			if (isDirty()) {
 				flush.invoke(id, object);
 				flush = null;
+				dirtySlots--;
+				dirtyFlushes++;
 			}
 		}
 
@@ -243,6 +389,10 @@ public abstract class Buffer<O, I, E> {
 		 * @param flush the new flush function of this slot.
 		 */
 		protected void update(E object, Function<Object, ?> flush) {
+			if (flush != null && !isDirty())
+				dirtySlots++;
+			else if (flush == null && isDirty())
+				dirtySlots--;
 			this.object = object;
 			this.flush = flush;
 			if (Buffer.this.capacityBytes != Integer.MAX_VALUE)
@@ -294,6 +444,8 @@ public abstract class Buffer<O, I, E> {
 				if (isFixed())
 					fixedSlots--;
 				isFixed = false;
+				if (isDirty())
+					dirtySlots--;
 				flush = null;
 				object = null;
 			}
@@ -306,6 +458,7 @@ public abstract class Buffer<O, I, E> {
 		protected void displace () {
 			flush();
 			remove();
+			evictions++;
 		}
 	}
 
@@ -314,6 +467,45 @@ public abstract class Buffer<O, I, E> {
 	 */
 	protected int fixedSlots = 0;
 
+	/**
+	 * The number of dirty slots in this buffer, i.e. the number of slots
+	 * whose objects have not been flushed yet.
+	 */
+	protected int dirtySlots = 0;
+
+	/**
+	 * The maximal number of slots that have been fixed at the same time.
+	 */
+	protected int fixedSlotsHighWaterMark = 0;
+
+	/**
+	 * The number of calls of <code>get</code> that found the desired object
+	 * in this buffer.
+	 */
+	protected long hits = 0;
+
+	/**
+	 * The number of calls of <code>get</code> that had to obtain the desired
+	 * object, because it was not found in this buffer.
+	 */
+	protected long misses = 0;
+
+	/**
+	 * The number of slots that have been displaced out of this buffer.
+	 */
+	protected long evictions = 0;
+
+	/**
+	 * The number of dirty slots that have been flushed.
+	 */
+	protected long dirtyFlushes = 0;
+
+	/**
+	 * The metadata management of this buffer that publishes the statistics
+	 * of this buffer.
+	 */
+	protected MetaDataManagement<Object, Object> metaDataManagement;
+
 	/**
 	 * The number of slots in this buffer that contain an object.
 	 */
@@ -358,6 +550,7 @@ public abstract class Buffer<O, I, E> {
 		this.slots = new ArrayList<Slot>(capacity);
 		for (int i = 0; i < capacity; i++)
 			slots.add(newSlot(i));
+		createMetaDataManagement();
 	}
 
 	/**
@@ -469,6 +662,7 @@ public abstract class Buffer<O, I, E> {
 	 * slots are fixed), an <code>IllegalStateException</code> will be thrown.
 	 * Otherwise the <i>next</i> slot to displace will be determined by calling
 	 * the victim method and its object will be replaced by the new object.
+	 * Every call is counted as a hit or a miss of this buffer.
 	 *
 	 * @param owner the owner of the slot to fix.
 	 * @param id the id of the slot to fix.
@@ -476,11 +670,36 @@ public abstract class Buffer<O, I, E> {
  	 *        the given id owned by the specified owner.
 	 * @return the fixed slot with the given id owned by the specified owner.
 	 * @throws IllegalStateException when the buffer overflows.
+	 * @see #fix(Object, Object, Function, boolean)
 	 */
 	protected Slot fix(O owner, I id, Function<? super I, ? extends E> obtain) throws IllegalStateException {
+		return fix(owner, id, obtain, true);
+	}
+
+	/**
+	 * Fixes the slot with the given id owned by the specified owner and
+	 * returns it. For further detail see contract for
+	 * {@link #fix(Object, Object, Function) fix}. Only requests, i.e. the
+	 * calls of <code>get</code>, are counted as hits or misses of this
+	 * buffer and the slot is told by {@link Slot#fix(boolean)} whether it
+	 * is fixed by a request.
+	 *
+	 * @param owner the owner of the slot to fix.
+	 * @param id the id of the slot to fix.
+ 	 * @param obtain a function for getting the object, when there is no slot
+ 	 *        the given id owned by the specified owner.
+	 * @param request <code>true</code> if the slot is fixed by a call of
+	 *        <code>get</code>, <code>false</code> if it is fixed by a call of
+	 *        <code>update</code>.
+	 * @return the fixed slot with the given id owned by the specified owner.
+	 * @throws IllegalStateException when the buffer overflows.
+	 */
+	protected Slot fix(O owner, I id, Function<? super I, ? extends E> obtain, boolean request) throws IllegalStateException {
 		Slot slot = lookUp(owner, id);
 		
 		if (slot == null) {
+			if (request)
+				misses++;
 			if (fixedSlots == slots.size())
 				throw new IllegalStateException("Buffer overflow. Too many slots fixed.");
 			// Make space for one new object
@@ -493,14 +712,17 @@ public abstract class Buffer<O, I, E> {
 			
 			// insert the object
 			(slot = slots.get(size())).insert(owner, id, obtain.invoke(id));
-			slot.fix();
+			slot.fix(request);
 			sizeBytes += slot.sizeBytes;
 			// checkBuffer();
 			
 			handleSizeOverflow();
 		}
-		else
-			slot.fix();
+		else {
+			if (request)
+				hits++;
+			slot.fix(request);
+		}
 		
 		// checkBuffer();
 		return slot;
@@ -598,7 +820,8 @@ public abstract class Buffer<O, I, E> {
 	 * fix method with the specified owner, id and obtain function and calls
 	 * the slot's get method thereafter. When
 	 * <code>unfix&nbsp;==&nbsp;true</code>, its unfix method is called at
-	 * last.</p>
+	 * last. Every call is counted as a hit or a miss of this buffer by the
+	 * fix method.</p>
 	 *
 	 * @param owner the owner of the slot containing the object to get.
 	 * @param id the id of the slot containing the object to get.
@@ -633,7 +856,9 @@ public abstract class Buffer<O, I, E> {
 	 * 
 	 * <p>This implementation fixes the desired slot by calling this buffer's
 	 * fix method with the specified owner, id and a constant function that
-	 * always returns the given object, when it is invoked. Thereafter the
+	 * always returns the given object, when it is invoked. An update is no
+	 * request, so it is neither counted as a hit or a miss nor registered
+	 * as a re-reference of the slot. Thereafter the
 	 * slot's update method is called with the specified object and flush
 	 * function. When <code>unfix&nbsp;==&nbsp;true</code>, its unfix method is
 	 * called at last.</p>
@@ -650,7 +875,8 @@ public abstract class Buffer<O, I, E> {
 	 */
 	public void update(O owner, I id, E object, Function<Object, ?> flush, boolean unfix) throws IllegalStateException {
 		// checkBuffer();
-		Slot slot = fix(owner, id, new Constant<E>(object));
+		// updates are not counted as hits or misses
+		Slot slot = fix(owner, id, new Constant<E>(object), false);
 		
 		// remark: The object must not already be inside the slot,
 		// but it can be!
@@ -728,4 +954,120 @@ public abstract class Buffer<O, I, E> {
 	public int fixedSlots() {
 		return fixedSlots;
 	}
+
+	/**
+	 * Returns the number of dirty slots in this buffer, i.e. the number of
+	 * slots whose objects have not been flushed yet.
+	 *
+	 * @return the number of dirty slots in this buffer.
+	 */
+	public int dirtySlots() {
+		return dirtySlots;
+	}
+
+	/**
+	 * Returns the maximal number of slots that have been fixed at the same
+	 * time since this buffer has been created or its statistics have been
+	 * reset.
+	 *
+	 * @return the high-water mark of the fixed slots in this buffer.
+	 */
+	public int fixedSlotsHighWaterMark() {
+		return fixedSlotsHighWaterMark;
+	}
+
+	/**
+	 * Returns the number of calls of <code>get</code> that found the desired
+	 * object in this buffer.
+	 *
+	 * @return the number of hits of this buffer.
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of calls of <code>get</code> that had to obtain the
+	 * desired object, because it was not found in this buffer.
+	 *
+	 * @return the number of misses of this buffer.
+	 */
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the ratio of the hits to all calls of <code>get</code>.
+	 *
+	 * @return the hit ratio of this buffer or <tt>0</tt> if
+	 *         <code>get</code> has not been called yet.
+	 */
+	public double hitRatio() {
+		long hits = hits(), requests = hits+misses();
+
+		return requests == 0 ? 0 : (double)hits/requests;
+	}
+
+	/**
+	 * Returns the number of slots that have been displaced out of this
+	 * buffer.
+	 *
+	 * @return the number of evictions of this buffer.
+	 */
+	public long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of dirty slots that have been flushed, i.e. the
+	 * number of calls of flush functions by this buffer.
+	 *
+	 * @return the number of dirty flushes of this buffer.
+	 */
+	public long dirtyFlushes() {
+		return dirtyFlushes;
+	}
+
+	/**
+	 * Resets the statistics of this buffer, i.e. the numbers of hits,
+	 * misses, evictions and dirty flushes are set to <tt>0</tt> and the
+	 * high-water mark of the fixed slots is set to the current number of
+	 * fixed slots.
+	 */
+	public void resetStatistics() {
+		hits = misses = evictions = dirtyFlushes = 0;
+		fixedSlotsHighWaterMark = fixedSlots;
+	}
+
+	/**
+	 * Creates the metadata management of this buffer. This method is called
+	 * by the constructor.
+	 *
+	 * @throws IllegalStateException if the metadata management has already
+	 *         been created.
+	 */
+	public void createMetaDataManagement() {
+		if (metaDataManagement != null)
+			throw new IllegalStateException("An instance of MetaDataManagement already exists.");
+		metaDataManagement = new BufferMetaDataManagement();
+	}
+
+	/**
+	 * Returns the metadata management of this buffer.
+	 *
+	 * @return the metadata management of this buffer.
+	 */
+	public MetaDataManagement<Object, Object> getMetaDataManagement() {
+		return metaDataManagement;
+	}
+
+	/**
+	 * Returns the metadata of this buffer, i.e. the statistics that have
+	 * been included by the metadata management.
+	 *
+	 * @return the metadata of this buffer.
+	 */
+	public CompositeMetaData<Object, Object> getMetaData() {
+		return metaDataManagement.getMetaData();
+	}
 }
@@ -0,0 +1,329 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This class provides a block that is backed by a
+ * {@link java.nio.ByteBuffer}. The byte buffer may be a heap buffer, a
+ * direct buffer or a region of a memory-mapped file, so that a block can be
+ * read without copying its bytes into a byte array, e.g. by a
+ * {@link ByteBufferDataInput} working on {@link #byteBuffer()}.
+ * <p>
+ * When the byte buffer is backed by an accessible array, the fields
+ * <tt>array</tt>, <tt>offset</tt> and <tt>size</tt> of this block refer to
+ * this array, so the block can be used like any other block. Otherwise
+ * (direct, mapped or read-only buffers) the field <tt>array</tt> is
+ * <code>null</code> and the bytes of the block are only accessible by the
+ * methods of this class. Code that needs the byte array of such a block has
+ * to call {@link #arrayBlock()}, that copies the bytes into a new block
+ * wrapping a byte array.
+ *
+ * @see Block
+ * @see ByteBufferDataInput
+ */
+public class ByteBufferBlock extends Block {
+
+	/**
+	 * An empty byte array used for calling the constructor of the super
+	 * class.
+	 */
+	private static final byte [] EMPTY = new byte [0];
+
+	/**
+	 * The byte buffer containing the bytes of this block. Its position is 0
+	 * and its limit and capacity are the size of this block.
+	 */
+	protected ByteBuffer buffer;
+
+	/**
+	 * A view of the byte buffer using little endian byte ordering that is
+	 * used by the methods reading and writing integers and longs.
+	 */
+	protected ByteBuffer littleEndian;
+
+	/**
+	 * Constructs a new block that contains the remaining bytes of the given
+	 * byte buffer. The bytes are not copied, i.e. changes of the byte
+	 * buffer are visible in this block and vice versa. The position of the
+	 * given byte buffer is not changed.
+	 *
+	 * @param buffer the byte buffer that contains the serialized data of
+	 *        the block.
+	 */
+	public ByteBufferBlock (ByteBuffer buffer) {
+		super(EMPTY, 0, 0);
+		this.buffer = buffer.slice();
+		this.littleEndian = this.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		this.size = this.buffer.capacity();
+		if (this.buffer.hasArray()) {
+			this.array = this.buffer.array();
+			this.offset = this.buffer.arrayOffset();
+		}
+		else
+			this.array = null;
+	}
+
+	/**
+	 * Constructs a new block that contains a number of bytes specified by
+	 * <tt>blockSize</tt>. The bytes are stored in a new direct byte
+	 * buffer.
+	 *
+	 * @param blockSize the number of bytes the block contains.
+	 * @return a new block backed by a direct byte buffer.
+	 */
+	public static ByteBufferBlock allocateDirect (int blockSize) {
+		return new ByteBufferBlock(ByteBuffer.allocateDirect(blockSize));
+	}
+
+	/**
+	 * Returns whether the bytes of this block are stored outside of the
+	 * Java heap, i.e. in a direct or memory-mapped byte buffer.
+	 *
+	 * @return <tt>true</tt> if the byte buffer of this block is direct.
+	 */
+	public boolean isDirect () {
+		return buffer.isDirect();
+	}
+
+	/**
+	 * Checks whether this block is released.
+	 *
+	 * @throws IllegalStateException if this block is already released.
+	 */
+	protected void checkReleased () throws IllegalStateException {
+		if (released)
+			throw new IllegalStateException("Block has already been released.");
+	}
+
+	/**
+	 * Returns a byte buffer that is a view of this block. Its position is 0
+	 * and its limit and capacity are the size of this block.
+	 *
+	 * @return a byte buffer that is a view of this block.
+	 * @throws IllegalStateException if this block is already released.
+	 */
+	public ByteBuffer byteBuffer () throws IllegalStateException {
+		checkReleased();
+		return buffer.duplicate();
+	}
+
+	/**
+	 * Returns a block wrapping a byte array with the content of this block.
+	 * When the byte buffer of this block is backed by an accessible array,
+	 * the block itself is returned, otherwise the bytes are copied.
+	 *
+	 * @return a block wrapping a byte array with the content of this block.
+	 * @throws IllegalStateException if this block is already released.
+	 */
+	public Block arrayBlock () throws IllegalStateException {
+		checkReleased();
+		if (array != null)
+			return this;
+		byte [] copy = new byte [size];
+		buffer.duplicate().get(copy);
+		return new Block(copy, 0, size);
+	}
+
+	/**
+	 * Replaces the byte at the specified index of this block with the
+	 * specified byte and returns the set byte.
+	 *
+	 * @param index the index of the byte that should be set.
+	 * @param b the new value of the byte at index <tt>index</tt>.
+	 * @return the set byte.
+	 * @throws IllegalStateException if this block is already released.
+	 * @throws IndexOutOfBoundsException if the specified index is out of
+	 *         this block's bounds.
+	 */
+	public byte set (int index, byte b) throws IllegalStateException, IndexOutOfBoundsException {
+		checkReleased();
+		buffer.put(index, b);
+		return b;
+	}
+
+	/**
+	 * Returns the byte at the specified index of this block.
+	 *
+	 * @param index position which is retrieved.
+	 * @return the byte at the specified index.
+	 * @throws IllegalStateException if this block is already released.
+	 * @throws IndexOutOfBoundsException if the specified index is out of
+	 *         this block's bounds.
+	 */
+	public byte get (int index) throws IllegalStateException, IndexOutOfBoundsException {
+		checkReleased();
+		return buffer.get(index);
+	}
+
+	/**
+	 * Writes an integer inside the Block to a specified position (little endian).
+	 * @param position write offset
+	 * @param value value to be written
+	 */
+	public void writeInteger (int position, int value) {
+		littleEndian.putInt(position, value);
+	}
+
+	/**
+	 * Reads an integer from a specified position inside the Block (little endian).
+	 * @param position read offset
+	 * @return the integer value
+	 */
+	public int readInteger (int position) {
+		return littleEndian.getInt(position);
+	}
+
+	/**
+	 * Writes a long inside the Block to a specified position (little endian).
+	 * @param position write offset
+	 * @param value value to be written
+	 */
+	public void writeLong (int position, long value) {
+		littleEndian.putLong(position, value);
+	}
+
+	/**
+	 * Reads a long from a specified position inside the Block (little endian).
+	 * @param position read offset
+	 * @return the long value
+	 */
+	public long readLong (int position) {
+		return littleEndian.getLong(position);
+	}
+
+	/**
+	 * Returns a new output stream that writes into the byte buffer of this
+	 * block. The output stream starts writing at index <tt>base</tt>
+	 * (<i>inclusive</i>) and stops at index <tt>end</tt> (<i>exclusive</i>)
+	 * of this block.
+	 *
+	 * @param base the index of this block where the output stream starts
+	 *        writing (<i>inclusive</i>).
+	 * @param end the index of this block where the output stream stops
+	 *        writing (<i>exclusive</i>).
+	 * @return a new output stream, that depends on this block.
+	 */
+	public OutputStream outputStream (final int base, final int end) {
+		final ByteBuffer view = buffer.duplicate();
+
+		view.limit(end).position(base);
+		return new OutputStream() {
+			public final void write (int b) throws IOException {
+				checkReleased();
+				if (!view.hasRemaining())
+					throw new IndexOutOfBoundsException("Index accessed: "+(view.position()+1));
+				view.put((byte)b);
+			}
+
+			public final void write (byte[] b, int off, int len) throws IOException {
+				checkReleased();
+				if (len > view.remaining())
+					throw new IndexOutOfBoundsException("Index accessed: "+(view.position()+len));
+				view.put(b, off, len);
+			}
+		};
+	}
+
+	/**
+	 * Returns a new input stream that reads from the byte buffer of this
+	 * block. The input stream starts reading at index <tt>base</tt>
+	 * (<i>inclusive</i>) and stops at index <tt>end</tt> (<i>exclusive</i>)
+	 * of this block.
+	 *
+	 * @param base the index of this block where the input stream starts
+	 *        reading (<i>inclusive</i>).
+	 * @param end the index of this block where the input stream stops
+	 *        reading (<i>exclusive</i>).
+	 * @return a new input stream, that depends on this block.
+	 */
+	public InputStream inputStream (final int base, final int end) {
+		final ByteBuffer view = buffer.duplicate();
+
+		view.limit(end).position(base);
+		return new InputStream() {
+			public final int read () {
+				checkReleased();
+				return view.hasRemaining() ? view.get()&255 : -1;
+			}
+
+			public final int read (byte[] b, int off, int len) {
+				checkReleased();
+				if (!view.hasRemaining())
+					return len == 0 ? 0 : -1;
+				len = Math.min(len, view.remaining());
+				view.get(b, off, len);
+				return len;
+			}
+
+			public final int available () {
+				return view.remaining();
+			}
+		};
+	}
+
+	/**
+	 * Compresses the block using the zip format.
+	 * @return the compressed block
+	 */
+	public Block compress () {
+		Block block = arrayBlock();
+
+		return block == this ? super.compress() : block.compress();
+	}
+
+	/**
+	 * Returns the hash code of this block.
+	 * @return the hash code
+	 */
+	public int hashCode () {
+		if (size>=5)
+			return readInteger(0) ^ readInteger(size-4);
+		int ret=42;
+		for (int i=0; i<size; i++) {
+			ret <<= 8;
+			ret = ret | get(i);
+		}
+		return ret;
+	}
+
+	/**
+	 * Clones this block. The bytes are copied into a new byte buffer of the
+	 * same kind (heap or direct).
+	 * @return the copy of the block
+	 * @throws CloneNotSupportedException never
+	 */
+	public Object clone () throws CloneNotSupportedException {
+		ByteBuffer copy = buffer.isDirect() ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+		copy.put(buffer.duplicate()).clear();
+		return new ByteBufferBlock(copy);
+	}
+}
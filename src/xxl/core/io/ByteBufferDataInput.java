@@ -92,6 +92,21 @@ public class ByteBufferDataInput implements DataInput {
         this(stream, 8192);
     }
 
+    /**
+     * Creates a new ByteBufferDataInput that reads directly from the
+     * remaining bytes of the given byte buffer, that may be a direct or
+     * a memory-mapped buffer. No bytes are copied and the position of
+     * the given buffer is not changed.
+     *
+     * @param buffer the byte buffer containing the input
+     */
+    public ByteBufferDataInput(ByteBuffer buffer) {
+        this.stream = null;
+        this.arrayBuffer = null;
+        this.buffer = buffer.slice();
+        this.bufferSize = this.buffer.remaining();
+    }
+
     @Override
     public void readFully(byte[] b) throws IOException {
         if (b == null)
@@ -111,7 +126,7 @@ public class ByteBufferDataInput implements DataInput {
             throw new IndexOutOfBoundsException();
         else if (b.length > 0) {
             for (int i = 0; i < len; i++){
-                if (pos >= arrayBuffer.length)
+                if (pos >= (arrayBuffer != null ? arrayBuffer.length : bufferSize))
                     throw new EOFException();
                 else
                     b[off+i] = readByte();
@@ -121,6 +136,12 @@ public class ByteBufferDataInput implements DataInput {
 
     @Override
     public int skipBytes(int n) throws IOException {
+        if (stream == null) {
+            int skipped = Math.min(n, bufferSize - pos);
+            pos += skipped;
+            buffer.position(pos);
+            return skipped;
+        }
         if (arrayBuffer.length - pos >= n)  {
             pos += n;
             return n;
@@ -296,6 +317,12 @@ public class ByteBufferDataInput implements DataInput {
      */
     private boolean ensureBuffer(int bytes, boolean strict) throws IOException {
         if (pos+bytes > bufferSize) {
+            if (stream == null) {
+                // the input is a byte buffer that cannot be refilled
+                if (strict)
+                    throw new EOFException();
+                return false;
+            }
             int offset = bufferSize-pos;
             if (offset > 0) {
                 System.arraycopy(arrayBuffer,pos,arrayBuffer,0,arrayBuffer.length-pos);
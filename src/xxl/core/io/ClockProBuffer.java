@@ -0,0 +1,458 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import xxl.core.util.Pair;
+
+/**
+ * This class provides a buffer with the CLOCK-Pro displacement strategy of
+ * Jiang, Chen and Zhang ("CLOCK-Pro: An Effective Improvement of the CLOCK
+ * Replacement", USENIX 2005).
+ *
+ * <p>The slots are classified as <i>hot</i> or <i>cold</i> and are kept in
+ * a single circular list, the <i>clock</i>, together with the owners and ids
+ * of recently displaced cold slots (<i>non-resident</i> pages). Instead of
+ * moving slots on every access, an access only sets the reference bit of the
+ * slot. A newly inserted slot is cold and enters a <i>test period</i>. When
+ * it is accessed again during its test period, it becomes hot, i.e. only
+ * objects with a short reuse distance can become hot. Three hands sweep over
+ * the clock:</p>
+ * <ul>
+ * <li><tt>handCold</tt> searches for the victim. A referenced cold slot is
+ * promoted to a hot slot (when it is in its test period) or gets a new test
+ * period, an unreferenced cold slot is displaced. When it is still in its
+ * test period, its owner and id stay in the clock as a non-resident
+ * page.</li>
+ * <li><tt>handHot</tt> demotes unreferenced hot slots to cold ones, when
+ * there are too many hot slots, and terminates the test periods it passes
+ * over.</li>
+ * <li><tt>handTest</tt> terminates test periods, when there are too many
+ * non-resident pages.</li>
+ * </ul>
+ * <p>The number of cold slots adapts to the workload: it grows when a
+ * non-resident page is accessed and shrinks when a test period expires
+ * without access. A scan, that accesses every object only once, therefore
+ * only passes through the cold slots and leaves the hot slots in the
+ * buffer.</p>
+ *
+ * <p>Fixed slots are never displaced, they are skipped by
+ * <tt>handCold</tt>.</p>
+ *
+ * @param <O> the type of the objects specifing the owner of a buffer's slot.
+ * @param <I> the type of the identifiers used for identifing the buffer's
+ *        slots.
+ * @param <E> the type of the elements stored by this buffer.
+ * @see LRUBuffer
+ * @see ReplacementPolicy
+ */
+public class ClockProBuffer<O, I, E> extends Buffer<O, I, E> {
+
+	/**
+	 * This class provides a page in the clock. A page is either resident,
+	 * i.e. it belongs to a slot of the buffer, or a non-resident cold page
+	 * in its test period that is identified by an owner and an id.
+	 */
+	protected class Page {
+
+		/**
+		 * The slot of this page or <code>null</code> if the page is
+		 * non-resident.
+		 */
+		protected Slot slot;
+
+		/**
+		 * The owner and id of a non-resident page.
+		 */
+		protected Pair<O, I> key = null;
+
+		/**
+		 * A flag that determines whether this page is hot.
+		 */
+		protected boolean hot = false;
+
+		/**
+		 * The reference bit of this page.
+		 */
+		protected boolean referenced = false;
+
+		/**
+		 * A flag that determines whether this page is in its test period.
+		 */
+		protected boolean test = false;
+
+		/**
+		 * The predecessor of this page in the clock.
+		 */
+		protected Page prev = this;
+
+		/**
+		 * The successor of this page in the clock.
+		 */
+		protected Page next = this;
+
+		/**
+		 * Constructs a new resident page for the given slot.
+		 *
+		 * @param slot the slot of the new page.
+		 */
+		protected Page(Slot slot) {
+			this.slot = slot;
+		}
+	}
+
+	/**
+	 * This class provides a single slot in a CLOCK-Pro buffer. Every
+	 * occupied slot is linked to its page in the clock.
+	 */
+	protected class Slot extends Buffer<O, I, E>.Slot {
+
+		/**
+		 * The page of this slot or <code>null</code> if the slot is empty.
+		 */
+		protected Page page = null;
+
+		/**
+		 * Constructs a new empty slot with the specified index.
+		 *
+		 * @param index the index of the new slot.
+		 */
+		public Slot(int index) {
+			super(index);
+		}
+
+		/**
+		 * Fixes this slot on behalf of a request.
+		 */
+		public void fix() {
+			fix(true);
+		}
+
+		/**
+		 * Fixes this slot. This implementation also registers the access of
+		 * the slot: a new slot is inserted into the clock and the reference
+		 * bit of a requested resident slot is set. An update does not set
+		 * the reference bit, so that getting and updating an object counts
+		 * as a single access.
+		 *
+		 * @param request <code>true</code> if the slot is fixed by a call of
+		 *        <code>get</code>, <code>false</code> if it is fixed by a
+		 *        call of <code>update</code>.
+		 */
+		protected void fix(boolean request) {
+			super.fix();
+			if (page == null)
+				arrive(this, request);
+			else if (request)
+				page.referenced = true;
+		}
+
+		/**
+		 * Removes the object and any information belonging to it from this
+		 * slot. This implementation also removes the page of the slot out of
+		 * the clock.
+		 */
+		public void remove() {
+			super.remove();
+			if (page != null) {
+				if (page.hot)
+					hotPages--;
+				unlink(page);
+				page = null;
+			}
+		}
+
+		/**
+		 * Displaces this slot. When the page of the slot is in its test
+		 * period, it stays in the clock as a non-resident page.
+		 */
+		public void displace() {
+			Page page = this.page;
+
+			if (page.test) {
+				this.page = null;
+				page.slot = null;
+				nonResidentPages.put(page.key = new Pair<O, I>(owner, id), page);
+			}
+			super.displace();
+			while (nonResidentPages.size() > capacity())
+				runHandTest();
+		}
+	}
+
+	/**
+	 * The non-resident pages of the clock identified by their owners and
+	 * ids.
+	 */
+	protected Map<Pair<O, I>, Page> nonResidentPages = new HashMap<Pair<O, I>, Page>();
+
+	/**
+	 * The hand searching for the victim.
+	 */
+	protected Page handCold = null;
+
+	/**
+	 * The hand demoting hot pages. New pages are inserted in front of it.
+	 */
+	protected Page handHot = null;
+
+	/**
+	 * The hand terminating test periods.
+	 */
+	protected Page handTest = null;
+
+	/**
+	 * The number of hot pages in the clock.
+	 */
+	protected int hotPages = 0;
+
+	/**
+	 * The adaptive target number of cold resident slots.
+	 */
+	protected int coldTarget;
+
+	/**
+	 * Constructs a new empty CLOCK-Pro buffer with a number of slots
+	 * specified by the given capacity.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 */
+	public ClockProBuffer(int capacity, int capacityBytes) {
+		super(capacity, capacityBytes);
+		this.coldTarget = Math.max(1, capacity/10);
+	}
+
+	/**
+	 * Constructs a new empty CLOCK-Pro buffer with a number of slots
+	 * specified by the given capacity.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 */
+	public ClockProBuffer(int capacity) {
+		this(capacity, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new empty slot with the specified index.
+	 *
+	 * @param index the index of the new slot.
+	 * @return a new empty slot with the specified index.
+	 */
+	protected Buffer<O, I, E>.Slot newSlot(int index) {
+		return new Slot(index);
+	}
+
+	/**
+	 * Returns the current target number of cold resident slots.
+	 *
+	 * @return the target number of cold resident slots.
+	 */
+	public int coldTarget() {
+		return coldTarget;
+	}
+
+	/**
+	 * Inserts the given page into the clock in front of <tt>handHot</tt>,
+	 * i.e. at the head of the clock.
+	 *
+	 * @param page the page to insert.
+	 */
+	protected void link(Page page) {
+		if (handHot == null) {
+			page.prev = page.next = page;
+			handHot = handCold = handTest = page;
+		}
+		else {
+			page.next = handHot;
+			page.prev = handHot.prev;
+			handHot.prev.next = page;
+			handHot.prev = page;
+		}
+	}
+
+	/**
+	 * Removes the given page out of the clock. Hands pointing to the page
+	 * are moved to its successor.
+	 *
+	 * @param page the page to remove.
+	 */
+	protected void unlink(Page page) {
+		if (page.next == page)
+			handHot = handCold = handTest = null;
+		else {
+			if (handHot == page)
+				handHot = page.next;
+			if (handCold == page)
+				handCold = page.next;
+			if (handTest == page)
+				handTest = page.next;
+			page.prev.next = page.next;
+			page.next.prev = page.prev;
+		}
+		page.prev = page.next = page;
+	}
+
+	/**
+	 * Registers the arrival of the given slot in the buffer. When its owner
+	 * and id belong to a non-resident page and the slot is requested, the
+	 * slot becomes hot and the target number of cold slots is increased.
+	 * Otherwise the slot becomes a cold slot in its test period.
+	 *
+	 * @param slot the newly inserted slot.
+	 * @param request <code>true</code> if the slot is inserted by a call of
+	 *        <code>get</code>, <code>false</code> if it is inserted by a call
+	 *        of <code>update</code>.
+	 */
+	protected void arrive(Slot slot, boolean request) {
+		Page page = nonResidentPages.remove(new Pair<O, I>(slot.owner, slot.id));
+
+		if (page != null && !request) {
+			unlink(page);
+			page = null;
+		}
+		if (page != null) {
+			unlink(page);
+			coldTarget = Math.min(coldTarget+1, Math.max(1, capacity()-1));
+			(slot.page = page).slot = slot;
+			page.key = null;
+			page.hot = true;
+			page.test = false;
+			page.referenced = false;
+			hotPages++;
+			link(page);
+			while (hotPages > capacity()-coldTarget)
+				runHandHot();
+		}
+		else {
+			(slot.page = new Page(slot)).test = true;
+			link(slot.page);
+		}
+	}
+
+	/**
+	 * Terminates the test period of the given cold page. A non-resident page
+	 * is removed out of the clock and the target number of cold slots is
+	 * decreased.
+	 *
+	 * @param page the page whose test period expires.
+	 */
+	protected void terminateTest(Page page) {
+		page.test = false;
+		coldTarget = Math.max(1, coldTarget-1);
+		if (page.slot == null) {
+			nonResidentPages.remove(page.key);
+			unlink(page);
+		}
+	}
+
+	/**
+	 * Moves <tt>handHot</tt> until a hot page has been demoted to a cold
+	 * one. Referenced hot pages lose their reference bit and the test periods
+	 * of the cold pages passed are terminated.
+	 */
+	protected void runHandHot() {
+		while (hotPages > 0) {
+			Page page = handHot;
+
+			handHot = page.next;
+			if (page.hot) {
+				if (page.referenced)
+					page.referenced = false;
+				else {
+					page.hot = false;
+					hotPages--;
+					return;
+				}
+			}
+			else if (page.test)
+				terminateTest(page);
+		}
+	}
+
+	/**
+	 * Moves <tt>handTest</tt> and terminates the test periods of the cold
+	 * pages passed until a non-resident page has been removed.
+	 */
+	protected void runHandTest() {
+		int size = nonResidentPages.size();
+
+		while (nonResidentPages.size() == size) {
+			Page page = handTest;
+
+			handTest = page.next;
+			if (!page.hot && page.test)
+				terminateTest(page);
+		}
+	}
+
+	/**
+	 * Returns the <i>next</i> slot to displace in this buffer. This
+	 * implementation moves <tt>handCold</tt> until an unreferenced, unfixed
+	 * cold slot is found. Referenced cold slots passed are promoted to hot
+	 * slots (during their test period) or start a new test period. When only
+	 * fixed cold slots are left, hot slots are demoted by
+	 * <tt>handHot</tt>.
+	 *
+	 * @return the next slot to displace in this buffer.
+	 */
+	protected Buffer<O, I, E>.Slot victim() {
+		for (int rounds = 0; rounds <= capacity(); rounds++) {
+			for (int steps = 2*(size()+nonResidentPages.size()); steps > 0; steps--) {
+				Page page = handCold;
+
+				handCold = page.next;
+				if (page.hot || page.slot == null || page.slot.isFixed())
+					continue;
+				if (!page.referenced)
+					return page.slot;
+				page.referenced = false;
+				unlink(page);
+				if (page.test) {
+					page.hot = true;
+					page.test = false;
+					hotPages++;
+					link(page);
+					while (hotPages > capacity()-coldTarget)
+						runHandHot();
+				}
+				else {
+					page.test = true;
+					link(page);
+				}
+			}
+			runHandHot();
+		}
+		for (int i = 0; i < size(); i++)
+			if (!slots.get(i).isFixed())
+				return slots.get(i);
+		return null;
+	}
+}
@@ -0,0 +1,331 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.io;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import xxl.core.functions.AbstractFunction;
+import xxl.core.util.metaData.AbstractMetaDataManagement;
+
+/**
+ * This class provides the statistics of a compressing container. It counts
+ * the compressed and decompressed pages and the bytes before and after
+ * compression and maintains a {@link LatencyHistogram latency histogram} of
+ * the time needed for compressing and for decompressing a single page. The
+ * counters are atomic, so that the statistics can be polled while the
+ * container is used by other threads.
+ * <p>
+ * The statistics are published as metadata like the
+ * {@link IOStatistics I/O statistics}: including one of the identifiers
+ * {@link #PAGES_COMPRESSED}, {@link #PAGES_DECOMPRESSED},
+ * {@link #UNCOMPRESSED_BYTES}, {@link #COMPRESSED_BYTES},
+ * {@link #COMPRESSION_RATIO}, {@link #COMPRESSION_LATENCY} or
+ * {@link #DECOMPRESSION_LATENCY} adds a function to the composite metadata
+ * returned by {@link #getMetaData()}, that delivers the current value of the
+ * statistic when it is invoked. The counters are returned as <tt>Long</tt>
+ * objects, the ratio as a <tt>Double</tt> object and the latencies as the
+ * histograms themselves.
+ *
+ * @see xxl.core.collections.containers.io.CompressedContainer
+ * @see LatencyHistogram
+ */
+public class CompressionStatistics extends AbstractMetaDataManagement<Object,Object> {
+
+	/**
+	 * Identifier of the number of compressed pages.
+	 */
+	public static final String PAGES_COMPRESSED = "PAGES_COMPRESSED";
+
+	/**
+	 * Identifier of the number of decompressed pages.
+	 */
+	public static final String PAGES_DECOMPRESSED = "PAGES_DECOMPRESSED";
+
+	/**
+	 * Identifier of the number of bytes of the compressed pages before
+	 * compression.
+	 */
+	public static final String UNCOMPRESSED_BYTES = "UNCOMPRESSED_BYTES";
+
+	/**
+	 * Identifier of the number of bytes of the compressed pages after
+	 * compression.
+	 */
+	public static final String COMPRESSED_BYTES = "COMPRESSED_BYTES";
+
+	/**
+	 * Identifier of the compression ratio.
+	 */
+	public static final String COMPRESSION_RATIO = "COMPRESSION_RATIO";
+
+	/**
+	 * Identifier of the histogram of the compression times per page.
+	 */
+	public static final String COMPRESSION_LATENCY = "COMPRESSION_LATENCY";
+
+	/**
+	 * Identifier of the histogram of the decompression times per page.
+	 */
+	public static final String DECOMPRESSION_LATENCY = "DECOMPRESSION_LATENCY";
+
+	/**
+	 * All identifiers of the metadata provided by compression statistics.
+	 */
+	public static final Object [] IDENTIFIERS = {PAGES_COMPRESSED, PAGES_DECOMPRESSED, UNCOMPRESSED_BYTES, COMPRESSED_BYTES, COMPRESSION_RATIO, COMPRESSION_LATENCY, DECOMPRESSION_LATENCY};
+
+	/**
+	 * The number of compressed pages.
+	 */
+	protected LongAdder pagesCompressed = new LongAdder();
+
+	/**
+	 * The number of decompressed pages.
+	 */
+	protected LongAdder pagesDecompressed = new LongAdder();
+
+	/**
+	 * The number of bytes of the compressed pages before compression.
+	 */
+	protected LongAdder uncompressedBytes = new LongAdder();
+
+	/**
+	 * The number of bytes of the compressed pages after compression.
+	 */
+	protected LongAdder compressedBytes = new LongAdder();
+
+	/**
+	 * The histogram of the compression times.
+	 */
+	protected LatencyHistogram compressionLatency = new LatencyHistogram();
+
+	/**
+	 * The histogram of the decompression times.
+	 */
+	protected LatencyHistogram decompressionLatency = new LatencyHistogram();
+
+	/**
+	 * Constructs new compression statistics with all counters set to
+	 * <tt>0</tt>.
+	 */
+	public CompressionStatistics () {
+		super();
+	}
+
+	/**
+	 * Records the compression of a page.
+	 *
+	 * @param uncompressed the size of the page before compression.
+	 * @param compressed the size of the page after compression.
+	 * @param nanos the time needed for compressing the page in nanoseconds.
+	 */
+	public void compressed (int uncompressed, int compressed, long nanos) {
+		pagesCompressed.increment();
+		uncompressedBytes.add(uncompressed);
+		compressedBytes.add(compressed);
+		compressionLatency.record(nanos);
+	}
+
+	/**
+	 * Records the decompression of a page.
+	 *
+	 * @param nanos the time needed for decompressing the page in
+	 *        nanoseconds.
+	 */
+	public void decompressed (long nanos) {
+		pagesDecompressed.increment();
+		decompressionLatency.record(nanos);
+	}
+
+	/**
+	 * Returns the number of compressed pages.
+	 *
+	 * @return the number of compressed pages.
+	 */
+	public long pagesCompressed () {
+		return pagesCompressed.sum();
+	}
+
+	/**
+	 * Returns the number of decompressed pages.
+	 *
+	 * @return the number of decompressed pages.
+	 */
+	public long pagesDecompressed () {
+		return pagesDecompressed.sum();
+	}
+
+	/**
+	 * Returns the number of bytes of the compressed pages before
+	 * compression.
+	 *
+	 * @return the number of uncompressed bytes.
+	 */
+	public long uncompressedBytes () {
+		return uncompressedBytes.sum();
+	}
+
+	/**
+	 * Returns the number of bytes of the compressed pages after
+	 * compression.
+	 *
+	 * @return the number of compressed bytes.
+	 */
+	public long compressedBytes () {
+		return compressedBytes.sum();
+	}
+
+	/**
+	 * Returns the compression ratio, i.e. the number of uncompressed bytes
+	 * divided by the number of compressed bytes. A ratio of <tt>2</tt>
+	 * means that the pages occupy half of their size after compression. If
+	 * no page has been compressed, <tt>1</tt> is returned.
+	 *
+	 * @return the compression ratio.
+	 */
+	public double compressionRatio () {
+		long compressed = compressedBytes();
+
+		return compressed == 0 ? 1.0 : (double)uncompressedBytes()/compressed;
+	}
+
+	/**
+	 * Returns the histogram of the compression times per page.
+	 *
+	 * @return the histogram of the compression times.
+	 */
+	public LatencyHistogram compressionLatency () {
+		return compressionLatency;
+	}
+
+	/**
+	 * Returns the histogram of the decompression times per page.
+	 *
+	 * @return the histogram of the decompression times.
+	 */
+	public LatencyHistogram decompressionLatency () {
+		return decompressionLatency;
+	}
+
+	/**
+	 * Resets all counters and histograms.
+	 */
+	public void reset () {
+		pagesCompressed.reset();
+		pagesDecompressed.reset();
+		uncompressedBytes.reset();
+		compressedBytes.reset();
+		compressionLatency.reset();
+		decompressionLatency.reset();
+	}
+
+	@Override
+	protected boolean addMetaData (Object metaDataIdentifier) {
+		if (metaDataIdentifier.equals(PAGES_COMPRESSED)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return pagesCompressed();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(PAGES_DECOMPRESSED)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return pagesDecompressed();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(UNCOMPRESSED_BYTES)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return uncompressedBytes();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(COMPRESSED_BYTES)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return compressedBytes();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(COMPRESSION_RATIO)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Double>() {
+				@Override
+				public Double invoke() {
+					return compressionRatio();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(COMPRESSION_LATENCY)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,LatencyHistogram>() {
+				@Override
+				public LatencyHistogram invoke() {
+					return compressionLatency();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(DECOMPRESSION_LATENCY)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,LatencyHistogram>() {
+				@Override
+				public LatencyHistogram invoke() {
+					return decompressionLatency();
+				}
+			});
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean removeMetaData (Object metaDataIdentifier) {
+		for (Object identifier : IDENTIFIERS)
+			if (metaDataIdentifier.equals(identifier)) {
+				metaData.remove(metaDataIdentifier);
+				return true;
+			}
+		return false;
+	}
+
+	/**
+	 * Returns a string representation of these statistics.
+	 *
+	 * @return a string representation of these statistics.
+	 */
+	public String toString () {
+		return "compressed="+pagesCompressed()+" (ratio "+compressionRatio()+", "+compressionLatency+"), decompressed="+pagesDecompressed()+" ("+decompressionLatency+")";
+	}
+}
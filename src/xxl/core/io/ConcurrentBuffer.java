@@ -0,0 +1,844 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.functions.Functional.UnaryFunction;
+
+/**
+ * This class provides a thread-safe buffer that can be accessed by many
+ * threads at once.
+ *
+ * <p>The slots of the buffer are hash-partitioned into a number of
+ * <i>stripes</i>. Every stripe is an ordinary (unsynchronized) buffer with
+ * its own slot table, owner map and displacement strategy, that is guarded
+ * by a lock of its own. A slot identified by an owner and an id always lives
+ * in the stripe determined by the hash codes of the owner and the id.
+ * Therefore threads accessing different slots normally do not block each
+ * other and only threads accessing the same stripe are serialized. Each
+ * stripe displaces its own slots when it is full, i.e. the eviction is done
+ * per stripe and the capacity of the buffer is divided among the
+ * stripes.</p>
+ *
+ * <p>In contrast to the other buffers, the slots of a concurrent buffer are
+ * fixed by a pin count: every call of <code>get</code> or
+ * <code>update</code> with <code>unfix&nbsp;==&nbsp;false</code> pins the
+ * slot once and every call of <code>unfix</code> releases a single pin. The
+ * slot can only be displaced when no pins are left. This way a thread
+ * unfixing a slot cannot release a slot that is still fixed by another
+ * thread. The pin counts are modified while holding the stripe's lock, so
+ * fixing and unfixing a slot is atomic.</p>
+ *
+ * <p>The contract of the methods <code>get</code>, <code>update</code>,
+ * <code>flush</code> etc. is the same as in {@link Buffer}, so that this
+ * buffer can be used by a {@link xxl.core.collections.containers.io.BufferedContainer}
+ * and all trees built on it. Note that objects that are not buffered are
+ * obtained (and displaced objects are flushed) while the lock of the
+ * corresponding stripe is held. When the buffered container is shared by
+ * many threads, the underlying container must be thread-safe, e.g. by
+ * wrapping it (and not the buffered container) into a
+ * {@link xxl.core.collections.containers.SynchronizedContainer}. Then only
+ * buffer misses are serialized.</p>
+ *
+ * <p>Example usage (1).
+ * <pre>
+ *     // create a concurrent buffer with 1000 slots in 16 LRU stripes
+ *
+ *     ConcurrentBuffer buffer = new ConcurrentBuffer(1000, 16);
+ *
+ *     // use it for buffering a synchronized block file container
+ *
+ *     Container container = new BufferedContainer(
+ *         new SynchronizedContainer(new BlockFileContainer("test", 4096)),
+ *         buffer
+ *     );
+ * </pre>
+ *
+ * @param <O> the type of the objects specifing the owner of a buffer's slot.
+ * @param <I> the type of the identifiers used for identifing the buffer's
+ *        slots.
+ * @param <E> the type of the elements stored by this buffer.
+ * @see LRUBuffer
+ * @see ReentrantLock
+ */
+public class ConcurrentBuffer<O, I, E> extends Buffer<O, I, E> {
+
+	/**
+	 * This class provides a single stripe of a concurrent buffer. A stripe
+	 * consists of an ordinary buffer, a lock guarding it and the pin counts
+	 * of the slots that are fixed in the buffer.
+	 */
+	protected class Stripe {
+
+		/**
+		 * The buffer holding the slots of this stripe.
+		 */
+		protected Buffer<O, I, E> buffer;
+
+		/**
+		 * The lock guarding the buffer and the pin counts of this stripe.
+		 */
+		protected ReentrantLock lock = new ReentrantLock();
+
+		/**
+		 * A map that contains the owners and the pin counts of their fixed
+		 * slots in this stripe. The owners are mapped to maps that map the
+		 * ids of the fixed slots to their pin counts.
+		 */
+		protected Map<O, Map<I, int[]>> pins = new HashMap<O, Map<I, int[]>>();
+
+		/**
+		 * Constructs a new stripe that uses the given buffer for storing its
+		 * slots.
+		 *
+		 * @param buffer the buffer holding the slots of the new stripe.
+		 */
+		protected Stripe(Buffer<O, I, E> buffer) {
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Increments the pin count of the slot with the given id owned by
+		 * the specified owner.
+		 *
+		 * @param owner the owner of the slot to pin.
+		 * @param id the id of the slot to pin.
+		 */
+		protected void pin(O owner, I id) {
+			Map<I, int[]> members = pins.get(owner);
+			int[] count;
+
+			if (members == null)
+				pins.put(owner, members = new HashMap<I, int[]>());
+			if ((count = members.get(id)) == null)
+				members.put(id, count = new int[1]);
+			count[0]++;
+		}
+
+		/**
+		 * Decrements the pin count of the slot with the given id owned by
+		 * the specified owner and returns whether the slot is not pinned any
+		 * longer.
+		 *
+		 * @param owner the owner of the slot to unpin.
+		 * @param id the id of the slot to unpin.
+		 * @return <code>true</code> if the slot is not pinned any longer,
+		 *         else returns <code>false</code>.
+		 */
+		protected boolean unpin(O owner, I id) {
+			Map<I, int[]> members = pins.get(owner);
+			int[] count = members == null ? null : members.get(id);
+
+			if (count == null)
+				return true;
+			if (--count[0] > 0)
+				return false;
+			members.remove(id);
+			if (members.isEmpty())
+				pins.remove(owner);
+			return true;
+		}
+
+		/**
+		 * Returns whether the slot with the given id owned by the specified
+		 * owner is pinned.
+		 *
+		 * @param owner the owner of the desired slot.
+		 * @param id the id of the desired slot.
+		 * @return <code>true</code> if the slot is pinned, else returns
+		 *         <code>false</code>.
+		 */
+		protected boolean isPinned(O owner, I id) {
+			Map<I, int[]> members = pins.get(owner);
+
+			return members != null && members.containsKey(id);
+		}
+
+		/**
+		 * Removes the pin count of the slot with the given id owned by the
+		 * specified owner.
+		 *
+		 * @param owner the owner of the slot.
+		 * @param id the id of the slot.
+		 */
+		protected void clearPins(O owner, I id) {
+			Map<I, int[]> members = pins.get(owner);
+
+			if (members != null) {
+				members.remove(id);
+				if (members.isEmpty())
+					pins.remove(owner);
+			}
+		}
+	}
+
+	/**
+	 * The stripes of this buffer. The number of stripes is always a power of
+	 * two.
+	 */
+	protected Stripe[] stripes;
+
+	/**
+	 * The bit mask used for mapping a hash code to the index of a stripe.
+	 */
+	protected int mask;
+
+	/**
+	 * Constructs a new empty concurrent buffer with the specified capacity
+	 * that is divided into the given number of stripes. The stripes are
+	 * created by invoking the given factory with the number of slots of
+	 * the stripe and the number of bytes that can be stored in the stripe.
+	 * When the given number of stripes is not a power of two, the next
+	 * greater power of two is used.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 * @param stripes the number of stripes of the new buffer.
+	 * @param newBuffer a factory that creates the buffer of a stripe, when
+	 *        it is invoked with the capacity of the stripe (in slots) and
+	 *        the capacity of the stripe in bytes.
+	 * @throws IllegalArgumentException if the capacity is lower than the
+	 *         number of stripes.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentBuffer(int capacity, int capacityBytes, int stripes, Function<Integer, ? extends Buffer<O, I, E>> newBuffer) throws IllegalArgumentException {
+		super(0, capacityBytes);
+		int n = 1;
+		while (n < stripes)
+			n <<= 1;
+		if (capacity < n)
+			throw new IllegalArgumentException("The capacity of the buffer must not be lower than the number of stripes.");
+
+		this.stripes = (Stripe[])new ConcurrentBuffer.Stripe[n];
+		this.mask = n-1;
+		for (int i = 0; i < n; i++)
+			this.stripes[i] = new Stripe(newBuffer.invoke(
+				capacity/n + (i < capacity%n ? 1 : 0),
+				capacityBytes == Integer.MAX_VALUE ? Integer.MAX_VALUE : capacityBytes/n
+			));
+	}
+
+	/**
+	 * Constructs a new empty concurrent buffer with the specified capacity
+	 * that is divided into the given number of stripes. Every stripe is
+	 * created by invoking the given factory with its number of slots.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param stripes the number of stripes of the new buffer.
+	 * @param newBuffer a factory that creates the buffer of a stripe, when
+	 *        it is invoked with the capacity of the stripe.
+	 */
+	public ConcurrentBuffer(int capacity, int stripes, final UnaryFunction<Integer, ? extends Buffer<O, I, E>> newBuffer) {
+		this(capacity, Integer.MAX_VALUE, stripes,
+			new AbstractFunction<Integer, Buffer<O, I, E>>() {
+				public Buffer<O, I, E> invoke(Integer capacity, Integer capacityBytes) {
+					return newBuffer.invoke(capacity);
+				}
+			}
+		);
+	}
+
+	/**
+	 * Constructs a new empty concurrent buffer with the specified capacity
+	 * that is divided into the given number of stripes. Every stripe uses
+	 * the given displacement strategy.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 * @param stripes the number of stripes of the new buffer.
+	 * @param policy the displacement strategy of the stripes.
+	 */
+	public ConcurrentBuffer(int capacity, int capacityBytes, int stripes, final ReplacementPolicy policy) {
+		this(capacity, capacityBytes, stripes,
+			new AbstractFunction<Integer, Buffer<O, I, E>>() {
+				public Buffer<O, I, E> invoke(Integer capacity, Integer capacityBytes) {
+					return policy.newBuffer(capacity, capacityBytes);
+				}
+			}
+		);
+	}
+
+	/**
+	 * Constructs a new empty concurrent buffer with the specified capacity
+	 * that is divided into the given number of stripes. Every stripe is
+	 * a {@link LRUBuffer}.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param stripes the number of stripes of the new buffer.
+	 */
+	public ConcurrentBuffer(int capacity, int stripes) {
+		this(capacity, Integer.MAX_VALUE, stripes, ReplacementPolicy.LRU);
+	}
+
+	/**
+	 * Constructs a new empty concurrent buffer with the specified capacity.
+	 * The number of stripes is four times the number of available
+	 * processors, but at most the capacity of the buffer. Every stripe is a
+	 * {@link LRUBuffer}.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 */
+	public ConcurrentBuffer(int capacity) {
+		this(capacity, Math.min(Integer.highestOneBit(capacity), 4*Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Returns the stripe that contains the slot with the given id owned by
+	 * the specified owner.
+	 *
+	 * @param owner the owner of the slot.
+	 * @param id the id of the slot.
+	 * @return the stripe responsible for the slot.
+	 */
+	protected Stripe stripe(O owner, I id) {
+		int h = 31*owner.hashCode() + id.hashCode();
+
+		h ^= (h >>> 16);
+		return stripes[h & mask];
+	}
+
+	/**
+	 * Returns the <i>next</i> slot to displace in this buffer. Every stripe
+	 * displaces its own slots, so this implementation returns the victim of
+	 * the stripe that contains the most objects.
+	 *
+	 * @return the next slot to displace in this buffer.
+	 */
+	protected Slot victim() {
+		Stripe fullest = stripes[0];
+		int size = -1;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				if (stripe.buffer.size() > size) {
+					size = stripe.buffer.size();
+					fullest = stripe;
+				}
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		fullest.lock.lock();
+		try {
+			return fullest.buffer.victim();
+		}
+		finally {
+			fullest.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the slot with the given id owned by the specified owner. This
+	 * implementation looks the slot up in the stripe responsible for it.
+	 *
+	 * @param owner the owner of the desired slot.
+	 * @param id the id of the desired slot.
+	 * @return the slot with the given id owned by the specified owner or
+	 *         <code>null</code> if the stripe contains no such slot.
+	 */
+	protected Slot lookUp(O owner, I id) {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			return stripe.buffer.lookUp(owner, id);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Fixes the slot with the given id owned by the specified owner in the
+	 * stripe responsible for it and returns it. For further detail see
+	 * contract for {@link Buffer#fix(Object, Object, Function, boolean) fix}
+	 * in Buffer. The slot is pinned once, so it has to be released by a
+	 * call of <code>unfix</code>.
+	 *
+	 * @param owner the owner of the slot to fix.
+	 * @param id the id of the slot to fix.
+ 	 * @param obtain a function for getting the object, when there is no slot
+ 	 *        the given id owned by the specified owner.
+	 * @param request <code>true</code> if the slot is fixed by a call of
+	 *        <code>get</code>, <code>false</code> if it is fixed by a call of
+	 *        <code>update</code>.
+	 * @return the fixed slot with the given id owned by the specified owner.
+	 * @throws IllegalStateException when the stripe of the slot overflows.
+	 */
+	protected Slot fix(O owner, I id, Function<? super I, ? extends E> obtain, boolean request) throws IllegalStateException {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			Slot slot = stripe.buffer.fix(owner, id, obtain, request);
+			stripe.pin(owner, id);
+			return slot;
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of slots in this buffer that contain an object.
+	 *
+	 * @return the number of occupied slots in this buffer.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				size += stripe.buffer.size();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the capacity of this buffer.
+	 *
+	 * @return the maximal number of slots this buffer can contain.
+	 */
+	public int capacity() {
+		int capacity = 0;
+		for (Stripe stripe : stripes)
+			capacity += stripe.buffer.capacity();
+		return capacity;
+	}
+
+	/**
+	 * Returns the number bytes used in this buffer.
+	 *
+	 * @return the number of occupied space in bytes in this buffer.
+	 */
+	public int bytesUsed() {
+		int bytes = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				bytes += stripe.buffer.bytesUsed();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of fixed slots in this buffer.
+	 *
+	 * @return the number of fixed slots in this buffer.
+	 */
+	public int fixedSlots() {
+		int fixedSlots = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				fixedSlots += stripe.buffer.fixedSlots();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return fixedSlots;
+	}
+
+	/**
+	 * Returns the number of dirty slots in this buffer.
+	 *
+	 * @return the number of dirty slots in this buffer.
+	 */
+	public int dirtySlots() {
+		int dirtySlots = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				dirtySlots += stripe.buffer.dirtySlots();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return dirtySlots;
+	}
+
+	/**
+	 * Returns the number of hits of this buffer, i.e. the sum of the hits
+	 * of its stripes.
+	 *
+	 * @return the number of hits of this buffer.
+	 */
+	public long hits() {
+		long hits = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				hits += stripe.buffer.hits();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Returns the number of misses of this buffer, i.e. the sum of the
+	 * misses of its stripes.
+	 *
+	 * @return the number of misses of this buffer.
+	 */
+	public long misses() {
+		long misses = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				misses += stripe.buffer.misses();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return misses;
+	}
+
+	/**
+	 * Returns the number of slots that have been displaced out of the
+	 * stripes of this buffer.
+	 *
+	 * @return the number of evictions of this buffer.
+	 */
+	public long evictions() {
+		long evictions = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				evictions += stripe.buffer.evictions();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of dirty slots of the stripes of this buffer that
+	 * have been flushed.
+	 *
+	 * @return the number of dirty flushes of this buffer.
+	 */
+	public long dirtyFlushes() {
+		long dirtyFlushes = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				dirtyFlushes += stripe.buffer.dirtyFlushes();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return dirtyFlushes;
+	}
+
+	/**
+	 * Returns the sum of the high-water marks of the fixed slots of the
+	 * stripes. Because the stripes need not reach their high-water marks at
+	 * the same time, this is an upper bound of the number of slots that have
+	 * been fixed at the same time.
+	 *
+	 * @return an upper bound of the high-water mark of the fixed slots in this
+	 *         buffer.
+	 */
+	public int fixedSlotsHighWaterMark() {
+		int fixedSlotsHighWaterMark = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				fixedSlotsHighWaterMark += stripe.buffer.fixedSlotsHighWaterMark();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+		return fixedSlotsHighWaterMark;
+	}
+
+	/**
+	 * Resets the statistics of all stripes of this buffer.
+	 */
+	public void resetStatistics() {
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.buffer.resetStatistics();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of stripes of this buffer.
+	 *
+	 * @return the number of stripes of this buffer.
+	 */
+	public int stripes() {
+		return stripes.length;
+	}
+
+	/**
+	 * Releases a single pin of the slot with the given id owned by the
+	 * specified owner. The slot is unfixed when no pins are left.
+	 *
+	 * @param owner the owner of the slot to unfix.
+	 * @param id the id of the slot to unfix.
+	 */
+	public void unfix(O owner, I id) {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			if (stripe.unpin(owner, id))
+				stripe.buffer.unfix(owner, id);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns whether this buffer contains a slot with the given id owned by
+	 * the specified owner.
+	 *
+	 * @param owner the owner of the desired slot.
+	 * @param id the id of the desired slot.
+	 * @return <code>true</code> if this buffer contains a slot with the given
+	 *         id owned by the specified owner, else returns
+	 *         <code>false</code>.
+	 */
+	public boolean contains(O owner, I id) {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			return stripe.buffer.contains(owner, id);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns whether the slot with the given id owned by the specified owner
+	 * is fixed or not.
+	 *
+	 * @param owner the owner of the desired slot.
+	 * @param id the id of the desired slot.
+	 * @return <code>true</code> if the slot with the given id owned by the
+	 *         specified owner is fixed, else returns <code>false</code>.
+	 */
+	public boolean isFixed(O owner, I id) {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			return stripe.buffer.isFixed(owner, id);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Flushes the slot with the given id owned by the specified owner.
+	 *
+	 * @param owner the owner of the slot to flush.
+	 * @param id the id of the slot to flush.
+	 */
+	public void flush(O owner, I id) {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			stripe.buffer.flush(owner, id);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Flushes all slots in this buffer that are owned by the specified owner.
+	 * This implementation flushes the slots of one stripe after the other.
+	 *
+	 * @param owner the owner of the slots to flush.
+	 */
+	public void flushAll(O owner) {
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.buffer.flushAll(owner);
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Returns the object contained by the slot with the given id owned by the
+	 * specified owner. For further detail see contract for
+	 * {@link Buffer#get(Object, Object, Function, boolean) get} in Buffer.
+	 * When <code>unfix&nbsp;==&nbsp;false</code> the slot is pinned once
+	 * more, otherwise it is only unfixed when it is not pinned by another
+	 * call.
+	 *
+	 * @param owner the owner of the slot containing the object to get.
+	 * @param id the id of the slot containing the object to get.
+	 * @param obtain a function for creating a new object, when there is no
+	 *        slot the the given id owned by the specified owner.
+	 * @param unfix a flag that determines whether the desired slot should be
+	 *        unfixed after getting its object or not.
+	 * @return the object contained by the slot with the given id owned by the
+	 *         specified owner.
+	 * @throws IllegalStateException when the stripe of the slot overflows.
+	 */
+	public E get(O owner, I id, Function<? super I, ? extends E> obtain, boolean unfix) throws IllegalStateException {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			if (unfix)
+				return stripe.buffer.get(owner, id, obtain, !stripe.isPinned(owner, id));
+			E object = stripe.buffer.get(owner, id, obtain, false);
+			stripe.pin(owner, id);
+			return object;
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Updates the slot with the given id owned by the specified owner with the
+	 * specifed object and flush function. For further detail see contract
+	 * for {@link Buffer#update(Object, Object, Object, Function, boolean) update}
+	 * in Buffer. When <code>unfix&nbsp;==&nbsp;false</code> the slot is
+	 * pinned once more, otherwise it is only unfixed when it is not pinned
+	 * by another call.
+	 *
+	 * @param owner the owner of the slot to update.
+	 * @param id the id of the slot to update.
+	 * @param object the object that replaces the object contained by the
+	 *        desired slot.
+	 * @param flush the function that replaces the flush function of the
+	 *        desired slot.
+	 * @param unfix a flag that determines whether the desired slot should be
+	 *        unfixed after updating it or not.
+	 * @throws IllegalStateException when the stripe of the slot overflows.
+	 */
+	public void update(O owner, I id, E object, Function<Object, ?> flush, boolean unfix) throws IllegalStateException {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			if (unfix)
+				stripe.buffer.update(owner, id, object, flush, !stripe.isPinned(owner, id));
+			else {
+				stripe.buffer.update(owner, id, object, flush, false);
+				stripe.pin(owner, id);
+			}
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the object and any information belonging to it from the slot
+	 * with the given id owned by the specified owner. All pins of the slot
+	 * are released.
+	 *
+	 * @param owner the owner of the slot to remove.
+	 * @param id the id of the slot to remove.
+	 */
+	public void remove(O owner, I id) {
+		Stripe stripe = stripe(owner, id);
+		stripe.lock.lock();
+		try {
+			stripe.buffer.remove(owner, id);
+			stripe.clearPins(owner, id);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the objects and any information belonging to them from all slots
+	 * in this buffer that are owned by the specified owner.
+	 *
+	 * @param owner the owner of the slots to remove.
+	 */
+	public void removeAll(O owner) {
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.buffer.removeAll(owner);
+				stripe.pins.remove(owner);
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Checks wheather aggregated values are still correct inside the
+	 * structures of the stripes (sizes).
+	 */
+	public void checkBuffer() {
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.buffer.checkBuffer();
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,309 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.io;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import xxl.core.functions.AbstractFunction;
+import xxl.core.util.metaData.AbstractMetaDataManagement;
+
+/**
+ * This class provides the I/O statistics of a file based container or
+ * another object performing I/Os. It counts the read and write operations
+ * and the bytes transferred by them and maintains a
+ * {@link LatencyHistogram latency histogram} for each kind of operation.
+ * An operation is the transfer of a single block, whereas a latency is
+ * measured for every call that performs I/O, i.e. a vectored read of many
+ * blocks increases the number of reads by the number of blocks, but records
+ * a single latency only. The counters are atomic, so that the statistics can
+ * be polled while the container is used by other threads.
+ * <p>
+ * The statistics are published as metadata: including one of the
+ * identifiers {@link #READS}, {@link #BYTES_READ}, {@link #WRITES},
+ * {@link #BYTES_WRITTEN}, {@link #READ_LATENCY} or {@link #WRITE_LATENCY}
+ * adds a function to the composite metadata returned by
+ * {@link #getMetaData()}, that delivers the current value of the statistic
+ * when it is invoked. The counters are returned as <tt>Long</tt> objects and
+ * the latencies as the histograms themselves.
+ * <p>
+ * Example usage (1).
+ * <pre>
+ *     BlockFileContainer container = new BlockFileContainer("test", 4096);
+ *     container.getMetaDataManagement().includeAll(IOStatistics.IDENTIFIERS);
+ *     ...
+ *     Function reads = (Function)container.getMetaData().get(IOStatistics.READS);
+ *     System.out.println(reads.invoke());
+ * </pre>
+ *
+ * @see IOCounter
+ * @see LatencyHistogram
+ * @see xxl.core.util.metaData.MetaDataManageable
+ */
+public class IOStatistics extends AbstractMetaDataManagement<Object,Object> {
+
+	/**
+	 * Identifier of the number of blocks read.
+	 */
+	public static final String READS = "READS";
+
+	/**
+	 * Identifier of the number of bytes read.
+	 */
+	public static final String BYTES_READ = "BYTES_READ";
+
+	/**
+	 * Identifier of the number of blocks written.
+	 */
+	public static final String WRITES = "WRITES";
+
+	/**
+	 * Identifier of the number of bytes written.
+	 */
+	public static final String BYTES_WRITTEN = "BYTES_WRITTEN";
+
+	/**
+	 * Identifier of the histogram of the read latencies.
+	 */
+	public static final String READ_LATENCY = "READ_LATENCY";
+
+	/**
+	 * Identifier of the histogram of the write latencies.
+	 */
+	public static final String WRITE_LATENCY = "WRITE_LATENCY";
+
+	/**
+	 * All identifiers of the metadata provided by I/O statistics.
+	 */
+	public static final Object [] IDENTIFIERS = {READS, BYTES_READ, WRITES, BYTES_WRITTEN, READ_LATENCY, WRITE_LATENCY};
+
+	/**
+	 * The number of blocks read.
+	 */
+	protected LongAdder reads = new LongAdder();
+
+	/**
+	 * The number of bytes read.
+	 */
+	protected LongAdder bytesRead = new LongAdder();
+
+	/**
+	 * The number of blocks written.
+	 */
+	protected LongAdder writes = new LongAdder();
+
+	/**
+	 * The number of bytes written.
+	 */
+	protected LongAdder bytesWritten = new LongAdder();
+
+	/**
+	 * The histogram of the read latencies.
+	 */
+	protected LatencyHistogram readLatency = new LatencyHistogram();
+
+	/**
+	 * The histogram of the write latencies.
+	 */
+	protected LatencyHistogram writeLatency = new LatencyHistogram();
+
+	/**
+	 * Constructs new I/O statistics with all counters set to <tt>0</tt>.
+	 */
+	public IOStatistics () {
+		super();
+	}
+
+	/**
+	 * Records a read call.
+	 *
+	 * @param blocks the number of blocks read by the call.
+	 * @param bytes the number of bytes read by the call.
+	 * @param nanos the latency of the call in nanoseconds.
+	 */
+	public void read (int blocks, long bytes, long nanos) {
+		reads.add(blocks);
+		bytesRead.add(bytes);
+		readLatency.record(nanos);
+	}
+
+	/**
+	 * Records a write call.
+	 *
+	 * @param blocks the number of blocks written by the call.
+	 * @param bytes the number of bytes written by the call.
+	 * @param nanos the latency of the call in nanoseconds.
+	 */
+	public void write (int blocks, long bytes, long nanos) {
+		writes.add(blocks);
+		bytesWritten.add(bytes);
+		writeLatency.record(nanos);
+	}
+
+	/**
+	 * Returns the number of blocks read.
+	 *
+	 * @return the number of blocks read.
+	 */
+	public long reads () {
+		return reads.sum();
+	}
+
+	/**
+	 * Returns the number of bytes read.
+	 *
+	 * @return the number of bytes read.
+	 */
+	public long bytesRead () {
+		return bytesRead.sum();
+	}
+
+	/**
+	 * Returns the number of blocks written.
+	 *
+	 * @return the number of blocks written.
+	 */
+	public long writes () {
+		return writes.sum();
+	}
+
+	/**
+	 * Returns the number of bytes written.
+	 *
+	 * @return the number of bytes written.
+	 */
+	public long bytesWritten () {
+		return bytesWritten.sum();
+	}
+
+	/**
+	 * Returns the histogram of the read latencies.
+	 *
+	 * @return the histogram of the read latencies.
+	 */
+	public LatencyHistogram readLatency () {
+		return readLatency;
+	}
+
+	/**
+	 * Returns the histogram of the write latencies.
+	 *
+	 * @return the histogram of the write latencies.
+	 */
+	public LatencyHistogram writeLatency () {
+		return writeLatency;
+	}
+
+	/**
+	 * Resets all counters and histograms.
+	 */
+	public void reset () {
+		reads.reset();
+		bytesRead.reset();
+		writes.reset();
+		bytesWritten.reset();
+		readLatency.reset();
+		writeLatency.reset();
+	}
+
+	@Override
+	protected boolean addMetaData (Object metaDataIdentifier) {
+		if (metaDataIdentifier.equals(READS)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return reads();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(BYTES_READ)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return bytesRead();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(WRITES)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return writes();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(BYTES_WRITTEN)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,Long>() {
+				@Override
+				public Long invoke() {
+					return bytesWritten();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(READ_LATENCY)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,LatencyHistogram>() {
+				@Override
+				public LatencyHistogram invoke() {
+					return readLatency();
+				}
+			});
+			return true;
+		}
+		if (metaDataIdentifier.equals(WRITE_LATENCY)) {
+			metaData.add(metaDataIdentifier, new AbstractFunction<Object,LatencyHistogram>() {
+				@Override
+				public LatencyHistogram invoke() {
+					return writeLatency();
+				}
+			});
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean removeMetaData (Object metaDataIdentifier) {
+		for (Object identifier : IDENTIFIERS)
+			if (metaDataIdentifier.equals(identifier)) {
+				metaData.remove(metaDataIdentifier);
+				return true;
+			}
+		return false;
+	}
+
+	/**
+	 * Returns a string representation of these statistics.
+	 *
+	 * @return a string representation of these statistics.
+	 */
+	public String toString () {
+		return "reads="+reads()+" ("+bytesRead()+" bytes, "+readLatency+"), writes="+writes()+" ("+bytesWritten()+" bytes, "+writeLatency+")";
+	}
+}
@@ -87,6 +87,16 @@ public class LRUBuffer<O, I, E> extends Buffer<O, I, E> {
 	 */
 	protected Slot last = null;
 
+	/**
+	 * The number of least recently used slots that are searched for a slot
+	 * that is not dirty, when a victim is determined. Displacing a clean
+	 * slot does not cause a write, so preferring clean slots keeps the
+	 * writes off the caller's thread, when the dirty slots are written back
+	 * asynchronously. A window of <code>1</code> results in a pure LRU
+	 * strategy.
+	 */
+	protected int cleanWindow = 1;
+
 	/**
 	 * This class provides a single slot in a LRU buffer.
 	 * 
@@ -195,6 +205,24 @@ public class LRUBuffer<O, I, E> extends Buffer<O, I, E> {
 		super(capacity, capacityBytes);
 	}
 
+	/**
+	 * Constructs a new empty LRU buffer with a number of slots specified by
+	 * the given capacity and an empty double linked list. When searching a
+	 * victim, the given number of least recently used slots is searched for
+	 * a slot that is not dirty.
+	 *
+	 * @param capacity the number of slots in the new LRU buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 * @param cleanWindow the number of least recently used slots that are
+	 *        searched for a clean victim.
+	 */
+	public LRUBuffer(int capacity, int capacityBytes, int cleanWindow) {
+		super(capacity, capacityBytes);
+		this.cleanWindow = cleanWindow;
+	}
+
 	/**
 	 * Constructs a new empty LRU buffer with a number of slots specified by
 	 * the given capacity and an empty double linked list.
@@ -221,11 +249,17 @@ public class LRUBuffer<O, I, E> extends Buffer<O, I, E> {
 	/**
 	 * Returns the <i>next</i> slot to displace in this LRU buffer. This
 	 * implementation returns the last slot in the double linked list
-	 * representing the durating of being unfixed.
+	 * representing the durating of being unfixed. When the last slot is
+	 * dirty, the first clean slot among the <tt>cleanWindow</tt> last slots
+	 * of the list is returned instead, if there is any.
 	 *
-	 * @return the least recently used slot in this buffer.
+	 * @return the least recently used (clean) slot in this buffer.
 	 */
 	protected Buffer.Slot victim() {
-		return last;
+		Slot slot = last;
+
+		for (int i = 1; i < cleanWindow && slot != null && slot.isDirty(); i++)
+			slot = slot.prev;
+		return slot != null && !slot.isDirty() ? slot : last;
 	}
 }
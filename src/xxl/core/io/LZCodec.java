@@ -0,0 +1,300 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.io;
+
+/**
+ * This class provides a fast byte-oriented compression codec of the
+ * LZ77 family implemented in pure Java. Compared to the deflate format of
+ * <tt>java.util.zip</tt> (see {@link xxl.core.io.converters.ZipConverter})
+ * it trades compression ratio for speed: there is no entropy coding and
+ * matches are found by a single probe of a hash table, so that compressing
+ * and decompressing a page costs only a few instructions per byte. Therefore
+ * the codec is suited for pages that are compressed and decompressed on the
+ * hot path of an index structure.
+ * <p>
+ * The compressed data is a sequence of <i>sequences</i>. Every sequence
+ * starts with a token byte, whose upper four bits hold the number of
+ * literals and whose lower four bits hold the length of the following match
+ * minus {@link #MIN_MATCH}. A value of <tt>15</tt> is continued by
+ * additional bytes that are summed up until a byte smaller than
+ * <tt>255</tt> is read. The literals follow the (extended) literal length,
+ * then the offset of the match is stored as two bytes in little endian byte
+ * order followed by the extension of the match length. The last sequence
+ * consists of literals only and the last {@link #LAST_LITERALS} bytes of
+ * the input are always coded as literals. The uncompressed length is not
+ * part of the compressed data, it has to be stored by the caller.
+ * <p>
+ * All methods are static and allocate their state on the stack or in small
+ * temporary arrays, so the codec can be used by many threads concurrently.
+ * <p>
+ * Example usage (1).
+ * <pre>
+ *     byte [] compressed = new byte [LZCodec.maxCompressedLength(page.length)];
+ *     int length = LZCodec.compress(page, 0, page.length, compressed, 0);
+ *     ...
+ *     byte [] restored = new byte [page.length];
+ *     LZCodec.decompress(compressed, 0, length, restored, 0, restored.length);
+ * </pre>
+ *
+ * @see xxl.core.collections.containers.io.CompressedContainer
+ */
+public class LZCodec {
+
+	/**
+	 * The minimal length of a match.
+	 */
+	public static final int MIN_MATCH = 4;
+
+	/**
+	 * The number of bytes at the end of the input that are always coded as
+	 * literals.
+	 */
+	public static final int LAST_LITERALS = 5;
+
+	/**
+	 * The maximal distance between a match and its reference.
+	 */
+	public static final int MAX_OFFSET = 0xFFFF;
+
+	/**
+	 * The binary logarithm of the number of entries of the hash table.
+	 */
+	protected static final int HASH_LOG = 12;
+
+	/**
+	 * The number of unsuccessful probes after which the step between two
+	 * probes is increased by one. Thus incompressible data is skipped
+	 * quickly.
+	 */
+	protected static final int SKIP_TRIGGER = 6;
+
+	/**
+	 * The class cannot be instantiated.
+	 */
+	private LZCodec () {}
+
+	/**
+	 * Returns the maximal length of the compressed data of an input of the
+	 * given length, i.e. the size of an output array that is sufficient for
+	 * every input.
+	 *
+	 * @param length the length of the uncompressed data.
+	 * @return the maximal length of the compressed data.
+	 */
+	public static int maxCompressedLength (int length) {
+		return length+length/255+16;
+	}
+
+	/**
+	 * Reads four bytes in little endian byte order.
+	 *
+	 * @param array the array to read.
+	 * @param offset the index of the first byte.
+	 * @return the integer formed by the four bytes.
+	 */
+	private static int readInt (byte [] array, int offset) {
+		return (array[offset]&255) | (array[offset+1]&255)<<8 | (array[offset+2]&255)<<16 | array[offset+3]<<24;
+	}
+
+	/**
+	 * Returns the index of the hash table entry of the given four bytes.
+	 *
+	 * @param sequence four bytes of the input.
+	 * @return the index of the hash table entry.
+	 */
+	private static int hash (int sequence) {
+		return (sequence*-1640531535)>>>(32-HASH_LOG);
+	}
+
+	/**
+	 * Writes the extension of a literal or match length that does not fit
+	 * into the token.
+	 *
+	 * @param dst the output array.
+	 * @param dp the index of the output array to write to.
+	 * @param length the length minus <tt>15</tt>.
+	 * @return the index behind the written bytes.
+	 */
+	private static int writeLength (byte [] dst, int dp, int length) {
+		for (; length >= 255; length -= 255)
+			dst[dp++] = (byte)255;
+		dst[dp++] = (byte)length;
+		return dp;
+	}
+
+	/**
+	 * Writes a sequence to the output array.
+	 *
+	 * @param src the input array.
+	 * @param anchor the index of the first literal.
+	 * @param literals the number of literals.
+	 * @param dst the output array.
+	 * @param dp the index of the output array to write to.
+	 * @param offset the distance of the match to its reference or
+	 *        <tt>0</tt> for the last sequence, that has no match.
+	 * @param matchLength the length of the match.
+	 * @return the index behind the written sequence.
+	 */
+	private static int writeSequence (byte [] src, int anchor, int literals, byte [] dst, int dp, int offset, int matchLength) {
+		int token = dp++;
+		int match = matchLength-MIN_MATCH;
+
+		dst[token] = (byte)((Math.min(literals, 15)<<4) | (offset == 0 ? 0 : Math.min(match, 15)));
+		if (literals >= 15)
+			dp = writeLength(dst, dp, literals-15);
+		System.arraycopy(src, anchor, dst, dp, literals);
+		dp += literals;
+		if (offset != 0) {
+			dst[dp++] = (byte)offset;
+			dst[dp++] = (byte)(offset>>>8);
+			if (match >= 15)
+				dp = writeLength(dst, dp, match-15);
+		}
+		return dp;
+	}
+
+	/**
+	 * Compresses the specified bytes of the input array into the output
+	 * array. The output array must provide at least
+	 * {@link #maxCompressedLength(int) maxCompressedLength(srcLength)} bytes
+	 * starting at <tt>dstOffset</tt>.
+	 *
+	 * @param src the input array.
+	 * @param srcOffset the index of the first byte to compress.
+	 * @param srcLength the number of bytes to compress.
+	 * @param dst the output array.
+	 * @param dstOffset the index of the output array to write to.
+	 * @return the length of the compressed data.
+	 * @throws IndexOutOfBoundsException if the output array is too small.
+	 */
+	public static int compress (byte [] src, int srcOffset, int srcLength, byte [] dst, int dstOffset) throws IndexOutOfBoundsException {
+		if (dst.length-dstOffset < maxCompressedLength(srcLength))
+			throw new IndexOutOfBoundsException("The output array is too small.");
+		int [] table = new int [1<<HASH_LOG];
+		int end = srcOffset+srcLength, matchLimit = end-LAST_LITERALS;
+		int sp = srcOffset, anchor = srcOffset, dp = dstOffset;
+
+		// the table holds positions relative to srcOffset, so that an
+		// unused entry refers to the first byte and is rejected by the
+		// comparison below
+		while (sp+MIN_MATCH <= matchLimit) {
+			int sequence = readInt(src, sp);
+			int h = hash(sequence);
+			int ref = srcOffset+table[h];
+
+			table[h] = sp-srcOffset;
+			if (ref < sp && sp-ref <= MAX_OFFSET && readInt(src, ref) == sequence) {
+				int length = MIN_MATCH;
+
+				while (sp+length < matchLimit && src[ref+length] == src[sp+length])
+					length++;
+				while (sp > anchor && ref > srcOffset && src[sp-1] == src[ref-1]) {
+					sp--;
+					ref--;
+					length++;
+				}
+				dp = writeSequence(src, anchor, sp-anchor, dst, dp, sp-ref, length);
+				sp += length;
+				anchor = sp;
+				if (sp-2+MIN_MATCH <= matchLimit)
+					table[hash(readInt(src, sp-2))] = sp-2-srcOffset;
+			}
+			else
+				sp += 1+((sp-anchor)>>>SKIP_TRIGGER);
+		}
+		return writeSequence(src, anchor, end-anchor, dst, dp, 0, MIN_MATCH)-dstOffset;
+	}
+
+	/**
+	 * Decompresses the specified bytes of the input array into the output
+	 * array.
+	 *
+	 * @param src the input array holding compressed data.
+	 * @param srcOffset the index of the first byte of the compressed data.
+	 * @param srcLength the length of the compressed data.
+	 * @param dst the output array.
+	 * @param dstOffset the index of the output array to write to.
+	 * @param dstLength the number of bytes available in the output array.
+	 * @return the length of the decompressed data.
+	 * @throws IllegalArgumentException if the input is not valid compressed
+	 *         data or its decompression exceeds <tt>dstLength</tt> bytes.
+	 */
+	public static int decompress (byte [] src, int srcOffset, int srcLength, byte [] dst, int dstOffset, int dstLength) throws IllegalArgumentException {
+		int srcEnd = srcOffset+srcLength, dstEnd = dstOffset+dstLength;
+		int sp = srcOffset, dp = dstOffset;
+
+		while (true) {
+			if (sp >= srcEnd)
+				throw new IllegalArgumentException("Truncated compressed data.");
+			int token = src[sp++]&255;
+			int literals = token>>>4;
+
+			if (literals == 15) {
+				int b;
+				do {
+					if (sp >= srcEnd)
+						throw new IllegalArgumentException("Truncated compressed data.");
+					literals += b = src[sp++]&255;
+				} while (b == 255);
+			}
+			if (literals > srcEnd-sp || literals > dstEnd-dp)
+				throw new IllegalArgumentException("Invalid literal length.");
+			System.arraycopy(src, sp, dst, dp, literals);
+			sp += literals;
+			dp += literals;
+			if (sp == srcEnd)
+				return dp-dstOffset;
+
+			if (srcEnd-sp < 2)
+				throw new IllegalArgumentException("Truncated compressed data.");
+			int offset = (src[sp]&255) | (src[sp+1]&255)<<8;
+			int length = (token&15)+MIN_MATCH;
+
+			sp += 2;
+			if ((token&15) == 15) {
+				int b;
+				do {
+					if (sp >= srcEnd)
+						throw new IllegalArgumentException("Truncated compressed data.");
+					length += b = src[sp++]&255;
+				} while (b == 255);
+			}
+			if (offset == 0 || offset > dp-dstOffset || length > dstEnd-dp)
+				throw new IllegalArgumentException("Invalid match.");
+			int ref = dp-offset;
+
+			if (offset >= length) {
+				System.arraycopy(dst, ref, dst, dp, length);
+				dp += length;
+			}
+			else
+				// overlapping matches repeat the last offset bytes
+				for (int end = dp+length; dp < end;)
+					dst[dp++] = dst[ref++];
+		}
+	}
+}
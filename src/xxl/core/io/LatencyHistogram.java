@@ -0,0 +1,208 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class provides a histogram of latencies measured in nanoseconds. The
+ * histogram consists of 64 buckets with exponentially growing bounds: a
+ * latency <tt>t&nbsp;&gt;&nbsp;0</tt> is counted in the bucket
+ * <tt>i</tt> with <tt>2<sup>i-1</sup>&nbsp;&lt;=&nbsp;t&nbsp;&lt;&nbsp;2<sup>i</sup></tt>
+ * and a latency of <tt>0</tt> is counted in bucket <tt>0</tt>. Therefore
+ * recording a latency costs only a few instructions and the memory used by
+ * a histogram is constant, whereas percentiles can be estimated with a
+ * relative error of at most a factor of two.
+ * <p>
+ * The buckets are atomic counters, so a single histogram can be used by
+ * many threads without any further synchronization.
+ *
+ * @see IOStatistics
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of buckets of a histogram.
+	 */
+	public static final int BUCKETS = 64;
+
+	/**
+	 * The counters of the buckets.
+	 */
+	protected AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * The sum of all recorded latencies.
+	 */
+	protected LongAdder total = new LongAdder();
+
+	/**
+	 * The maximal recorded latency.
+	 */
+	protected AtomicLong max = new AtomicLong();
+
+	/**
+	 * Constructs a new empty histogram.
+	 */
+	public LatencyHistogram () {}
+
+	/**
+	 * Returns the index of the bucket that counts the given latency.
+	 *
+	 * @param nanos a latency in nanoseconds.
+	 * @return the index of the bucket that counts the given latency.
+	 */
+	public static int bucket (long nanos) {
+		return nanos <= 0 ? 0 : BUCKETS-Long.numberOfLeadingZeros(nanos);
+	}
+
+	/**
+	 * Returns the (exclusive) upper bound of the latencies counted in the
+	 * specified bucket.
+	 *
+	 * @param bucket the index of a bucket.
+	 * @return the upper bound of the bucket in nanoseconds.
+	 */
+	public static long upperBound (int bucket) {
+		return bucket >= BUCKETS-1 ? Long.MAX_VALUE : 1L<<bucket;
+	}
+
+	/**
+	 * Records the given latency.
+	 *
+	 * @param nanos a latency in nanoseconds.
+	 */
+	public void record (long nanos) {
+		buckets.incrementAndGet(bucket(nanos));
+		total.add(nanos);
+		for (long m = max.get(); nanos > m && !max.compareAndSet(m, nanos); m = max.get());
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 *
+	 * @return the number of recorded latencies.
+	 */
+	public long count () {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += buckets.get(i);
+		return count;
+	}
+
+	/**
+	 * Returns the number of recorded latencies counted in the specified
+	 * bucket.
+	 *
+	 * @param bucket the index of a bucket.
+	 * @return the number of latencies counted in the bucket.
+	 */
+	public long count (int bucket) {
+		return buckets.get(bucket);
+	}
+
+	/**
+	 * Returns the sum of all recorded latencies in nanoseconds.
+	 *
+	 * @return the sum of all recorded latencies.
+	 */
+	public long total () {
+		return total.sum();
+	}
+
+	/**
+	 * Returns the maximal recorded latency in nanoseconds.
+	 *
+	 * @return the maximal recorded latency or <tt>0</tt> if no latency has
+	 *         been recorded.
+	 */
+	public long max () {
+		return max.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded latencies in nanoseconds.
+	 *
+	 * @return the mean of the recorded latencies or <tt>0</tt> if no latency
+	 *         has been recorded.
+	 */
+	public double mean () {
+		long count = count();
+
+		return count == 0 ? 0 : (double)total()/count;
+	}
+
+	/**
+	 * Returns an estimation of the specified percentile of the recorded
+	 * latencies. The upper bound of the bucket containing the percentile is
+	 * returned, but never more than the maximal recorded latency.
+	 *
+	 * @param p the percentile, a value between <tt>0</tt> and <tt>1</tt>.
+	 * @return an upper bound of the specified percentile in nanoseconds or
+	 *         <tt>0</tt> if no latency has been recorded.
+	 * @throws IllegalArgumentException if <tt>p</tt> is not a value between
+	 *         <tt>0</tt> and <tt>1</tt>.
+	 */
+	public long percentile (double p) throws IllegalArgumentException {
+		if (p < 0 || p > 1)
+			throw new IllegalArgumentException("The percentile must be a value between 0 and 1.");
+		long [] counts = new long [BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts[i] = buckets.get(i);
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long)Math.ceil(p*count));
+		for (int i = 0; i < BUCKETS; i++)
+			if ((rank -= counts[i]) <= 0)
+				return Math.min(i == 0 ? 0 : upperBound(i)-1, max());
+		return max();
+	}
+
+	/**
+	 * Removes all recorded latencies from this histogram.
+	 */
+	public void reset () {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+		total.reset();
+		max.set(0);
+	}
+
+	/**
+	 * Returns a string representation of this histogram containing the
+	 * number of recorded latencies, their mean, median, 99th percentile and
+	 * maximum in nanoseconds.
+	 *
+	 * @return a string representation of this histogram.
+	 */
+	public String toString () {
+		return "count="+count()+", mean="+(long)mean()+"ns, p50="+percentile(0.5)+"ns, p99="+percentile(0.99)+"ns, max="+max()+"ns";
+	}
+}
@@ -0,0 +1,114 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+/**
+ * The displacement strategies provided by the buffers of this package. Every
+ * constant is a factory for buffers using the corresponding strategy, so
+ * that the strategy can be chosen per buffered container, e.g.
+ * <pre>
+ *     Container container = new BufferedContainer(
+ *         new BlockFileContainer("test", 4096),
+ *         ReplacementPolicy.TWO_QUEUE.newBuffer(100)
+ *     );
+ * </pre>
+ *
+ * <p>The strategies {@link #TWO_QUEUE}, {@link #ARC} and
+ * {@link #CLOCK_PRO} are scan-resistant, i.e. a scan over many objects that
+ * are accessed only once does not displace the frequently accessed
+ * objects.</p>
+ *
+ * @see Buffer
+ */
+public enum ReplacementPolicy {
+
+	/**
+	 * The LRU strategy (see {@link LRUBuffer}).
+	 */
+	LRU {
+		public <O, I, E> Buffer<O, I, E> newBuffer(int capacity, int capacityBytes) {
+			return new LRUBuffer<O, I, E>(capacity, capacityBytes);
+		}
+	},
+
+	/**
+	 * The 2Q strategy (see {@link TwoQueueBuffer}).
+	 */
+	TWO_QUEUE {
+		public <O, I, E> Buffer<O, I, E> newBuffer(int capacity, int capacityBytes) {
+			return new TwoQueueBuffer<O, I, E>(capacity, capacityBytes);
+		}
+	},
+
+	/**
+	 * The ARC strategy (see {@link ARCBuffer}).
+	 */
+	ARC {
+		public <O, I, E> Buffer<O, I, E> newBuffer(int capacity, int capacityBytes) {
+			return new ARCBuffer<O, I, E>(capacity, capacityBytes);
+		}
+	},
+
+	/**
+	 * The CLOCK-Pro strategy (see {@link ClockProBuffer}).
+	 */
+	CLOCK_PRO {
+		public <O, I, E> Buffer<O, I, E> newBuffer(int capacity, int capacityBytes) {
+			return new ClockProBuffer<O, I, E>(capacity, capacityBytes);
+		}
+	};
+
+	/**
+	 * Creates a new empty buffer using this displacement strategy.
+	 *
+	 * @param <O> the type of the objects specifing the owner of a buffer's
+	 *        slot.
+	 * @param <I> the type of the identifiers used for identifing the
+	 *        buffer's slots.
+	 * @param <E> the type of the elements stored by the buffer.
+	 * @param capacity the number of slots in the new buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 * @return a new buffer using this displacement strategy.
+	 */
+	public abstract <O, I, E> Buffer<O, I, E> newBuffer(int capacity, int capacityBytes);
+
+	/**
+	 * Creates a new empty buffer using this displacement strategy.
+	 *
+	 * @param <O> the type of the objects specifing the owner of a buffer's
+	 *        slot.
+	 * @param <I> the type of the identifiers used for identifing the
+	 *        buffer's slots.
+	 * @param <E> the type of the elements stored by the buffer.
+	 * @param capacity the number of slots in the new buffer.
+	 * @return a new buffer using this displacement strategy.
+	 */
+	public <O, I, E> Buffer<O, I, E> newBuffer(int capacity) {
+		return newBuffer(capacity, Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,252 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import xxl.core.util.Pair;
+
+/**
+ * This class provides a buffer with the scan-resistant 2Q displacement
+ * strategy of Johnson and Shasha ("2Q: A Low Overhead High Performance Buffer
+ * Management Replacement Algorithm", VLDB 1994).
+ *
+ * <p>The resident slots are kept in two queues. A slot that is accessed for
+ * the first time is appended to the FIFO queue <tt>A1in</tt>. Accessing it
+ * again while it is in this queue does not change its position, so that
+ * correlated references (e.g. getting and updating a node) are not taken for
+ * a real re-reference. When a slot is displaced out of <tt>A1in</tt>, its
+ * owner and id are remembered in the queue <tt>A1out</tt>, that contains no
+ * objects. A slot that is accessed again while its id is remembered in
+ * <tt>A1out</tt> is inserted into the LRU queue <tt>Am</tt> of frequently
+ * accessed slots. Slots are displaced out of <tt>A1in</tt> as long as it
+ * holds more than <tt>kin</tt> slots, otherwise the least recently used slot
+ * of <tt>Am</tt> is displaced. Therefore a scan over a large number of
+ * objects, that are accessed only once, passes through <tt>A1in</tt>
+ * without displacing the hot slots in <tt>Am</tt>.</p>
+ *
+ * <p>Fixed slots are never displaced, i.e. when the head of a queue is
+ * fixed, the next unfixed slot of the queue is chosen.</p>
+ *
+ * @param <O> the type of the objects specifing the owner of a buffer's slot.
+ * @param <I> the type of the identifiers used for identifing the buffer's
+ *        slots.
+ * @param <E> the type of the elements stored by this buffer.
+ * @see LRUBuffer
+ * @see ReplacementPolicy
+ */
+public class TwoQueueBuffer<O, I, E> extends Buffer<O, I, E> {
+
+	/**
+	 * The FIFO queue containing the slots that have been accessed once.
+	 */
+	protected LinkedHashSet<Slot> a1in = new LinkedHashSet<Slot>();
+
+	/**
+	 * The LRU queue containing the slots that have been re-referenced after
+	 * they had been displaced out of <tt>A1in</tt>. The first slot of the
+	 * queue is the least recently used one.
+	 */
+	protected LinkedHashSet<Slot> am = new LinkedHashSet<Slot>();
+
+	/**
+	 * The FIFO queue containing the owners and ids of the slots that have
+	 * recently been displaced out of <tt>A1in</tt>.
+	 */
+	protected LinkedHashSet<Pair<O, I>> a1out = new LinkedHashSet<Pair<O, I>>();
+
+	/**
+	 * The maximal number of slots in <tt>A1in</tt> before its slots are
+	 * displaced.
+	 */
+	protected int kin;
+
+	/**
+	 * The maximal number of ids remembered in <tt>A1out</tt>.
+	 */
+	protected int kout;
+
+	/**
+	 * This class provides a single slot in a 2Q buffer. Every slot knows the
+	 * queue it is contained in.
+	 */
+	protected class Slot extends Buffer<O, I, E>.Slot {
+
+		/**
+		 * The queue containing this slot or <code>null</code> if the slot is
+		 * empty.
+		 */
+		protected LinkedHashSet<Slot> queue = null;
+
+		/**
+		 * Constructs a new empty slot with the specified index.
+		 *
+		 * @param index the index of the new slot.
+		 */
+		public Slot(int index) {
+			super(index);
+		}
+
+		/**
+		 * Fixes this slot on behalf of a request.
+		 */
+		public void fix() {
+			fix(true);
+		}
+
+		/**
+		 * Fixes this slot. This implementation also registers the access of
+		 * the slot: a new slot is appended to <tt>A1in</tt> or, when it is
+		 * requested and its id is remembered in <tt>A1out</tt>, to
+		 * <tt>Am</tt>. A requested slot of <tt>Am</tt> becomes the most
+		 * recently used slot.
+		 *
+		 * @param request <code>true</code> if the slot is fixed by a call of
+		 *        <code>get</code>, <code>false</code> if it is fixed by a
+		 *        call of <code>update</code>.
+		 */
+		protected void fix(boolean request) {
+			super.fix();
+			if (queue == null)
+				(queue = a1out.remove(new Pair<O, I>(owner, id)) && request ? am : a1in).add(this);
+			else if (queue == am && request) {
+				am.remove(this);
+				am.add(this);
+			}
+		}
+
+		/**
+		 * Removes the object and any information belonging to it from this
+		 * slot. This implementation also removes the slot out of its queue.
+		 */
+		public void remove() {
+			super.remove();
+			if (queue != null) {
+				queue.remove(this);
+				queue = null;
+			}
+		}
+
+		/**
+		 * Displaces this slot. When the slot is contained in <tt>A1in</tt>,
+		 * its owner and id are remembered in <tt>A1out</tt>.
+		 */
+		public void displace() {
+			if (queue == a1in) {
+				a1out.add(new Pair<O, I>(owner, id));
+				for (Iterator<Pair<O, I>> ids = a1out.iterator(); a1out.size() > kout;) {
+					ids.next();
+					ids.remove();
+				}
+			}
+			super.displace();
+		}
+	}
+
+	/**
+	 * Constructs a new empty 2Q buffer with a number of slots specified by
+	 * the given capacity.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 * @param kin the maximal number of slots in <tt>A1in</tt>.
+	 * @param kout the maximal number of ids remembered in <tt>A1out</tt>.
+	 */
+	public TwoQueueBuffer(int capacity, int capacityBytes, int kin, int kout) {
+		super(capacity, capacityBytes);
+		this.kin = kin;
+		this.kout = kout;
+	}
+
+	/**
+	 * Constructs a new empty 2Q buffer with a number of slots specified by
+	 * the given capacity. As proposed by Johnson and Shasha, <tt>A1in</tt>
+	 * holds a quarter of the slots and <tt>A1out</tt> remembers the ids of
+	 * half as many slots as the buffer can contain.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 * @param capacityBytes the capacity of the buffer in bytes. If this is
+	 *        less than <code>Integer.MAX_VALUE</code>, the buffered objects
+	 *        have to implement the interface {@link SizeAware}.
+	 */
+	public TwoQueueBuffer(int capacity, int capacityBytes) {
+		this(capacity, capacityBytes, Math.max(1, capacity/4), Math.max(1, capacity/2));
+	}
+
+	/**
+	 * Constructs a new empty 2Q buffer with a number of slots specified by
+	 * the given capacity.
+	 *
+	 * @param capacity the number of slots in the new buffer.
+	 */
+	public TwoQueueBuffer(int capacity) {
+		this(capacity, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new empty slot with the specified index.
+	 *
+	 * @param index the index of the new slot.
+	 * @return a new empty slot with the specified index.
+	 */
+	protected Buffer<O, I, E>.Slot newSlot(int index) {
+		return new Slot(index);
+	}
+
+	/**
+	 * Returns the first unfixed slot of the given queue.
+	 *
+	 * @param queue the queue to search.
+	 * @return the first unfixed slot of the queue or <code>null</code> if
+	 *         all slots of the queue are fixed.
+	 */
+	protected Slot firstUnfixed(LinkedHashSet<Slot> queue) {
+		for (Slot slot : queue)
+			if (!slot.isFixed())
+				return slot;
+		return null;
+	}
+
+	/**
+	 * Returns the <i>next</i> slot to displace in this buffer. This
+	 * implementation returns the oldest unfixed slot of <tt>A1in</tt>, when
+	 * it holds more than <tt>kin</tt> slots, otherwise the least recently
+	 * used unfixed slot of <tt>Am</tt>. When the chosen queue contains only
+	 * fixed slots, the other queue is used.
+	 *
+	 * @return the next slot to displace in this buffer.
+	 */
+	protected Buffer<O, I, E>.Slot victim() {
+		Slot slot;
+
+		if (a1in.size() > kin || am.isEmpty())
+			return (slot = firstUnfixed(a1in)) != null ? slot : firstUnfixed(am);
+		return (slot = firstUnfixed(am)) != null ? slot : firstUnfixed(a1in);
+	}
+}
@@ -102,6 +102,24 @@ public class UnsafeDataInput implements DataInput {
         this(stream,8192);
     }
 
+    /**
+     * Creates a new UnsafeDataInput object that reads directly from
+     * the given region of a byte array. No bytes are copied, so the
+     * array must not be modified while it is read.
+     *
+     * @param array the byte array containing the input to be deserialized
+     * @param offset the index of the first byte of the input
+     * @param length the number of bytes of the input
+     */
+    public UnsafeDataInput(byte[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset+length > array.length)
+            throw new IndexOutOfBoundsException();
+        this.stream = null;
+        this.buffer = array;
+        this.pos = offset;
+        this.bufferSize = offset+length;
+    }
+
     @Override
     public void readFully(byte[] b) throws IOException {
         if (b == null)
@@ -131,12 +149,13 @@ public class UnsafeDataInput implements DataInput {
 
     @Override
     public int skipBytes(int n) throws IOException {
-        if (buffer.length - pos >= n)  {
+        int limit = stream == null ? bufferSize : buffer.length;
+        if (limit - pos >= n)  {
             pos += n;
             return n;
         } else {
-            int skipped = buffer.length - pos;
-            pos = buffer.length;
+            int skipped = limit - pos;
+            pos = limit;
             return skipped;
         }
     }
@@ -297,6 +316,12 @@ public class UnsafeDataInput implements DataInput {
 
     private boolean ensureBuffer(int bytes, boolean strict) throws IOException {
         if (pos+bytes > bufferSize) {
+            if (stream == null) {
+                // the input is a region of a byte array that cannot be refilled
+                if (strict)
+                    throw new EOFException();
+                return false;
+            }
             int offset = bufferSize-pos;
             if (offset > 0) {
                 unsafe.copyMemory(buffer,byteArrayOffset+pos,buffer,byteArrayOffset,offset);
@@ -52,4 +52,13 @@ public abstract class KeyFunctionFactory {
    * @return The KeyValueSeparator function built up with the given information
    */
   public abstract Function getKeyValueSeparatorFunction();
+
+  /**
+   * @return The function computing the shortest separator value between two keys (see
+   *         {@link xxl.core.indexStructures.BPlusTree#setShortestSeparator(Function)}) or
+   *         <code>null</code> if the keys cannot be shortened
+   */
+  public Function getShortestSeparatorFunction() {
+    return null;
+  }
 }
@@ -108,4 +108,12 @@ public class TupleKeyFunctionFactory extends KeyFunctionFactory {
     return mSeparatorFunction;
   }
 
+  /**
+   * @return The function computing the shortest separator value between two compound keys
+   */
+  @Override
+  public Function getShortestSeparatorFunction() {
+    return TupleSeparator.SHORTEST_SEPARATOR_FUNCTION;
+  }
+
 }
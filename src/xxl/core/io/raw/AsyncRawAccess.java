@@ -0,0 +1,495 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io.raw;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Implements RawAccess with java.nio.channels.AsynchronousFileChannel. Other
+ * than {@link RAFRawAccess}, that performs one blocking operation after
+ * another, this raw access is able to keep several operations in flight,
+ * which is necessary to make use of the internal parallelism of SSDs.
+ * <p>
+ * Besides the blocking single sector operations of the interface
+ * RawAccess, this class offers
+ * <ul>
+ * <li>operations returning a {@link Future} (see
+ * {@link #readAsync(byte[], long)} and {@link #writeAsync(byte[], long)}),
+ * and</li>
+ * <li>batch operations transferring a set of arbitrary sectors (see
+ * {@link #read(byte[][], long[])} and {@link #write(byte[][], long[])}),
+ * that return when all sectors have been transferred.</li>
+ * </ul>
+ * The number of operations in flight is limited by the <i>queue depth</i>.
+ * When the queue is full, issuing another operation blocks until an
+ * operation has been completed.
+ * <p>
+ * Because this class implements RawAccess, it can be used with a
+ * {@link xxl.core.collections.containers.io.RawAccessContainer}, whose
+ * <tt>getAll</tt> method issues all reads in a single batch, and with
+ * {@link RawAccessArrayFilesystemOperations}.
+ *
+ * @see RAFRawAccess
+ */
+public class AsyncRawAccess implements RawAccess {
+
+	/**
+	 * The default queue depth.
+	 */
+	public static final int DEFAULT_QUEUE_DEPTH = 32;
+
+	/**
+	 * The channel of the device/file.
+	 */
+	protected AsynchronousFileChannel channel = null;
+
+	/**
+	 * Size of a sector
+	 */
+	protected int sectorSize;
+
+	/**
+	 * The maximal number of operations in flight.
+	 */
+	protected int queueDepth;
+
+	/**
+	 * The free slots of the queue.
+	 */
+	protected Semaphore queue;
+
+	/**
+	 * A single read or write operation. The operation is reissued until all
+	 * bytes of the sector have been transferred.
+	 */
+	protected class Request implements CompletionHandler<Integer, Object> {
+
+		/**
+		 * The buffer wrapping the sector.
+		 */
+		protected ByteBuffer buffer;
+
+		/**
+		 * The position of the next byte to transfer.
+		 */
+		protected long position;
+
+		/**
+		 * A flag that determines whether the operation is a write operation.
+		 */
+		protected boolean write;
+
+		/**
+		 * The future completed when the operation has been finished.
+		 */
+		protected CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+		/**
+		 * Creates a new operation transferring the given sector.
+		 *
+		 * @param block byte array of sectorSize bytes for the sector
+		 * @param sector number of the sector
+		 * @param write <tt>true</tt> for a write operation.
+		 */
+		protected Request(byte[] block, long sector, boolean write) {
+			this.buffer = ByteBuffer.wrap(block);
+			this.position = sector*sectorSize;
+			this.write = write;
+		}
+
+		/**
+		 * Issues the operation for the remaining bytes.
+		 */
+		protected void issue() {
+			try {
+				if (write)
+					channel.write(buffer, position, null, this);
+				else
+					channel.read(buffer, position, null, this);
+			}
+			catch (RuntimeException e) {
+				failed(e, null);
+			}
+		}
+
+		/**
+		 * Called when a transfer has been completed.
+		 *
+		 * @param count the number of bytes transferred.
+		 * @param attachment not used.
+		 */
+		public void completed(Integer count, Object attachment) {
+			if (count < 0) {
+				failed(new EOFException(), attachment);
+				return;
+			}
+			position += count;
+			if (buffer.hasRemaining())
+				issue();
+			else {
+				queue.release();
+				future.complete(null);
+			}
+		}
+
+		/**
+		 * Called when a transfer has failed.
+		 *
+		 * @param exception the cause.
+		 * @param attachment not used.
+		 */
+		public void failed(Throwable exception, Object attachment) {
+			queue.release();
+			future.completeExceptionally(exception);
+		}
+	}
+
+	/**
+	 * Returns a new instance of a raw access that uses an
+	 * AsynchronousFileChannel.
+	 *
+	 * @param filename name of device or file
+	 * @param sectorSize size of a sector
+	 * @param queueDepth maximal number of operations in flight
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public AsyncRawAccess(String filename, int sectorSize, int queueDepth) throws RawAccessException {
+		if (queueDepth < 1)
+			throw new IllegalArgumentException("AsyncRawAccess: the queue depth must be positive");
+		this.sectorSize = sectorSize;
+		this.queueDepth = queueDepth;
+		this.queue = new Semaphore(queueDepth);
+		open(filename);
+	}
+
+	/**
+	 * Returns a new instance of a raw access that uses an
+	 * AsynchronousFileChannel (with the default queue depth).
+	 *
+	 * @param filename name of device or file
+	 * @param sectorSize size of a sector
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public AsyncRawAccess(String filename, int sectorSize) throws RawAccessException {
+		this(filename, sectorSize, DEFAULT_QUEUE_DEPTH);
+	}
+
+	/**
+	 * Returns a new instance of a raw access that uses an
+	 * AsynchronousFileChannel (with sector size 512 bytes and the default
+	 * queue depth).
+	 *
+	 * @param filename name of device or file
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public AsyncRawAccess(String filename) throws RawAccessException {
+		this(filename, 512);
+	}
+
+	/**
+	 * Opens a device or file
+	 * See super class for detailed description
+	 *
+	 * @param filename name of device or file
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public void open(String filename) throws RawAccessException {
+		File file = new File(filename);
+		if (!file.exists())
+			throw new RawAccessException("AsyncRawAccess: open() cannot access device");
+		try {
+			channel = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		catch (IOException e) {
+			throw new RawAccessException("AsyncRawAccess: open() " + e.toString());
+		}
+	}
+
+	/**
+	 * Closes device or file after all operations in flight have been
+	 * completed.
+	 * See super class for detailed description
+	 *
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public void close() throws RawAccessException {
+		if (channel == null)
+			throw new RawAccessException("AsyncRawAccess: close() no device open");
+		queue.acquireUninterruptibly(queueDepth);
+		try {
+			channel.close();
+			channel = null;
+		}
+		catch (IOException e) {
+			throw new RawAccessException("AsyncRawAccess: " + e.toString());
+		}
+		finally {
+			queue.release(queueDepth);
+		}
+	}
+
+	/**
+	 * Checks the given sector before an operation is issued.
+	 *
+	 * @param block byte array for the sector
+	 * @param sector number of the sector
+	 * @param write <tt>true</tt> for a write operation.
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	protected void check(byte[] block, long sector, boolean write) throws RawAccessException {
+		String operation = write ? "write()" : "read()";
+		if (channel == null)
+			throw new RawAccessException("AsyncRawAccess: " + operation + " no device/file open");
+		if (block.length != sectorSize)
+			throw new RawAccessException("AsyncRawAccess: " + operation + " wrong block length");
+		if (sector < 0 || sector >= getNumSectors())
+			throw new RawAccessException("AsyncRawAccess: " + operation + " sector out of bounds");
+	}
+
+	/**
+	 * Issues an operation for the given sector. This method blocks while
+	 * the queue is full.
+	 *
+	 * @param block byte array of sectorSize bytes for the sector
+	 * @param sector number of the sector
+	 * @param write <tt>true</tt> for a write operation.
+	 * @return a future that is completed when the operation has been
+	 *         finished.
+	 */
+	protected Future<Void> submit(byte[] block, long sector, boolean write) {
+		check(block, sector, write);
+		queue.acquireUninterruptibly();
+		Request request = new Request(block, sector, write);
+		request.issue();
+		return request.future;
+	}
+
+	/**
+	 * Waits until the given operation has been finished.
+	 *
+	 * @param future the future of the operation.
+	 * @param operation the name of the operation used in the message of an
+	 *        exception.
+	 * @exception RawAccessException if the operation has failed.
+	 */
+	protected static void await(Future<Void> future, String operation) throws RawAccessException {
+		boolean interrupted = false;
+
+		try {
+			for (;;)
+				try {
+					future.get();
+					return;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+		}
+		catch (ExecutionException e) {
+			throw new RawAccessException("AsyncRawAccess: " + operation + " " + e.getCause().toString());
+		}
+		finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Issues an asynchronous read of a sector. This method blocks while the
+	 * queue is full. The given array must not be accessed until the
+	 * returned future has been completed.
+	 *
+	 * @param block byte array of sectorSize bytes for the sector
+	 * @param sector number of the sector
+	 * @return a future that is completed when the sector has been read.
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public Future<Void> readAsync(byte[] block, long sector) throws RawAccessException {
+		return submit(block, sector, false);
+	}
+
+	/**
+	 * Issues an asynchronous write of a sector. This method blocks while the
+	 * queue is full. The given array must not be modified until the
+	 * returned future has been completed.
+	 *
+	 * @param block array to be written
+	 * @param sector number of the sector
+	 * @return a future that is completed when the sector has been written.
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public Future<Void> writeAsync(byte[] block, long sector) throws RawAccessException {
+		return submit(block, sector, true);
+	}
+
+	/**
+	 * Reads the given sectors. Up to <tt>queueDepth</tt> sectors are read
+	 * concurrently. The method returns when all sectors have been read.
+	 *
+	 * @param blocks byte arrays of sectorSize bytes for the sectors
+	 * @param sectors numbers of the sectors
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public void read(byte[][] blocks, long[] sectors) throws RawAccessException {
+		transfer(blocks, sectors, false);
+	}
+
+	/**
+	 * Writes the given sectors. Up to <tt>queueDepth</tt> sectors are
+	 * written concurrently. The method returns when all sectors have been
+	 * written.
+	 *
+	 * @param blocks arrays to be written
+	 * @param sectors numbers of the sectors
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public void write(byte[][] blocks, long[] sectors) throws RawAccessException {
+		transfer(blocks, sectors, true);
+	}
+
+	/**
+	 * Transfers the given sectors and waits until all operations have been
+	 * finished.
+	 *
+	 * @param blocks byte arrays of sectorSize bytes for the sectors
+	 * @param sectors numbers of the sectors
+	 * @param write <tt>true</tt> for write operations.
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	protected void transfer(byte[][] blocks, long[] sectors, boolean write) throws RawAccessException {
+		if (blocks.length != sectors.length)
+			throw new IllegalArgumentException("AsyncRawAccess: the number of blocks and sectors differ");
+		Future<Void>[] futures = newFutures(blocks.length);
+		RawAccessException exception = null;
+
+		try {
+			for (int i = 0; i < blocks.length; i++)
+				futures[i] = submit(blocks[i], sectors[i], write);
+		}
+		finally {
+			for (int i = 0; i < futures.length && futures[i] != null; i++)
+				try {
+					await(futures[i], write ? "write()" : "read()");
+				}
+				catch (RawAccessException e) {
+					if (exception == null)
+						exception = e;
+				}
+		}
+		if (exception != null)
+			throw exception;
+	}
+
+	/**
+	 * Creates a new array of futures.
+	 *
+	 * @param length the length of the array.
+	 * @return a new array of futures.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Future<Void>[] newFutures(int length) {
+		return new Future[length];
+	}
+
+	/**
+	 * Writes block to file/device
+	 * See super class for detailed description
+	 *
+	 * @param block array to be written
+	 * @param sector number of the sector
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public void write(byte[] block, long sector) throws RawAccessException {
+		await(writeAsync(block, sector), "write()");
+	}
+
+	/**
+	 * Reads block from file/device
+	 * See super class for detailed description
+	 *
+	 * @param block byte array of sectorSize bytes for the sector
+	 * @param sector number of the sector
+	 * @exception RawAccessException a specialized RuntimeException
+	 */
+	public void read(byte[] block, long sector) throws RawAccessException {
+		await(readAsync(block, sector), "read()");
+	}
+
+	/**
+	 * Returns the amount of sectors in the file/device.
+	 *
+	 * @return amount of sectors
+	 */
+	public long getNumSectors() {
+		if (channel == null)
+			return -1;
+		try {
+			return channel.size() / sectorSize;
+		}
+		catch (IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the size of a sector of the file/device.
+	 *
+	 * @return size of sectors
+	 */
+	public int getSectorSize() {
+		return sectorSize;
+	}
+
+	/**
+	 * Returns the maximal number of operations in flight.
+	 *
+	 * @return the queue depth
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * Outputs a String representation of the raw device.
+	 * @return A String representation.
+	 */
+	public String toString() {
+		return
+			"Async raw access, sectors: "+getNumSectors()+
+			", sectorSize: "+getSectorSize()+
+			", queueDepth: "+getQueueDepth();
+	}
+}
@@ -29,6 +29,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Implements RawAcces with java.io.RandomAccessFile (&rarr;RAF).
@@ -166,6 +168,42 @@ public class RAFRawAccess implements RawAccess {
 		}
 	}
 
+	/**
+	 * Reads consecutive sectors from file/device with a single scatter
+	 * read of the file channel.
+	 *
+	 * @param blocks byte arrays of sectorSize bytes for the sectors
+	 * @param sector number of the first sector
+	 */
+	public void read(byte[][] blocks, long sector) {
+		if (myRAF == null)
+			throw new RawAccessException("RAFRawAccess: read() no device/file open");
+		for (int i = 0; i < blocks.length; i++)
+			if (blocks[i].length != sectorSize)
+				throw new RawAccessException("RAFRawAccess: read() wrong block length");
+		try {
+			FileChannel channel = myRAF.getChannel();
+			ByteBuffer[] buffers = new ByteBuffer[blocks.length];
+			long remaining = (long)blocks.length * sectorSize;
+
+			for (int i = 0; i < blocks.length; i++)
+				buffers[i] = ByteBuffer.wrap(blocks[i]);
+			channel.position(sector * sectorSize);
+			for (int offset = 0; remaining > 0;) {
+				long read = channel.read(buffers, offset, buffers.length-offset);
+				if (read < 0)
+					throw new RawAccessException("RAFRawAccess: read() failed");
+				remaining -= read;
+				while (offset < buffers.length && !buffers[offset].hasRemaining())
+					offset++;
+			}
+			if(useSync) myRAF.getFD().sync();
+		}
+		catch (IOException e) {
+			throw new RawAccessException("RAFRawAccess: read() " + e.toString());
+		}
+	}
+
 	/**
 	 * Returns the amount of sectors in the file/device.
 	 *
@@ -113,6 +113,44 @@ public class RawAccessUtils {
 		}
 	}
 	
+	/**
+	 * Reads consecutive sectors of a RawAccess. A {@link RAFRawAccess} reads
+	 * all sectors with a single scatter read, an {@link AsyncRawAccess}
+	 * reads the sectors concurrently and every other RawAccess reads the
+	 * sectors one after another.
+	 *
+	 * @param ra the RawAccess to read from.
+	 * @param blocks byte arrays of sector size for the sectors.
+	 * @param sector number of the first sector.
+	 */
+	public static void readSectors(RawAccess ra, byte[][] blocks, long sector) {
+		if (ra instanceof RAFRawAccess)
+			((RAFRawAccess) ra).read(blocks, sector);
+		else {
+			long sectors[] = new long[blocks.length];
+			for (int i=0; i<blocks.length; i++)
+				sectors[i] = sector+i;
+			readSectors(ra, blocks, sectors);
+		}
+	}
+
+	/**
+	 * Reads arbitrary sectors of a RawAccess. An {@link AsyncRawAccess}
+	 * reads the sectors concurrently, every other RawAccess reads the
+	 * sectors one after another.
+	 *
+	 * @param ra the RawAccess to read from.
+	 * @param blocks byte arrays of sector size for the sectors.
+	 * @param sectors the numbers of the sectors.
+	 */
+	public static void readSectors(RawAccess ra, byte[][] blocks, long[] sectors) {
+		if (ra instanceof AsyncRawAccess)
+			((AsyncRawAccess) ra).read(blocks, sectors);
+		else
+			for (int i=0; i<blocks.length; i++)
+				ra.read(blocks[i], sectors[i]);
+	}
+
 	/**
 	 * Checks the RawAccess if all bytes equals the specified byte value.
 	 *
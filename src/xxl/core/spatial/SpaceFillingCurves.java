@@ -24,9 +24,12 @@ License along with this library;  If not, see <http://www.gnu.org/licenses/>.
 */
 package xxl.core.spatial;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 
 import xxl.core.math.Maths;
@@ -184,6 +187,402 @@ public class SpaceFillingCurves {
 	public static int[] peano2d (long peano) {
 		return peano2d(peano, 1<<31);
 	}
+
+	/**
+	 * Transition tables of the table-driven Hilbert encoder, indexed by the
+	 * number of dimensions. The entry for a state <tt>s</tt> and a digit
+	 * <tt>d</tt> (the bits of all coordinates on one level, the first
+	 * dimension being the most significant bit) is stored at
+	 * <tt>s&lt;&lt;dimensions | d</tt> and contains the next state shifted
+	 * by <tt>dimensions</tt> bits or'ed with the Hilbert digit of the level.
+	 * Tables are provided for two and three dimensions.
+	 */
+	private static final int[][] HILBERT_ENCODE_TABLES = new int[4][];
+
+	/**
+	 * Inverse transition tables of the table-driven Hilbert decoder. The
+	 * entry for a state and a Hilbert digit contains the next state and the
+	 * digit of the coordinates.
+	 */
+	private static final int[][] HILBERT_DECODE_TABLES = new int[4][];
+
+	static {
+		for (int dimensions = 2; dimensions < HILBERT_ENCODE_TABLES.length; dimensions++)
+			buildHilbertTables(dimensions);
+	}
+
+	/**
+	 * Derives the transition tables for the given number of dimensions from
+	 * Skilling's transform. While descending from one level to the next,
+	 * the transform permutes and reflects the lower bits of the coordinates
+	 * and the Gray code of the remaining levels may be inverted. The state
+	 * of the automaton consists of exactly this information, so the tables
+	 * produce the same values as {@link #hilbert(int[], int)} does in
+	 * higher dimensions.
+	 *
+	 * @param dimensions the number of dimensions
+	 */
+	private static void buildHilbertTables(int dimensions) {
+		int digits = 1 << dimensions;
+		List<int[]> states = new ArrayList<int[]>();
+		Map<List<Integer>, Integer> ids = new HashMap<List<Integer>, Integer>();
+		// a state holds the permutation, the reflections and the inversion flag
+		int[] initial = new int[2*dimensions+1];
+		for (int i = 0; i < dimensions; i++)
+			initial[i] = i;
+		states.add(initial);
+		ids.put(hilbertStateKey(initial), 0);
+		List<int[]> transitions = new ArrayList<int[]>();
+		for (int s = 0; s < states.size(); s++) {
+			int[] state = states.get(s);
+			int[] transition = new int[digits];
+			for (int digit = 0; digit < digits; digit++) {
+				int[] next = state.clone();
+				int[] bits = new int[dimensions];
+				for (int i = 0; i < dimensions; i++)
+					bits[i] = (digit >>> dimensions-1-state[i] & 1) ^ state[dimensions+i];
+				for (int i = 0; i < dimensions; i++)
+					if (bits[i] != 0)
+						next[dimensions] ^= 1;
+					else {
+						int swap = next[0];
+						next[0] = next[i];
+						next[i] = swap;
+						swap = next[dimensions];
+						next[dimensions] = next[dimensions+i];
+						next[dimensions+i] = swap;
+					}
+				int gray = 0;
+				for (int i = 0, bit = 0; i < dimensions; i++)
+					gray = gray<<1 | (bit ^= bits[i]);
+				next[2*dimensions] ^= gray & 1;
+				if (state[2*dimensions] != 0)
+					gray ^= digits-1;
+				Integer id = ids.get(hilbertStateKey(next));
+				if (id == null) {
+					id = states.size();
+					states.add(next);
+					ids.put(hilbertStateKey(next), id);
+				}
+				transition[digit] = id<<dimensions | gray;
+			}
+			transitions.add(transition);
+		}
+		int[] encode = new int[states.size()<<dimensions];
+		int[] decode = new int[states.size()<<dimensions];
+		for (int s = 0; s < states.size(); s++)
+			for (int digit = 0; digit < digits; digit++) {
+				int entry = transitions.get(s)[digit];
+				encode[s<<dimensions | digit] = entry;
+				decode[s<<dimensions | entry & digits-1] = entry & ~(digits-1) | digit;
+			}
+		HILBERT_ENCODE_TABLES[dimensions] = encode;
+		HILBERT_DECODE_TABLES[dimensions] = decode;
+	}
+
+	/**
+	 * Returns a key identifying a state while the transition tables are built.
+	 *
+	 * @param state the state
+	 * @return a list containing the components of the state
+	 */
+	private static List<Integer> hilbertStateKey(int[] state) {
+		List<Integer> key = new ArrayList<Integer>(state.length);
+		for (int component : state)
+			key.add(component);
+		return key;
+	}
+
+	/**
+	 * Checks the arguments of the n-dimensional Hilbert methods.
+	 *
+	 * @param dimensions the number of dimensions
+	 * @param bitsPerDimension the number of bits of every coordinate
+	 * @param maxBits the maximum length of the Hilbert value in bits
+	 * @throws IllegalArgumentException if the arguments are out of range
+	 */
+	private static void checkHilbertArguments(int dimensions, int bitsPerDimension, int maxBits) {
+		if (dimensions < 1 || bitsPerDimension < 1 || bitsPerDimension > 32)
+			throw new IllegalArgumentException("Hilbert values need at least one dimension and 1 to 32 bits per dimension.");
+		if ((long)dimensions*bitsPerDimension > maxBits)
+			throw new IllegalArgumentException("The Hilbert value of "+dimensions+" dimensions with "+bitsPerDimension+" bits each does not fit into "+maxBits+" bits.");
+	}
+
+	/**
+	 * Maps the coordinates of a point of the unit cube [0;1)^d to the cells
+	 * of a grid with <tt>2^bitsPerDimension</tt> cells per dimension, i.e.,
+	 * to the input of {@link #hilbert(int[], int)}. Coordinates outside of
+	 * the unit cube are mapped to the cells at the border of the grid.
+	 *
+	 * @param point the normalized coordinates of the point
+	 * @param bitsPerDimension the number of bits of every cell coordinate
+	 * @return the coordinates of the grid cell containing the point
+	 */
+	public static int[] gridCoordinates(double[] point, int bitsPerDimension) {
+		double cells = (double)(1L << bitsPerDimension);
+		int[] cell = new int[point.length];
+		for (int i = 0; i < cell.length; i++)
+			cell[i] = (int)(long)Math.min(Math.max(0d, point[i]*cells), cells-1);
+		return cell;
+	}
+
+	/**
+	 * Transforms the coordinates of a point into the transposed Hilbert
+	 * value using Skilling's algorithm. Afterwards bit <tt>l</tt> of
+	 * <tt>x[i]</tt> is the <tt>i</tt>-th most significant bit of the
+	 * <tt>l</tt>-th level of the Hilbert value. For a detailed discussion
+	 * see John Skilling: "Programming the Hilbert curve", AIP Conference
+	 * Proceedings 707, 2004.
+	 *
+	 * @param x the coordinates, which are overwritten
+	 * @param bitsPerDimension the number of bits of every coordinate
+	 */
+	static void axesToTranspose(int[] x, int bitsPerDimension) {
+		int n = x.length;
+		for (int q = 1 << bitsPerDimension-1; q != 1; q >>>= 1) {
+			int p = q-1;
+			for (int i = 0; i < n; i++)
+				if ((x[i]&q) != 0)
+					x[0] ^= p;
+				else {
+					int t = (x[0]^x[i])&p;
+					x[0] ^= t;
+					x[i] ^= t;
+				}
+		}
+		for (int i = 1; i < n; i++)
+			x[i] ^= x[i-1];
+		int t = 0;
+		for (int q = 1 << bitsPerDimension-1; q != 1; q >>>= 1)
+			if ((x[n-1]&q) != 0)
+				t ^= q-1;
+		for (int i = 0; i < n; i++)
+			x[i] ^= t;
+	}
+
+	/**
+	 * Transforms a transposed Hilbert value back into the coordinates of the
+	 * point. This is the inverse of {@link #axesToTranspose(int[], int)}.
+	 *
+	 * @param x the transposed Hilbert value, which is overwritten
+	 * @param bitsPerDimension the number of bits of every coordinate
+	 */
+	private static void transposeToAxes(int[] x, int bitsPerDimension) {
+		int n = x.length;
+		int t = x[n-1] >>> 1;
+		for (int i = n-1; i > 0; i--)
+			x[i] ^= x[i-1];
+		x[0] ^= t;
+		for (int q = 2, end = 2 << bitsPerDimension-1; q != end; q <<= 1) {
+			int p = q-1;
+			for (int i = n-1; i >= 0; i--)
+				if ((x[i]&q) != 0)
+					x[0] ^= p;
+				else {
+					t = (x[0]^x[i])&p;
+					x[0] ^= t;
+					x[i] ^= t;
+				}
+		}
+	}
+
+	/**
+	 * Computes the hilbert value of a point with an arbitrary number of
+	 * dimensions. For two and three dimensions the value is computed level
+	 * by level using precomputed transition tables, otherwise Skilling's
+	 * transform is applied to all coordinates at once. The coordinates are
+	 * interpreted as unsigned values of <tt>bitsPerDimension</tt> bits.
+	 *
+	 * @param point the coordinates of the point
+	 * @param bitsPerDimension the number of bits of every coordinate to be
+	 * 	considered
+	 * @return the hilbert value of the point
+	 * @throws IllegalArgumentException if the hilbert value needs more than
+	 * 	63 bits
+	 * @see #hilbertWords(int[], int)
+	 */
+	public static long hilbert(int[] point, int bitsPerDimension) {
+		int n = point.length;
+		checkHilbertArguments(n, bitsPerDimension, 63);
+		long hilbert = 0;
+		if (n < HILBERT_ENCODE_TABLES.length && HILBERT_ENCODE_TABLES[n] != null) {
+			int[] table = HILBERT_ENCODE_TABLES[n];
+			int digitMask = (1 << n)-1;
+			for (int level = bitsPerDimension-1, state = 0; level >= 0; level--) {
+				int digit = 0;
+				for (int i = 0; i < n; i++)
+					digit = digit<<1 | point[i] >>> level & 1;
+				int entry = table[state<<n | digit];
+				hilbert = hilbert<<n | entry & digitMask;
+				state = entry >>> n;
+			}
+		}
+		else {
+			int[] x = point.clone();
+			axesToTranspose(x, bitsPerDimension);
+			for (int level = bitsPerDimension-1; level >= 0; level--)
+				for (int i = 0; i < n; i++)
+					hilbert = hilbert<<1 | x[i] >>> level & 1;
+		}
+		return hilbert;
+	}
+
+	/**
+	 * Computes the point belonging to a given hilbert value. This is the
+	 * inverse of {@link #hilbert(int[], int)}.
+	 *
+	 * @param hilbert the hilbert value
+	 * @param bitsPerDimension the number of bits of every coordinate
+	 * @param dimensions the number of dimensions
+	 * @return the coordinates of the point whose hilbert value is equal to
+	 * 	the specified one
+	 * @throws IllegalArgumentException if the hilbert value needs more than
+	 * 	63 bits
+	 */
+	public static int[] hilbertPoint(long hilbert, int bitsPerDimension, int dimensions) {
+		checkHilbertArguments(dimensions, bitsPerDimension, 63);
+		int n = dimensions;
+		int[] x = new int[n];
+		if (n < HILBERT_DECODE_TABLES.length && HILBERT_DECODE_TABLES[n] != null) {
+			int[] table = HILBERT_DECODE_TABLES[n];
+			int digitMask = (1 << n)-1;
+			for (int level = bitsPerDimension-1, state = 0; level >= 0; level--) {
+				int entry = table[state<<n | (int)(hilbert >>> level*n) & digitMask];
+				for (int i = 0; i < n; i++)
+					x[i] |= (entry >>> n-1-i & 1) << level;
+				state = entry >>> n;
+			}
+		}
+		else {
+			for (int level = bitsPerDimension-1; level >= 0; level--)
+				for (int i = 0; i < n; i++)
+					x[i] |= (int)(hilbert >>> level*n+n-1-i & 1) << level;
+			transposeToAxes(x, bitsPerDimension);
+		}
+		return x;
+	}
+
+	/**
+	 * Computes the hilbert value of a point with an arbitrary number of
+	 * dimensions and an arbitrary precision. The value is returned as an
+	 * array of longs holding the bits of the value in big-endian order, i.e.,
+	 * the last long contains the 64 least significant bits. The first long
+	 * holds the remaining most significant bits right-aligned. Hilbert values
+	 * of the same precision can be compared by
+	 * {@link #compareHilbertWords(long[], long[])}. If the value fits into
+	 * 63 bits, the only long of the array is equal to
+	 * {@link #hilbert(int[], int)}.
+	 *
+	 * @param point the coordinates of the point
+	 * @param bitsPerDimension the number of bits of every coordinate to be
+	 * 	considered
+	 * @return the hilbert value of the point
+	 */
+	public static long[] hilbertWords(int[] point, int bitsPerDimension) {
+		int n = point.length;
+		checkHilbertArguments(n, bitsPerDimension, Integer.MAX_VALUE);
+		long[] hilbert = new long[(n*bitsPerDimension+63) >>> 6];
+		if (n < HILBERT_ENCODE_TABLES.length && HILBERT_ENCODE_TABLES[n] != null) {
+			int[] table = HILBERT_ENCODE_TABLES[n];
+			int digitMask = (1 << n)-1;
+			for (int level = bitsPerDimension-1, state = 0; level >= 0; level--) {
+				int digit = 0;
+				for (int i = 0; i < n; i++)
+					digit = digit<<1 | point[i] >>> level & 1;
+				int entry = table[state<<n | digit];
+				setHilbertBits(hilbert, level*n, entry & digitMask);
+				state = entry >>> n;
+			}
+		}
+		else {
+			int[] x = point.clone();
+			axesToTranspose(x, bitsPerDimension);
+			for (int level = bitsPerDimension-1; level >= 0; level--)
+				for (int i = 0; i < n; i++)
+					setHilbertBits(hilbert, level*n+n-1-i, x[i] >>> level & 1);
+		}
+		return hilbert;
+	}
+
+	/**
+	 * Computes the point belonging to a given hilbert value. This is the
+	 * inverse of {@link #hilbertWords(int[], int)}.
+	 *
+	 * @param hilbert the hilbert value
+	 * @param bitsPerDimension the number of bits of every coordinate
+	 * @param dimensions the number of dimensions
+	 * @return the coordinates of the point whose hilbert value is equal to
+	 * 	the specified one
+	 */
+	public static int[] hilbertPoint(long[] hilbert, int bitsPerDimension, int dimensions) {
+		checkHilbertArguments(dimensions, bitsPerDimension, hilbert.length*64);
+		int n = dimensions;
+		int[] x = new int[n];
+		if (n < HILBERT_DECODE_TABLES.length && HILBERT_DECODE_TABLES[n] != null) {
+			int[] table = HILBERT_DECODE_TABLES[n];
+			for (int level = bitsPerDimension-1, state = 0; level >= 0; level--) {
+				int entry = table[state<<n | getHilbertBits(hilbert, level*n, n)];
+				for (int i = 0; i < n; i++)
+					x[i] |= (entry >>> n-1-i & 1) << level;
+				state = entry >>> n;
+			}
+		}
+		else {
+			for (int level = bitsPerDimension-1; level >= 0; level--)
+				for (int i = 0; i < n; i++)
+					x[i] |= getHilbertBits(hilbert, level*n+n-1-i, 1) << level;
+			transposeToAxes(x, bitsPerDimension);
+		}
+		return x;
+	}
+
+	/**
+	 * Compares two hilbert values computed by
+	 * {@link #hilbertWords(int[], int)} with the same precision.
+	 *
+	 * @param hilbert1 the first hilbert value
+	 * @param hilbert2 the second hilbert value
+	 * @return a negative integer, zero, or a positive integer as the first
+	 * 	value is less than, equal to, or greater than the second one
+	 */
+	public static int compareHilbertWords(long[] hilbert1, long[] hilbert2) {
+		for (int i = 0; i < hilbert1.length; i++)
+			if (hilbert1[i] != hilbert2[i])
+				return Long.compareUnsigned(hilbert1[i], hilbert2[i]);
+		return 0;
+	}
+
+	/**
+	 * Or's a digit of at most 31 bits into a hilbert value stored as an
+	 * array of longs.
+	 *
+	 * @param hilbert the hilbert value
+	 * @param position the position of the least significant bit of the digit
+	 * @param digit the digit
+	 */
+	private static void setHilbertBits(long[] hilbert, int position, int digit) {
+		int word = hilbert.length-1-(position >>> 6), offset = position & 63;
+		hilbert[word] |= (long)digit << offset;
+		if (offset > 32 && word > 0)
+			hilbert[word-1] |= (long)digit >>> 64-offset;
+	}
+
+	/**
+	 * Returns a digit of at most 31 bits of a hilbert value stored as an
+	 * array of longs.
+	 *
+	 * @param hilbert the hilbert value
+	 * @param position the position of the least significant bit of the digit
+	 * @param length the number of bits of the digit
+	 * @return the digit
+	 */
+	private static int getHilbertBits(long[] hilbert, int position, int length) {
+		int word = hilbert.length-1-(position >>> 6), offset = position & 63;
+		long digit = hilbert[word] >>> offset;
+		if (offset+length > 64)
+			digit |= hilbert[word-1] << 64-offset;
+		return (int)digit & (1 << length)-1;
+	}
 		/**
 		 * Computes the z-code of the given bit field, <tt>bitField</tt>, by merging the
 		 * the bit-field-longs and returns it as a BitSet. <br>
@@ -472,6 +472,67 @@ public class SpatialUtils {
 	}
 	
 	
+	/**
+	 * Mapping function for Hilbert with an arbitrary number of dimensions.
+	 * The number of dimensions times <tt>BITS_PRO_DIM</tt> must not
+	 * exceed 63.
+	 */
+	public static UnaryFunction<DoublePointRectangle, Long> hilbertSFC(final DoublePointRectangle universe, 
+			final int BITS_PRO_DIM){ 
+		return new UnaryFunction<DoublePointRectangle, Long>() {
+		
+			protected double uni[];
+			protected double uniDeltas[];
+			
+			@Override
+			public Long invoke(DoublePointRectangle arg) {
+				if (uni == null) {
+					uni = (double[]) universe.getCorner(false).getPoint();
+					uniDeltas = universe.deltas();
+				}
+				double[] center = (double[]) arg.getCenter().getPoint();
+				int[] coord = SpaceFillingCurves.gridCoordinates(normalize(center, uni, uniDeltas), BITS_PRO_DIM);
+				return SpaceFillingCurves.hilbert(coord, BITS_PRO_DIM);
+			}
+		
+		}; 
+	
+	}
+	
+	/**
+	 * Comparator based on the Hilbert values of the rectangle centers with an
+	 * arbitrary number of dimensions. If the Hilbert values do not fit into a
+	 * long value, they are compared as arrays of longs.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Comparator<DoublePointRectangle> getHilbertComparator(final DoublePointRectangle universe, 
+			final int BITS_PRO_DIM){
+		final boolean words = universe.dimensions() * BITS_PRO_DIM > 63;
+		return new Comparator() {
+			protected double uni[];
+			protected double uniDeltas[];
+
+			public int compare(Object o1, Object o2) {
+				if (uni == null) {
+					uni = (double[]) universe.getCorner(false).getPoint();
+					uniDeltas = universe.deltas();
+				}
+				double center1[] = (double[]) ((DoublePointRectangle) o1).getCenter().getPoint();
+				double center2[] = (double[]) ((DoublePointRectangle) o2).getCenter().getPoint();
+				int[] coord1 = SpaceFillingCurves.gridCoordinates(normalize(center1, uni, uniDeltas), BITS_PRO_DIM);
+				int[] coord2 = SpaceFillingCurves.gridCoordinates(normalize(center2, uni, uniDeltas), BITS_PRO_DIM);
+				if (words)
+					return SpaceFillingCurves.compareHilbertWords(
+							SpaceFillingCurves.hilbertWords(coord1, BITS_PRO_DIM),
+							SpaceFillingCurves.hilbertWords(coord2, BITS_PRO_DIM));
+				long h1 = SpaceFillingCurves.hilbert(coord1, BITS_PRO_DIM);
+				long h2 = SpaceFillingCurves.hilbert(coord2, BITS_PRO_DIM);
+				return (h1 < h2) ? -1 : ((h1 == h2) ? 0 : +1);
+			}
+		};
+	}
+	
+	
 	/**
 	 * Mapping function for Hilbert 
 	 */
@@ -161,7 +161,7 @@ public class MHistograms {
 	 * This is a groundwork class for R-tree based histograms. 
 	 * 
 	 * This class provides method for R-tree bulk loading. To bulk load an R-tree a sort based algorithm is used.  
-	 * In case of 2 dimensions a hilbert comparator is used, otherwise we use a Z-Curve.
+	 * In case of 2 dimensions a hilbert comparator is used, otherwise we use an n-dimensional Hilbert curve.
 	 * 
 	 *
 	 */
@@ -184,7 +184,7 @@ public class MHistograms {
 		 */
 		protected Converter<DoublePointRectangle> converter = new ConvertableConverter<DoublePointRectangle>(SpatialUtils.factoryFunction(dimension));// default 2D Converter
 		/**
-		 * comparator, based on SFC mapping; For two-dimensional space we use Hilbert, otherwise Z-Curve.
+		 * comparator, based on SFC mapping; For two-dimensional space we use Hilbert2D, otherwise n-dimensional Hilbert.
 		 */
 		protected Comparator<DoublePointRectangle> comparator = SpatialUtils.getHilbert2DComparator(SpatialUtils.universeUnit(dimension), FILLING_CURVE_PRECISION); // default 2D comparator
 		/**
@@ -236,7 +236,7 @@ public class MHistograms {
 				converter = new ConvertableConverter<DoublePointRectangle>(SpatialUtils.factoryFunction(dimension));// default 2D Converter
 				comparator = (dimension == 2 ) ? 
 						SpatialUtils.getHilbert2DComparator(SpatialUtils.universeUnit(dimension),precision) :
-							SpatialUtils.getZCurveComparator(SpatialUtils.universeUnit(dimension), bitProDim);
+							SpatialUtils.getHilbertComparator(SpatialUtils.universeUnit(dimension), bitProDim);
 //							: RGOhist.getHilbertComparator(RGOhist.universeUnit(dimension), bitProDim); // default 2D comparator
 //				comparator = 
 //								RGOhist.getZCurveComparator(RGOhist.universeUnit(dimension), 31); // default 2D comparator
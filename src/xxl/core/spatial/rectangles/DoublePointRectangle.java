@@ -342,6 +342,48 @@ public class DoublePointRectangle implements Rectangle {
 		return overlap < 0d ? 0d : overlap;
 	}
 
+	/** Computes the squared Euclidean distance between the given point and the
+	 *  nearest point of this rectangle (MINDIST) without creating any objects.
+	 * 
+	 * @param  point the coordinates of the point
+	 * @return the squared Euclidean distance between the point and the rectangle
+	 */
+	public double minDistanceSquared(double[] point) {
+		double distance = 0.0;
+		for (int i = leftCorner.length; --i >= 0;) {
+			double dist = point[i] < leftCorner[i] ? leftCorner[i] - point[i] :
+				point[i] > rightCorner[i] ? point[i] - rightCorner[i] : 0.0;
+			distance += dist*dist;
+		}
+		return distance;
+	}
+
+	/** Computes the squared MINMAXDIST of Roussopoulos, Kelley and Vincent
+	 *  between the given point and this rectangle, i.e. the smallest squared
+	 *  Euclidean distance within which the point is guaranteed to find a point
+	 *  on the boundary of the rectangle in every face. If the rectangle is the
+	 *  minimal bounding rectangle of a set of objects, this is an upper bound
+	 *  of the distance between the point and its nearest object in the set.
+	 * 
+	 * @param  point the coordinates of the point
+	 * @return the squared MINMAXDIST between the point and the rectangle
+	 */
+	public double minMaxDistanceSquared(double[] point) {
+		// sum of the squared distances to the farther sides
+		double farthest = 0.0;
+		for (int i = leftCorner.length; --i >= 0;) {
+			double dist = point[i] >= (leftCorner[i]+rightCorner[i])/2 ? point[i] - leftCorner[i] : rightCorner[i] - point[i];
+			farthest += dist*dist;
+		}
+		double distance = Double.POSITIVE_INFINITY;
+		for (int i = leftCorner.length; --i >= 0;) {
+			double far = point[i] >= (leftCorner[i]+rightCorner[i])/2 ? point[i] - leftCorner[i] : rightCorner[i] - point[i];
+			double near = point[i] <= (leftCorner[i]+rightCorner[i])/2 ? point[i] - leftCorner[i] : rightCorner[i] - point[i];
+			distance = Math.min(distance, farthest - far*far + near*near);
+		}
+		return distance;
+	}
+
 	/** Computes the distance between the given point and the nearest point of this rectangle 
 	 *  using the specified Lp-Metrics.
 	 * 
@@ -0,0 +1,220 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.spatial.rectangles;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A fixed number of rectangles with double coordinates stored as a structure
+ * of arrays. The lower and the upper corners of all rectangles are kept in
+ * the two contiguous arrays {@link #lows} and {@link #highs}, which are
+ * ordered by dimension: the coordinate of dimension <tt>d</tt> of rectangle
+ * <tt>i</tt> is stored at position <tt>d*number+i</tt>. The tests of this
+ * class process one dimension of all rectangles in a tight loop without
+ * branches or object accesses, which allows the JIT compiler to vectorize
+ * them.
+ * 
+ * <p>The corners are compatible with the ones of {@link DoublePointRectangle},
+ * i.e. the rectangles are closed and {@link #read(DataInput, int)} reads the
+ * serialized form written by {@link DoublePointRectangle#write(java.io.DataOutput)}.</p>
+ *
+ * @see DoublePointRectangle
+ */
+public class DoublePointRectangleArray {
+
+	/**
+	 * The lower corners of the rectangles ordered by dimension.
+	 */
+	protected final double[] lows;
+
+	/**
+	 * The upper corners of the rectangles ordered by dimension.
+	 */
+	protected final double[] highs;
+
+	/**
+	 * The number of rectangles.
+	 */
+	protected final int number;
+
+	/**
+	 * The dimensionality of the rectangles.
+	 */
+	protected final int dimensions;
+
+	/**
+	 * Creates a new array of rectangles. The corners of all rectangles are
+	 * initialized with zero.
+	 * 
+	 * @param number the number of rectangles
+	 * @param dimensions the dimensionality of the rectangles
+	 */
+	public DoublePointRectangleArray(int number, int dimensions) {
+		this.number = number;
+		this.dimensions = dimensions;
+		this.lows = new double[number*dimensions];
+		this.highs = new double[number*dimensions];
+	}
+
+	/**
+	 * Returns the number of rectangles.
+	 * 
+	 * @return the number of rectangles
+	 */
+	public int number() {
+		return number;
+	}
+
+	/**
+	 * Returns the dimensionality of the rectangles.
+	 * 
+	 * @return the dimensionality of the rectangles
+	 */
+	public int dimensions() {
+		return dimensions;
+	}
+
+	/**
+	 * Sets the rectangle at the given position to the given rectangle. The
+	 * coordinates are copied.
+	 * 
+	 * @param index the position of the rectangle
+	 * @param rectangle the new rectangle
+	 */
+	public void set(int index, DoublePointRectangle rectangle) {
+		for (int d = 0, i = index; d < dimensions; d++, i += number) {
+			lows[i] = rectangle.leftCorner[d];
+			highs[i] = rectangle.rightCorner[d];
+		}
+	}
+
+	/**
+	 * Returns a copy of the rectangle at the given position.
+	 * 
+	 * @param index the position of the rectangle
+	 * @return a new rectangle with the coordinates of the rectangle at the
+	 *         given position
+	 */
+	public DoublePointRectangle get(int index) {
+		double[] leftCorner = new double[dimensions];
+		double[] rightCorner = new double[dimensions];
+		for (int d = 0, i = index; d < dimensions; d++, i += number) {
+			leftCorner[d] = lows[i];
+			rightCorner[d] = highs[i];
+		}
+		return new DoublePointRectangle(leftCorner, rightCorner);
+	}
+
+	/**
+	 * Reads the rectangle at the given position from the data input. The
+	 * input has to contain the lower corner followed by the upper corner like
+	 * the serialized form of a {@link DoublePointRectangle}.
+	 * 
+	 * @param dataInput the data input
+	 * @param index the position of the rectangle
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void read(DataInput dataInput, int index) throws IOException {
+		for (int d = 0, i = index; d < dimensions; d++, i += number)
+			lows[i] = dataInput.readDouble();
+		for (int d = 0, i = index; d < dimensions; d++, i += number)
+			highs[i] = dataInput.readDouble();
+	}
+
+	/**
+	 * Determines which rectangles overlap the given rectangle.
+	 * 
+	 * @param rectangle the query rectangle
+	 * @param result an array of at least {@link #number()} elements receiving
+	 *        <tt>true</tt> for each rectangle overlapping the query rectangle
+	 * @return the number of rectangles overlapping the query rectangle
+	 */
+	public int overlaps(DoublePointRectangle rectangle, boolean[] result) {
+		Arrays.fill(result, 0, number, true);
+		for (int d = 0, offset = 0; d < dimensions; d++, offset += number) {
+			double low = rectangle.leftCorner[d], high = rectangle.rightCorner[d];
+			for (int i = 0; i < number; i++)
+				result[i] &= lows[offset+i] <= high & low <= highs[offset+i];
+		}
+		return count(result);
+	}
+
+	/**
+	 * Determines which rectangles are contained in the given rectangle.
+	 * 
+	 * @param rectangle the query rectangle
+	 * @param result an array of at least {@link #number()} elements receiving
+	 *        <tt>true</tt> for each rectangle contained in the query rectangle
+	 * @return the number of rectangles contained in the query rectangle
+	 */
+	public int containedIn(DoublePointRectangle rectangle, boolean[] result) {
+		Arrays.fill(result, 0, number, true);
+		for (int d = 0, offset = 0; d < dimensions; d++, offset += number) {
+			double low = rectangle.leftCorner[d], high = rectangle.rightCorner[d];
+			for (int i = 0; i < number; i++)
+				result[i] &= low <= lows[offset+i] & highs[offset+i] <= high;
+		}
+		return count(result);
+	}
+
+	/**
+	 * Computes the squared Euclidean distances between the given point and
+	 * the nearest points of the rectangles (MINDIST).
+	 * 
+	 * @param point the coordinates of the point
+	 * @param result an array of at least {@link #number()} elements receiving
+	 *        the squared distances
+	 * @see DoublePointRectangle#minDistanceSquared(double[])
+	 */
+	public void minDistancesSquared(double[] point, double[] result) {
+		Arrays.fill(result, 0, number, 0.0);
+		for (int d = 0, offset = 0; d < dimensions; d++, offset += number) {
+			double coordinate = point[d];
+			for (int i = 0; i < number; i++) {
+				double distance = Math.max(0.0, Math.max(lows[offset+i]-coordinate, coordinate-highs[offset+i]));
+				result[i] += distance*distance;
+			}
+		}
+	}
+
+	/**
+	 * Counts the <tt>true</tt> values among the first {@link #number()}
+	 * elements of the given array.
+	 * 
+	 * @param result the array
+	 * @return the number of <tt>true</tt> values
+	 */
+	protected int count(boolean[] result) {
+		int count = 0;
+		for (int i = 0; i < number; i++)
+			if (result[i])
+				count++;
+		return count;
+	}
+}
@@ -0,0 +1,446 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.util;
+
+import java.util.Arrays;
+
+/**
+ * This class provides a growable bitmap that is packed into an array of
+ * <tt>long</tt> words and supports <i>rank</i> and <i>select</i> queries.
+ * The bit with index <tt>i</tt> is stored as the <tt>(i%64)</tt>th least
+ * significant bit of the word <tt>i/64</tt>, so that the byte
+ * representation of the bitmap (see {@link #toByteArray()}) stores the
+ * bit <tt>i</tt> as the <tt>(i%8)</tt>th least significant bit of the byte
+ * <tt>i/8</tt>. This is the format of the bitmap files of a
+ * {@link xxl.core.collections.containers.io.BlockFileContainer}.
+ * <p>
+ * In addition to the words, the number of set bits is maintained for every
+ * <i>superblock</i> of {@link #SUPERBLOCK_WORDS} words. The counters are
+ * updated whenever a bit is set or cleared. Therefore the number of set
+ * bits is known at any time, and searching for the next set or cleared
+ * bit, rank and select queries skip full and empty superblocks instead of
+ * scanning their words. Finding a cleared bit in a bitmap with only a few
+ * cleared bits costs about one test per superblock, i.e. one test per
+ * 4096 bits.
+ * <p>
+ * Example usage (1).
+ * <pre>
+ *     RankSelectBitMap bitMap = new RankSelectBitMap();
+ *     bitMap.setLength(100);
+ *     bitMap.set(3);
+ *     bitMap.set(42);
+ *     System.out.println(bitMap.rank(42));        // 1
+ *     System.out.println(bitMap.select(1));       // 42
+ *     System.out.println(bitMap.nextClearBit(3)); // 4
+ * </pre>
+ *
+ * @see BitSet
+ */
+public class RankSelectBitMap implements Cloneable {
+
+	/**
+	 * The number of words of a superblock.
+	 */
+	public static final int SUPERBLOCK_WORDS = 64;
+
+	/**
+	 * The number of bits of a superblock.
+	 */
+	protected static final int SUPERBLOCK_BITS = SUPERBLOCK_WORDS*64;
+
+	/**
+	 * The words containing the bits of this bitmap. Bits with an index
+	 * greater than or equal to the length of this bitmap are always
+	 * cleared.
+	 */
+	protected long[] words;
+
+	/**
+	 * The numbers of set bits of the superblocks.
+	 */
+	protected int[] counts;
+
+	/**
+	 * The number of bits of this bitmap.
+	 */
+	protected long length;
+
+	/**
+	 * The number of set bits of this bitmap.
+	 */
+	protected long cardinality;
+
+	/**
+	 * Constructs a new empty bitmap.
+	 */
+	public RankSelectBitMap() {
+		this.words = new long[SUPERBLOCK_WORDS];
+		this.counts = new int[1];
+		this.length = 0;
+		this.cardinality = 0;
+	}
+
+	/**
+	 * Constructs a new bitmap with the given length that contains the
+	 * bits of the given bytes. The bit <tt>i</tt> is taken from the
+	 * <tt>(i%8)</tt>th least significant bit of the byte <tt>i/8</tt>.
+	 * Missing bytes are treated as <tt>0</tt>.
+	 *
+	 * @param bytes the bytes containing the bits.
+	 * @param length the number of bits of the new bitmap.
+	 */
+	public RankSelectBitMap(byte[] bytes, long length) {
+		this();
+		setLength(length);
+		for (int i = 0, n = (int)Math.min(bytes.length, (length+7)/8); i < n; i++)
+			words[i>>>3] |= (bytes[i]&0xffL) << ((i&7)<<3);
+		if ((length&63) != 0 && length < (long)words.length<<6)
+			words[(int)(length>>>6)] &= (1L<<(length&63))-1;
+		for (int s = 0; s < counts.length; s++) {
+			int count = 0;
+			for (int w = s*SUPERBLOCK_WORDS, end = w+SUPERBLOCK_WORDS; w < end; w++)
+				count += Long.bitCount(words[w]);
+			counts[s] = count;
+			cardinality += count;
+		}
+	}
+
+	/**
+	 * Checks whether the given index is a valid index of this bitmap.
+	 *
+	 * @param index the index to check.
+	 * @throws IndexOutOfBoundsException if the index is negative or not
+	 *         less than the length of this bitmap.
+	 */
+	protected void checkIndex(long index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException("Index: "+index+", length: "+length);
+	}
+
+	/**
+	 * Returns the number of bits of this bitmap.
+	 *
+	 * @return the length of this bitmap.
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * Returns the number of set bits of this bitmap.
+	 *
+	 * @return the number of set bits.
+	 */
+	public long cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Sets the length of this bitmap. New bits are cleared. When the bitmap
+	 * is shortened, the bits beyond the new length are dropped.
+	 *
+	 * @param length the new length of this bitmap.
+	 */
+	public void setLength(long length) {
+		if (length < this.length) {
+			for (long i = nextSetBit(length); i >= 0; i = nextSetBit(i+1))
+				clear(i);
+		}
+		else {
+			long superblocks = (length+SUPERBLOCK_BITS-1)/SUPERBLOCK_BITS;
+			if (superblocks > counts.length) {
+				int n = (int)Math.max(superblocks, 2L*counts.length);
+				counts = Arrays.copyOf(counts, n);
+				words = Arrays.copyOf(words, n*SUPERBLOCK_WORDS);
+			}
+		}
+		this.length = length;
+	}
+
+	/**
+	 * Returns the value of the bit with the specified index.
+	 *
+	 * @param index the index of the bit.
+	 * @return <tt>true</tt> if the bit is set.
+	 * @throws IndexOutOfBoundsException if the index is out of the bounds of
+	 *         this bitmap.
+	 */
+	public boolean get(long index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return (words[(int)(index>>>6)] & (1L<<index)) != 0;
+	}
+
+	/**
+	 * Sets the bit with the specified index.
+	 *
+	 * @param index the index of the bit.
+	 * @return <tt>true</tt> if the bit has been cleared before.
+	 * @throws IndexOutOfBoundsException if the index is out of the bounds of
+	 *         this bitmap.
+	 */
+	public boolean set(long index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		int w = (int)(index>>>6);
+		long word = words[w];
+		if ((word & (1L<<index)) != 0)
+			return false;
+		words[w] = word | (1L<<index);
+		counts[w/SUPERBLOCK_WORDS]++;
+		cardinality++;
+		return true;
+	}
+
+	/**
+	 * Clears the bit with the specified index.
+	 *
+	 * @param index the index of the bit.
+	 * @return <tt>true</tt> if the bit has been set before.
+	 * @throws IndexOutOfBoundsException if the index is out of the bounds of
+	 *         this bitmap.
+	 */
+	public boolean clear(long index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		int w = (int)(index>>>6);
+		long word = words[w];
+		if ((word & (1L<<index)) == 0)
+			return false;
+		words[w] = word & ~(1L<<index);
+		counts[w/SUPERBLOCK_WORDS]--;
+		cardinality--;
+		return true;
+	}
+
+	/**
+	 * Clears all bits and sets the length of this bitmap to <tt>0</tt>.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0);
+		Arrays.fill(counts, 0);
+		length = cardinality = 0;
+	}
+
+	/**
+	 * Returns the index of the first set bit that occurs on or after the
+	 * specified index.
+	 *
+	 * @param from the index to start the search from (inclusive).
+	 * @return the index of the next set bit or <tt>-1</tt> if there is no
+	 *         such bit.
+	 */
+	public long nextSetBit(long from) {
+		if (from < 0)
+			from = 0;
+		if (from >= length)
+			return -1;
+		int w = (int)(from>>>6);
+		long word = words[w] & (-1L<<from);
+		for (;;) {
+			if (word != 0) {
+				long index = ((long)w<<6)+Long.numberOfTrailingZeros(word);
+				return index < length ? index : -1;
+			}
+			if (++w >= words.length)
+				return -1;
+			if (w%SUPERBLOCK_WORDS == 0)
+				for (int s = w/SUPERBLOCK_WORDS; counts[s] == 0; w = ++s*SUPERBLOCK_WORDS)
+					if (s+1 >= counts.length || ((long)(s+1)*SUPERBLOCK_BITS) >= length)
+						return -1;
+			word = words[w];
+		}
+	}
+
+	/**
+	 * Returns the index of the first cleared bit that occurs on or after the
+	 * specified index. If all bits from the specified index to the end of
+	 * this bitmap are set, the length of this bitmap is returned.
+	 *
+	 * @param from the index to start the search from (inclusive).
+	 * @return the index of the next cleared bit or the length of this bitmap
+	 *         if there is no such bit.
+	 */
+	public long nextClearBit(long from) {
+		if (from < 0)
+			from = 0;
+		if (from >= length)
+			return length;
+		int w = (int)(from>>>6);
+		long word = ~words[w] & (-1L<<from);
+		for (;;) {
+			if (word != 0)
+				return Math.min(((long)w<<6)+Long.numberOfTrailingZeros(word), length);
+			if (((long)++w<<6) >= length)
+				return length;
+			if (w%SUPERBLOCK_WORDS == 0)
+				for (int s = w/SUPERBLOCK_WORDS; counts[s] == SUPERBLOCK_BITS; w = ++s*SUPERBLOCK_WORDS)
+					if ((long)(s+1)*SUPERBLOCK_BITS >= length)
+						return length;
+			word = ~words[w];
+		}
+	}
+
+	/**
+	 * Returns the index of the last set bit that occurs on or before the
+	 * specified index.
+	 *
+	 * @param from the index to start the search from (inclusive).
+	 * @return the index of the previous set bit or <tt>-1</tt> if there is
+	 *         no such bit.
+	 */
+	public long previousSetBit(long from) {
+		if (from >= length)
+			from = length-1;
+		if (from < 0)
+			return -1;
+		int w = (int)(from>>>6);
+		long word = words[w] & (-1L>>>(63-(from&63)));
+		for (;;) {
+			if (word != 0)
+				return ((long)w<<6)+63-Long.numberOfLeadingZeros(word);
+			if (--w < 0)
+				return -1;
+			if (w%SUPERBLOCK_WORDS == SUPERBLOCK_WORDS-1)
+				for (int s = w/SUPERBLOCK_WORDS; counts[s] == 0; w = --s*SUPERBLOCK_WORDS+SUPERBLOCK_WORDS-1)
+					if (s == 0)
+						return -1;
+			word = words[w];
+		}
+	}
+
+	/**
+	 * Returns the number of set bits with an index less than the specified
+	 * index.
+	 *
+	 * @param index the (exclusive) end of the range of bits to count.
+	 * @return the number of set bits before the specified index.
+	 */
+	public long rank(long index) {
+		if (index <= 0)
+			return 0;
+		if (index >= length)
+			return cardinality;
+		int w = (int)(index>>>6), s = w/SUPERBLOCK_WORDS;
+		long rank = 0;
+		for (int i = 0; i < s; i++)
+			rank += counts[i];
+		for (int i = s*SUPERBLOCK_WORDS; i < w; i++)
+			rank += Long.bitCount(words[i]);
+		return rank+Long.bitCount(words[w] & ((1L<<index)-1));
+	}
+
+	/**
+	 * Returns the index of the set bit with the specified rank, i.e. the
+	 * index <tt>i</tt> of a set bit with <tt>rank(i)&nbsp;==&nbsp;k</tt>.
+	 *
+	 * @param k the rank of the desired set bit (starting at <tt>0</tt>).
+	 * @return the index of the <tt>k</tt>th set bit or <tt>-1</tt> if this
+	 *         bitmap does not contain more than <tt>k</tt> set bits.
+	 */
+	public long select(long k) {
+		if (k < 0 || k >= cardinality)
+			return -1;
+		int s = 0;
+		while (k >= counts[s])
+			k -= counts[s++];
+		int w = s*SUPERBLOCK_WORDS;
+		for (int count; k >= (count = Long.bitCount(words[w])); w++)
+			k -= count;
+		long word = words[w];
+		for (; k > 0; k--)
+			word &= word-1;
+		return ((long)w<<6)+Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Returns the index of the cleared bit with the specified rank, i.e.
+	 * the index <tt>i</tt> of a cleared bit with
+	 * <tt>i-rank(i)&nbsp;==&nbsp;k</tt>.
+	 *
+	 * @param k the rank of the desired cleared bit (starting at
+	 *        <tt>0</tt>).
+	 * @return the index of the <tt>k</tt>th cleared bit or <tt>-1</tt> if
+	 *         this bitmap does not contain more than <tt>k</tt> cleared
+	 *         bits.
+	 */
+	public long selectClear(long k) {
+		if (k < 0 || k >= length-cardinality)
+			return -1;
+		int s = 0;
+		while (k >= SUPERBLOCK_BITS-counts[s])
+			k -= SUPERBLOCK_BITS-counts[s++];
+		int w = s*SUPERBLOCK_WORDS;
+		for (int count; k >= (count = 64-Long.bitCount(words[w])); w++)
+			k -= count;
+		long word = ~words[w];
+		for (; k > 0; k--)
+			word &= word-1;
+		return ((long)w<<6)+Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Returns the bytes of this bitmap. The bit <tt>i</tt> is stored as the
+	 * <tt>(i%8)</tt>th least significant bit of the byte <tt>i/8</tt>, the
+	 * length of the array is <tt>(length()+7)/8</tt>.
+	 *
+	 * @return the bytes of this bitmap.
+	 */
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[(int)((length+7)/8)];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte)(words[i>>>3] >>> ((i&7)<<3));
+		return bytes;
+	}
+
+	/**
+	 * Returns a copy of this bitmap.
+	 *
+	 * @return a copy of this bitmap.
+	 */
+	public RankSelectBitMap clone() {
+		try {
+			RankSelectBitMap clone = (RankSelectBitMap)super.clone();
+			clone.words = words.clone();
+			clone.counts = counts.clone();
+			return clone;
+		}
+		catch (CloneNotSupportedException e) {
+			throw new InternalError(e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns a string representation of this bitmap containing the
+	 * indices of its set bits.
+	 *
+	 * @return a string representation of this bitmap.
+	 */
+	public String toString() {
+		StringBuilder string = new StringBuilder("{");
+		for (long i = nextSetBit(0); i >= 0; i = nextSetBit(i+1))
+			string.append(string.length() > 1 ? ", " : "").append(i);
+		return string.append('}').toString();
+	}
+}
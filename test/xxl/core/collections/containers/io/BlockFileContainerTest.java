@@ -0,0 +1,108 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.containers.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.functions.Constant;
+import xxl.core.io.Block;
+
+/**
+ * This is a unit test for the BlockFileContainer, checking that the
+ * bitmaps and the free list, which are held in memory and written lazily,
+ * survive closing and reopening the container.
+ */
+public class BlockFileContainerTest {
+
+	private static final int BLOCK_SIZE = 64;
+
+	private static Block newBlock(int value) {
+		Block block = new Block(BLOCK_SIZE);
+		block.writeInteger(0, value);
+		return block;
+	}
+
+	private static TreeSet<Long> ids(BlockFileContainer container) {
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for (Iterator it = container.ids(); it.hasNext();)
+			ids.add(((Number)it.next()).longValue());
+		return ids;
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		File file = File.createTempFile("BlockFileContainerTest", "");
+		file.delete();
+		String prefix = file.getPath();
+
+		BlockFileContainer container = new BlockFileContainer(prefix, BLOCK_SIZE);
+		List<Object> ids = new ArrayList<Object>();
+		for (int i = 0; i < 100; i++)
+			ids.add(container.insert(newBlock(i)));
+		// reserved ids that are not written yet
+		List<Object> reserved = new ArrayList<Object>();
+		for (int i = 0; i < 5; i++)
+			reserved.add(container.reserve(new Constant(null)));
+		TreeSet<Long> removed = new TreeSet<Long>();
+		for (int i = 10; i < 100; i += 7) {
+			container.remove(ids.get(i));
+			removed.add(((Number)ids.get(i)).longValue());
+		}
+		container.update(ids.get(1), newBlock(-1));
+		TreeSet<Long> used = ids(container);
+		int size = container.size();
+		container.close();
+
+		container = new BlockFileContainer(prefix);
+		Assert.assertEquals(container.size(), size);
+		Assert.assertEquals(ids(container), used);
+		for (Object id : reserved) {
+			Assert.assertTrue(container.isUsed(id));
+			Assert.assertFalse(container.contains(id));
+		}
+		for (int i = 0; i < 100; i++) {
+			boolean isRemoved = removed.contains(((Number)ids.get(i)).longValue());
+			Assert.assertEquals(container.isUsed(ids.get(i)), !isRemoved);
+			Assert.assertEquals(container.contains(ids.get(i)), !isRemoved);
+			if (!isRemoved)
+				Assert.assertEquals(((Block)container.get(ids.get(i))).readInteger(0), i == 1 ? -1 : i);
+		}
+
+		// the free blocks are reused first, lowest first
+		for (Long id : removed)
+			Assert.assertEquals(((Number)container.reserve(new Constant(null))).longValue(), id.longValue());
+		Assert.assertEquals(((Number)container.reserve(new Constant(null))).longValue(), used.last()+BLOCK_SIZE);
+		container.delete();
+	}
+}
@@ -0,0 +1,164 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.collections.containers.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.io.Block;
+import xxl.core.io.CompressionStatistics;
+import xxl.core.io.LZCodec;
+
+/**
+ * This is a unit test for the LZCodec and the CompressedContainer packing
+ * its pages into a record manager and into a MultiBlockContainer.
+ */
+public class CompressedContainerTest {
+
+	private static final int PAGE_SIZE = 1024;
+
+	private static String newPrefix() throws IOException {
+		File file = File.createTempFile("CompressedContainerTest", "");
+		file.delete();
+		return file.getPath();
+	}
+
+	/**
+	 * Returns a page that looks like an index page: sorted integer keys
+	 * followed by unused space. Every tenth page is random.
+	 */
+	private static Block newPage(Random random, int number) {
+		Block page = new Block(PAGE_SIZE);
+		if (number%10 == 0)
+			random.nextBytes(page.array);
+		else
+			for (int i = 0, key = number*1000; i < PAGE_SIZE/8; i++, key += random.nextInt(8))
+				page.writeInteger(4*i, key);
+		return page;
+	}
+
+	private static void roundTrip(byte[] data) {
+		byte[] compressed = new byte[LZCodec.maxCompressedLength(data.length)+3];
+		int length = LZCodec.compress(data, 0, data.length, compressed, 3);
+		byte[] restored = new byte[data.length];
+		Assert.assertEquals(LZCodec.decompress(compressed, 3, length, restored, 0, restored.length), data.length);
+		Assert.assertEquals(restored, data);
+	}
+
+	@Test
+	public void testCodec() {
+		Random random = new Random(42);
+		for (int length = 0; length < 64; length++) {
+			byte[] data = new byte[length];
+			random.nextBytes(data);
+			roundTrip(data);
+			roundTrip(new byte[length]);
+		}
+		byte[] data = new byte[100000];
+		random.nextBytes(data);
+		roundTrip(data);
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte)(i%7 == 0 ? random.nextInt(4) : i/300);
+		roundTrip(data);
+
+		byte[] zeros = new byte[4096];
+		byte[] compressed = new byte[LZCodec.maxCompressedLength(zeros.length)];
+		Assert.assertTrue(LZCodec.compress(zeros, 0, zeros.length, compressed, 0) < 64);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testCorruptData() {
+		byte[] data = new byte[256];
+		Arrays.fill(data, (byte)1);
+		byte[] compressed = new byte[LZCodec.maxCompressedLength(data.length)];
+		int length = LZCodec.compress(data, 0, data.length, compressed, 0);
+		LZCodec.decompress(compressed, 0, length, new byte[100], 0, 100);
+	}
+
+	private static void check(CompressedContainer container) {
+		Random random = new Random(17);
+		List<Object> ids = new ArrayList<Object>();
+		List<Block> pages = new ArrayList<Block>();
+		for (int i = 0; i < 300; i++) {
+			Block page = newPage(random, i);
+			ids.add(container.insert(page));
+			pages.add(page);
+		}
+		for (int i = 1; i < 300; i += 7) {
+			Block page = newPage(random, 1000+i);
+			container.update(ids.get(i), page);
+			pages.set(i, page);
+		}
+		for (int i = 290; i >= 0; i -= 10) {
+			container.remove(ids.remove(i));
+			pages.remove(i);
+		}
+		Assert.assertEquals(container.size(), ids.size());
+		for (int i = 0; i < ids.size(); i++)
+			Assert.assertEquals(container.get(ids.get(i)), pages.get(i));
+		Iterator it = container.getAll(ids.iterator(), true);
+		for (Block page : pages)
+			Assert.assertEquals(it.next(), page);
+		Assert.assertFalse(it.hasNext());
+
+		CompressionStatistics statistics = container.getMetaDataManagement();
+		Assert.assertEquals(statistics.pagesCompressed(), 343);
+		Assert.assertEquals(statistics.pagesDecompressed(), 2*ids.size());
+		Assert.assertTrue(statistics.compressionRatio() > 1.5);
+		Assert.assertEquals(statistics.decompressionLatency().count(), 2*ids.size());
+	}
+
+	@Test
+	public void testRecordManager() throws IOException {
+		BlockFileContainer blocks = new BlockFileContainer(newPrefix(), 4*PAGE_SIZE);
+		CompressedContainer container = CompressedContainer.packed(blocks, 4*PAGE_SIZE);
+		container.getMetaDataManagement().includeAll(CompressionStatistics.IDENTIFIERS);
+		check(container);
+		Assert.assertTrue(blocks.size()*4 < container.size());
+		Assert.assertNotNull(container.getMetaData().get(CompressionStatistics.PAGES_COMPRESSED));
+		container.close();
+		blocks.delete();
+	}
+
+	@Test
+	public void testMultiBlockContainer() throws IOException {
+		String prefix = newPrefix();
+		MultiBlockContainer blocks = new MultiBlockContainer(prefix, 128);
+		CompressedContainer container = new CompressedContainer(blocks);
+		check(container);
+		container.close();
+		blocks.delete();
+	}
+}
@@ -0,0 +1,147 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.containers.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.Container;
+import xxl.core.io.Block;
+import xxl.core.io.LRUBuffer;
+import xxl.core.io.raw.AsyncRawAccess;
+import xxl.core.io.raw.RAFRawAccess;
+import xxl.core.io.raw.RawAccessUtils;
+
+/**
+ * This is a unit test for the vectored <tt>getAll</tt> implementations of
+ * the file based containers, checking that the blocks are delivered in the
+ * caller's order.
+ */
+public class GetAllTest {
+
+	private static final int BLOCK_SIZE = 64;
+
+	private static String newPrefix() throws IOException {
+		File file = File.createTempFile("GetAllTest", "");
+		file.delete();
+		return file.getPath();
+	}
+
+	private static Block newBlock(int value) {
+		Block block = new Block(BLOCK_SIZE);
+		block.writeInteger(0, value);
+		return block;
+	}
+
+	/**
+	 * Inserts 200 blocks, removes some of them and checks getAll with the
+	 * remaining ids in random order including duplicates.
+	 */
+	private static void check(Container container) {
+		List<Object> ids = new ArrayList<Object>();
+		List<Integer> values = new ArrayList<Integer>();
+		for (int i = 0; i < 200; i++) {
+			ids.add(container.insert(newBlock(i)));
+			values.add(i);
+		}
+		for (int i = 190; i >= 0; i -= 10) {
+			container.remove(ids.remove(i));
+			values.remove(i);
+		}
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < ids.size(); i++)
+			order.add(i);
+		for (int i = 0; i < 20; i++)
+			order.add(i*7);
+		Collections.shuffle(order, new Random(42));
+
+		List<Object> requested = new ArrayList<Object>();
+		for (int i : order)
+			requested.add(ids.get(i));
+		Iterator blocks = container.getAll(requested.iterator(), true);
+		for (int i : order)
+			Assert.assertEquals(((Block)blocks.next()).readInteger(0), values.get(i).intValue());
+		Assert.assertFalse(blocks.hasNext());
+	}
+
+	@Test
+	public void testBlockFileContainer() throws IOException {
+		BlockFileContainer container = new BlockFileContainer(newPrefix(), BLOCK_SIZE);
+		check(container);
+		container.delete();
+	}
+
+	@Test
+	public void testRawAccessContainer() throws IOException {
+		String file = newPrefix();
+		RawAccessUtils.createFileForRaw(file, 1000, BLOCK_SIZE);
+		RawAccessContainer container = new RawAccessContainer(new RAFRawAccess(file, false, BLOCK_SIZE), 10);
+		check(container);
+		container.close();
+		new File(file).delete();
+	}
+
+	@Test
+	public void testAsyncRawAccessContainer() throws IOException {
+		String file = newPrefix();
+		RawAccessUtils.createFileForRaw(file, 1000, BLOCK_SIZE);
+		RawAccessContainer container = new RawAccessContainer(new AsyncRawAccess(file, BLOCK_SIZE, 8), 10);
+		check(container);
+		container.close();
+		new File(file).delete();
+	}
+
+	@Test
+	public void testBufferedContainer() throws IOException {
+		BlockFileContainer file = new BlockFileContainer(newPrefix(), BLOCK_SIZE);
+		BufferedContainer container = new BufferedContainer(file, new LRUBuffer(50));
+		check(container);
+		container.close();
+		file.delete();
+	}
+
+	@Test(expectedExceptions = NoSuchElementException.class)
+	public void testMissingBlock() throws IOException {
+		BlockFileContainer container = new BlockFileContainer(newPrefix(), BLOCK_SIZE);
+		try {
+			Object id = container.insert(newBlock(0));
+			container.remove(id);
+			container.getAll(Collections.singletonList(id).iterator(), true);
+		}
+		finally {
+			container.delete();
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.containers.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.io.Block;
+
+/**
+ * This is a unit test for the MappedBlockFileContainer, checking its basic
+ * operations and the compatibility of its files with the BlockFileContainer.
+ */
+public class MappedBlockFileContainerTest {
+
+	private static final int BLOCK_SIZE = 64;
+
+	private static String newPrefix() throws IOException {
+		File file = File.createTempFile("MappedBlockFileContainerTest", "");
+		file.delete();
+		return file.getPath();
+	}
+
+	private static Block newBlock(int value) {
+		Block block = new Block(BLOCK_SIZE);
+		block.writeInteger(0, value);
+		return block;
+	}
+
+	private static void check(BlockFileContainer container, Map<Object, Integer> values) {
+		Assert.assertEquals(container.size(), values.size());
+		for (Map.Entry<Object, Integer> entry : values.entrySet())
+			Assert.assertEquals(((Block)container.get(entry.getKey())).readInteger(0), entry.getValue().intValue());
+		int count = 0;
+		for (Iterator it = container.ids(); it.hasNext(); it.next())
+			count++;
+		Assert.assertEquals(count, container.size());
+	}
+
+	private static Map<Object, Integer> fill(BlockFileContainer container) {
+		Map<Object, Integer> values = new HashMap<Object, Integer>();
+		List<Object> ids = new ArrayList<Object>();
+		for (int i = 0; i < 100; i++) {
+			Object id = container.insert(newBlock(i));
+			ids.add(id);
+			values.put(id, i);
+		}
+		// remove blocks in the middle and at the end of the container
+		for (int i = 0; i < 100; i += 3) {
+			container.remove(ids.get(i));
+			values.remove(ids.get(i));
+		}
+		container.remove(ids.get(98));
+		values.remove(ids.get(98));
+		for (int i = 1; i < 30; i += 3) {
+			container.update(ids.get(i), newBlock(-i));
+			values.put(ids.get(i), -i);
+		}
+		return values;
+	}
+
+	@Test
+	public void testMappedToBlockFile() throws IOException {
+		String prefix = newPrefix();
+		MappedBlockFileContainer mapped = new MappedBlockFileContainer(prefix, BLOCK_SIZE);
+		Map<Object, Integer> values = fill(mapped);
+		check(mapped, values);
+		mapped.close();
+
+		BlockFileContainer container = new BlockFileContainer(prefix);
+		check(container, values);
+		// reuses the free list written by the mapped container
+		for (int i = 0; i < 40; i++)
+			values.put(container.insert(newBlock(1000+i)), 1000+i);
+		check(container, values);
+		container.delete();
+	}
+
+	@Test
+	public void testFlush() throws IOException {
+		String prefix = newPrefix();
+		MappedBlockFileContainer mapped = new MappedBlockFileContainer(prefix, BLOCK_SIZE);
+		Map<Object, Integer> values = fill(mapped);
+		mapped.flush();
+		// a flush keeps the segments mapped
+		Assert.assertFalse(mapped.mappedContainer.segments.isEmpty());
+		for (int i = 0; i < 40; i++)
+			values.put(mapped.insert(newBlock(1000+i)), 1000+i);
+		check(mapped, values);
+		mapped.flush();
+
+		long[] lengths = {
+			mapped.mappedContainer.length(),
+			mapped.mappedReservedBitMap.length(),
+			mapped.mappedUpdatedBitMap.length(),
+			mapped.mappedFreeList.length()
+		};
+		mapped.close();
+		// the files are not padded to whole segments after closing
+		Assert.assertEquals(new File(prefix+".ctr").length(), lengths[0]);
+		Assert.assertEquals(new File(prefix+".rbm").length(), lengths[1]);
+		Assert.assertEquals(new File(prefix+".ubm").length(), lengths[2]);
+		Assert.assertEquals(new File(prefix+".flt").length(), lengths[3]);
+
+		BlockFileContainer container = new BlockFileContainer(prefix);
+		check(container, values);
+		container.delete();
+	}
+
+	@Test
+	public void testBlockFileToMapped() throws IOException {
+		String prefix = newPrefix();
+		BlockFileContainer container = new BlockFileContainer(prefix, BLOCK_SIZE);
+		Map<Object, Integer> values = fill(container);
+		container.close();
+
+		MappedBlockFileContainer mapped = new MappedBlockFileContainer(prefix);
+		check(mapped, values);
+		for (int i = 0; i < 40; i++)
+			values.put(mapped.insert(newBlock(1000+i)), 1000+i);
+		check(mapped, values);
+		for (Object id : new ArrayList<Object>(values.keySet()))
+			mapped.remove(id);
+		Assert.assertEquals(mapped.size(), 0);
+		mapped.delete();
+	}
+}
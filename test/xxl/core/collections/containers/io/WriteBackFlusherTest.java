@@ -0,0 +1,67 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.collections.containers.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.io.LRUBuffer;
+
+/**
+ * This is a unit test for the asynchronous write-back of the
+ * BufferedContainer.
+ */
+public class WriteBackFlusherTest {
+
+	@Test
+	public void testAsynchronousWriteBack() {
+		MapContainer container = new MapContainer();
+		BufferedContainer buffered = new BufferedContainer(container, new LRUBuffer(100, Integer.MAX_VALUE, 20), 50, 16);
+		List<Object> ids = new ArrayList<Object>();
+
+		for (int i = 0; i < 1000; i++)
+			ids.add(buffered.insert(i));
+		for (int i = 0; i < 1000; i += 2)
+			buffered.update(ids.get(i), -i);
+		for (int i = 0; i < 1000; i++)
+			Assert.assertEquals(buffered.get(ids.get(i)), i%2 == 0 ? -i : i);
+		for (int i = 0; i < 1000; i += 10)
+			buffered.remove(ids.get(i));
+
+		buffered.flush();
+		Assert.assertEquals(buffered.flusher.pending(), 0);
+		Assert.assertTrue(buffered.flusher.groups() > 0);
+		Assert.assertEquals(container.size(), 900);
+		for (int i = 0; i < 1000; i++)
+			if (i%10 != 0)
+				Assert.assertEquals(container.get(ids.get(i)), i%2 == 0 ? -i : i);
+		buffered.close();
+	}
+}
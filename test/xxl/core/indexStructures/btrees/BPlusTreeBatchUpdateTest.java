@@ -0,0 +1,173 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures.btrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.io.BufferedContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.cursors.Cursors;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.keyRanges.IntegerKeyRange;
+import xxl.core.indexStructures.separators.IntegerSeparator;
+import xxl.core.io.LRUBuffer;
+import xxl.core.io.converters.Converters;
+import xxl.core.io.converters.IntegerConverter;
+import xxl.core.io.converters.MeasuredConverter;
+
+/**
+ * This is a unit test for the batch operations insertAll and removeAll of
+ * the BPlusTree, comparing the tree with a TreeSet after every batch.
+ */
+public class BPlusTreeBatchUpdateTest {
+
+	private static final int BLOCK_SIZE = 128;
+
+	private static final int BUFFER_SIZE = 10;
+
+	/**
+	 * The buffer is small, so that nodes which are not unfixed lead to a
+	 * buffer overflow.
+	 */
+	private static BPlusTree createBPlusTree() {
+		BPlusTree tree = new BPlusTree(BLOCK_SIZE);
+		Function<Object, Object> getKey = new AbstractFunction<Object, Object>() {
+			@Override
+			public Object invoke(Object argument) {
+				return argument;
+			}
+		};
+		BufferedContainer container = new BufferedContainer(
+			new ConverterContainer(new MapContainer(), tree.nodeConverter()),
+			new LRUBuffer<Object, Object, Object>(BUFFER_SIZE)
+		);
+		MeasuredConverter<Integer> converter = Converters.createMeasuredConverter(IntegerConverter.DEFAULT_INSTANCE);
+		tree.initialize(getKey, container, converter, converter, IntegerSeparator.FACTORY_FUNCTION, IntegerKeyRange.FACTORY_FUNCTION);
+		return tree;
+	}
+
+	private static List<Integer> batch(Random random, int number, int range) {
+		TreeSet<Integer> batch = new TreeSet<Integer>();
+		while (batch.size() < number)
+			batch.add(random.nextInt(range));
+		List<Integer> shuffled = new ArrayList<Integer>(batch);
+		Collections.shuffle(shuffled, random);
+		return shuffled;
+	}
+
+	/**
+	 * Checks the content, the separators and the fill of the nodes of the
+	 * tree.
+	 */
+	private static void checkTree(BPlusTree tree, TreeSet<Integer> expected) {
+		if (expected.isEmpty()) {
+			Assert.assertNull(tree.rootEntry());
+			return;
+		}
+		Cursor cursor = tree.rangeQuery(Integer.MIN_VALUE, Integer.MAX_VALUE);
+		Assert.assertEquals(Cursors.toList(cursor), new ArrayList<Integer>(expected));
+		cursor.close();
+		Assert.assertEquals(((IntegerKeyRange)tree.rootDescriptor()).minBound(), expected.first());
+		Assert.assertEquals(((IntegerKeyRange)tree.rootDescriptor()).maxBound(), expected.last());
+		checkNode((BPlusTree.IndexEntry)tree.rootEntry(), tree, null, true);
+	}
+
+	private static void checkNode(BPlusTree.IndexEntry indexEntry, BPlusTree tree, Integer lowerBound, boolean root) {
+		BPlusTree.Node node = (BPlusTree.Node)indexEntry.get(true);
+		Assert.assertFalse(tree.overflows.invoke(node));
+		Assert.assertTrue(root || !tree.underflows.invoke(node));
+		Integer upperBound = indexEntry.separator() == null ? null : (Integer)indexEntry.separator().sepValue();
+		for (int i = 0; i < node.number(); i++) {
+			Object entry = node.getEntry(i);
+			Integer key = node.level() == 0 ? (Integer)entry : (Integer)((BPlusTree.IndexEntry)entry).separator().sepValue();
+			Assert.assertTrue(lowerBound == null || key > lowerBound);
+			Assert.assertTrue(upperBound == null || key <= upperBound);
+			if (node.level() > 0)
+				checkNode((BPlusTree.IndexEntry)entry, tree, lowerBound, false);
+			lowerBound = key;
+		}
+	}
+
+	@Test
+	public void testInsertAllRemoveAll() {
+		BPlusTree tree = createBPlusTree();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		Random random = new Random(42);
+
+		for (int round = 0; round < 10; round++) {
+			List<Integer> batch = batch(random, 500, 1000000);
+			batch.removeAll(expected);
+			tree.insertAll(batch.iterator());
+			expected.addAll(batch);
+			checkTree(tree, expected);
+		}
+		// append larger keys to the last leaf
+		List<Integer> append = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++)
+			append.add(2000000+i);
+		tree.insertAll(append.iterator());
+		expected.addAll(append);
+		checkTree(tree, expected);
+
+		for (int round = 0; round < 5; round++) {
+			List<Integer> batch = batch(random, 1000, 1000000);
+			batch.addAll(new ArrayList<Integer>(expected).subList(0, 100));
+			List<Object> removed = tree.removeAll(batch.iterator());
+			TreeSet<Integer> removedExpected = new TreeSet<Integer>(batch);
+			removedExpected.retainAll(expected);
+			Assert.assertEquals(removed, new ArrayList<Object>(removedExpected));
+			expected.removeAll(removedExpected);
+			checkTree(tree, expected);
+		}
+
+		Assert.assertEquals(tree.removeAll(new ArrayList<Integer>(expected).iterator()).size(), expected.size());
+		expected.clear();
+		checkTree(tree, expected);
+
+		tree.insertAll(Arrays.asList(5, 3, 1).iterator());
+		expected.addAll(Arrays.asList(1, 3, 5));
+		checkTree(tree, expected);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInsertAllExistingKey() {
+		BPlusTree tree = createBPlusTree();
+		tree.insertAll(Arrays.asList(1, 2, 3).iterator());
+		tree.insertAll(Arrays.asList(0, 2, 4).iterator());
+	}
+}
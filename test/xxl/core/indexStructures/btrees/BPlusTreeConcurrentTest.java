@@ -0,0 +1,77 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+package xxl.core.indexStructures.btrees;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.keyRanges.IntegerKeyRange;
+import xxl.core.indexStructures.separators.IntegerSeparator;
+import xxl.core.io.converters.Converters;
+import xxl.core.io.converters.IntegerConverter;
+import xxl.core.io.converters.MeasuredConverter;
+
+/**
+ * This is a unit test for the root handling of the concurrent mode of the
+ * BPlusTree. The nodes are kept in a MapContainer, so that the tree works on
+ * the same node objects as the test.
+ */
+public class BPlusTreeConcurrentTest {
+
+	private static final int BLOCK_SIZE = 128;
+
+	private static BPlusTree createBPlusTree() {
+		BPlusTree tree = new BPlusTree(BLOCK_SIZE);
+		Function<Object, Object> getKey = new AbstractFunction<Object, Object>() {
+			@Override
+			public Object invoke(Object argument) {
+				return argument;
+			}
+		};
+		MeasuredConverter<Integer> converter = Converters.createMeasuredConverter(IntegerConverter.DEFAULT_INSTANCE);
+		tree.initialize(getKey, new MapContainer(), converter, converter, IntegerSeparator.FACTORY_FUNCTION, IntegerKeyRange.FACTORY_FUNCTION);
+		return tree.setConcurrent(true);
+	}
+
+	@Test
+	public void testRootSeparatorIsNotShared() {
+		BPlusTree tree = createBPlusTree();
+		int key = 0;
+		while (tree.height() < 2)
+			tree.insert(key++);
+		BPlusTree.IndexEntry rootEntry = (BPlusTree.IndexEntry)tree.rootEntry();
+		BPlusTree.IndexEntry lastEntry = (BPlusTree.IndexEntry)((BPlusTree.Node)rootEntry.get(true)).getLast();
+		Comparable separator = lastEntry.separator().sepValue();
+		Assert.assertNotSame(lastEntry.separator(), rootEntry.separator());
+		// extending the root separator does not change the entries of the root node
+		tree.insert(key);
+		Assert.assertEquals(rootEntry.separator().sepValue(), key);
+		Assert.assertEquals(lastEntry.separator().sepValue(), separator);
+	}
+}
@@ -0,0 +1,151 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures.btrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.SynchronizedContainer;
+import xxl.core.collections.containers.io.BufferedContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.cursors.Cursors;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.keyRanges.IntegerKeyRange;
+import xxl.core.indexStructures.separators.IntegerSeparator;
+import xxl.core.io.ConcurrentBuffer;
+import xxl.core.io.LRUBuffer;
+import xxl.core.io.converters.Converters;
+import xxl.core.io.converters.IntegerConverter;
+import xxl.core.io.converters.MeasuredConverter;
+
+/**
+ * This is a unit test for the asynchronous read-ahead of the leaves scanned
+ * by range queries of the BPlusTree.
+ */
+public class BPlusTreeReadAheadTest {
+
+	private static final int BLOCK_SIZE = 128;
+
+	/**
+	 * Creates a tree in a thread-safe container: a synchronized buffered
+	 * container or, in the concurrent mode, a container using a
+	 * ConcurrentBuffer.
+	 */
+	private static BPlusTree createBPlusTree(boolean concurrent) {
+		BPlusTree tree = new BPlusTree(BLOCK_SIZE);
+		Function<Object, Object> getKey = new AbstractFunction<Object, Object>() {
+			@Override
+			public Object invoke(Object argument) {
+				return argument;
+			}
+		};
+		Container container = concurrent ?
+			new BufferedContainer(
+				new SynchronizedContainer(new ConverterContainer(new MapContainer(), tree.nodeConverter())),
+				new ConcurrentBuffer<Object, Object, Object>(256)
+			) :
+			new SynchronizedContainer(new BufferedContainer(
+				new ConverterContainer(new MapContainer(), tree.nodeConverter()),
+				new LRUBuffer<Object, Object, Object>(64)
+			));
+		MeasuredConverter<Integer> converter = Converters.createMeasuredConverter(IntegerConverter.DEFAULT_INSTANCE);
+		tree.initialize(getKey, container, converter, converter, IntegerSeparator.FACTORY_FUNCTION, IntegerKeyRange.FACTORY_FUNCTION);
+		tree.setConcurrent(concurrent);
+		for (int i = 0; i < 20000; i++)
+			tree.insert((i * 7919) % 20000);
+		return tree;
+	}
+
+	private static List<Integer> range(int min, int max) {
+		List<Integer> range = new ArrayList<Integer>();
+		for (int i = Math.max(min, 0); i <= Math.min(max, 19999); i++)
+			range.add(i);
+		return range;
+	}
+
+	@Test
+	public void testReadAhead() {
+		checkReadAhead(createBPlusTree(false));
+	}
+
+	@Test
+	public void testConcurrentReadAhead() {
+		checkReadAhead(createBPlusTree(true));
+	}
+
+	private void checkReadAhead(BPlusTree tree) {
+		final ExecutorService executorService = Executors.newFixedThreadPool(2);
+		final AtomicInteger tasks = new AtomicInteger();
+		tree.setReadAhead(16, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.incrementAndGet();
+				executorService.execute(command);
+			}
+		});
+		Assert.assertEquals(tree.getReadAhead(), 16);
+		try {
+			for (int[] query : new int[][] {{0, 19999}, {-100, 30000}, {5000, 5100}, {19990, 20010}, {7, 7}}) {
+				Cursor cursor = tree.rangeQuery(query[0], query[1]);
+				Assert.assertEquals(Cursors.toList(cursor), range(query[0], query[1]));
+				cursor.close();
+			}
+			// a cursor which is closed before the end of the scan
+			Cursor cursor = tree.rangeQuery(0, 19999);
+			for (int i = 0; i < 1000; i++)
+				Assert.assertEquals(cursor.next(), i);
+			cursor.close();
+			Assert.assertTrue(tasks.get() > 0);
+
+			// the tree remains updatable
+			Assert.assertEquals(tree.remove(100), 100);
+			cursor = tree.rangeQuery(99, 101);
+			Assert.assertEquals(Cursors.toList(cursor), Arrays.asList(99, 101));
+			cursor.close();
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testIllegalWindow() {
+		new BPlusTree(BLOCK_SIZE).setReadAhead(-1);
+	}
+}
@@ -0,0 +1,125 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures.btrees;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.cursors.Cursors;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.keyRanges.IntegerKeyRange;
+import xxl.core.indexStructures.separators.IntegerSeparator;
+import xxl.core.io.converters.Converters;
+import xxl.core.io.converters.IntegerConverter;
+import xxl.core.io.converters.MeasuredConverter;
+
+/**
+ * This is a unit test for the slotted node format of the BPlusTree. The
+ * nodes are stored in a ConverterContainer without a buffer, so every node
+ * access decodes the node again.
+ */
+public class BPlusTreeSlottedNodesTest {
+
+	private static final int BLOCK_SIZE = 256;
+
+	private static BPlusTree createBPlusTree(boolean slottedNodes) {
+		BPlusTree tree = new BPlusTree(BLOCK_SIZE);
+		Function<Object, Object> getKey = new AbstractFunction<Object, Object>() {
+			@Override
+			public Object invoke(Object argument) {
+				return argument;
+			}
+		};
+		tree.setSlottedNodes(slottedNodes);
+		MeasuredConverter<Integer> converter = Converters.createMeasuredConverter(IntegerConverter.DEFAULT_INSTANCE);
+		tree.initialize(getKey, new ConverterContainer(new MapContainer(), tree.nodeConverter()), converter, converter, IntegerSeparator.FACTORY_FUNCTION, IntegerKeyRange.FACTORY_FUNCTION);
+		return tree;
+	}
+
+	private static void checkContent(BPlusTree tree, TreeSet<Integer> expected) {
+		Cursor cursor = tree.rangeQuery(Integer.MIN_VALUE, Integer.MAX_VALUE);
+		Assert.assertEquals(Cursors.toList(cursor), new ArrayList<Integer>(expected));
+		cursor.close();
+		cursor = tree.rangeQuery(1000, 2000);
+		Assert.assertEquals(Cursors.toList(cursor), new ArrayList<Integer>(expected.subSet(1000, true, 2000, true)));
+		cursor.close();
+	}
+
+	@Test
+	public void testSlottedNodes() {
+		BPlusTree tree = createBPlusTree(true);
+		BPlusTree plainTree = createBPlusTree(false);
+		Assert.assertTrue(tree.isSlottedNodes());
+		Assert.assertEquals(tree.getLeafNodeB(), plainTree.getLeafNodeB());
+		Assert.assertEquals(tree.getIndexNodeB(), plainTree.getIndexNodeB());
+
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		Random random = new Random(42);
+		List<Integer> keys = new ArrayList<Integer>();
+		while (keys.size() < 10000) {
+			int key = random.nextInt(100000);
+			if (expected.add(key)) {
+				keys.add(key);
+				tree.insert(key);
+				plainTree.insert(key);
+			}
+		}
+		Assert.assertEquals(tree.height(), plainTree.height());
+		Assert.assertEquals(tree.container().size(), plainTree.container().size());
+		checkContent(tree, expected);
+
+		for (int i = 0; i < 100000; i += 7)
+			Assert.assertEquals(tree.exactMatchQuery(i), expected.contains(i) ? i : null);
+
+		for (int i = 0; i < keys.size(); i += 2) {
+			Assert.assertEquals(tree.remove(keys.get(i)), keys.get(i));
+			expected.remove(keys.get(i));
+		}
+		checkContent(tree, expected);
+		for (int key : expected)
+			Assert.assertEquals(tree.exactMatchQuery(key), key);
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testCompressedSlottedNodes() {
+		new BPlusTree(BLOCK_SIZE).setNodeCompression(true).setSlottedNodes(true);
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testSlottedNodesAfterInitialization() {
+		createBPlusTree(false).setSlottedNodes(true);
+	}
+}
@@ -0,0 +1,169 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures.btrees;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.LongArrayList;
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.io.BufferedContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.cursors.Cursors;
+import xxl.core.indexStructures.BPlusIndexedSet;
+import xxl.core.indexStructures.LongBPlusTree;
+import xxl.core.indexStructures.builder.Builders;
+import xxl.core.indexStructures.builder.BPlusTree.BPlusConfiguration;
+import xxl.core.indexStructures.builder.BPlusTree.PrimitiveType;
+import xxl.core.io.LRUBuffer;
+import xxl.core.relational.JavaType;
+
+/**
+ * This is a unit test for the LongBPlusTree, comparing it with a TreeSet,
+ * and for its list of primitive values.
+ */
+public class LongBPlusTreeTest {
+
+	private static final int BLOCK_SIZE = 256;
+
+	private static void checkContent(LongBPlusTree tree, TreeSet<Long> expected, long from, long to) {
+		Cursor cursor = tree.rangeQuery(from, to);
+		Assert.assertEquals(Cursors.toList(cursor), new ArrayList<Long>(expected.subSet(from, true, to, true)));
+		cursor.close();
+	}
+
+	@Test
+	public void testLongArrayList() {
+		LongArrayList list = new LongArrayList(1);
+		for (long i = 0; i < 100; i++)
+			list.addLong(2*i);
+		Assert.assertEquals(list.size(), 100);
+		Assert.assertEquals(list.lowerBound(-1), 0);
+		Assert.assertEquals(list.lowerBound(0), 0);
+		Assert.assertEquals(list.lowerBound(51), 26);
+		Assert.assertEquals(list.lowerBound(52), 26);
+		Assert.assertEquals(list.lowerBound(1000), 100);
+
+		list.add(1, 1L);
+		list.subList(50, 101).clear();
+		Assert.assertEquals(list.size(), 50);
+		Assert.assertEquals(list.get(1), Long.valueOf(1));
+		Assert.assertEquals(list.getLong(49), 96);
+		list.addAll(0, list.subList(48, 50));
+		Assert.assertEquals(list.subList(0, 3), Arrays.asList(94L, 96L, 0L));
+		Assert.assertEquals(list.remove(0), Long.valueOf(94));
+		Assert.assertEquals(new LongArrayList().lowerBound(5), 0);
+	}
+
+	private static void checkInsertAndRemove(LongBPlusTree tree) {
+		TreeSet<Long> expected = new TreeSet<Long>();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			long value = random.nextLong() >> 20;
+			if (expected.add(value))
+				tree.insert(value);
+		}
+		checkContent(tree, expected, Long.MIN_VALUE, Long.MAX_VALUE);
+		Assert.assertTrue(tree.height() > 2);
+
+		List<Long> values = new ArrayList<Long>(expected);
+		for (int i = 0; i < values.size(); i += 3) {
+			Assert.assertEquals(tree.remove(values.get(i)), values.get(i));
+			expected.remove(values.get(i));
+		}
+		for (int i = 0; i < values.size(); i += 100) {
+			Assert.assertEquals(tree.exactMatchQuery(values.get(i)), i%3 == 0 ? null : values.get(i));
+			Assert.assertNull(tree.exactMatchQuery(values.get(i)+1));
+		}
+		checkContent(tree, expected, Long.MIN_VALUE, Long.MAX_VALUE);
+		checkContent(tree, expected, values.get(1000), values.get(5000));
+		checkContent(tree, expected, values.get(1000)+1, values.get(5000)-1);
+	}
+
+	@Test
+	public void testLongBPlusTree() {
+		LongBPlusTree tree = new LongBPlusTree(BLOCK_SIZE);
+		tree.initialize(new BufferedContainer(
+			new ConverterContainer(new MapContainer(), tree.nodeConverter()),
+			new LRUBuffer<Object, Object, Object>(10)
+		));
+		checkInsertAndRemove(tree);
+	}
+
+	/*
+	 * The nodes are never serialized, so the separators of the index nodes
+	 * are updated in place.
+	 */
+	@Test
+	public void testLongBPlusTreeInMemory() {
+		LongBPlusTree tree = new LongBPlusTree(BLOCK_SIZE);
+		tree.initialize(new MapContainer());
+		checkInsertAndRemove(tree);
+	}
+
+	@Test
+	public void testBuilder() throws Exception {
+		File directory = Files.createTempDirectory("LongBPlusTreeTest").toFile();
+		BPlusConfiguration.Creator creator = Builders.createBPlusTree.Long("LongTable", true);
+		creator.setBlockSize(BLOCK_SIZE);
+		BPlusIndexedSet<Long> set = creator.storeAt(directory.getPath()).getBuilder().create();
+		Assert.assertTrue(set.getIndexStructure() instanceof LongBPlusTree);
+		for (long i = 0; i < 5000; i++)
+			Assert.assertTrue(set.add(i*7));
+		Assert.assertFalse(set.add(7L));
+		Assert.assertTrue(set.remove(14L));
+		set.save();
+
+		BPlusIndexedSet<Long> reloadedSet = Builders.loadBPlusTree.from(directory.getPath(), "LongTable").getBuilder().create();
+		Assert.assertTrue(reloadedSet.getIndexStructure() instanceof LongBPlusTree);
+		Cursor cursor = ((LongBPlusTree)reloadedSet.getIndexStructure()).rangeQuery(0L, 30L);
+		Assert.assertEquals(Cursors.toList(cursor), Arrays.asList(0L, 7L, 21L, 28L));
+		cursor.close();
+
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testPrimitiveNodesWithNodeCompression() {
+		Builders.createBPlusTree.Long("LongTable", true).setNodeCompression(true);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testPrimitiveNodesForOtherTypes() {
+		new PrimitiveType(JavaType.INT, "IntTable", true);
+	}
+}
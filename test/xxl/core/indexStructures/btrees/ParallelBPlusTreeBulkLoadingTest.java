@@ -0,0 +1,196 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures.btrees;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.io.BlockFileContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.ParallelBPlusTreeBulkLoading;
+import xxl.core.indexStructures.keyRanges.IntegerKeyRange;
+import xxl.core.indexStructures.separators.IntegerSeparator;
+import xxl.core.io.converters.Converters;
+import xxl.core.io.converters.IntegerConverter;
+import xxl.core.io.converters.MeasuredConverter;
+
+/**
+ * This is a unit test for the ParallelBPlusTreeBulkLoading, checking the
+ * structure and the content of the loaded trees.
+ */
+public class ParallelBPlusTreeBulkLoadingTest {
+
+	private static final int BLOCK_SIZE = 256;
+
+	private static BPlusTree createBPlusTree(Container container) {
+		return initialize(new BPlusTree(BLOCK_SIZE), container);
+	}
+
+	private static BPlusTree initialize(BPlusTree tree, Container container) {
+		Function<Object, Object> getKey = new AbstractFunction<Object, Object>() {
+			@Override
+			public Object invoke(Object argument) {
+				return argument;
+			}
+		};
+		MeasuredConverter<Integer> converter = Converters.createMeasuredConverter(IntegerConverter.DEFAULT_INSTANCE);
+		tree.initialize(getKey, container, converter, converter, IntegerSeparator.FACTORY_FUNCTION, IntegerKeyRange.FACTORY_FUNCTION);
+		return tree;
+	}
+
+	private static Integer[] shuffled(int number) {
+		Integer[] objects = new Integer[number];
+		for (int i = 0; i < number; i++)
+			objects[i] = 2*i;
+		Random random = new Random(42);
+		for (int i = number-1; i > 0; i--) {
+			int j = random.nextInt(i+1);
+			Integer object = objects[i];
+			objects[i] = objects[j];
+			objects[j] = object;
+		}
+		return objects;
+	}
+
+	/**
+	 * Checks the fill of all nodes and the sibling links level by level.
+	 */
+	private static void checkStructure(BPlusTree tree, int number) {
+		BPlusTree.IndexEntry first = (BPlusTree.IndexEntry)tree.rootEntry();
+		for (int level = tree.height()-1; level >= 0; level--) {
+			int entries = 0;
+			BPlusTree.Node node = (BPlusTree.Node)first.get(true);
+			BPlusTree.IndexEntry next = level > 0 ? (BPlusTree.IndexEntry)node.getEntry(0) : null;
+			boolean root = level == tree.height()-1;
+			while (true) {
+				Assert.assertFalse(tree.overflows.invoke(node));
+				Assert.assertTrue(root || !tree.underflows.invoke(node));
+				entries += node.number();
+				if (node.nextNeighbor() == null)
+					break;
+				node = (BPlusTree.Node)node.nextNeighbor().get(true);
+			}
+			if (level == 0)
+				Assert.assertEquals(entries, number);
+			else
+				first = next;
+		}
+	}
+
+	@Test
+	public void testBulkLoading() {
+		for (int number : new int[] {1, 10, 1000, 100000}) {
+			BPlusTree tree = createBPlusTree(new MapContainer());
+			Integer[] objects = shuffled(number);
+			ParallelBPlusTreeBulkLoading.sort(tree, objects);
+			new ParallelBPlusTreeBulkLoading(tree, objects);
+
+			checkStructure(tree, number);
+			Iterator<?> results = tree.rangeQuery(0, 2*number);
+			for (int i = 0; i < number; i++)
+				Assert.assertEquals(results.next(), 2*i);
+			Assert.assertFalse(results.hasNext());
+			Assert.assertNotNull(tree.exactMatchQuery(number%2 == 0 ? number : number-1));
+			Assert.assertNull(tree.exactMatchQuery(1));
+
+			// the tree remains updatable
+			tree.insert(-1);
+			tree.insert(2*number+1);
+			Assert.assertEquals(tree.remove(0), 0);
+			Cursor cursor = tree.rangeQuery(-1, 2);
+			Assert.assertEquals(cursor.next(), -1);
+			Assert.assertEquals(cursor.hasNext() ? cursor.next() : null, number > 1 ? 2 : null);
+			cursor.close();
+		}
+	}
+
+	@Test
+	public void testFillFactor() {
+		BPlusTree tree = createBPlusTree(new MapContainer());
+		Integer[] objects = shuffled(50000);
+		ParallelBPlusTreeBulkLoading.sort(tree, objects);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new ParallelBPlusTreeBulkLoading(tree, objects, tree.getContainer, pool, 0.7);
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		checkStructure(tree, objects.length);
+		BPlusTree.Node leaf = (BPlusTree.Node)tree.rootEntry().get(true);
+		while (leaf.level() > 0)
+			leaf = (BPlusTree.Node)((BPlusTree.IndexEntry)leaf.getEntry(0)).get(true);
+		Assert.assertTrue(leaf.number() <= (int)(0.7*tree.getLeafNodeB())+1);
+	}
+
+	@Test
+	public void testConverterContainer() throws IOException {
+		File directory = Files.createTempDirectory("ParallelBPlusTreeBulkLoadingTest").toFile();
+		BPlusTree tree = new BPlusTree(BLOCK_SIZE);
+		BlockFileContainer file = new BlockFileContainer(directory+"/tree", BLOCK_SIZE);
+		initialize(tree, new ConverterContainer(file, tree.nodeConverter()));
+		Integer[] objects = shuffled(100000);
+		ParallelBPlusTreeBulkLoading.sort(tree, objects);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new ParallelBPlusTreeBulkLoading(tree, Arrays.asList(objects).iterator(), tree.getContainer, pool, 0.8);
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		checkStructure(tree, objects.length);
+		Iterator<?> results = tree.rangeQuery(0, 2*objects.length);
+		for (int i = 0; i < objects.length; i++)
+			Assert.assertEquals(results.next(), 2*i);
+		Assert.assertFalse(results.hasNext());
+		file.close();
+		for (File f : directory.listFiles())
+			f.delete();
+		directory.delete();
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testIllegalFillFactor() {
+		BPlusTree tree = createBPlusTree(new MapContainer());
+		new ParallelBPlusTreeBulkLoading(tree, new Object[0], tree.getContainer, ForkJoinPool.commonPool(), 1.5);
+	}
+}
@@ -34,12 +34,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
 import org.testng.Assert;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -154,7 +156,8 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	
 	private List<Student> oddStudents; // TEST_DATA_NUMBER/2
 	private List<Student> evenStudents;
-	private String path;
+	protected File directory;
+	protected String path;
 	private int blockSize;
 	private SplitStrategy strategy;
 	private double capacity; 
@@ -179,10 +182,26 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 			}
 		}
 		// set path
-		path = "testVLBTree_dupl_false";
+		try {
+			directory = Files.createTempDirectory("TestVariableLengthBPlusTree").toFile();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		path = new File(directory, "testVLBTree_dupl_false").getPath();
 		
 	}
 
+	/**
+	 * Deletes the directory holding the files of the tree.
+	 */
+	@AfterClass
+	public void deleteDirectory() {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
 	/**
 	 * method to save meta info about the tree 
 	 * @param btree
@@ -241,6 +260,13 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	}
 	
 	
+	/**
+	 * Creates the tree under test.
+	 */
+	protected VariableLengthBPlusTree createTree(int blockSize, double capacity){
+		return new VariableLengthBPlusTree(blockSize, capacity, false);
+	}
+	
 	@DataProvider
 	public Object[][] createTestParameter(){
 		return new Object[][]{ 
@@ -269,7 +295,7 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	 * 
 	 */
 	public void loadDataAndSaveTree(Object...args ){
-		VariableLengthBPlusTree tree = new VariableLengthBPlusTree(blockSize, capacity, false);
+		VariableLengthBPlusTree tree = createTree(blockSize, capacity);
 		Container fileContainer = new BlockFileContainer(path, blockSize);
 		Container bufferContainer = new BufferedContainer(fileContainer, new LRUBuffer(100));
 		Container converterContainer = new ConverterContainer(bufferContainer, tree.nodeConverter());
@@ -310,7 +336,7 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	 */
 	public void reloadRemoveAndThenInsertData(Object...args){
 		// take parameters set in previous method
-		VariableLengthBPlusTree tree = new VariableLengthBPlusTree(blockSize, capacity, false);
+		VariableLengthBPlusTree tree = createTree(blockSize, capacity);
 		Container fileContainer = new BlockFileContainer(path);
 		Container bufferContainer = new BufferedContainer(fileContainer, new LRUBuffer(200));
 		Container converterContainer = new ConverterContainer(bufferContainer, tree.nodeConverter());
@@ -349,7 +375,7 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	 */
 	public void reloadAndUpdateData(Object...args){
 		// take parameters set in previous method
-		VariableLengthBPlusTree tree = new VariableLengthBPlusTree(blockSize, capacity, false);
+		VariableLengthBPlusTree tree = createTree(blockSize, capacity);
 		Container fileContainer = new BlockFileContainer(path);
 		Container bufferContainer = new BufferedContainer(fileContainer, new LRUBuffer(200));
 		Container converterContainer = new ConverterContainer(bufferContainer, tree.nodeConverter());
@@ -382,7 +408,7 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	 */
 	public void reloadAndQueryTree(Object...args){
 		// take parameters set in previous method
-		VariableLengthBPlusTree tree = new VariableLengthBPlusTree(blockSize, capacity, false);
+		VariableLengthBPlusTree tree = createTree(blockSize, capacity);
 		Container fileContainer = new BlockFileContainer(path);
 		Container bufferContainer = new BufferedContainer(fileContainer, new LRUBuffer(200));
 		Container converterContainer = new ConverterContainer(bufferContainer, tree.nodeConverter());
@@ -455,7 +481,7 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	 */
 	public void reloadAndAddData(Object...args){
 		// take parameters set in previous method
-		VariableLengthBPlusTree tree = new VariableLengthBPlusTree(blockSize, capacity, false);
+		VariableLengthBPlusTree tree = createTree(blockSize, capacity);
 		Container fileContainer = new BlockFileContainer(path);
 		Container bufferContainer = new BufferedContainer(fileContainer, new LRUBuffer(200));
 		Container converterContainer = new ConverterContainer(bufferContainer, tree.nodeConverter());
@@ -483,7 +509,7 @@ public class TestVariableLengthBPlusTree extends AbstractTreeIndexTest<VariableL
 	 */
 	public void reloadAndQueryAgain(Object...args){
 		// take parameters set in previous method
-		VariableLengthBPlusTree tree = new VariableLengthBPlusTree(blockSize, capacity, false);
+		VariableLengthBPlusTree tree = createTree(blockSize, capacity);
 		Container fileContainer = new BlockFileContainer(path);
 		Container bufferContainer = new BufferedContainer(fileContainer, new LRUBuffer(200));
 		Container converterContainer = new ConverterContainer(bufferContainer, tree.nodeConverter());
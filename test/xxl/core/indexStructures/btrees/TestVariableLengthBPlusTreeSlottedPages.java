@@ -0,0 +1,63 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures.btrees;
+
+import java.io.File;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+
+import xxl.core.indexStructures.vLengthBPlusTree.VariableLengthBPlusTree;
+import xxl.core.indexStructures.vLengthBPlusTree.splitStrategy.ShortestKeyStrategy;
+import xxl.core.indexStructures.vLengthBPlusTree.splitStrategy.SimplePrefixBPlusTreeSplit;
+
+/**
+ * Runs the tests of {@link TestVariableLengthBPlusTree} on a tree which stores
+ * its nodes in the slotted-page format.
+ */
+public class TestVariableLengthBPlusTreeSlottedPages extends TestVariableLengthBPlusTree {
+
+	@BeforeClass
+	@Override
+	public void prepairIndex() {
+		super.prepairIndex();
+		path = new File(directory, "testVLBTree_slotted").getPath();
+	}
+
+	@Override
+	protected VariableLengthBPlusTree createTree(int blockSize, double capacity){
+		return new VariableLengthBPlusTree(blockSize, capacity, false, true);
+	}
+
+	@DataProvider
+	@Override
+	public Object[][] createTestParameter(){
+		return new Object[][]{ 
+				{new Integer(1024), new ShortestKeyStrategy(), new Double(0.33)},
+				{new Integer(4096), new SimplePrefixBPlusTreeSplit(), new Double(0.4)}
+				};
+	}
+}
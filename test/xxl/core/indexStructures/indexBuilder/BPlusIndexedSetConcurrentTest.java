@@ -0,0 +1,166 @@
+package xxl.core.indexStructures.indexBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.cursors.Cursor;
+import xxl.core.indexStructures.BPlusIndexedSet;
+import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.builder.Builders;
+import xxl.core.indexStructures.builder.BPlusTree.BPlusConfiguration;
+
+/**
+ * Checks the concurrent mode of the BPlus tree: many threads add, remove and query items of one
+ * set without a global lock.
+ */
+public class BPlusIndexedSetConcurrentTest {
+
+  final int THREADS = 8;
+  final int ITEMS_PER_THREAD = 5_000;
+  final int ITEMS = THREADS * ITEMS_PER_THREAD;
+
+  /*
+   * Runs the given tasks in parallel and rethrows the first failure
+   */
+  private void run(List<Runnable> tasks) throws Throwable {
+    final List<Throwable> failures = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (final Runnable task : tasks)
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            task.run();
+          } catch (Throwable t) {
+            synchronized (failures) {
+              failures.add(t);
+            }
+          }
+        }
+      });
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+    if (!failures.isEmpty()) throw failures.get(0);
+  }
+
+  /*
+   * Checks that a range query over the whole set returns the expected items in ascending order
+   */
+  private void checkContent(BPlusIndexedSet<Integer> set, int from, int step) {
+    Cursor cursor = ((BPlusTree) set.getIndexStructure()).rangeQuery(0, ITEMS);
+    int expected = from;
+    while (cursor.hasNext()) {
+      Assert.assertEquals(cursor.next(), expected);
+      expected += step;
+    }
+    Assert.assertEquals(expected, ITEMS + from);
+  }
+
+  /*
+   * Adds the items interleaved by all threads, while another thread checks that range queries
+   * always deliver sorted results
+   */
+  private void addAll(final BPlusIndexedSet<Integer> set) throws Throwable {
+    List<Runnable> tasks = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int offset = t;
+      tasks.add(new Runnable() {
+        public void run() {
+          for (int i = 0; i < ITEMS_PER_THREAD; i++)
+            Assert.assertTrue(set.add(i * THREADS + offset));
+        }
+      });
+    }
+    tasks.add(new Runnable() {
+      public void run() {
+        for (int i = 0; i < 20; i++) {
+          Cursor cursor = ((BPlusTree) set.getIndexStructure()).rangeQuery(100, ITEMS - 100);
+          int last = 99;
+          while (cursor.hasNext()) {
+            int item = (Integer) cursor.next();
+            Assert.assertTrue(item > last && item <= ITEMS - 100);
+            last = item;
+          }
+        }
+      }
+    });
+    run(tasks);
+  }
+
+  @Test
+  public void testConcurrentAdd() throws Throwable {
+    BPlusIndexedSet<Integer> set =
+        Builders.createBPlusTree.Integer("ConcurrentAdd").setConcurrent(true).getBuilder()
+            .create();
+    Assert.assertTrue(((BPlusTree) set.getIndexStructure()).isConcurrent());
+
+    addAll(set);
+    Assert.assertEquals(set.size(), ITEMS);
+    Assert.assertFalse(set.add(ITEMS / 2));
+    for (int i = 0; i < ITEMS; i++)
+      Assert.assertTrue(set.contains(i));
+    checkContent(set, 0, 1);
+  }
+
+  @Test
+  public void testConcurrentAddOfSameItems() throws Throwable {
+    final BPlusIndexedSet<Integer> set =
+        Builders.createBPlusTree.Integer("ConcurrentAddOfSameItems").setConcurrent(true)
+            .getBuilder().create();
+    final AtomicInteger added = new AtomicInteger();
+    List<Runnable> tasks = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++)
+      tasks.add(new Runnable() {
+        public void run() {
+          for (int i = 0; i < ITEMS_PER_THREAD; i++)
+            if (set.add(i)) added.incrementAndGet();
+        }
+      });
+    run(tasks);
+    // every item is added by exactly one thread and counted once
+    Assert.assertEquals(added.get(), ITEMS_PER_THREAD);
+    Assert.assertEquals(set.size(), ITEMS_PER_THREAD);
+  }
+
+  @Test
+  public void testConcurrentAddRemoveOnFileSystem() throws Throwable {
+    File directory = Files.createTempDirectory("BPlusIndexedSetConcurrentTest").toFile();
+    BPlusConfiguration.Creator creator =
+        Builders.createBPlusTree.Integer("ConcurrentAddRemove").setConcurrent(true);
+    creator.setBlockSize(512);
+    final BPlusIndexedSet<Integer> set =
+        creator.storeAt(directory.getPath()).getBuilder().create();
+
+    addAll(set);
+    List<Runnable> tasks = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int offset = t;
+      tasks.add(new Runnable() {
+        public void run() {
+          for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+            int item = i * THREADS + offset;
+            if (item % 2 == 0)
+              Assert.assertTrue(set.remove(item));
+            else
+              Assert.assertTrue(set.contains(item));
+          }
+        }
+      });
+    }
+    run(tasks);
+    Assert.assertEquals(set.size(), ITEMS / 2);
+    checkContent(set, 1, 2);
+
+    for (File file : directory.listFiles())
+      file.delete();
+    directory.delete();
+  }
+}
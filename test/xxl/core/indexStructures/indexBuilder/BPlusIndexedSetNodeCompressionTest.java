@@ -0,0 +1,102 @@
+package xxl.core.indexStructures.indexBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.indexStructures.BPlusIndexedSet;
+import xxl.core.indexStructures.BPlusTree;
+import xxl.core.indexStructures.Entry;
+import xxl.core.indexStructures.builder.Builders;
+import xxl.core.indexStructures.builder.BPlusTree.BPlusConfiguration;
+import xxl.core.indexStructures.separators.StringSeparator;
+import xxl.core.relational.schema.Schemas;
+
+/**
+ * Checks the compressed node format of the BPlus tree: a tree with compressed nodes has to hold the
+ * same content as an uncompressed one while using fewer nodes.
+ */
+public class BPlusIndexedSetNodeCompressionTest {
+
+  final int MAX_ITEMS_TO_INSERT = 20_000;
+  final String MY_TABLE_NAME = "CompressedTable";
+
+  /*
+   * Keys sharing a long prefix
+   */
+  private String url(int i) {
+    return String.format("http://www.example.org/customers/%08d", i);
+  }
+
+  private BPlusIndexedSet create(File directory, boolean nodeCompression) throws SQLException {
+    BPlusConfiguration.Creator creator =
+        Builders.createBPlusTree.Tuples(Schemas.createSchema(MY_TABLE_NAME)
+            .addVarChar("URL", 60).addInteger("ID"));
+    creator.setBlockSize(1024);
+    creator.setNodeCompression(nodeCompression);
+    BPlusIndexedSet set = creator.storeAt(directory.getPath()).getBuilder().create();
+
+    // insert in a scrambled order, so that leaves are split in the middle
+    for (int i = 0; i < MAX_ITEMS_TO_INSERT; i++) {
+      int item = (int) ((i * 7919L) % MAX_ITEMS_TO_INSERT);
+      Assert.assertTrue(set.add(new Entry(url(item), item)));
+    }
+    return set;
+  }
+
+  private void checkContent(BPlusIndexedSet set, int step) {
+    Object[] content = set.toArray();
+    Assert.assertEquals(content.length, MAX_ITEMS_TO_INSERT / step);
+    for (int i = 0; i < content.length; i++) {
+      int item = i * step + step - 1;
+      Assert.assertEquals((Object[]) content[i], new Object[] {url(item), item});
+    }
+  }
+
+  private void delete(File directory) {
+    for (File file : directory.listFiles())
+      file.delete();
+    directory.delete();
+  }
+
+  @Test
+  public void testShortestSeparator() {
+    Assert.assertEquals(StringSeparator.shortestSeparator("name_1234", "name_1240"), "name_124");
+    Assert.assertEquals(StringSeparator.shortestSeparator("abc", "abd"), "abc");
+    Assert.assertEquals(StringSeparator.shortestSeparator("ab", "abcd"), "ab");
+    Assert.assertEquals(StringSeparator.shortestSeparator("Smith", "Taylor"), "T");
+  }
+
+  @Test
+  public void testCompressedNodes() throws SQLException, IOException {
+    File plainDirectory = Files.createTempDirectory("BPlusIndexedSetNodeCompressionTest").toFile();
+    File directory = Files.createTempDirectory("BPlusIndexedSetNodeCompressionTest").toFile();
+
+    BPlusIndexedSet plainSet = create(plainDirectory, false);
+    BPlusIndexedSet set = create(directory, true);
+    BPlusTree plainTree = (BPlusTree) plainSet.getIndexStructure();
+    BPlusTree tree = (BPlusTree) set.getIndexStructure();
+    Assert.assertTrue(tree.isNodeCompression());
+
+    Assert.assertTrue(tree.height() < plainTree.height());
+    Assert.assertTrue(tree.container().size() * 4 < plainTree.container().size());
+    checkContent(set, 1);
+
+    for (int i = 0; i < MAX_ITEMS_TO_INSERT; i += 2)
+      Assert.assertTrue(set.remove(new Entry(url(i), i)));
+    checkContent(set, 2);
+    set.save();
+
+    BPlusIndexedSet reloadedSet =
+        Builders.loadBPlusTree.from(directory.getPath(), MY_TABLE_NAME).getBuilder().create();
+    Assert.assertTrue(((BPlusTree) reloadedSet.getIndexStructure()).isNodeCompression());
+    checkContent(reloadedSet, 2);
+
+    delete(plainDirectory);
+    delete(directory);
+  }
+}
@@ -0,0 +1,160 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.mvbts;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.CounterContainer;
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.io.BlockFileContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.indexStructures.MVBT;
+import xxl.core.indexStructures.MVBTPlus;
+import xxl.core.indexStructures.MVBTPlus.Element;
+import xxl.core.indexStructures.MVBTPlus.LongVersion;
+import xxl.core.indexStructures.MVBTPlus.OperationType;
+import xxl.core.indexStructures.MVBTree;
+import xxl.core.indexStructures.mvbts.MVBTPlusLoadingExample.LongMVRegion;
+import xxl.core.indexStructures.mvbts.MVBTPlusLoadingExample.LongMVSeparator;
+import xxl.core.indexStructures.mvbts.MVBTPlusLoadingExample.PayLoadEntry;
+import xxl.core.util.Pair;
+
+public class MVBTBulkLoadTest {
+
+	private static final int BLOCK_SIZE = 1024;
+
+	private static final int OPERATIONS_PER_VERSION = 25;
+
+	/**
+	 * Generates a change log of random operations. Several operations share a version.
+	 * 
+	 * @param updates whether the log contains update operations.
+	 * @param reuseKeys whether a key may occur more than once in a version.
+	 */
+	private static List<Element> changeLog(int number, boolean updates, boolean reuseKeys) {
+		Random random = new Random(42);
+		List<Long> live = new ArrayList<Long>();
+		Set<Long> touched = new HashSet<Long>();
+		List<Element> log = new ArrayList<Element>();
+		for (int i = 0; i < number; i++) {
+			if (i%OPERATIONS_PER_VERSION == 0)
+				touched.clear();
+			int operation = live.size() < 100 ? 0 : random.nextInt(updates ? 3 : 2);
+			long key = operation == 0 ? random.nextInt(2000) : live.get(random.nextInt(live.size()));
+			if (operation == 0 && live.contains(key) || !touched.add(key) && !reuseKeys)
+				continue;
+			if (operation == 0)
+				live.add(key);
+			if (operation == 1)
+				live.remove(key);
+			log.add(new Element(new Pair<Long, PayLoadEntry>(key, new PayLoadEntry(key, i)), new LongVersion(i/OPERATIONS_PER_VERSION+1),
+				operation == 0 ? OperationType.INSERT : operation == 1 ? OperationType.DELETE : OperationType.UPDATE));
+		}
+		return log;
+	}
+
+	private static List<String> expected(List<Element> log, long version) {
+		Map<Long, Object> live = new TreeMap<Long, Object>();
+		for (Element element : log) {
+			if (element.getElement2().getTimeStamp() > version)
+				break;
+			Pair data = (Pair)element.getElement1();
+			if (element.getElement3() == OperationType.DELETE)
+				live.remove(data.getElement1());
+			else
+				live.put((Long)data.getElement1(), data);
+		}
+		List<String> result = new ArrayList<String>();
+		for (Object data : live.values())
+			result.add(data.toString());
+		return result;
+	}
+
+	private static List<String> query(MVBTree tree, long version) {
+		Map<Long, Object> live = new TreeMap<Long, Object>();
+		Cursor cursor = tree.keyRangeQuery(Long.MIN_VALUE+1, Long.MAX_VALUE, new LongVersion(version));
+		while (cursor.hasNext()) {
+			Object next = cursor.next();
+			Pair data = (Pair)(next instanceof MVBTree.LeafEntry ? ((MVBTree.LeafEntry)next).data() : next);
+			Assert.assertNull(live.put((Long)data.getElement1(), data), "duplicate in version "+version);
+		}
+		cursor.close();
+		List<String> result = new ArrayList<String>();
+		for (Object data : live.values())
+			result.add(data.toString());
+		return result;
+	}
+
+	private static void checkTimeTravel(MVBTree tree, List<Element> log) {
+		long last = log.get(log.size()-1).getElement2().getTimeStamp();
+		for (long version = 1; version <= last; version++)
+			Assert.assertEquals(query(tree, version), expected(log, version), "version "+version);
+	}
+
+	@Test
+	public void testMVBT() {
+		List<Element> log = changeLog(10000, true, true);
+		MVBT tree = new MVBT(BLOCK_SIZE, 0.25f, 0.5f, Long.MIN_VALUE);
+		tree.initialize(null, null, null, null, MVBTPlusLoadingExample.getKey, new MapContainer(), new MapContainer(),
+			LongVersion.VERSION_MEASURED_CONVERTER, MVBTPlusLoadingExample.keyConverter, MVBTPlusLoadingExample.dataConverter,
+			LongMVSeparator.FACTORY_FUNCTION, LongMVRegion.FACTORY_FUNCTION);
+		tree.sortedReplay(log.iterator());
+		checkTimeTravel(tree, log);
+	}
+
+	@Test
+	public void testMVBTPlus() throws IOException {
+		List<Element> log = changeLog(10000, false, false);
+		MVBTPlus tree = new MVBTPlus(BLOCK_SIZE, 0.25f, 0.5f, Long.MIN_VALUE);
+		tree.initialize(null, null, null, null, MVBTPlusLoadingExample.getKey, new MapContainer(), new MapContainer(),
+			MVBTPlusLoadingExample.keyConverter, MVBTPlusLoadingExample.dataConverter,
+			LongMVSeparator.FACTORY_FUNCTION, LongMVRegion.FACTORY_FUNCTION);
+		File directory = Files.createTempDirectory("MVBTBulkLoadTest").toFile();
+		BlockFileContainer file = new BlockFileContainer(directory+"/buffers", BLOCK_SIZE);
+		CounterContainer bufferStorage = new CounterContainer(file);
+		tree.bulkLoad(log.iterator(), bufferStorage, 400);
+		// the buffers do not fit into the cached pages
+		Assert.assertTrue(bufferStorage.updates > 0);
+		checkTimeTravel(tree, log);
+		file.close();
+		for (File f : directory.listFiles())
+			f.delete();
+		directory.delete();
+	}
+}
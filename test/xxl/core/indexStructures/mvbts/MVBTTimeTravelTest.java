@@ -0,0 +1,105 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.indexStructures.mvbts;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.indexStructures.MVBT;
+import xxl.core.indexStructures.MVBTPlus.LongVersion;
+import xxl.core.indexStructures.MVBTree;
+import xxl.core.indexStructures.mvbts.MVBTPlusLoadingExample.LongMVRegion;
+import xxl.core.indexStructures.mvbts.MVBTPlusLoadingExample.LongMVSeparator;
+import xxl.core.indexStructures.mvbts.MVBTPlusLoadingExample.PayLoadEntry;
+import xxl.core.util.Pair;
+
+/**
+ * Checks time-travel queries on an MVBT which is updated one version at a time, in
+ * particular in the versions in which the root changes.
+ */
+public class MVBTTimeTravelTest {
+
+	private static final int BLOCK_SIZE = 1024;
+
+	private static final int NUMBER = 2000;
+
+	private static MVBT createMVBT() {
+		MVBT tree = new MVBT(BLOCK_SIZE, 0.25f, 0.5f, Long.MIN_VALUE);
+		tree.initialize(null, null, null, null, MVBTPlusLoadingExample.getKey, new MapContainer(), new MapContainer(),
+			LongVersion.VERSION_MEASURED_CONVERTER, MVBTPlusLoadingExample.keyConverter, MVBTPlusLoadingExample.dataConverter,
+			LongMVSeparator.FACTORY_FUNCTION, LongMVRegion.FACTORY_FUNCTION);
+		return tree;
+	}
+
+	private static Pair<Long, PayLoadEntry> data(long key) {
+		return new Pair<Long, PayLoadEntry>(key, new PayLoadEntry(key, (int)key));
+	}
+
+	/**
+	 * Returns the keys of the data objects alive in the given version and fails on duplicates.
+	 */
+	private static Set<Long> query(MVBTree tree, long version) {
+		Set<Long> keys = new HashSet<Long>();
+		Cursor cursor = tree.keyRangeQuery(Long.MIN_VALUE+1, Long.MAX_VALUE, new LongVersion(version));
+		while (cursor.hasNext()) {
+			Object next = cursor.next();
+			Pair data = (Pair)(next instanceof MVBTree.LeafEntry ? ((MVBTree.LeafEntry)next).data() : next);
+			Assert.assertTrue(keys.add((Long)data.getElement1()), "duplicate in version "+version);
+		}
+		cursor.close();
+		return keys;
+	}
+
+	@Test
+	public void testInsertions() {
+		MVBT tree = createMVBT();
+		// key i is inserted in version i+1
+		for (long i = 0; i < NUMBER; i++)
+			tree.insert(new LongVersion(i+1), data(i));
+		for (long version = 1; version <= NUMBER; version++)
+			Assert.assertEquals(query(tree, version).size(), version, "version "+version);
+	}
+
+	@Test
+	public void testDeletions() {
+		MVBT tree = createMVBT();
+		for (long i = 0; i < NUMBER; i++)
+			tree.insert(new LongVersion(1), data(i));
+		// key i is deleted in version i+2
+		for (long i = 0; i < NUMBER; i++)
+			tree.remove(new LongVersion(i+2), data(i));
+		for (long version = 1; version <= NUMBER+1; version++) {
+			Set<Long> keys = query(tree, version);
+			Assert.assertEquals(keys.size(), version == 1 ? NUMBER : NUMBER-version+1, "version "+version);
+			Assert.assertFalse(keys.contains(version-2), "version "+version);
+		}
+	}
+}
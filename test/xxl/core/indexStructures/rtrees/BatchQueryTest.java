@@ -0,0 +1,121 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.rtrees;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.CounterContainer;
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.cursors.Cursors;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.RTree;
+import xxl.core.spatial.points.DoublePoint;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+
+/**
+ * This is a unit test for the batched window queries of the R-tree,
+ * comparing their results with the results of single queries.
+ */
+public class BatchQueryTest {
+
+	private static final Function<Object, Object> RECTANGLE = new AbstractFunction<Object, Object>() {
+		@Override
+		public Object invoke(Object point) {
+			return new DoublePointRectangle((DoublePoint)point, (DoublePoint)point);
+		}
+	};
+
+	private static RTree createRTree(CounterContainer container) {
+		RTree tree = new RTree();
+		tree.initialize(null, RECTANGLE, container, 10, 25);
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++)
+			tree.insert(new DoublePoint(new double[] {random.nextDouble(), random.nextDouble()}));
+		return tree;
+	}
+
+	private static List<DoublePointRectangle> windows() {
+		Random random = new Random(43);
+		List<DoublePointRectangle> windows = new ArrayList<DoublePointRectangle>();
+		for (int i = 0; i < 100; i++) {
+			double x = random.nextDouble(), y = random.nextDouble();
+			windows.add(new DoublePointRectangle(new double[] {x, y}, new double[] {x+0.1, y+0.1}));
+		}
+		// a window outside of the data space
+		windows.add(new DoublePointRectangle(new double[] {2, 2}, new double[] {3, 3}));
+		return windows;
+	}
+
+	@Test
+	public void testBatchQuery() {
+		CounterContainer container = new CounterContainer(new MapContainer());
+		RTree tree = createRTree(container);
+		List<DoublePointRectangle> windows = windows();
+
+		container.reset();
+		List<List<Object>> expected = new ArrayList<List<Object>>();
+		for (DoublePointRectangle window : windows)
+			expected.add(Cursors.toList(tree.query(window)));
+		int gets = container.gets;
+
+		container.reset();
+		List<Cursor> cursors = tree.batchQuery(windows);
+		Assert.assertEquals(cursors.size(), windows.size());
+		// consume the cursors in reverse order, so that results are buffered
+		for (int i = cursors.size()-1; i >= 0; i--) {
+			Assert.assertEquals(Cursors.toList(cursors.get(i)), expected.get(i));
+			cursors.get(i).close();
+		}
+		Assert.assertTrue(expected.get(windows.size()-1).isEmpty());
+		// every node is read at most once
+		Assert.assertTrue(container.gets < gets/2);
+
+		for (int level = 1; level < tree.height(); level++) {
+			cursors = tree.batchQuery(windows, level);
+			for (int i = 0; i < cursors.size(); i++)
+				Assert.assertEquals(Cursors.toList(cursors.get(i)), Cursors.toList(tree.query(windows.get(i), level)));
+		}
+	}
+
+	@Test
+	public void testClose() {
+		RTree tree = createRTree(new CounterContainer(new MapContainer()));
+		List<DoublePointRectangle> windows = windows();
+		List<Cursor> cursors = tree.batchQuery(windows);
+		cursors.get(0).next();
+		cursors.get(0).close();
+		Assert.assertEquals(Cursors.toList(cursors.get(1)), Cursors.toList(tree.query(windows.get(1))));
+		Assert.assertTrue(tree.batchQuery(new ArrayList<DoublePointRectangle>()).isEmpty());
+	}
+}
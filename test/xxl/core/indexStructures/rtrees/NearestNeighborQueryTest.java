@@ -0,0 +1,206 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.rtrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.queues.DoubleKeyHeap;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.MTree;
+import xxl.core.indexStructures.ORTree;
+import xxl.core.indexStructures.RTree;
+import xxl.core.indexStructures.Sphere;
+import xxl.core.indexStructures.Tree;
+import xxl.core.spatial.points.DoublePoint;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+
+/**
+ * This is a unit test for the nearest neighbor queries of the RTree and the
+ * MTree, comparing their results with the distances computed by a linear
+ * scan.
+ */
+public class NearestNeighborQueryTest {
+
+	private static final int NUMBER = 5000;
+
+	private static final Function<Object, Object> RECTANGLE = new AbstractFunction<Object, Object>() {
+		@Override
+		public Object invoke(Object point) {
+			return new DoublePointRectangle((DoublePoint)point, (DoublePoint)point);
+		}
+	};
+
+	private static final Function<Object, Object> SPHERE = new AbstractFunction<Object, Object>() {
+		@Override
+		public Object invoke(Object point) {
+			return new Sphere(point, 0.0, null);
+		}
+	};
+
+	private static List<DoublePoint> points(Random random) {
+		List<DoublePoint> points = new ArrayList<DoublePoint>();
+		for (int i = 0; i < NUMBER; i++)
+			points.add(new DoublePoint(new double[] {random.nextDouble(), random.nextDouble()}));
+		return points;
+	}
+
+	private static RTree createRTree(List<DoublePoint> points) {
+		RTree tree = new RTree();
+		tree.initialize(null, RECTANGLE, new MapContainer(), 10, 25);
+		for (DoublePoint point : points)
+			tree.insert(point);
+		return tree;
+	}
+
+	private static MTree createMTree(List<DoublePoint> points) {
+		MTree tree = new MTree(MTree.HYPERPLANE_SPLIT);
+		tree.initialize(null, SPHERE, new MapContainer(), 10, 25);
+		for (DoublePoint point : points)
+			tree.insert(point);
+		return tree;
+	}
+
+	/**
+	 * Returns the distances of the points to the query point in ascending
+	 * order.
+	 */
+	private static double[] distances(List<DoublePoint> points, DoublePoint query) {
+		double[] distances = new double[points.size()];
+		for (int i = 0; i < distances.length; i++)
+			distances[i] = points.get(i).distanceTo(query);
+		Arrays.sort(distances);
+		return distances;
+	}
+
+	private static void checkQuery(ORTree.NearestNeighborCursor cursor, DoublePoint query, double[] distances, int k) {
+		int number = 0;
+		while (cursor.hasNext()) {
+			DoublePoint point = (DoublePoint)cursor.next();
+			Assert.assertEquals(point.distanceTo(query), distances[number], 1e-9);
+			Assert.assertEquals(cursor.distance(), distances[number], 1e-9);
+			number++;
+		}
+		Assert.assertEquals(number, Math.min(k, distances.length));
+		cursor.close();
+	}
+
+	@Test
+	public void testRTree() {
+		Random random = new Random(42);
+		List<DoublePoint> points = points(random);
+		RTree tree = createRTree(points);
+		DoubleKeyHeap heap = new DoubleKeyHeap();
+		for (int i = 0; i < 20; i++) {
+			DoublePoint query = new DoublePoint(new double[] {random.nextDouble(), random.nextDouble()});
+			double[] distances = distances(points, query);
+			for (int k : new int[] {1, 10, 100})
+				checkQuery(tree.nearestNeighborQuery(query, k, heap), query, distances, k);
+		}
+		DoublePoint query = new DoublePoint(new double[] {0.5, 0.5});
+		checkQuery(tree.nearestNeighborQuery(query), query, distances(points, query), Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testMTree() {
+		Random random = new Random(43);
+		List<DoublePoint> points = points(random);
+		MTree tree = createMTree(points);
+		for (int i = 0; i < 20; i++) {
+			DoublePoint query = new DoublePoint(new double[] {random.nextDouble(), random.nextDouble()});
+			double[] distances = distances(points, query);
+			for (int k : new int[] {1, 10, 100})
+				checkQuery(tree.nearestNeighborQuery(query, k), query, distances, k);
+		}
+		DoublePoint query = new DoublePoint(new double[] {0.5, 0.5});
+		checkQuery(tree.nearestNeighborQuery(query), query, distances(points, query), Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testReset() {
+		List<DoublePoint> points = points(new Random(44));
+		RTree tree = createRTree(points);
+		DoublePoint query = new DoublePoint(new double[] {0.3, 0.7});
+		ORTree.NearestNeighborCursor cursor = tree.nearestNeighborQuery(query, 5);
+		List<Object> first = new ArrayList<Object>();
+		while (cursor.hasNext())
+			first.add(cursor.next());
+		cursor.reset();
+		for (Object point : first)
+			Assert.assertEquals(cursor.next(), point);
+		Assert.assertFalse(cursor.hasNext());
+		cursor.close();
+	}
+
+	/**
+	 * Checks that the descriptor of every index entry of the subtree contains
+	 * the descriptors of the entries of its node.
+	 */
+	private static void checkContainment(ORTree tree, ORTree.IndexEntry indexEntry) {
+		Tree.Node node = indexEntry.get(true);
+		for (Iterator entries = node.entries(); entries.hasNext();) {
+			Object entry = entries.next();
+			Assert.assertTrue(indexEntry.descriptor().contains(tree.descriptor(entry)));
+			if (node.level > 0)
+				checkContainment(tree, (ORTree.IndexEntry)entry);
+		}
+	}
+
+	@Test
+	public void testEnlargedRectangles() {
+		Random random = new Random(46);
+		List<DoublePoint> points = new ArrayList<DoublePoint>();
+		for (int i = 0; i < NUMBER; i++)
+			points.add(new DoublePoint(new double[] {0.9+0.1*random.nextDouble(), 0.9+0.1*random.nextDouble()}));
+		RTree tree = createRTree(points);
+		// the rectangles contain their subtrees, but are not minimal
+		DoublePointRectangle origin = new DoublePointRectangle(new double[] {0, 0}, new double[] {0, 0});
+		for (Iterator entries = ((ORTree.IndexEntry)tree.rootEntry()).get(true).entries(); entries.hasNext();)
+			((ORTree.IndexEntry)entries.next()).descriptor().union(origin);
+		((ORTree.IndexEntry)tree.rootEntry()).descriptor().union(origin);
+		tree.rootDescriptor().union(origin);
+		checkContainment(tree, (ORTree.IndexEntry)tree.rootEntry());
+		DoubleKeyHeap heap = new DoubleKeyHeap();
+		for (int i = 0; i < 20; i++) {
+			DoublePoint query = new DoublePoint(new double[] {0.1*random.nextDouble(), 0.1*random.nextDouble()});
+			checkQuery(tree.nearestNeighborQuery(query, 1, heap, false), query, distances(points, query), 1);
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testIllegalK() {
+		createRTree(points(new Random(45))).nearestNeighborQuery(new DoublePoint(new double[] {0, 0}), 0);
+	}
+}
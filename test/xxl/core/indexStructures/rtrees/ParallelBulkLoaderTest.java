@@ -0,0 +1,185 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.rtrees;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.SynchronizedContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.Cursors;
+import xxl.core.functions.Functional.UnaryFunction;
+import xxl.core.functions.Identity;
+import xxl.core.indexStructures.ORTree;
+import xxl.core.indexStructures.RTree;
+import xxl.core.io.converters.ConvertableConverter;
+import xxl.core.io.converters.Converter;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+import xxl.core.spatial.rectangles.Rectangles;
+
+/**
+ * This is a unit test for the ParallelSTRBulkLoader and the
+ * ParallelTGSBulkLoader, comparing the nodes of the loaded trees with the
+ * nodes of trees loaded by the sequential loaders.
+ */
+public class ParallelBulkLoaderTest {
+
+	private static final int BLOCK_SIZE = 1024;
+
+	private static final int DATA_SIZE = 2*2*8;
+
+	private static final int NUMBER = 20000;
+
+	private static final Converter<DoublePointRectangle> CONVERTER = new ConvertableConverter<DoublePointRectangle>(Rectangles.factoryFunctionDoublePointRectangle(2));
+
+	private static final UnaryFunction<DoublePointRectangle, DoublePointRectangle> IDENTITY = new UnaryFunction<DoublePointRectangle, DoublePointRectangle>() {
+		@Override
+		public DoublePointRectangle invoke(DoublePointRectangle rectangle) {
+			return rectangle;
+		}
+	};
+
+	private static RTree createRTree() {
+		RTree rtree = new RTree();
+		Container container = new SynchronizedContainer(new ConverterContainer(new MapContainer(), rtree.nodeConverter(CONVERTER, 2)));
+		rtree.initialize(null, new Identity<DoublePointRectangle>(), container, BLOCK_SIZE, DATA_SIZE, DATA_SIZE, 0.33);
+		return rtree;
+	}
+
+	private static List<DoublePointRectangle> rectangles() {
+		Random random = new Random(42);
+		List<DoublePointRectangle> rectangles = new ArrayList<DoublePointRectangle>();
+		for (int i = 0; i < NUMBER; i++) {
+			double x = random.nextDouble(), y = random.nextDouble();
+			rectangles.add(new DoublePointRectangle(new double[] {x, y}, new double[] {x+0.01*random.nextDouble(), y+0.01*random.nextDouble()}));
+		}
+		return rectangles;
+	}
+
+	/**
+	 * Returns the levels and the descriptors of all nodes of the tree in
+	 * sorted order and checks the number of leaf entries.
+	 */
+	private static List<String> nodes(RTree rtree) {
+		List<String> nodes = new ArrayList<String>();
+		Assert.assertEquals(collect((ORTree.IndexEntry)rtree.rootEntry(), nodes), NUMBER);
+		Collections.sort(nodes);
+		return nodes;
+	}
+
+	private static int collect(ORTree.IndexEntry indexEntry, List<String> nodes) {
+		RTree.Node node = (RTree.Node)indexEntry.get(true);
+		nodes.add(node.level()+" "+indexEntry.descriptor());
+		if (node.level() == 0)
+			return node.number();
+		int number = 0;
+		for (Iterator<?> entries = node.entries(); entries.hasNext(); )
+			number += collect((ORTree.IndexEntry)entries.next(), nodes);
+		return number;
+	}
+
+	private static void checkQueries(RTree rtree, List<DoublePointRectangle> rectangles) {
+		Random random = new Random(7);
+		for (int i = 0; i < 20; i++) {
+			double x = random.nextDouble(), y = random.nextDouble();
+			DoublePointRectangle window = new DoublePointRectangle(new double[] {x, y}, new double[] {x+0.1, y+0.1});
+			int expected = 0;
+			for (DoublePointRectangle rectangle : rectangles)
+				if (rectangle.overlaps(window))
+					expected++;
+			Assert.assertEquals(Cursors.count(rtree.query(window)), expected);
+		}
+	}
+
+	private static void delete(File directory) {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testSTR() throws IOException {
+		File directory = Files.createTempDirectory("ParallelBulkLoaderTest").toFile();
+		List<DoublePointRectangle> rectangles = rectangles();
+		int[] sortingFunction = {0, 1};
+
+		STRBulkLoader<DoublePointRectangle> loader = new STRBulkLoader<DoublePointRectangle>(createRTree(), directory+"/str", 2, BLOCK_SIZE, 0.33, 0.8, sortingFunction);
+		loader.init(NUMBER, 64*1024, DATA_SIZE, CONVERTER, IDENTITY);
+		loader.buildRTree(rectangles.iterator());
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParallelSTRBulkLoader<DoublePointRectangle> parallelLoader = new ParallelSTRBulkLoader<DoublePointRectangle>(createRTree(), directory+"/pstr", 2, BLOCK_SIZE, 0.33, 0.8, sortingFunction, pool);
+		try {
+			parallelLoader.init(NUMBER, 64*1024, DATA_SIZE, CONVERTER, IDENTITY);
+			parallelLoader.buildRTree(rectangles.iterator());
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		Assert.assertEquals(nodes(parallelLoader.getRTree()), nodes(loader.getRTree()));
+		checkQueries(parallelLoader.getRTree(), rectangles);
+		delete(directory);
+	}
+
+	@Test
+	public void testTGS() throws IOException {
+		File directory = Files.createTempDirectory("ParallelBulkLoaderTest").toFile();
+		List<DoublePointRectangle> rectangles = rectangles();
+		DoublePointRectangle universe = Rectangles.getUnitUniverseDoublePointRectangle(2);
+
+		TGSBulkLoader<DoublePointRectangle> loader = new TGSBulkLoader<DoublePointRectangle>(createRTree(), directory+"/tgs", 2, BLOCK_SIZE, 0.33, 0.8, universe);
+		loader.init(NUMBER, 64*1024, DATA_SIZE, CONVERTER, IDENTITY);
+		loader.buildRTree(rectangles.iterator());
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParallelTGSBulkLoader<DoublePointRectangle> parallelLoader = new ParallelTGSBulkLoader<DoublePointRectangle>(createRTree(), directory+"/ptgs", 2, BLOCK_SIZE, 0.33, 0.8, universe, null, pool);
+		try {
+			parallelLoader.init(NUMBER, 64*1024, DATA_SIZE, CONVERTER, IDENTITY);
+			parallelLoader.buildRTree(rectangles.iterator());
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		Assert.assertEquals(nodes(parallelLoader.getRTree()), nodes(loader.getRTree()));
+		checkQueries(parallelLoader.getRTree(), rectangles);
+		delete(directory);
+	}
+}
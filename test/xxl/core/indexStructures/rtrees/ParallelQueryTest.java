@@ -0,0 +1,221 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.rtrees;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.HilbertRTree;
+import xxl.core.indexStructures.RTree;
+import xxl.core.indexStructures.RevisedRTree;
+import xxl.core.indexStructures.Tree;
+import xxl.core.indexStructures.XTree;
+import xxl.core.predicates.AbstractPredicate;
+import xxl.core.spatial.points.DoublePoint;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+
+/**
+ * This is a unit test for the parallel window queries of the R-tree
+ * variants, comparing their results with the results of a linear scan.
+ */
+public class ParallelQueryTest {
+
+	private static final int NUMBER = 10000;
+
+	private ForkJoinPool pool;
+
+	private static final Function<Object, Object> RECTANGLE = new AbstractFunction<Object, Object>() {
+		@Override
+		public Object invoke(Object point) {
+			return new DoublePointRectangle((DoublePoint)point, (DoublePoint)point);
+		}
+	};
+
+	private static List<DoublePoint> points() {
+		Random random = new Random(42);
+		List<DoublePoint> points = new ArrayList<DoublePoint>();
+		for (int i = 0; i < NUMBER; i++)
+			points.add(new DoublePoint(new double[] {random.nextDouble(), random.nextDouble()}));
+		return points;
+	}
+
+	private static <T extends Tree> T insert(T tree, List<DoublePoint> points) {
+		for (DoublePoint point : points)
+			tree.insert(point);
+		return tree;
+	}
+
+	private static Cursor query(Tree tree, DoublePointRectangle window) {
+		return tree instanceof HilbertRTree ? ((HilbertRTree)tree).queryOR(window) : tree.query(window);
+	}
+
+	private static Cursor parallelQuery(Tree tree, DoublePointRectangle window) {
+		return tree instanceof HilbertRTree ? ((HilbertRTree)tree).parallelQueryOR(window) : ((RTree)tree).parallelQuery(window);
+	}
+
+	private static int count(List<DoublePoint> points, DoublePointRectangle window) {
+		int count = 0;
+		for (DoublePoint point : points)
+			if (window.overlaps((DoublePointRectangle)RECTANGLE.invoke(point)))
+				count++;
+		return count;
+	}
+
+	@BeforeMethod
+	public void createPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterMethod
+	public void shutdownPool() {
+		pool.shutdown();
+	}
+
+	private void checkQueries(Tree tree, List<DoublePoint> points) {
+		tree.setParallelQueries(pool, 16);
+		Random random = new Random(43);
+		for (int i = 0; i < 20; i++) {
+			double x = random.nextDouble(), y = random.nextDouble(), size = i < 10 ? 0.1 : 0.6;
+			DoublePointRectangle window = new DoublePointRectangle(new double[] {x-size, y-size}, new double[] {x+size, y+size});
+
+			Cursor cursor = query(tree, window);
+			Assert.assertFalse(cursor instanceof Tree.ParallelQuery);
+			int expected = 0;
+			while (cursor.hasNext()) {
+				cursor.next();
+				expected++;
+			}
+			cursor.close();
+			Assert.assertEquals(expected, count(points, window));
+
+			cursor = parallelQuery(tree, window);
+			Assert.assertTrue(cursor instanceof Tree.ParallelQuery);
+			int count = 0;
+			while (cursor.hasNext()) {
+				Assert.assertTrue(window.overlaps((DoublePointRectangle)RECTANGLE.invoke(cursor.next())));
+				count++;
+			}
+			Assert.assertFalse(cursor.hasNext());
+			cursor.close();
+			Assert.assertEquals(count, expected);
+		}
+
+		// closing the cursor early stops the tasks
+		Cursor cursor = parallelQuery(tree, new DoublePointRectangle(new double[] {0, 0}, new double[] {1, 1}));
+		for (int i = 0; i < 3; i++)
+			cursor.next();
+		cursor.close();
+		Assert.assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testRTree() {
+		List<DoublePoint> points = points();
+		RTree tree = new RTree();
+		tree.initialize(null, RECTANGLE, new MapContainer(), 10, 25);
+		checkQueries(insert(tree, points), points);
+	}
+
+	@Test
+	public void testRevisedRTree() {
+		List<DoublePoint> points = points();
+		RevisedRTree tree = new RevisedRTree(2);
+		tree.initialize(RECTANGLE, new MapContainer(), 1024, 16, 32, 0.4);
+		checkQueries(insert(tree, points), points);
+	}
+
+	@Test
+	public void testXTree() {
+		List<DoublePoint> points = points();
+		XTree tree = new XTree();
+		tree.initialize(RECTANGLE, new MapContainer(), 10, 25, 2);
+		checkQueries(insert(tree, points), points);
+	}
+
+	@Test
+	public void testHilbertRTree() {
+		List<DoublePoint> points = points();
+		HilbertRTree tree = new HilbertRTree(SimpleHilbertRTreeTest.blockSize, SimpleHilbertRTreeTest.universe, SimpleHilbertRTreeTest.minMaxFactor);
+		tree.initialize(SimpleHilbertRTreeTest.getHilbertValue, SimpleHilbertRTreeTest.getEntryMBR, new MapContainer(),
+			SimpleHilbertRTreeTest.keyConverter, SimpleHilbertRTreeTest.dataConverter,
+			SimpleHilbertRTreeTest.createORSeparator, SimpleHilbertRTreeTest.createORKeyRange);
+		checkQueries(insert(tree, points), points);
+	}
+
+	@Test
+	public void testModificationsWithParallelQueries() {
+		List<DoublePoint> points = points();
+		RTree tree = new RTree();
+		tree.initialize(null, RECTANGLE, new MapContainer(), 10, 25);
+		insert(tree, points);
+		tree.setParallelQueries(pool, 1);
+
+		// the methods of the tree use sequential queries
+		for (DoublePoint point : points.subList(0, 100)) {
+			Assert.assertTrue(tree.contains(point));
+			Assert.assertEquals(tree.get((DoublePointRectangle)RECTANGLE.invoke(point)), point);
+		}
+		DoublePoint point = points.get(0);
+		tree.update(point, point.clone());
+		tree.update((DoublePointRectangle)RECTANGLE.invoke(point), point.clone());
+		Assert.assertTrue(tree.contains(point));
+		for (DoublePoint removed : points.subList(0, 100))
+			Assert.assertEquals(tree.remove(removed), removed);
+		Assert.assertEquals(tree.remove((DoublePointRectangle)RECTANGLE.invoke(points.get(100)), 0, new AbstractPredicate() {
+			@Override
+			public boolean invoke(Object object) {
+				return true;
+			}
+		}), points.get(100));
+		Assert.assertFalse(tree.contains(points.get(0)));
+		Assert.assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+
+		List<DoublePoint> remaining = points.subList(101, NUMBER);
+		DoublePointRectangle window = new DoublePointRectangle(new double[] {0, 0}, new double[] {1, 1});
+		int count = 0;
+		for (Cursor cursor = tree.parallelQuery(window); cursor.hasNext(); cursor.next())
+			count++;
+		Assert.assertEquals(count, count(remaining, window));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testIllegalCapacity() {
+		new RTree().setParallelQueries(ForkJoinPool.commonPool(), 0);
+	}
+}
@@ -0,0 +1,194 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.indexStructures.rtrees;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.io.BufferedContainer;
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.indexStructures.ORTree;
+import xxl.core.indexStructures.RTree;
+import xxl.core.io.LRUBuffer;
+import xxl.core.io.converters.ConvertableConverter;
+import xxl.core.io.converters.Converter;
+import xxl.core.io.converters.Converters;
+import xxl.core.spatial.points.DoublePoint;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+import xxl.core.spatial.rectangles.DoublePointRectangleArray;
+
+/**
+ * This is a unit test for the bounding rectangles of the RTree nodes stored
+ * in contiguous arrays, comparing the results of queries with the results of
+ * a linear scan while the tree is modified.
+ */
+public class RTreeRectangleArrayTest {
+
+	private static final Function<Object, Object> RECTANGLE = new AbstractFunction<Object, Object>() {
+		@Override
+		public Object invoke(Object point) {
+			return new DoublePointRectangle((DoublePoint)point, (DoublePoint)point);
+		}
+	};
+
+	private static final Function<Object, Object> POINT_FACTORY = new AbstractFunction<Object, Object>() {
+		@Override
+		public Object invoke() {
+			return new DoublePoint(2);
+		}
+	};
+
+	private static DoublePointRectangle rectangle(Random random, double size) {
+		double x = random.nextDouble(), y = random.nextDouble();
+		return new DoublePointRectangle(new double[] {x, y}, new double[] {x+size*random.nextDouble(), y+size*random.nextDouble()});
+	}
+
+	private static DoublePoint point(Random random) {
+		return new DoublePoint(new double[] {random.nextDouble(), random.nextDouble()});
+	}
+
+	@Test
+	public void testRectangleArray() {
+		Random random = new Random(42);
+		DoublePointRectangle[] rectangles = new DoublePointRectangle[100];
+		DoublePointRectangleArray array = new DoublePointRectangleArray(rectangles.length, 2);
+		for (int i = 0; i < rectangles.length; i++)
+			array.set(i, rectangles[i] = rectangle(random, 0.2));
+		boolean[] result = new boolean[rectangles.length];
+		double[] distances = new double[rectangles.length];
+		for (int j = 0; j < 50; j++) {
+			DoublePointRectangle query = rectangle(random, 0.5);
+			int overlapping = 0, contained = 0;
+			for (int i = 0; i < rectangles.length; i++) {
+				overlapping += rectangles[i].overlaps(query) ? 1 : 0;
+				contained += query.contains(rectangles[i]) ? 1 : 0;
+			}
+			Assert.assertEquals(array.overlaps(query, result), overlapping);
+			for (int i = 0; i < rectangles.length; i++)
+				Assert.assertEquals(result[i], rectangles[i].overlaps(query));
+			Assert.assertEquals(array.containedIn(query, result), contained);
+			for (int i = 0; i < rectangles.length; i++)
+				Assert.assertEquals(result[i], query.contains(rectangles[i]));
+
+			double[] point = (double[])point(random).getPoint();
+			array.minDistancesSquared(point, distances);
+			for (int i = 0; i < rectangles.length; i++)
+				Assert.assertEquals(distances[i], rectangles[i].minDistanceSquared(point), 1e-12);
+		}
+		Assert.assertEquals(array.get(7), rectangles[7]);
+	}
+
+	private static void checkQueries(RTree tree, List<DoublePoint> points, Random random) {
+		for (int j = 0; j < 20; j++) {
+			DoublePointRectangle window = rectangle(random, 0.3);
+			int expected = 0;
+			for (DoublePoint point : points)
+				if (window.contains(point))
+					expected++;
+			int count = 0;
+			Cursor cursor = tree.query(window);
+			while (cursor.hasNext()) {
+				Assert.assertTrue(window.contains((DoublePoint)cursor.next()));
+				count++;
+			}
+			cursor.close();
+			Assert.assertEquals(count, expected);
+
+			DoublePoint query = point(random);
+			double[] distances = new double[points.size()];
+			for (int i = 0; i < distances.length; i++)
+				distances[i] = points.get(i).distanceTo(query);
+			Arrays.sort(distances);
+			ORTree.NearestNeighborCursor neighbors = tree.nearestNeighborQuery(query, 10);
+			for (int i = 0; i < 10; i++) {
+				neighbors.next();
+				Assert.assertEquals(neighbors.distance(), distances[i], 1e-9);
+			}
+			Assert.assertFalse(neighbors.hasNext());
+			neighbors.close();
+		}
+	}
+
+	@Test
+	public void testRTree() throws IOException {
+		RTree tree = new RTree();
+		BufferedContainer container = new BufferedContainer(
+			new ConverterContainer(new MapContainer(), tree.nodeConverter(new ConvertableConverter(POINT_FACTORY), 2)),
+			new LRUBuffer(8)
+		);
+		tree.initialize(null, RECTANGLE, container, 512, 16, 32, 0.4);
+
+		Random random = new Random(43);
+		List<DoublePoint> points = new ArrayList<DoublePoint>();
+		for (int i = 0; i < 5000; i++) {
+			DoublePoint point = point(random);
+			points.add(point);
+			tree.insert(point);
+		}
+		checkQueries(tree, points, random);
+
+		RTree.Node root = (RTree.Node)tree.rootEntry().get(true);
+		DoublePointRectangleArray rectangles = root.rectangles();
+		Assert.assertEquals(rectangles.number(), root.number());
+		Assert.assertEquals(rectangles.dimensions(), 2);
+
+		// the descriptors of the entries of a read node are created from its rectangles on demand
+		Converter converter = tree.nodeConverter(new ConvertableConverter(POINT_FACTORY), 2);
+		RTree.Node read = (RTree.Node)converter.read(new DataInputStream(new ByteArrayInputStream(Converters.toByteArray(converter, root))));
+		Assert.assertEquals(read.number(), root.number());
+		Iterator entries = root.entries();
+		for (Iterator readEntries = read.entries(); readEntries.hasNext();) {
+			Object entry = readEntries.next();
+			Assert.assertTrue(entry instanceof RTree.ArrayIndexEntry);
+			Assert.assertEquals(((ORTree.IndexEntry)entry).descriptor(), tree.descriptor(entries.next()));
+		}
+
+		// modifications discard the rectangles of the changed nodes
+		for (int i = 0; i < 2500; i++)
+			Assert.assertNotNull(tree.remove(points.remove(random.nextInt(points.size()))));
+		checkQueries(tree, points, random);
+		for (int i = 0; i < 1000; i++) {
+			DoublePoint point = point(random);
+			points.add(point);
+			tree.insert(point);
+		}
+		checkQueries(tree, points, random);
+	}
+}
@@ -0,0 +1,117 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.io.ConverterContainer;
+import xxl.core.collections.containers.io.MappedBlockFileContainer;
+import xxl.core.io.converters.Converters;
+import xxl.core.io.converters.StringConverter;
+
+/**
+ * This is a unit test for the ByteBufferBlock and the zero-copy path of the
+ * ConverterContainer.
+ */
+public class ByteBufferBlockTest {
+
+	@Test
+	public void testDirectBlock() throws IOException {
+		ByteBufferBlock block = ByteBufferBlock.allocateDirect(32);
+		Assert.assertTrue(block.isDirect());
+		Assert.assertNull(block.array);
+
+		block.writeInteger(0, 4711);
+		block.writeLong(4, -42L);
+		DataOutputStream output = block.dataOutputStream(12);
+		output.writeUTF("xxl");
+		output.close();
+
+		Block copy = block.arrayBlock();
+		Assert.assertNotNull(copy.array);
+		Assert.assertEquals(copy.readInteger(0), 4711);
+		Assert.assertEquals(copy.readLong(4), -42L);
+		Assert.assertEquals(block, copy);
+
+		DataInputStream input = block.dataInputStream(12);
+		Assert.assertEquals(input.readUTF(), "xxl");
+		Assert.assertEquals(new ByteBufferDataInput(block.byteBuffer()).readInt(), new DataInputStream(copy.inputStream()).readInt());
+	}
+
+	@Test(expectedExceptions = EOFException.class)
+	public void testByteBufferDataInputEnd() throws IOException {
+		ByteBufferDataInput input = new ByteBufferDataInput(new Block(6).byteBuffer());
+		input.readInt();
+		input.readInt();
+	}
+
+	@Test(expectedExceptions = EOFException.class)
+	public void testUnsafeDataInputEnd() throws IOException {
+		UnsafeDataInput input = new UnsafeDataInput(new byte[12], 4, 6);
+		input.readInt();
+		input.readInt();
+	}
+
+	@DataProvider(name = "modes")
+	public Object[][] modes() {
+		return new Object[][] {
+			{Converters.SerializationMode.BYTE_ARRAY},
+			{Converters.SerializationMode.BYTE_BUFFER},
+			{Converters.SerializationMode.UNSAFE}
+		};
+	}
+
+	@Test(dataProvider = "modes")
+	public void testConverterContainerOnMappedViews(Converters.SerializationMode mode) throws IOException {
+		File file = File.createTempFile("ByteBufferBlockTest", "");
+		file.delete();
+		MappedBlockFileContainer mapped = new MappedBlockFileContainer(file.getPath(), 128);
+		mapped.setViews(true);
+		ConverterContainer container = new ConverterContainer(mapped, StringConverter.DEFAULT_INSTANCE, mode, 128);
+
+		List<Object> ids = new ArrayList<Object>();
+		for (int i = 0; i < 100; i++)
+			ids.add(container.insert("string "+i));
+		for (int i = 0; i < 100; i++) {
+			Assert.assertTrue(mapped.get(ids.get(i)) instanceof ByteBufferBlock);
+			Assert.assertEquals(container.get(ids.get(i)), "string "+i);
+		}
+		// a view written back is copied
+		mapped.update(ids.get(1), mapped.get(ids.get(0)));
+		Assert.assertEquals(container.get(ids.get(1)), "string 0");
+		mapped.delete();
+	}
+}
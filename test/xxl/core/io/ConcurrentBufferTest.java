@@ -0,0 +1,123 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.Container;
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.collections.containers.SynchronizedContainer;
+import xxl.core.collections.containers.io.BufferedContainer;
+import xxl.core.functions.Constant;
+
+/**
+ * This is a unit test for the ConcurrentBuffer, checking the pin counts and
+ * the concurrent access of a buffered container by many threads.
+ */
+public class ConcurrentBufferTest {
+
+	@Test
+	public void testPinCounts() {
+		ConcurrentBuffer<String, Integer, Integer> buffer = new ConcurrentBuffer<String, Integer, Integer>(8, 2);
+
+		buffer.get("owner", 1, new Constant<Integer>(1), false);
+		buffer.get("owner", 1, new Constant<Integer>(1), false);
+		Assert.assertTrue(buffer.isFixed("owner", 1));
+		buffer.unfix("owner", 1);
+		Assert.assertTrue(buffer.isFixed("owner", 1));
+		buffer.unfix("owner", 1);
+		Assert.assertFalse(buffer.isFixed("owner", 1));
+		Assert.assertEquals(buffer.fixedSlots(), 0);
+	}
+
+	@Test
+	public void testBufferMethodsAreDelegated() {
+		Buffer<String, Integer, Integer> buffer = new ConcurrentBuffer<String, Integer, Integer>(8, 2);
+
+		Assert.assertEquals(buffer.fix("owner", 1, new Constant<Integer>(1)).get(), Integer.valueOf(1));
+		Assert.assertTrue(buffer.isFixed("owner", 1));
+		Assert.assertEquals(buffer.lookUp("owner", 1).get(), Integer.valueOf(1));
+		Assert.assertEquals(buffer.misses(), 1);
+		buffer.unfix("owner", 1);
+		Assert.assertFalse(buffer.isFixed("owner", 1));
+		for (int i = 2; i < 6; i++)
+			buffer.get("owner", i, new Constant<Integer>(i), true);
+		Assert.assertNotNull(buffer.victim());
+		Assert.assertNull(buffer.lookUp("owner", 100));
+	}
+
+	@Test
+	public void testEviction() {
+		ConcurrentBuffer<String, Integer, Integer> buffer = new ConcurrentBuffer<String, Integer, Integer>(16, 4);
+
+		for (int i = 0; i < 100; i++)
+			buffer.get("owner", i, new Constant<Integer>(i), true);
+		Assert.assertEquals(buffer.capacity(), 16);
+		Assert.assertTrue(buffer.size() <= 16);
+		buffer.checkBuffer();
+	}
+
+	@Test
+	public void testConcurrentReaders() throws InterruptedException {
+		final Container container = new BufferedContainer(
+			new SynchronizedContainer(new MapContainer()),
+			new ConcurrentBuffer(64, 8)
+		);
+		final List<Object> ids = new ArrayList<Object>();
+		for (int i = 0; i < 1000; i++)
+			ids.add(container.insert(i));
+
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; i < 10000; i++) {
+							int index = (i*7+offset) % ids.size();
+							Assert.assertEquals(container.get(ids.get(index)), index);
+						}
+					}
+					catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		Assert.assertTrue(errors.isEmpty(), errors.toString());
+		container.close();
+	}
+}
@@ -0,0 +1,116 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import xxl.core.functions.Constant;
+
+/**
+ * This is a unit test for the scan-resistant displacement strategies,
+ * checking that a scan does not displace frequently accessed objects.
+ */
+public class ReplacementPolicyTest {
+
+	@DataProvider(name = "scanResistant")
+	public Object[][] scanResistant() {
+		return new Object[][] {
+			{ReplacementPolicy.TWO_QUEUE},
+			{ReplacementPolicy.ARC},
+			{ReplacementPolicy.CLOCK_PRO}
+		};
+	}
+
+	@DataProvider(name = "all")
+	public Object[][] all() {
+		ReplacementPolicy[] policies = ReplacementPolicy.values();
+		Object[][] result = new Object[policies.length][];
+		for (int i = 0; i < policies.length; i++)
+			result[i] = new Object[] {policies[i]};
+		return result;
+	}
+
+	@Test(dataProvider = "scanResistant")
+	public void testScanResistance(ReplacementPolicy policy) {
+		Buffer<String, Integer, Integer> buffer = policy.newBuffer(10);
+		int fresh = 100;
+
+		for (int round = 0; round < 50; round++) {
+			for (int hot = 0; hot < 3; hot++)
+				buffer.get("owner", hot, new Constant<Integer>(hot), true);
+			buffer.get("owner", fresh, new Constant<Integer>(fresh++), true);
+		}
+		for (int i = 0; i < 100; i++)
+			buffer.get("owner", fresh, new Constant<Integer>(fresh++), true);
+		for (int hot = 0; hot < 3; hot++)
+			Assert.assertTrue(buffer.contains("owner", hot), policy+" displaced hot object "+hot);
+	}
+
+	@Test(dataProvider = "scanResistant")
+	public void testScanResistanceWithUpdates(ReplacementPolicy policy) {
+		Buffer<String, Integer, Integer> buffer = policy.newBuffer(10);
+		int fresh = 100;
+
+		for (int round = 0; round < 50; round++) {
+			for (int hot = 0; hot < 3; hot++)
+				buffer.get("owner", hot, new Constant<Integer>(hot), true);
+			buffer.get("owner", fresh, new Constant<Integer>(fresh++), true);
+		}
+		// every object of the scan is read and written back once
+		for (int i = 0; i < 100; i++, fresh++) {
+			buffer.get("owner", fresh, new Constant<Integer>(fresh), false);
+			buffer.update("owner", fresh, fresh, null, true);
+		}
+		for (int hot = 0; hot < 3; hot++)
+			Assert.assertTrue(buffer.contains("owner", hot), policy+" displaced hot object "+hot);
+	}
+
+	@Test(dataProvider = "all")
+	public void testFixedSlotsAreKept(ReplacementPolicy policy) {
+		Buffer<String, Integer, Integer> buffer = policy.newBuffer(5);
+
+		for (int i = 0; i < 4; i++)
+			buffer.get("owner", i, new Constant<Integer>(i), false);
+		for (int i = 4; i < 50; i++)
+			buffer.get("owner", i, new Constant<Integer>(i), true);
+		for (int i = 0; i < 4; i++)
+			Assert.assertTrue(buffer.contains("owner", i));
+		Assert.assertEquals(buffer.size(), 5);
+		try {
+			buffer.get("owner", 50, new Constant<Integer>(50), false);
+			buffer.get("owner", 51, new Constant<Integer>(51), false);
+			Assert.fail("buffer overflow expected");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		buffer.removeAll("owner");
+		Assert.assertEquals(buffer.size(), 0);
+		Assert.assertEquals(buffer.fixedSlots(), 0);
+	}
+}
@@ -0,0 +1,148 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.SynchronizedContainer;
+import xxl.core.collections.containers.io.BlockFileContainer;
+import xxl.core.collections.containers.io.BufferedContainer;
+import xxl.core.collections.containers.io.BufferedContainer.BufferedContainerMetaDataManagement;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.functions.Function;
+import xxl.core.functions.Identity;
+import xxl.core.util.metaData.CompositeMetaData;
+
+/**
+ * This is a unit test for the statistics of the buffers and the file based
+ * containers and their publication as metadata.
+ */
+public class StatisticsTest {
+
+	private static Object value(CompositeMetaData<Object,Object> metaData, Object identifier) {
+		return ((Function<?,?>)metaData.get(identifier)).invoke();
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(histogram.percentile(0.5), 0);
+		for (int i = 1; i <= 100; i++)
+			histogram.record(i*1000);
+		Assert.assertEquals(histogram.count(), 100);
+		Assert.assertEquals(histogram.max(), 100000);
+		Assert.assertEquals(histogram.mean(), 50500.0);
+		long median = histogram.percentile(0.5);
+		Assert.assertTrue(median >= 50000 && median < 100000, "median: "+median);
+		Assert.assertEquals(histogram.percentile(1), 100000);
+		histogram.reset();
+		Assert.assertEquals(histogram.count(), 0);
+	}
+
+	@Test
+	public void testBufferStatistics() {
+		Buffer<Object,Integer,Integer> buffer = new LRUBuffer<Object,Integer,Integer>(4);
+		Function<Integer,Integer> obtain = new Identity<Integer>();
+		Object owner = new Object();
+		final int[] flushes = new int[1];
+		Function<Object,Object> flush = new AbstractFunction<Object,Object>() {
+			public Object invoke(Object id, Object object) {
+				return flushes[0]++;
+			}
+		};
+
+		buffer.getMetaDataManagement().includeAll(Buffer.IDENTIFIERS);
+		buffer.get(owner, 1, obtain, false);
+		buffer.get(owner, 2, obtain, false);
+		buffer.get(owner, 1, obtain, true);
+		buffer.update(owner, 3, 3, flush, true);
+		for (int i = 4; i < 10; i++)
+			buffer.get(owner, i, obtain, true);
+
+		Assert.assertEquals(buffer.hits(), 1);
+		Assert.assertEquals(buffer.misses(), 8);
+		Assert.assertEquals(buffer.fixedSlotsHighWaterMark(), 2);
+		Assert.assertEquals(buffer.evictions(), 5);
+		Assert.assertEquals(buffer.dirtyFlushes(), 1);
+		Assert.assertEquals(flushes[0], 1);
+		Assert.assertEquals(value(buffer.getMetaData(), Buffer.MISSES), 8L);
+		Assert.assertEquals(value(buffer.getMetaData(), Buffer.HIT_RATIO), 1/9.0);
+
+		buffer.resetStatistics();
+		Assert.assertEquals(buffer.hits(), 0);
+		Assert.assertEquals(buffer.fixedSlotsHighWaterMark(), 1);
+	}
+
+	@Test
+	public void testConcurrentBufferStatistics() {
+		ConcurrentBuffer<Object,Integer,Integer> buffer = new ConcurrentBuffer<Object,Integer,Integer>(16, 4);
+		Function<Integer,Integer> obtain = new Identity<Integer>();
+		Object owner = new Object();
+		for (int i = 0; i < 100; i++)
+			buffer.get(owner, i%20, obtain, true);
+		Assert.assertEquals(buffer.hits()+buffer.misses(), 100);
+		Assert.assertEquals(buffer.evictions(), buffer.misses()-buffer.size());
+	}
+
+	@Test
+	public void testBufferedContainerMetaData() throws IOException {
+		File file = File.createTempFile("StatisticsTest", "");
+		file.delete();
+		BlockFileContainer blocks = new BlockFileContainer(file.getPath(), 64);
+		BufferedContainer container = new BufferedContainer(new SynchronizedContainer(blocks), new LRUBuffer(10), true);
+		container.getMetaDataManagement().includeAll(BufferedContainerMetaDataManagement.BUFFER, BufferedContainerMetaDataManagement.CONTAINER);
+
+		List<Object> ids = new ArrayList<Object>();
+		for (int i = 0; i < 50; i++)
+			ids.add(container.insert(new Block(64)));
+		for (int i = ids.size()-1; i >= 0; i--)
+			container.get(ids.get(i));
+
+		@SuppressWarnings("unchecked")
+		CompositeMetaData<Object,Object> buffer = (CompositeMetaData<Object,Object>)value(container.getMetaData(), BufferedContainerMetaDataManagement.BUFFER);
+		@SuppressWarnings("unchecked")
+		CompositeMetaData<Object,Object> io = (CompositeMetaData<Object,Object>)value(container.getMetaData(), BufferedContainerMetaDataManagement.CONTAINER);
+
+		Assert.assertEquals(value(buffer, Buffer.HITS), 10L);
+		Assert.assertEquals(value(buffer, Buffer.MISSES), 40L);
+		Assert.assertEquals(value(io, IOStatistics.READS), 40L);
+		Assert.assertEquals(value(io, IOStatistics.BYTES_READ), 40L*64);
+		Assert.assertEquals(value(io, IOStatistics.WRITES), 50L);
+		Assert.assertEquals(((LatencyHistogram)value(io, IOStatistics.READ_LATENCY)).count(), 40);
+
+		container.getMetaDataManagement().exclude(BufferedContainerMetaDataManagement.CONTAINER);
+		Assert.assertFalse(blocks.getMetaData().contains(IOStatistics.READS));
+		container.close();
+		blocks.delete();
+	}
+}
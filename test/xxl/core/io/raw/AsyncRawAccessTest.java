@@ -0,0 +1,111 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>.
+
+    http://code.google.com/p/xxl/
+
+*/
+
+package xxl.core.io.raw;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * This is a unit test for the AsyncRawAccess, checking its single sector,
+ * future-returning and batch operations against a RAFRawAccess on the same
+ * file.
+ */
+public class AsyncRawAccessTest {
+
+	private static final int SECTOR_SIZE = 128;
+
+	private static final int SECTORS = 256;
+
+	private static String newFile() throws IOException {
+		File file = File.createTempFile("AsyncRawAccessTest", "");
+		file.delete();
+		RawAccessUtils.createFileForRaw(file.getPath(), SECTORS, SECTOR_SIZE);
+		return file.getPath();
+	}
+
+	private static byte[] sector(long number) {
+		byte[] block = new byte[SECTOR_SIZE];
+		Arrays.fill(block, (byte)number);
+		block[0] = (byte)(number >> 8);
+		return block;
+	}
+
+	@Test
+	public void testBatchOperations() throws Exception {
+		String file = newFile();
+		AsyncRawAccess ra = new AsyncRawAccess(file, SECTOR_SIZE, 4);
+		Assert.assertEquals(ra.getNumSectors(), SECTORS);
+
+		long[] sectors = new long[SECTORS];
+		byte[][] blocks = new byte[SECTORS][];
+		for (int i = 0; i < SECTORS; i++) {
+			sectors[i] = (i*37)%SECTORS;
+			blocks[i] = sector(sectors[i]);
+		}
+		ra.write(blocks, sectors);
+
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		byte[][] read = new byte[SECTORS][SECTOR_SIZE];
+		for (int i = 0; i < SECTORS; i += 2)
+			futures.add(ra.readAsync(read[i], sectors[i]));
+		for (Future<Void> future : futures)
+			future.get();
+		for (int i = 1; i < SECTORS; i += 2)
+			ra.read(read[i], sectors[i]);
+		for (int i = 0; i < SECTORS; i++)
+			Assert.assertEquals(read[i], blocks[i]);
+		ra.close();
+
+		RAFRawAccess raf = new RAFRawAccess(file, false, SECTOR_SIZE);
+		byte[] block = new byte[SECTOR_SIZE];
+		for (int i = 0; i < SECTORS; i++) {
+			raf.read(block, i);
+			Assert.assertEquals(block, sector(i));
+		}
+		raf.close();
+		new File(file).delete();
+	}
+
+	@Test(expectedExceptions = RawAccessException.class)
+	public void testSectorOutOfBounds() throws IOException {
+		String file = newFile();
+		AsyncRawAccess ra = new AsyncRawAccess(file, SECTOR_SIZE);
+		try {
+			ra.read(new byte[][] {new byte[SECTOR_SIZE], new byte[SECTOR_SIZE]}, new long[] {0, SECTORS});
+		}
+		finally {
+			ra.close();
+			new File(file).delete();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.spatial;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import xxl.core.collections.containers.MapContainer;
+import xxl.core.cursors.Cursor;
+import xxl.core.functions.AbstractFunction;
+import xxl.core.indexStructures.HilbertRTree;
+import xxl.core.indexStructures.rtrees.SimpleHilbertRTreeTest;
+import xxl.core.io.converters.ConvertableConverter;
+import xxl.core.io.converters.MeasuredConverter;
+import xxl.core.spatial.points.DoublePoint;
+import xxl.core.spatial.rectangles.DoublePointRectangle;
+
+/**
+ * This is a unit test for the n-dimensional Hilbert curve of
+ * {@link SpaceFillingCurves} and its use as key of the {@link HilbertRTree}.
+ */
+public class SpaceFillingCurvesTest {
+
+	private static int[] randomPoint(Random random, int dimensions, int bitsPerDimension) {
+		int[] point = new int[dimensions];
+		for (int i = 0; i < dimensions; i++)
+			point[i] = random.nextInt() >>> 32-bitsPerDimension;
+		return point;
+	}
+
+	private static BigInteger toBigInteger(long[] words) {
+		BigInteger value = BigInteger.ZERO;
+		for (long word : words)
+			value = value.shiftLeft(64).or(new BigInteger(Long.toUnsignedString(word)));
+		return value;
+	}
+
+	@Test
+	public void testCurve() {
+		for (int dimensions = 1; dimensions <= 5; dimensions++)
+			for (int bits = 1; dimensions*bits <= 15; bits++) {
+				int size = 1 << dimensions*bits;
+				boolean[] visited = new boolean[size];
+				int[] point = new int[dimensions];
+				for (int cell = 0; cell < size; cell++) {
+					for (int i = 0; i < dimensions; i++)
+						point[i] = cell >>> i*bits & (1 << bits)-1;
+					long hilbert = SpaceFillingCurves.hilbert(point, bits);
+					Assert.assertTrue(hilbert >= 0 && hilbert < size);
+					Assert.assertFalse(visited[(int)hilbert]);
+					visited[(int)hilbert] = true;
+					Assert.assertEquals(SpaceFillingCurves.hilbertPoint(hilbert, bits, dimensions), point);
+				}
+				// consecutive values belong to neighbouring cells
+				int[] previous = SpaceFillingCurves.hilbertPoint(0, bits, dimensions);
+				Assert.assertEquals(previous, new int[dimensions]);
+				for (int hilbert = 1; hilbert < size; hilbert++) {
+					int[] next = SpaceFillingCurves.hilbertPoint(hilbert, bits, dimensions);
+					int distance = 0;
+					for (int i = 0; i < dimensions; i++)
+						distance += Math.abs(next[i]-previous[i]);
+					Assert.assertEquals(distance, 1);
+					previous = next;
+				}
+			}
+	}
+
+	@Test
+	public void testTables() {
+		// the tables for two and three dimensions reproduce Skilling's transform
+		Random random = new Random(42);
+		for (int dimensions = 2; dimensions <= 3; dimensions++)
+			for (int i = 0; i < 1000; i++) {
+				int bits = 1+random.nextInt(63/dimensions);
+				int[] point = randomPoint(random, dimensions, bits);
+				int[] x = point.clone();
+				SpaceFillingCurves.axesToTranspose(x, bits);
+				long expected = 0;
+				for (int level = bits-1; level >= 0; level--)
+					for (int d = 0; d < dimensions; d++)
+						expected = expected<<1 | x[d] >>> level & 1;
+				Assert.assertEquals(SpaceFillingCurves.hilbert(point, bits), expected);
+			}
+	}
+
+	@Test
+	public void testWords() {
+		Random random = new Random(43);
+		for (int dimensions = 1; dimensions <= 7; dimensions++)
+			for (int i = 0; i < 200; i++) {
+				int bits = 1+random.nextInt(32);
+				int[] point = randomPoint(random, dimensions, bits);
+				long[] words = SpaceFillingCurves.hilbertWords(point, bits);
+				Assert.assertEquals(words.length, (dimensions*bits+63)/64);
+				Assert.assertEquals(SpaceFillingCurves.hilbertPoint(words, bits, dimensions), point);
+				if (dimensions*bits <= 63)
+					Assert.assertEquals(words[0], SpaceFillingCurves.hilbert(point, bits));
+				// the value of a coarser grid is a prefix of the value
+				int coarse = Math.min(bits, 63/dimensions);
+				int[] cell = new int[dimensions];
+				for (int d = 0; d < dimensions; d++)
+					cell[d] = point[d] >>> bits-coarse;
+				Assert.assertEquals(toBigInteger(words).shiftRight(dimensions*(bits-coarse)).longValue(), SpaceFillingCurves.hilbert(cell, coarse));
+
+				int[] other = randomPoint(random, dimensions, bits);
+				long[] otherWords = SpaceFillingCurves.hilbertWords(other, bits);
+				Assert.assertEquals(Integer.signum(SpaceFillingCurves.compareHilbertWords(words, otherWords)), toBigInteger(words).compareTo(toBigInteger(otherWords)));
+			}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testPrecision() {
+		SpaceFillingCurves.hilbert(new int[3], 22);
+	}
+
+	@Test
+	public void testHilbertRTree() {
+		final int dimensions = 3;
+		HilbertRTree tree = new HilbertRTree(SimpleHilbertRTreeTest.blockSize, new DoublePointRectangle(new double[dimensions], new double[] {1, 1, 1}), SimpleHilbertRTreeTest.minMaxFactor);
+		tree.initializeWithHilbertCurve(new AbstractFunction() {
+				public Object invoke(Object point) {
+					return new DoublePointRectangle((DoublePoint)point, (DoublePoint)point);
+				}
+			}, new MapContainer(),
+			SimpleHilbertRTreeTest.keyConverter, new MeasuredConverter() {
+				public int getMaxObjectSize() {
+					return dimensions * 8;
+				}
+				public Object read(DataInput dataInput, Object object) throws IOException {
+					return ConvertableConverter.DEFAULT_INSTANCE.read(dataInput, new DoublePoint(dimensions));
+				}
+				public void write(DataOutput dataOutput, Object object) throws IOException {
+					ConvertableConverter.DEFAULT_INSTANCE.write(dataOutput, (DoublePoint)object);
+				}
+			},
+			SimpleHilbertRTreeTest.createORSeparator, SimpleHilbertRTreeTest.createORKeyRange);
+		Random random = new Random(44);
+		List<DoublePoint> points = new ArrayList<DoublePoint>();
+		for (int i = 0; i < 10000; i++) {
+			DoublePoint point = new DoublePoint(new double[] {random.nextDouble(), random.nextDouble(), random.nextDouble()});
+			points.add(point);
+			tree.insert(point);
+		}
+		for (int i = 0; i < 20; i++) {
+			double[] left = new double[dimensions], right = new double[dimensions];
+			for (int d = 0; d < dimensions; d++) {
+				left[d] = random.nextDouble()*0.7;
+				right[d] = left[d]+0.3;
+			}
+			DoublePointRectangle window = new DoublePointRectangle(left, right);
+			int expected = 0;
+			for (DoublePoint point : points)
+				if (window.overlaps(new DoublePointRectangle(point, point)))
+					expected++;
+			int count = 0;
+			Cursor cursor = tree.queryOR(window);
+			while (cursor.hasNext()) {
+				DoublePoint point = (DoublePoint)cursor.next();
+				Assert.assertTrue(window.overlaps(new DoublePointRectangle(point, point)), Arrays.toString((double[])point.getPoint()));
+				count++;
+			}
+			cursor.close();
+			Assert.assertEquals(count, expected);
+		}
+		// the keys follow the Hilbert order of the middle points
+		Cursor cursor = tree.query();
+		long previous = Long.MIN_VALUE;
+		while (cursor.hasNext()) {
+			long key = (Long)tree.getSFCValue(cursor.next());
+			Assert.assertTrue(previous <= key);
+			previous = key;
+		}
+		cursor.close();
+	}
+}
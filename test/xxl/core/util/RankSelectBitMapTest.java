@@ -0,0 +1,96 @@
+/* XXL: The eXtensible and fleXible Library for data processing
+
+Copyright (C) 2000-2011 Prof. Dr. Bernhard Seeger
+                        Head of the Database Research Group
+                        Department of Mathematics and Computer Science
+                        University of Marburg
+                        Germany
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation; either
+version 3 of the License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library;  If not, see <http://www.gnu.org/licenses/>. 
+
+    http://code.google.com/p/xxl/
+
+*/
+
+
+package xxl.core.util;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * This is a unit test for the RankSelectBitMap, comparing it with a
+ * <tt>java.util.BitSet</tt> after random modifications.
+ */
+public class RankSelectBitMapTest {
+
+	private static void check(RankSelectBitMap bitMap, java.util.BitSet expected, Random random) {
+		long length = bitMap.length();
+		Assert.assertEquals(bitMap.cardinality(), expected.cardinality());
+		for (int n = 0; n < 200; n++) {
+			int i = random.nextInt((int)length+1);
+			int next = expected.nextSetBit(i);
+			Assert.assertEquals(bitMap.nextSetBit(i), next < length ? next : -1);
+			Assert.assertEquals(bitMap.nextClearBit(i), Math.min(expected.nextClearBit(i), length));
+			Assert.assertEquals(bitMap.previousSetBit(i), expected.previousSetBit((int)Math.min(i, length-1)));
+			Assert.assertEquals(bitMap.rank(i), expected.get(0, i).cardinality());
+			long k = bitMap.rank(i);
+			if (k < bitMap.cardinality())
+				Assert.assertEquals(bitMap.select(k), next);
+			long clear = i-k;
+			if (clear < length-bitMap.cardinality())
+				Assert.assertEquals(bitMap.selectClear(clear), expected.nextClearBit(i));
+		}
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(42);
+		RankSelectBitMap bitMap = new RankSelectBitMap();
+		java.util.BitSet expected = new java.util.BitSet();
+
+		for (int round = 0; round < 20; round++) {
+			int length = random.nextInt(20000)+1;
+			bitMap.setLength(length);
+			expected.clear(length, Integer.MAX_VALUE);
+			// dense and sparse regions, so that full and empty superblocks occur
+			double density = random.nextDouble() < 0.5 ? 0.999 : 0.01;
+			for (int i = 0; i < 3*length; i++) {
+				int index = random.nextInt(length);
+				if (random.nextDouble() < density) {
+					Assert.assertEquals(bitMap.set(index), !expected.get(index));
+					expected.set(index);
+				}
+				else {
+					Assert.assertEquals(bitMap.clear(index), expected.get(index));
+					expected.clear(index);
+				}
+			}
+			check(bitMap, expected, random);
+		}
+
+		RankSelectBitMap copy = new RankSelectBitMap(bitMap.toByteArray(), bitMap.length());
+		Assert.assertEquals(copy.toString(), bitMap.toString());
+		Assert.assertEquals(copy.cardinality(), bitMap.cardinality());
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		RankSelectBitMap bitMap = new RankSelectBitMap();
+		bitMap.setLength(10);
+		bitMap.set(10);
+	}
+}